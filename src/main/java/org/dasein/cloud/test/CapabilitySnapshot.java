@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudProvider;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers the answers of the capability objects of a provider so that each question (a capability method and its
+ * arguments) is put to the provider once per test run, however many tests and resource classes ask it. Some
+ * providers make remote calls to answer capability questions. A snapshot is shared by every test manager connected
+ * to the same provider, cloud, region and account. Services obtained from a {@link DaseinTestManager} answer from
+ * the snapshot automatically; other code may route a capability object through {@link #memoize(Object, Class)}.
+ * Errors are never remembered, so a failed question is asked again.
+ * <p>
+ * Running this class writes the full capability matrix of the configured cloud as JSON without running any tests,
+ * which is useful for comparing clouds:
+ * </p>
+ * <pre>
+ *     java -DproviderClass=... -cp ... org.dasein.cloud.test.CapabilitySnapshot [file]
+ * </pre>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class CapabilitySnapshot {
+    static private final Logger logger = Logger.getLogger(CapabilitySnapshot.class);
+
+    static private final Object NULL = new Object();
+
+    static private final ConcurrentHashMap<String,CapabilitySnapshot> snapshots = new ConcurrentHashMap<String, CapabilitySnapshot>();
+
+    /**
+     * Provides the snapshot for the cloud account the provider is connected to.
+     * @param provider the connected provider
+     * @return the snapshot
+     */
+    static public @Nonnull CapabilitySnapshot getInstance(@Nonnull CloudProvider provider) {
+        String key = DiscoveryCache.getKey(provider);
+        CapabilitySnapshot snapshot = snapshots.get(key);
+
+        if( snapshot == null ) {
+            CapabilitySnapshot created = new CapabilitySnapshot();
+
+            snapshot = snapshots.putIfAbsent(key, created);
+            if( snapshot == null ) {
+                snapshot = created;
+            }
+        }
+        return snapshot;
+    }
+
+    static public void report(@Nonnull Logger logger) {
+        for( CapabilitySnapshot snapshot : snapshots.values() ) {
+            DaseinTestManager.out(logger, null, "Capabilities", snapshot.answers.size() + " answers, " + snapshot.hits.get() + " hits, " + snapshot.misses.get() + " misses");
+        }
+    }
+
+    /**
+     * Writes the capability matrix of the configured cloud.
+     * @param args the file to which the matrix is written, standard output if none is specified
+     * @throws IOException an error occurred writing the matrix
+     */
+    static public void main(String ... args) throws IOException {
+        try {
+            CloudProvider provider = ProviderPool.acquire();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(args.length < 1 ? System.out : new FileOutputStream(args[0]), "utf-8"));
+
+            try {
+                getInstance(provider).export(provider, writer);
+            }
+            finally {
+                if( args.length < 1 ) {
+                    writer.flush();
+                }
+                else {
+                    writer.close();
+                }
+            }
+        }
+        finally {
+            ProviderPool.closeAll();
+            EventSink.flush();
+        }
+    }
+
+    private final ConcurrentHashMap<String,Object> answers = new ConcurrentHashMap<String, Object>();
+    private final AtomicInteger                    hits    = new AtomicInteger(0);
+    private final AtomicInteger                    misses  = new AtomicInteger(0);
+
+    private CapabilitySnapshot() { }
+
+    private class Memo implements InvocationHandler {
+        private final Object   target;
+        private final Class<?> type;
+
+        private Memo(@Nonnull Object target, @Nonnull Class<?> type) {
+            this.target = target;
+            this.type = type;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if( method.getDeclaringClass().equals(Object.class) ) {
+                if( method.getName().equals("equals") ) {
+                    return ( args[0] == proxy || target.equals(args[0]) );
+                }
+                return method.invoke(target, args);
+            }
+            String key = type.getName() + "." + method.getName() + (args == null ? "" : Arrays.deepToString(args));
+            Object answer = answers.get(key);
+
+            if( answer != null ) {
+                hits.incrementAndGet();
+                return ( answer == NULL ? null : answer );
+            }
+            misses.incrementAndGet();
+            try {
+                answer = method.invoke(target, args);
+            }
+            catch( InvocationTargetException e ) {
+                throw e.getCause();
+            }
+            answers.putIfAbsent(key, answer == null ? NULL : answer);
+            return answer;
+        }
+    }
+
+    /**
+     * Routes the questions put to a capability object through this snapshot.
+     * @param capabilities the capability object of a support object
+     * @param type the capability interface
+     * @param <T> the type of the capability interface
+     * @return a capability object answering from this snapshot, or null if the capabilities are null
+     */
+    public @Nullable <T> T memoize(@Nullable T capabilities, @Nonnull Class<T> type) {
+        if( capabilities == null || !type.isInterface() ) {
+            return capabilities;
+        }
+        if( Proxy.isProxyClass(capabilities.getClass()) && Proxy.getInvocationHandler(capabilities) instanceof Memo ) {
+            return capabilities;
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Memo(capabilities, type)));
+    }
+
+    /**
+     * Writes the capability matrix of the provider as a JSON object keyed by service and support interface (e.g.
+     * "ComputeServices.VirtualMachineSupport"). Each entry maps capability questions to their answers. Questions
+     * taking a single enumerated argument are asked for every value of the enumeration (e.g.
+     * identifyPasswordRequirement for every Platform), questions taking other arguments are skipped.
+     * @param provider the provider whose capabilities are written
+     * @param writer the writer to which the matrix is written
+     * @throws IOException an error occurred writing the matrix
+     */
+    public void export(@Nonnull CloudProvider provider, @Nonnull Writer writer) throws IOException {
+        TreeMap<String,Object> matrix = new TreeMap<String, Object>();
+
+        matrix.put("provider", provider.getProviderName());
+        matrix.put("cloud", provider.getCloudName());
+        for( Method m : CloudProvider.class.getMethods() ) {
+            Class<?> returnType = m.getReturnType();
+
+            if( m.getParameterTypes().length > 0 || !returnType.isInterface() || !returnType.getSimpleName().endsWith("Services") ) {
+                continue;
+            }
+            Object services;
+
+            try {
+                services = m.invoke(provider);
+            }
+            catch( Exception e ) {
+                logger.warn("Unable to access " + returnType.getSimpleName() + ": " + e.getMessage());
+                continue;
+            }
+            if( services == null ) {
+                continue;
+            }
+            for( Method s : returnType.getMethods() ) {
+                Class<?> supportType = s.getReturnType();
+
+                if( s.getParameterTypes().length > 0 || !supportType.isInterface() || !supportType.getSimpleName().endsWith("Support") ) {
+                    continue;
+                }
+                try {
+                    Object support = s.invoke(services);
+
+                    if( support != null ) {
+                        Method getCapabilities = supportType.getMethod("getCapabilities");
+                        TreeMap<String,Object> answers = describe(getCapabilities.getReturnType(), getCapabilities.invoke(support));
+
+                        if( answers != null ) {
+                            matrix.put(returnType.getSimpleName() + "." + supportType.getSimpleName(), answers);
+                        }
+                    }
+                }
+                catch( NoSuchMethodException ignore ) {
+                    // support without capabilities
+                }
+                catch( Exception e ) {
+                    logger.warn("Unable to describe " + supportType.getSimpleName() + ": " + e.getMessage());
+                }
+            }
+        }
+        String json = new JSONObject(matrix).toString();
+
+        if( json == null ) {
+            throw new IOException("Unable to format the capability matrix of " + provider.getCloudName());
+        }
+        writer.write(json);
+        writer.write("\n");
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable TreeMap<String,Object> describe(@Nonnull Class<?> type, @Nullable Object capabilities) {
+        if( capabilities == null || !type.isInterface() ) {
+            return null;
+        }
+        Object memo = memoize(capabilities, (Class<Object>)type);
+        TreeMap<String,Object> answers = new TreeMap<String, Object>();
+
+        for( Method m : type.getMethods() ) {
+            Class<?>[] params = m.getParameterTypes();
+
+            if( Modifier.isStatic(m.getModifiers()) || m.getReturnType().equals(void.class) ) {
+                continue;
+            }
+            if( params.length == 0 ) {
+                answers.put(m.getName(), ask(memo, m));
+            }
+            else if( params.length == 1 && params[0].isEnum() ) {
+                TreeMap<String,Object> byValue = new TreeMap<String, Object>();
+
+                for( Object value : params[0].getEnumConstants() ) {
+                    byValue.put(value.toString(), ask(memo, m, value));
+                }
+                answers.put(m.getName(), byValue);
+            }
+            else if( params.length == 1 && params[0].equals(Locale.class) ) {
+                answers.put(m.getName(), ask(memo, m, Locale.getDefault()));
+            }
+        }
+        return answers;
+    }
+
+    private @Nullable Object ask(@Nonnull Object capabilities, @Nonnull Method method, @Nullable Object ... args) {
+        try {
+            Object answer = method.invoke(capabilities, args);
+
+            if( answer instanceof Iterable && !(answer instanceof Collection) ) {
+                // org.json writes only collections as arrays
+                ArrayList<Object> items = new ArrayList<Object>();
+
+                for( Object item : (Iterable<?>)answer ) {
+                    items.add(item);
+                }
+                return items;
+            }
+            return ( answer == null || answer instanceof Boolean || answer instanceof Number || answer instanceof Collection ? answer : answer.toString() );
+        }
+        catch( InvocationTargetException e ) {
+            return "error: " + e.getCause().getMessage();
+        }
+        catch( Exception e ) {
+            return "error: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,432 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.CloudProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records every call crossing the provider boundary, with its response and timing, so that a run can later be
+ * replayed offline without a cloud. The mode is chosen with {@link System} properties:
+ * <pre>
+ *     -Ddasein.recording.mode=record -Ddasein.recording.file=target/dasein-recording.bin
+ *     -Ddasein.recording.mode=replay -Ddasein.replay.speed=recorded
+ * </pre>
+ * In either mode {@link DaseinTestManager#constructProvider(String, String, String)} wraps the configured provider
+ * in a {@link RecordingProvider}. Calls that merely navigate to a service, support or capability object are passed
+ * to the configured provider, which does not contact the cloud for them; every other call is recorded or replayed.
+ * <p>
+ * The recording is an append-only file of length-prefixed records, each flushed as it is written, so a recording
+ * cut short by a killed run is still usable up to its last complete record. Lazily populated results are
+ * collected into lists before they are recorded. Results that cannot be serialized are recorded as missing and
+ * fail when replayed.
+ * </p>
+ * <p>
+ * Replay serves the recorded responses to each call in the order they were recorded, matching on the interface,
+ * method and arguments and falling back to the interface and method alone, since tests name resources randomly.
+ * Responses are served as fast as possible unless dasein.replay.speed is "recorded", in which case each takes as
+ * long as it did when recorded. A call for which no response remains fails.
+ * </p>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class CloudRecording {
+    static private final Logger logger = Logger.getLogger(CloudRecording.class);
+
+    static public final String RECORDING_FILE = "dasein.recording.file";
+    static public final String RECORDING_MODE = "dasein.recording.mode";
+    static public final String REPLAY_SPEED   = "dasein.replay.speed";
+
+    static public final String RECORD = "record";
+    static public final String REPLAY = "replay";
+
+    static private final String DEFAULT_FILE = "target/dasein-recording.bin";
+
+    static private CloudRecording recording;
+
+    static private class Record implements Serializable {
+        private static final long serialVersionUID = -2213851637722941130L;
+
+        private String    api;
+        private String    args;
+        private Throwable error;
+        private boolean   missing;
+        private long      nanos;
+        private Object    result;
+
+        private transient AtomicBoolean taken = new AtomicBoolean(false);
+
+        private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            taken = new AtomicBoolean(false);
+        }
+    }
+
+    /**
+     * Wraps the provider for recording or replay if either has been configured.
+     * @param provider the connected provider
+     * @return the provider wrapped for recording or replay, or the provider itself
+     */
+    static public @Nonnull CloudProvider wrap(@Nonnull CloudProvider provider) {
+        CloudRecording r = getInstance();
+
+        return ( r == null ? provider : new RecordingProvider(provider, r) );
+    }
+
+    /**
+     * @return the recording configured for this run, or null if calls are neither recorded nor replayed
+     */
+    static public synchronized @Nullable CloudRecording getInstance() {
+        if( recording == null ) {
+            String mode = DaseinTestManager.getSystemProperty(RECORDING_MODE);
+
+            if( mode == null || (!mode.equalsIgnoreCase(RECORD) && !mode.equalsIgnoreCase(REPLAY)) ) {
+                return null;
+            }
+            String file = DaseinTestManager.getSystemProperty(RECORDING_FILE);
+
+            recording = new CloudRecording(new File(file == null ? DEFAULT_FILE : file), mode.equalsIgnoreCase(REPLAY), "recorded".equalsIgnoreCase(DaseinTestManager.getSystemProperty(REPLAY_SPEED)));
+            recording.open();
+        }
+        return recording;
+    }
+
+    static public synchronized void report(@Nonnull Logger logger) {
+        if( recording != null ) {
+            DaseinTestManager.out(logger, null, recording.replay ? "Replayed" : "Recorded", recording.calls.get() + " calls, " + recording.misses.get() + " misses (" + recording.file + ")");
+        }
+    }
+
+    static private boolean isNavigation(@Nonnull Class<?> type) {
+        String name = type.getSimpleName();
+
+        return ( type.isInterface() && type.getName().startsWith("org.dasein.cloud.") && (name.endsWith("Services") || name.endsWith("Support") || name.endsWith("Capabilities")) );
+    }
+
+    private final AtomicInteger calls  = new AtomicInteger(0);
+    private final File          file;
+    private final AtomicInteger misses = new AtomicInteger(0);
+    private       DataOutputStream output;
+    private final boolean       realTime;
+    private final boolean       replay;
+
+    private final ConcurrentHashMap<String,ConcurrentLinkedQueue<Record>> byApi  = new ConcurrentHashMap<String, ConcurrentLinkedQueue<Record>>();
+    private final ConcurrentHashMap<String,ConcurrentLinkedQueue<Record>> byCall = new ConcurrentHashMap<String, ConcurrentLinkedQueue<Record>>();
+
+    private CloudRecording(@Nonnull File file, boolean replay, boolean realTime) {
+        this.file = file;
+        this.replay = replay;
+        this.realTime = realTime;
+    }
+
+    private void open() {
+        if( replay ) {
+            load();
+            return;
+        }
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+
+            if( dir != null && !dir.exists() && !dir.mkdirs() ) {
+                logger.warn("Unable to create " + dir);
+            }
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+        }
+        catch( IOException e ) {
+            throw new RuntimeException("Unable to open recording " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void load() {
+        int count = 0;
+
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            try {
+                while( true ) {
+                    int length;
+
+                    try {
+                        length = input.readInt();
+                    }
+                    catch( EOFException e ) {
+                        break;
+                    }
+                    byte[] bytes = new byte[length];
+
+                    try {
+                        input.readFully(bytes);
+                    }
+                    catch( EOFException e ) {
+                        logger.warn("Ignoring incomplete last record in " + file);
+                        break;
+                    }
+                    Record r = (Record)new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+
+                    queue(byApi, r.api).add(r);
+                    queue(byCall, r.api + r.args).add(r);
+                    count++;
+                }
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch( IOException e ) {
+            throw new RuntimeException("Unable to read recording " + file + ": " + e.getMessage(), e);
+        }
+        catch( ClassNotFoundException e ) {
+            throw new RuntimeException("Recording " + file + " holds an unknown type: " + e.getMessage(), e);
+        }
+        DaseinTestManager.out(logger, null, "Replay", count + " responses from " + file);
+    }
+
+    private @Nonnull ConcurrentLinkedQueue<Record> queue(@Nonnull ConcurrentHashMap<String,ConcurrentLinkedQueue<Record>> map, @Nonnull String key) {
+        ConcurrentLinkedQueue<Record> queue = map.get(key);
+
+        if( queue == null ) {
+            ConcurrentLinkedQueue<Record> created = new ConcurrentLinkedQueue<Record>();
+
+            queue = map.putIfAbsent(key, created);
+            if( queue == null ) {
+                queue = created;
+            }
+        }
+        return queue;
+    }
+
+    private @Nullable Record take(@Nullable ConcurrentLinkedQueue<Record> queue) {
+        if( queue != null ) {
+            Record r;
+
+            // a response matched by its arguments remains queued under its method until skipped here
+            while( (r = queue.poll()) != null ) {
+                if( r.taken.compareAndSet(false, true) ) {
+                    return r;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes a call through this recording.
+     * @param api the interface and method called (e.g. "VirtualMachineSupport.listVirtualMachines")
+     * @param args the arguments of the call
+     * @param returnType the declared return type of the call
+     * @param exceptions the exceptions declared by the call
+     * @param call makes the call against the configured provider, only invoked when recording
+     * @return the response to the call
+     * @throws Throwable the error with which the call failed
+     */
+    public @Nullable Object call(@Nonnull String api, @Nullable Object[] args, @Nonnull Class<?> returnType, @Nonnull Class<?>[] exceptions, @Nonnull Callable<Object> call) throws Throwable {
+        String key = (args == null ? "" : Arrays.deepToString(args));
+
+        calls.incrementAndGet();
+        if( replay ) {
+            Record r = take(byCall.get(api + key));
+
+            if( r == null ) {
+                r = take(byApi.get(api));
+            }
+            if( r == null || r.missing ) {
+                misses.incrementAndGet();
+                String message = ( r == null ? "No recorded response to " : "Unrecordable response to ") + api + key;
+
+                for( Class<?> t : exceptions ) {
+                    if( t.isAssignableFrom(CloudException.class) ) {
+                        throw new CloudException(message);
+                    }
+                }
+                throw new IllegalStateException(message);
+            }
+            if( realTime && r.nanos > 0L ) {
+                Thread.sleep(r.nanos/1000000L, (int)(r.nanos%1000000L));
+            }
+            if( r.error != null ) {
+                throw r.error;
+            }
+            return r.result;
+        }
+        Record r = new Record();
+        long start = System.nanoTime();
+
+        r.api = api;
+        r.args = key;
+        try {
+            Object result = call.call();
+
+            if( result instanceof Iterable && returnType.isAssignableFrom(ArrayList.class) ) {
+                ArrayList<Object> list = new ArrayList<Object>();
+
+                for( Object item : (Iterable<?>)result ) {
+                    list.add(item);
+                }
+                result = list;
+            }
+            r.result = result;
+            return result;
+        }
+        catch( Throwable t ) {
+            r.error = t;
+            throw t;
+        }
+        finally {
+            r.nanos = System.nanoTime() - start;
+            write(r);
+        }
+    }
+
+    private synchronized void write(@Nonnull Record r) {
+        if( output == null ) {
+            return;
+        }
+        byte[] bytes;
+
+        try {
+            bytes = serialize(r);
+        }
+        catch( IOException e ) {
+            misses.incrementAndGet();
+            r.result = null;
+            r.error = null;
+            r.missing = true;
+            try {
+                bytes = serialize(r);
+            }
+            catch( IOException ignore ) {
+                return;
+            }
+        }
+        try {
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            output.flush();
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to write to recording " + file + ": " + e.getMessage());
+        }
+    }
+
+    private @Nonnull byte[] serialize(@Nonnull Record r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+
+        out.writeObject(r);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Wraps a service, support or capability object so that calls made through it are recorded or replayed.
+     * @param target the object to wrap
+     * @param type the interface through which the object is used
+     * @param <T> the type of the interface
+     * @return the wrapped object, or null if the target is null
+     */
+    public @Nullable <T> T wrap(@Nullable T target, @Nonnull Class<T> type) {
+        if( target == null ) {
+            return null;
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Handler(target, type)));
+    }
+
+    private class Handler implements InvocationHandler {
+        private final Object   target;
+        private final Class<?> type;
+
+        private Handler(@Nonnull Object target, @Nonnull Class<?> type) {
+            this.target = target;
+            this.type = type;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
+            if( method.getDeclaringClass().equals(Object.class) ) {
+                if( method.getName().equals("equals") ) {
+                    return ( args[0] == proxy || target.equals(args[0]) );
+                }
+                return method.invoke(target, args);
+            }
+            Class<?> returnType = method.getReturnType();
+
+            if( isNavigation(returnType) ) {
+                try {
+                    return wrap(method.invoke(target, args), (Class<Object>)returnType);
+                }
+                catch( InvocationTargetException e ) {
+                    throw e.getCause();
+                }
+            }
+            return call(type.getSimpleName() + "." + method.getName(), args, returnType, method.getExceptionTypes(), new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    try {
+                        return method.invoke(target, args);
+                    }
+                    catch( InvocationTargetException e ) {
+                        Throwable cause = e.getCause();
+
+                        if( cause instanceof Exception ) {
+                            throw (Exception)cause;
+                        }
+                        throw (Error)cause;
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return file.getPath();
+    }
+}
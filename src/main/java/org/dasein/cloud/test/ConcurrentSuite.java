@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.RunnerScheduler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Suite runner that optionally executes its test classes, and optionally the test methods within those classes,
+ * on a bounded pool of worker threads. The mode is selected with the {@link System} property dasein.parallel:
+ * <pre>
+ *     -Ddasein.parallel=classes -Ddasein.parallel.threads=8
+ * </pre>
+ * A value of "classes" runs test classes concurrently with the methods of each class executing serially. A value
+ * of "methods" additionally runs the methods of each class concurrently on a second pool of the same size. Without
+ * the property, the suite behaves exactly like {@link DaseinSuite}. Only suites whose tests do not alter cloud state
+ * should be run with this runner.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class ConcurrentSuite extends DaseinSuite {
+    static public final String PARALLEL         = "dasein.parallel";
+    static public final String PARALLEL_THREADS = "dasein.parallel.threads";
+
+    static public final String MODE_CLASSES = "classes";
+    static public final String MODE_METHODS = "methods";
+
+    static private final int DEFAULT_THREADS = 4;
+
+    /**
+     * @return the configured parallel mode ({@link #MODE_CLASSES} or {@link #MODE_METHODS}) or null if tests should run serially
+     */
+    static public @Nullable String getParallelMode() {
+        String mode = DaseinTestManager.getSystemProperty(PARALLEL);
+
+        if( mode == null ) {
+            return null;
+        }
+        mode = mode.trim().toLowerCase();
+        if( mode.equals(MODE_CLASSES) || mode.equals(MODE_METHODS) ) {
+            return mode;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of worker threads to use for each level of parallelism
+     */
+    static public int getThreadCount() {
+        String prop = DaseinTestManager.getSystemProperty(PARALLEL_THREADS);
+
+        if( prop != null ) {
+            try {
+                int count = Integer.parseInt(prop.trim());
+
+                if( count > 0 ) {
+                    return count;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return DEFAULT_THREADS;
+    }
+
+    private ExecutorService classService;
+    private ExecutorService methodService;
+    private String          mode;
+    private int             threads;
+
+    public ConcurrentSuite(Class<?> testClass, RunnerBuilder builder) throws InitializationError {
+        super(testClass, builder);
+        mode = getParallelMode();
+        if( mode != null ) {
+            threads = getThreadCount();
+            classService = Executors.newFixedThreadPool(threads, new WorkerFactory("dasein-classes"));
+            setScheduler(new PoolScheduler(classService));
+            if( mode.equals(MODE_METHODS) ) {
+                // a separate pool keeps class workers waiting on their methods from starving the methods themselves
+                methodService = Executors.newFixedThreadPool(threads, new WorkerFactory("dasein-methods"));
+                for( Runner child : getChildren() ) {
+                    if( child instanceof ParentRunner ) {
+                        ((ParentRunner<?>)child).setScheduler(new PoolScheduler(methodService));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void run(RunNotifier notifier) {
+        if( mode == null ) {
+            super.run(notifier);
+            return;
+        }
+        Logger logger = Logger.getLogger(ConcurrentSuite.class);
+
+        DaseinTestManager.out(logger, null, "Parallel Mode", mode);
+        DaseinTestManager.out(logger, null, "Parallel Threads", String.valueOf(threads));
+        DaseinTestManager.setConcurrent(true);
+        try {
+            super.run(notifier);
+        }
+        finally {
+            DaseinTestManager.setConcurrent(false);
+            classService.shutdown();
+            if( methodService != null ) {
+                methodService.shutdown();
+            }
+        }
+    }
+
+    static private class PoolScheduler implements RunnerScheduler {
+        private final ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        private final ExecutorService      service;
+
+        public PoolScheduler(@Nonnull ExecutorService service) {
+            this.service = service;
+        }
+
+        @Override
+        public void schedule(Runnable childStatement) {
+            synchronized( futures ) {
+                futures.add(service.submit(childStatement));
+            }
+        }
+
+        @Override
+        public void finished() {
+            ArrayList<Future<?>> pending;
+
+            synchronized( futures ) {
+                pending = new ArrayList<Future<?>>(futures);
+                futures.clear();
+            }
+            for( Future<?> future : pending ) {
+                try {
+                    future.get();
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                catch( ExecutionException e ) {
+                    // child statements report their own failures to the notifier, so this is unexpected
+                    throw new RuntimeException("Test execution failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+    }
+
+    static private class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(0);
+        private final String        prefix;
+
+        public WorkerFactory(@Nonnull String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+
+/**
+ * Suite runner that reports the outcome of each test to the {@link RunReport} when a report file is configured.
+ * Otherwise it behaves exactly like {@link Suite}.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class DaseinSuite extends Suite {
+    public DaseinSuite(Class<?> testClass, RunnerBuilder builder) throws InitializationError {
+        super(testClass, builder);
+    }
+
+    @Override
+    public void run(RunNotifier notifier) {
+        boolean attached = RunReport.attach(notifier);
+
+        try {
+            super.run(notifier);
+        }
+        finally {
+            if( attached ) {
+                RunReport.detach(notifier);
+            }
+        }
+    }
+}
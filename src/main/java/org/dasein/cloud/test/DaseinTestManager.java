@@ -19,18 +19,27 @@
 
 package org.dasein.cloud.test;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.*;
+import org.dasein.cloud.ci.CIServices;
+import org.dasein.cloud.compute.ComputeServices;
 import org.dasein.cloud.compute.VmState;
 import org.dasein.cloud.compute.VolumeFormat;
+import org.dasein.cloud.dc.DataCenter;
+import org.dasein.cloud.dc.DataCenterServices;
+import org.dasein.cloud.identity.IdentityServices;
 import org.dasein.cloud.network.*;
 import org.dasein.cloud.platform.DatabaseEngine;
+import org.dasein.cloud.platform.PlatformServices;
 import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.StorageServices;
 import org.dasein.cloud.test.ci.CIResources;
 import org.dasein.cloud.test.compute.ComputeResources;
 import org.dasein.cloud.test.identity.IdentityResources;
 import org.dasein.cloud.test.network.NetworkResources;
 import org.dasein.cloud.test.platform.PlatformResources;
+import org.dasein.cloud.test.sim.SimulatedCloud;
 import org.dasein.cloud.test.storage.StorageResources;
 import org.dasein.cloud.util.APITrace;
 import org.dasein.util.CalendarWrapper;
@@ -40,6 +49,9 @@ import javax.annotation.Nullable;
 import java.io.*;
 import java.security.Provider;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Consolidates and manages cloud resources shared across many different tests.
@@ -47,6 +59,18 @@ import java.util.*;
  * @author George Reese
  * @version 2013.04 initial version
  * @version 2013.07 Added MQ cloud services support (issue #6)
+ * @version 2015.10 Thread-safe counters and grouped output for concurrent suites
+ * @version 2015.10 Providers are shared through {@link ProviderPool}
+ * @version 2015.10 Test output is written asynchronously through {@link EventSink}
+ * @version 2015.10 Per-API latency histograms for calls made through the services of the test manager
+ * @version 2015.10 Per-test records streamed to the {@link RunReport}
+ * @version 2015.10 Stateful resources may be leased from a {@link WarmPool}
+ * @version 2015.10 Unmodified stateful fixtures may be kept between runs through a {@link LeaseStore}
+ * @version 2015.10 Resources leaked by earlier runs may be reclaimed by the {@link OrphanSweeper}
+ * @version 2015.10 Resources are initialized lazily, per domain, for the selected tests
+ * @version 2015.10 Stateless fixtures of the initialized domains are looked up concurrently by a {@link Prefetcher}
+ * @version 2015.10 Capabilities are remembered for the run by a {@link CapabilitySnapshot}
+ * @version 2015.10 Provider calls may be recorded and replayed offline through a {@link CloudRecording}
  * @since 2013.04
  */
 public class DaseinTestManager {
@@ -54,21 +78,86 @@ public class DaseinTestManager {
     static public final String STATELESS = "stateless";
     static public final String REMOVED   = "removed";
 
-    static private HashMap<String,Integer> apiAudit = new HashMap<String, Integer>();
+    static private final ConcurrentHashMap<String,AtomicLong>       apiAudit   = new ConcurrentHashMap<String, AtomicLong>();
+    static private final ConcurrentHashMap<String,LatencyHistogram> apiLatency = new ConcurrentHashMap<String, LatencyHistogram>();
 
-    static private CIResources       ciResources;
-    static private ComputeResources  computeResources;
-    static private TreeSet<String>   exclusions;
-    static private IdentityResources identityResources;
-    static private NetworkResources  networkResources;
-    static private PlatformResources platformResources;
-    static private StorageResources  storageResources;
+    // each domain is initialized on first use by its getter, except for the domains of the selected tests
+    static private final Object resourceLock = new Object();
+    // compute discovery takes minutes and so has a lock of its own rather than holding up the other domains
+    static private final Object computeLock  = new Object();
 
-    static private TreeSet<String>   inclusions;
+    static private ComputeResources initializingCompute; // guarded by computeLock
 
-    static private int  skipCount;
-    static private int  testCount;
-    static private long testStart;
+    static private volatile CloudProvider     resourceProvider;
+    static private volatile CIResources       ciResources;
+    static private volatile ComputeResources  computeResources;
+    static private volatile IdentityResources identityResources;
+    static private volatile NetworkResources  networkResources;
+    static private volatile PlatformResources platformResources;
+    static private volatile StorageResources  storageResources;
+
+    // looked up without initializing compute for tests that only need somewhere to work
+    static private volatile String defaultDataCenterId;
+
+    static private volatile TestSelector selector;
+
+    static private final AtomicInteger skipCount = new AtomicInteger(0);
+    static private final AtomicInteger testCount = new AtomicInteger(0);
+    static private long                testStart;
+
+    static private volatile boolean concurrent;
+    static private volatile String  auditCloudName;
+    static private volatile String  auditProviderName;
+
+    static private void audit(@Nonnull String call, long count) {
+        AtomicLong total = apiAudit.get(call);
+
+        if( total == null ) {
+            AtomicLong created = new AtomicLong(0L);
+
+            total = apiAudit.putIfAbsent(call, created);
+            if( total == null ) {
+                total = created;
+            }
+        }
+        total.addAndGet(count);
+    }
+
+    static private @Nonnull LatencyHistogram getHistogram(@Nonnull ConcurrentHashMap<String,LatencyHistogram> histograms, @Nonnull String api) {
+        LatencyHistogram histogram = histograms.get(api);
+
+        if( histogram == null ) {
+            LatencyHistogram created = new LatencyHistogram();
+
+            histogram = histograms.putIfAbsent(api, created);
+            if( histogram == null ) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Switches test managers between serial and concurrent behavior. While concurrent, per-test API tracing
+     * is suspended (the trace counters are global and cannot be attributed to a single test), test output is
+     * buffered per test and emitted as one block per test class, and API counts are harvested into the overall
+     * API log when concurrent execution ends.
+     * @param concurrent true if tests are about to execute on multiple threads
+     */
+    static void setConcurrent(boolean concurrent) {
+        if( concurrent ) {
+            APITrace.report("Setup");
+            APITrace.reset();
+        }
+        else if( auditProviderName != null && auditCloudName != null ) {
+            for( String call : APITrace.listApis(auditProviderName, auditCloudName) ) {
+                audit(call, APITrace.getAPICountAcrossAccounts(auditProviderName, auditCloudName, call));
+            }
+            APITrace.report("Concurrent");
+            APITrace.reset();
+        }
+        DaseinTestManager.concurrent = concurrent;
+    }
 
     static public @Nonnull CloudProvider constructProvider() {
         return constructProvider(null, null, null);
@@ -106,7 +195,11 @@ public class DaseinTestManager {
                 regionId = prop;
             }
 
-            Cloud cloud = Cloud.register(providerName, cloudName, endpoint, (Class<? extends CloudProvider>) Class.forName(cname));
+            Cloud cloud;
+
+            synchronized( DaseinTestManager.class ) {
+                cloud = Cloud.register(providerName, cloudName, endpoint, (Class<? extends CloudProvider>) Class.forName(cname));
+            }
 
             ContextRequirements requirements = cloud.buildProvider().getContextRequirements();
             List<ContextRequirements.Field> fields = requirements.getConfigurableValues();
@@ -187,7 +280,8 @@ public class DaseinTestManager {
             // catch all other possible exceptions and bomb out
             throw new RuntimeException("Unable to initialise CloudProvider: " + e.getMessage(), e);
         }
-        return provider;
+        // stands in for the cloud when dasein.recording.mode is "record" or "replay"
+        return CloudRecording.wrap(provider);
 
         /*
         ProviderContext ctx = new ProviderContext();
@@ -291,28 +385,183 @@ public class DaseinTestManager {
         return provider;*/
     }
 
+    static public @Nullable CIResources getCIResources() {
+        CIResources resources = ciResources;
+
+        if( resources == null ) {
+            synchronized( resourceLock ) {
+                CloudProvider p = resourceProvider;
+
+                if( ciResources == null && p != null ) {
+                    ciResources = new CIResources(p);
+                    initialized("CI");
+                }
+                resources = ciResources;
+            }
+        }
+        return resources;
+    }
+
     static public @Nullable ComputeResources getComputeResources() {
-        return computeResources;
+        ComputeResources resources = computeResources;
+
+        if( resources == null ) {
+            synchronized( computeLock ) {
+                CloudProvider p = resourceProvider;
+
+                // only the initializing thread can get here while initializingCompute is set
+                if( initializingCompute != null ) {
+                    return initializingCompute;
+                }
+                resources = computeResources;
+                if( resources == null && p != null ) {
+                    resources = new ComputeResources(p);
+                    initializingCompute = resources;
+                    try {
+                        resources.init();
+                        // warm pools fill in the background while the first tests run
+                        resources.startWarmPools();
+                    }
+                    finally {
+                        initializingCompute = null;
+                    }
+                    synchronized( resourceLock ) {
+                        // a new run may have started, or clean up begun, while discovery ran
+                        if( resourceProvider == p ) {
+                            computeResources = resources;
+                        }
+                    }
+                    initialized("Compute");
+                }
+            }
+        }
+        return resources;
     }
 
     static public @Nullable String getDefaultDataCenterId(boolean stateless) {
-        return (computeResources == null ? null : computeResources.getTestDataCenterId(stateless));
+        ComputeResources compute = computeResources;
+
+        if( compute != null ) {
+            return compute.getTestDataCenterId(stateless);
+        }
+        // the same choice compute discovery makes, without the cost of discovery
+        String id = defaultDataCenterId;
+
+        if( id == null ) {
+            CloudProvider p = resourceProvider;
+
+            id = getSystemProperty("test.dataCenter");
+            if( id == null && p != null ) {
+                id = findDefaultDataCenterId(p);
+            }
+            synchronized( resourceLock ) {
+                if( resourceProvider == p && id != null ) {
+                    defaultDataCenterId = id;
+                }
+            }
+        }
+        return id;
+    }
+
+    static private @Nullable String findDefaultDataCenterId(@Nonnull CloudProvider p) {
+        try {
+            DataCenterServices services = p.getDataCenterServices();
+            DataCenter defaultDC = null;
+
+            //noinspection ConstantConditions
+            for( DataCenter dc : services.listDataCenters(p.getContext().getRegionId()) ) {
+                if( defaultDC == null ) {
+                    defaultDC = dc;
+                }
+                if( dc.isActive() && dc.isAvailable() ) {
+                    return dc.getProviderDataCenterId();
+                }
+            }
+            if( defaultDC != null ) {
+                return defaultDC.getProviderDataCenterId();
+            }
+        }
+        catch( Throwable ignore ) {
+            // ignore
+        }
+        return null;
     }
 
     static public @Nullable IdentityResources getIdentityResources() {
-        return identityResources;
+        IdentityResources resources = identityResources;
+
+        if( resources == null ) {
+            synchronized( resourceLock ) {
+                CloudProvider p = resourceProvider;
+
+                if( identityResources == null && p != null ) {
+                    resources = new IdentityResources(p);
+                    identityResources = resources;
+                    initialized("Identity");
+                }
+                resources = identityResources;
+            }
+        }
+        return resources;
     }
 
     static public @Nullable NetworkResources getNetworkResources() {
-        return networkResources;
+        NetworkResources resources = networkResources;
+
+        if( resources == null ) {
+            synchronized( resourceLock ) {
+                CloudProvider p = resourceProvider;
+
+                if( networkResources == null && p != null ) {
+                    resources = new NetworkResources(p);
+                    resources.startWarmPools();
+                    networkResources = resources;
+                    initialized("Network");
+                }
+                resources = networkResources;
+            }
+        }
+        return resources;
     }
 
     static public @Nullable PlatformResources getPlatformResources() {
-        return platformResources;
+        PlatformResources resources = platformResources;
+
+        if( resources == null ) {
+            synchronized( resourceLock ) {
+                CloudProvider p = resourceProvider;
+
+                if( platformResources == null && p != null ) {
+                    resources = new PlatformResources(p);
+                    platformResources = resources;
+                    initialized("Platform");
+                }
+                resources = platformResources;
+            }
+        }
+        return resources;
     }
 
     static public @Nullable StorageResources getStorageResources() {
-        return storageResources;
+        StorageResources resources = storageResources;
+
+        if( resources == null ) {
+            synchronized( resourceLock ) {
+                CloudProvider p = resourceProvider;
+
+                if( storageResources == null && p != null ) {
+                    resources = new StorageResources(p);
+                    storageResources = resources;
+                    initialized("Storage");
+                }
+                resources = storageResources;
+            }
+        }
+        return resources;
+    }
+
+    static private void initialized(@Nonnull String domain) {
+        out(Logger.getLogger(DaseinTestManager.class), null, "Initialized", domain + " Resources");
     }
 
     static public void init() {
@@ -322,44 +571,72 @@ public class DaseinTestManager {
         try {
             testStart = System.currentTimeMillis();
 
-            CloudProvider cloudProvider = constructProvider();
-            storageResources = new StorageResources(cloudProvider);
-            platformResources = new PlatformResources(cloudProvider);
-            networkResources = new NetworkResources(cloudProvider);
-            identityResources = new IdentityResources(cloudProvider);
-            ciResources = new CIResources(cloudProvider);
-            computeResources = new ComputeResources(cloudProvider);
-
-            computeResources.init();
+            CloudProvider cloudProvider = ProviderPool.acquire();
 
-            String prop = System.getProperty("dasein.inclusions");
-
-            if( prop != null && !prop.equals("") ) {
-                inclusions = new TreeSet<String>();
-                if( prop.contains(",") ) {
-                    for( String which : prop.split(",") ) {
-                        inclusions.add(which.toLowerCase());
+            if( Boolean.parseBoolean(getSystemProperty(OrphanSweeper.SWEEP)) ) {
+                // reclaim what killed runs leaked before this run looks for fixtures and quota
+                new OrphanSweeper(cloudProvider).sweep(Boolean.parseBoolean(getSystemProperty(OrphanSweeper.SWEEP_DRY_RUN)));
+            }
+            selector = TestSelector.getInstance();
+            out(logger, null, "Included", selector.getInclusions());
+            out(logger, null, "Excluded", selector.getExclusions());
+
+            synchronized( resourceLock ) {
+                ciResources = null;
+                computeResources = null;
+                identityResources = null;
+                networkResources = null;
+                platformResources = null;
+                storageResources = null;
+                defaultDataCenterId = null;
+                resourceProvider = cloudProvider;
+            }
+            if( selector.isEverything() ) {
+                getStorageResources();
+                getPlatformResources();
+                getNetworkResources();
+                getIdentityResources();
+                getCIResources();
+                getComputeResources();
+            }
+            else {
+                // domains no selected test belongs to are initialized only if a selected test asks for them
+                for( String domain : selector.getSelectedDomains(GlobalTestSuite.class) ) {
+                    switch( domain ) {
+                        case "ci": getCIResources(); break;
+                        case "compute": getComputeResources(); break;
+                        case "identity": getIdentityResources(); break;
+                        case "network": getNetworkResources(); break;
+                        case "platform": getPlatformResources(); break;
+                        case "storage": getStorageResources(); break;
                     }
                 }
-                else {
-                    inclusions.add(prop.toLowerCase());
-                }
             }
-            prop = System.getProperty("dasein.exclusions");
+            if( Prefetcher.isEnabled() ) {
+                // stateless lookups for the initialized domains run side by side before the first test
+                Prefetcher prefetcher = new Prefetcher();
 
-            if( prop != null && !prop.equals("") ) {
-                exclusions = new TreeSet<String>();
-                if( prop.contains(",") ) {
-                    for( String which : prop.split(",") ) {
-                        exclusions.add(which.toLowerCase());
-                    }
+                if( ciResources != null ) {
+                    ciResources.addPrefetch(prefetcher);
                 }
-                else {
-                    exclusions.add(prop.toLowerCase());
+                if( computeResources != null ) {
+                    computeResources.addPrefetch(prefetcher);
+                }
+                if( networkResources != null ) {
+                    networkResources.addPrefetch(prefetcher);
                 }
+                if( identityResources != null ) {
+                    identityResources.addPrefetch(prefetcher);
+                }
+                if( platformResources != null ) {
+                    platformResources.addPrefetch(prefetcher);
+                }
+                if( storageResources != null ) {
+                    storageResources.addPrefetch(prefetcher);
+                }
+                prefetcher.execute();
+                prefetcher.report(logger);
             }
-            out(logger, null, "Included", (inclusions == null ? null : inclusions.toString()));
-            out(logger, null, "Excluded", (exclusions == null ? null : exclusions.toString()));
 
             APITrace.report("Init");
             APITrace.reset();
@@ -375,46 +652,61 @@ public class DaseinTestManager {
         int provisioned = 0;
         int cleaned = 0;
 
+        EventSink.flush();
         logger.info("");
         logger.info("BEGIN Test Clean Up ------------------------------------------------------------------------------");
         try {
+            synchronized( resourceLock ) {
+                // nothing is initialized for the first time during or after teardown
+                resourceProvider = null;
+            }
             APITrace.report("Clean Up");
-            if( ciResources != null ) {
-                int count = ciResources.close();
+            WarmPool.closeAll();
+            // everything is torn down through a single graph so independent resources in different domains
+            // are removed concurrently
+            TeardownGraph graph = new TeardownGraph();
 
-                out(logger, null, "CI Resources", String.valueOf(count));
-                cleaned += count;
+            if( ciResources != null ) {
+                ciResources.addTeardown(graph);
             }
             if( computeResources != null ) {
-                int count = computeResources.close();
-
-                out(logger, null, "Compute Resources", String.valueOf(count));
-                cleaned += count;
+                computeResources.addTeardown(graph);
             }
             if( networkResources != null ) {
-                int count = networkResources.close();
-
-                out(logger, null, "Network Resources", String.valueOf(count));
-                cleaned += count;
+                networkResources.addTeardown(graph);
             }
             if( identityResources != null ) {
-                int count = identityResources.close();
-
-                out(logger, null, "Identity Resources", String.valueOf(count));
-                cleaned += count;
+                identityResources.addTeardown(graph);
             }
             if( platformResources != null ) {
-                int count = platformResources.close();
-
-                out(logger, null, "Platform Resources", String.valueOf(count));
-                cleaned += count;
+                platformResources.addTeardown(graph);
             }
             if( storageResources != null ) {
-                int count = storageResources.close();
-
-                out(logger, null, "Storage Resources", String.valueOf(count));
-                cleaned += count;
+                storageResources.addTeardown(graph);
+            }
+            graph.execute();
+            LeaseStore.saveAll();
+            if( ciResources != null ) {
+                out(logger, null, "CI Resources", String.valueOf(graph.getRemoved("CI")));
+            }
+            if( computeResources != null ) {
+                out(logger, null, "Compute Resources", String.valueOf(graph.getRemoved("Compute")));
+            }
+            if( networkResources != null ) {
+                out(logger, null, "Network Resources", String.valueOf(graph.getRemoved("Network")));
+            }
+            if( identityResources != null ) {
+                out(logger, null, "Identity Resources", String.valueOf(graph.getRemoved("Identity")));
+            }
+            if( platformResources != null ) {
+                out(logger, null, "Platform Resources", String.valueOf(graph.getRemoved("Platform")));
+            }
+            if( storageResources != null ) {
+                out(logger, null, "Storage Resources", String.valueOf(graph.getRemoved("Storage")));
             }
+            cleaned = graph.getRemoved();
+            graph.report(logger);
+            ProviderPool.closeAll();
         }
         finally {
             logger.info("END Test Clean Up ------------------------------------------------------------------------------");
@@ -426,15 +718,25 @@ public class DaseinTestManager {
         logger.info("");
         logger.info("All Tests Complete ------------------------------------------------------------------------------");
         logger.info("--------------- API Log ---------------");
-        int total = 0;
+        long total = 0;
+
+        for( Map.Entry<String,AtomicLong> entry : new TreeMap<String,AtomicLong>(apiAudit).entrySet() ) {
+            long count = entry.getValue().get();
 
-        for( Map.Entry<String,Integer> entry : apiAudit.entrySet() ) {
-            out(logger, null, "---> " + entry.getKey(), String.valueOf(entry.getValue()));
-            total += entry.getValue();
+            out(logger, null, "---> " + entry.getKey(), String.valueOf(count));
+            total += count;
         }
         out(logger, null, "---> Total Calls", String.valueOf(total));
         logger.info("");
 
+        if( !apiLatency.isEmpty() ) {
+            logger.info("------------- API Latency -------------");
+            for( Map.Entry<String,LatencyHistogram> entry : new TreeMap<String,LatencyHistogram>(apiLatency).entrySet() ) {
+                out(logger, null, "---> " + entry.getKey(), entry.getValue().summarize());
+            }
+            logger.info("");
+        }
+
         logger.info("----------- Provisioning Log ----------");
         if( computeResources != null ) {
             provisioned += computeResources.report();
@@ -455,17 +757,55 @@ public class DaseinTestManager {
             provisioned += storageResources.report();
         }
         logger.info("");
+
+        logger.info("---------- State Transitions ----------");
+        StateWaiter.report(logger);
+        PollCoordinator.report(logger);
+        logger.info("");
         logger.info("--------------- Results ---------------");
-        out(logger, null, "Tests", String.valueOf(testCount));
-        out(logger, null, "Skipped", String.valueOf(skipCount));
-        out(logger, null, "Run", String.valueOf(testCount - skipCount));
+        out(logger, null, "Tests", String.valueOf(testCount.get()));
+        out(logger, null, "Skipped", String.valueOf(skipCount.get()));
+        out(logger, null, "Run", String.valueOf(testCount.get() - skipCount.get()));
         out(logger, null, "Resources Provisioned", String.valueOf(provisioned));
         out(logger, null, "Resources De-provisioned", String.valueOf(cleaned));
+        ProviderPool.report(logger);
+        WarmPool.report(logger);
+        CapabilitySnapshot.report(logger);
+        CloudRecording.report(logger);
+        SimulatedCloud.report(logger);
         out(logger, null, "Duration", minutes + " minutes " + seconds + " seconds");
         logger.info("-------------------------------------------------------------------------------------------------");
+
+        LinkedHashMap<String,Object> summary = new LinkedHashMap<String, Object>();
+        TreeMap<String,Long> apiCalls = new TreeMap<String, Long>();
+
+        for( Map.Entry<String,AtomicLong> entry : apiAudit.entrySet() ) {
+            apiCalls.put(entry.getKey(), entry.getValue().get());
+        }
+        summary.put("tests", testCount.get());
+        summary.put("skipped", skipCount.get());
+        summary.put("run", testCount.get() - skipCount.get());
+        summary.put("provisioned", provisioned);
+        summary.put("deprovisioned", cleaned);
+        summary.put("start", testStart);
+        summary.put("durationMillis", duration);
+        summary.put("apiCalls", apiCalls);
+        summary.put("apiLatency", toReport(apiLatency));
+        RunReport.summarize(summary);
     }
 
     static public void out(@Nonnull Logger logger, @Nullable String prefix, @Nonnull String key, @Nullable String value) {
+        // keep summary output in order behind any test output still being written
+        EventSink.flush();
+        if( prefix == null ) {
+            logger.info(pad(key) + value);
+        }
+        else {
+            logger.info( prefix + pad(key) + value);
+        }
+    }
+
+    static @Nonnull String pad(@Nonnull String key) {
         StringBuilder str = new StringBuilder();
 
         if( key.length() > 36 ) {
@@ -477,28 +817,48 @@ public class DaseinTestManager {
                 str.append(" ");
             }
         }
-        if( prefix == null ) {
-            logger.info(str.toString() + value);
-        }
-        else {
-            logger.info( prefix + str.toString() + value);
-        }
+        return str.toString();
     }
 
-
+    private CapabilitySnapshot      capabilities;
     private Logger                  logger;
-    private String                  name;
     private String                  prefix;
     private CloudProvider           provider;
-    private long                    startTimestamp;
     private String                  suite;
+    private Class<?>                testClass;
     private String                  userName = "";
 
+    // per-thread state so that the methods of one test class may execute concurrently
+    private final ThreadLocal<String>             name           = new ThreadLocal<String>();
+    private final ThreadLocal<String>             testPrefix     = new ThreadLocal<String>();
+    private final ThreadLocal<Long>               startTimestamp = new ThreadLocal<Long>();
+    private final ThreadLocal<ArrayList<EventSink.Event>> testOutput     = new ThreadLocal<ArrayList<EventSink.Event>>();
+    private final ThreadLocal<ConcurrentHashMap<String,LatencyHistogram>> testLatency = new ThreadLocal<ConcurrentHashMap<String, LatencyHistogram>>();
+
+    // records the latency of calls made through the services of this test manager, see getComputeServices() etc.
+    private final ServiceProxy.Recorder recorder = new ServiceProxy.Recorder() {
+        @Override
+        public void record(@Nonnull String api, long nanos) {
+            long micros = nanos/1000L;
+            ConcurrentHashMap<String,LatencyHistogram> latency = testLatency.get();
+
+            getHistogram(apiLatency, api).record(micros);
+            if( latency != null ) {
+                getHistogram(latency, api).record(micros);
+            }
+        }
+    };
+    private final ArrayList<EventSink.Event>              classOutput    = new ArrayList<EventSink.Event>();
+
     public DaseinTestManager(@Nonnull Class<?> testClass) {
         logger = Logger.getLogger(testClass);
         suite = testClass.getSimpleName();
-        provider = constructProvider();
-        changePrefix();
+        this.testClass = testClass;
+        provider = ProviderPool.acquire();
+        capabilities = CapabilitySnapshot.getInstance(provider);
+        auditProviderName = provider.getProviderName();
+        auditCloudName = provider.getCloudName();
+        prefix = buildPrefix(null);
 
         String prop = System.getProperty("user.name");
         if( prop != null ) {
@@ -507,17 +867,25 @@ public class DaseinTestManager {
     }
 
     public void begin(@Nonnull String name) {
-        this.name = name;
-        APITrace.report("Setup");
-        APITrace.reset();
-        changePrefix();
-        startTimestamp = System.currentTimeMillis();
-        testCount++;
+        this.name.set(name);
+        if( concurrent ) {
+            testOutput.set(new ArrayList<EventSink.Event>());
+        }
+        else {
+            EventSink.flush();
+            APITrace.report("Setup");
+            APITrace.reset();
+        }
+        testPrefix.set(buildPrefix(name));
+        testLatency.set(new ConcurrentHashMap<String, LatencyHistogram>());
+        startTimestamp.set(System.currentTimeMillis());
+        TestMetrics.begin();
+        testCount.incrementAndGet();
         out("");
         out(">>> BEGIN ---------------------------------------------------------------------------------------------->>>");
     }
 
-    private void changePrefix() {
+    private @Nonnull String buildPrefix(@Nullable String name) {
         StringBuilder str = new StringBuilder();
         String s;
 
@@ -535,49 +903,174 @@ public class DaseinTestManager {
             str.append(".").append(name);
         }
         if( str.length() > 44 ) {
-            prefix = str.substring(str.length()-44) + "> ";
+            return str.substring(str.length()-44) + "> ";
         }
         else {
             str.append("> ");
             while( str.length() < 46 ) {
                 str.append(" ");
             }
-            prefix = str.toString();
+            return str.toString();
         }
     }
 
+    private @Nonnull String getPrefix() {
+        String p = testPrefix.get();
+
+        return (p == null ? prefix : p);
+    }
+
     public void close() {
-        getProvider().close();
+        flush();
+        ProviderPool.release(getProvider());
     }
 
     public void end() {
-        String[] calls = APITrace.listApis(provider.getProviderName(), provider.getCloudName());
+        TreeMap<String,Integer> apiCalls = null;
 
-        if( calls.length > 0 ) {
-            out("---------- API Log ----------");
-            int total = 0;
+        if( !concurrent ) {
+            String[] calls = APITrace.listApis(provider.getProviderName(), provider.getCloudName());
 
-            for( String call : calls ) {
-                int count = (int)APITrace.getAPICountAcrossAccounts(provider.getProviderName(), provider.getCloudName(), call);
+            apiCalls = new TreeMap<String, Integer>();
+            if( calls.length > 0 ) {
+                out("---------- API Log ----------");
+                int total = 0;
 
-                if( apiAudit.containsKey(call) ) {
-                    apiAudit.put(call, count + apiAudit.get(call));
-                }
-                else {
-                    apiAudit.put(call, count);
+                for( String call : calls ) {
+                    int count = (int)APITrace.getAPICountAcrossAccounts(provider.getProviderName(), provider.getCloudName(), call);
+
+                    audit(call, count);
+                    apiCalls.put(call, count);
+                    out("---> " + call, count);
+                    total += count;
                 }
-                out("---> " + call, count);
-                total += count;
+                out("---> Total Calls", total);
             }
-            out("---> Total Calls", total);
         }
-        out("Duration", (((float) (System.currentTimeMillis() - startTimestamp)) / 1000f) + " seconds");
+        ConcurrentHashMap<String,LatencyHistogram> latency = testLatency.get();
+
+        if( latency != null && !latency.isEmpty() ) {
+            out("---------- API Latency ----------");
+            for( Map.Entry<String,LatencyHistogram> entry : new TreeMap<String,LatencyHistogram>(latency).entrySet() ) {
+                out("---> " + entry.getKey(), entry.getValue().summarize());
+            }
+        }
+        Long start = startTimestamp.get();
+        long now = System.currentTimeMillis();
+
+        if( start != null ) {
+            out("Duration", (((float) (now - start)) / 1000f) + " seconds");
+        }
+        report(start, now, apiCalls, latency, TestMetrics.end());
         out("<<< END   ----------------------------------------------------------------------------------------------<<<");
         out("");
-        APITrace.report(prefix);
-        APITrace.reset();
-        name = null;
-        changePrefix();
+        if( !concurrent ) {
+            EventSink.flush();
+            APITrace.report(getPrefix());
+            APITrace.reset();
+        }
+        ArrayList<EventSink.Event> lines = testOutput.get();
+
+        if( lines != null ) {
+            synchronized( classOutput ) {
+                classOutput.addAll(lines);
+            }
+        }
+        testOutput.remove();
+        testLatency.remove();
+        startTimestamp.remove();
+        testPrefix.remove();
+        name.remove();
+    }
+
+    /**
+     * Hands the record of the test ending on the current thread to the {@link RunReport}.
+     * @param start the time the test began, if known
+     * @param now the time the test ended
+     * @param apiCalls the API calls made during the test, or null if they could not be attributed to the test
+     * @param latency the latency of calls made during the test through the services of this test manager
+     * @param metrics the metrics gathered while the test was running
+     */
+    private void report(@Nullable Long start, long now, @Nullable Map<String,Integer> apiCalls, @Nullable Map<String,LatencyHistogram> latency, @Nullable TestMetrics metrics) {
+        if( !RunReport.isEnabled() ) {
+            return;
+        }
+        LinkedHashMap<String,Object> record = new LinkedHashMap<String, Object>();
+
+        record.put("type", "test");
+        record.put("suite", suite);
+        record.put("test", name.get());
+        record.put("class", testClass.getName());
+        if( start != null ) {
+            record.put("start", start);
+            record.put("durationMillis", now - start);
+        }
+        if( apiCalls != null ) {
+            record.put("apiCalls", apiCalls);
+        }
+        if( latency != null ) {
+            record.put("apiLatency", toReport(latency));
+        }
+        if( metrics != null ) {
+            record.put("provisioned", metrics.getProvisioned());
+            record.put("waits", metrics.getWaits());
+            record.put("waitMillis", metrics.getWaitMillis());
+        }
+        RunReport.testEnded(testClass, record, metrics != null && metrics.isSkipped());
+    }
+
+    static private @Nonnull Map<String,Object> toReport(@Nonnull Map<String,LatencyHistogram> latency) {
+        TreeMap<String,Object> apis = new TreeMap<String, Object>();
+
+        for( Map.Entry<String,LatencyHistogram> entry : latency.entrySet() ) {
+            LatencyHistogram histogram = entry.getValue();
+            LinkedHashMap<String,Object> summary = new LinkedHashMap<String, Object>();
+
+            summary.put("count", histogram.getCount());
+            summary.put("p50Micros", histogram.getPercentile(50));
+            summary.put("p90Micros", histogram.getPercentile(90));
+            summary.put("p99Micros", histogram.getPercentile(99));
+            summary.put("maxMicros", histogram.getMax());
+            apis.put(entry.getKey(), summary);
+        }
+        return apis;
+    }
+
+    /**
+     * Writes any output buffered while tests were running concurrently as a single block so that the output
+     * of one test class is never interleaved with that of another.
+     */
+    private void flush() {
+        ArrayList<EventSink.Event> lines;
+
+        synchronized( classOutput ) {
+            if( classOutput.isEmpty() ) {
+                return;
+            }
+            lines = new ArrayList<EventSink.Event>(classOutput);
+            classOutput.clear();
+        }
+        EventSink.publish(lines);
+    }
+
+    private void log(@Nonnull Level level, @Nonnull String message) {
+        log(new EventSink.Event(logger, level, getPrefix(), suite, name.get(), message));
+    }
+
+    private void log(@Nonnull EventSink.Event event) {
+        ArrayList<EventSink.Event> lines = testOutput.get();
+
+        if( lines != null ) {
+            lines.add(event);
+        }
+        else if( concurrent ) {
+            synchronized( classOutput ) {
+                classOutput.add(event);
+            }
+        }
+        else {
+            EventSink.publish(event);
+        }
     }
 
     public @Nonnull ProviderContext getContext() {
@@ -590,11 +1083,13 @@ public class DaseinTestManager {
     }
 
     public @Nullable String getName() {
-        return name;
+        return name.get();
     }
 
     public @Nullable String getTestDataCenterId(boolean stateless) {
-        return (computeResources == null ? null : computeResources.getTestDataCenterId(stateless));
+        ComputeResources compute = getComputeResources();
+
+        return (compute == null ? null : compute.getTestDataCenterId(stateless));
     }
 
     public @Nullable String getTestAnyFirewallId(@Nonnull String label, boolean provisionIfNull) {
@@ -621,93 +1116,133 @@ public class DaseinTestManager {
     }
 
     public @Nullable Blob getTestBucket(@Nonnull String label, boolean root, boolean provisionIfNull) {
+        StorageResources storage = getStorageResources();
+
         if( root ) {
-            return (storageResources == null ? null : storageResources.getTestRootBucket(label, provisionIfNull, null));
+            return (storage == null ? null : storage.getTestRootBucket(label, provisionIfNull, null));
         }
         else {
-            return (storageResources == null ? null : storageResources.getTestChildBucket(label, provisionIfNull, null, null));
+            return (storage == null ? null : storage.getTestChildBucket(label, provisionIfNull, null, null));
         }
     }
 
     public @Nullable String getTestDistributionId(@Nonnull String label, boolean provisionIfNull, @Nullable String origin) {
-        return (platformResources == null ? null : platformResources.getTestDistributionId(label, provisionIfNull, origin));
+        PlatformResources platform = getPlatformResources();
+
+        return (platform == null ? null : platform.getTestDistributionId(label, provisionIfNull, origin));
     }
 
     public @Nullable String getTestGeneralFirewallId(@Nonnull String label, boolean provisionIfNull) {
-        return (networkResources == null ? null : networkResources.getTestFirewallId(label, provisionIfNull, null));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestFirewallId(label, provisionIfNull, null));
     }
 
     public @Nullable String getTestGroupId(@Nonnull String label, boolean provisionIfNull) {
-        return (identityResources == null ? null : identityResources.getTestGroupId(label, provisionIfNull));
+        IdentityResources identity = getIdentityResources();
+
+        return (identity == null ? null : identity.getTestGroupId(label, provisionIfNull));
     }
 
     public @Nullable String getTestImageId(@Nonnull String label, boolean provisionIfNull) {
-        return (computeResources == null ? null : computeResources.getTestImageId(label, provisionIfNull));
+        ComputeResources compute = getComputeResources();
+
+        return (compute == null ? null : compute.getTestImageId(label, provisionIfNull));
     }
 
     public @Nullable String getTestKeypairId(@Nonnull String label, boolean provisionIfNull) {
-        return (identityResources == null ? null : identityResources.getTestKeypairId(label, provisionIfNull));
+        IdentityResources identity = getIdentityResources();
+
+        return (identity == null ? null : identity.getTestKeypairId(label, provisionIfNull));
     }
 
     public @Nullable String getTestLoadBalancerId(@Nonnull String label, @Nonnull String lbNamePrefix, boolean provisionIfNull, boolean withHealthCheck) {
-        return (networkResources == null ? null : networkResources.getTestLoadBalancerId(label, lbNamePrefix, provisionIfNull, withHealthCheck));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestLoadBalancerId(label, lbNamePrefix, provisionIfNull, withHealthCheck));
     }
 
     public @Nullable String getTestLoadBalancerId(@Nonnull String label, @Nonnull String lbNamePrefix, boolean provisionIfNull) {
-    	return (networkResources == null ? null : networkResources.getTestLoadBalancerId(label, lbNamePrefix, provisionIfNull, false));
+    	NetworkResources network = getNetworkResources();
+
+    	return (network == null ? null : network.getTestLoadBalancerId(label, lbNamePrefix, provisionIfNull, false));
     }
 
     public @Nullable String getTestSSLCertificateName(@Nonnull String label, boolean provisionIfNull) {
-        return (networkResources == null ? null : networkResources.getTestSSLCertificateName(label, provisionIfNull));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestSSLCertificateName(label, provisionIfNull));
     }
 
     public @Nullable String getTestNetworkFirewallId(@Nonnull String label, boolean provisionIfNull, @Nullable String inVlanId) {
-        return (networkResources == null ? null : networkResources.getTestNetworkFirewallId(label, provisionIfNull, inVlanId));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestNetworkFirewallId(label, provisionIfNull, inVlanId));
     }
 
     public @Nullable Blob getTestObject(@Nonnull String label, boolean root, boolean provisionIfNull) {
+        StorageResources storage = getStorageResources();
+
         if( root ) {
-            return (storageResources == null ? null : storageResources.getTestRootObject(label, provisionIfNull, null));
+            return (storage == null ? null : storage.getTestRootObject(label, provisionIfNull, null));
         }
         else {
-            return (storageResources == null ? null : storageResources.getTestChildObject(label, provisionIfNull, null, null));
+            return (storage == null ? null : storage.getTestChildObject(label, provisionIfNull, null, null));
         }
     }
 
     public @Nullable String getTestQueueId(@Nonnull String label, boolean provisionIfNull) {
-        return (platformResources == null ? null : platformResources.getTestQueueId(label, provisionIfNull));
+        PlatformResources platform = getPlatformResources();
+
+        return (platform == null ? null : platform.getTestQueueId(label, provisionIfNull));
     }
 
     public @Nullable String getTestRDBMSId(@Nonnull String label, boolean provisionIfNull, @Nullable DatabaseEngine engine) {
-        return (platformResources == null ? null : platformResources.getTestRDBMSId(label, provisionIfNull, engine));
+        PlatformResources platform = getPlatformResources();
+
+        return (platform == null ? null : platform.getTestRDBMSId(label, provisionIfNull, engine));
     }
 
     public @Nullable String getTestSnapshotId(@Nonnull String label, boolean provisionIfNull) {
-        return (computeResources == null ? null : computeResources.getTestSnapshotId(label, provisionIfNull));
+        ComputeResources compute = getComputeResources();
+
+        return (compute == null ? null : compute.getTestSnapshotId(label, provisionIfNull));
     }
 
     public @Nullable String getTestStaticIpId(@Nonnull String label, boolean provisionIfNull, @Nullable IPVersion version, boolean forVLAN, @Nullable String vlanId) {
-        return networkResources == null ? null : networkResources.getTestStaticIpId(label, provisionIfNull, version, forVLAN, vlanId);
+        NetworkResources network = getNetworkResources();
+
+        return network == null ? null : network.getTestStaticIpId(label, provisionIfNull, version, forVLAN, vlanId);
     }
 
     public @Nullable String getTestSubnetId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
-        return (networkResources == null ? null : networkResources.getTestSubnetId(label, provisionIfNull, vlanId, preferredDataCenterId));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestSubnetId(label, provisionIfNull, vlanId, preferredDataCenterId));
     }
 
     public @Nullable String getTestInternetGatewayId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
-      return (networkResources == null ? null : networkResources.getTestInternetGatewayId(label, provisionIfNull, vlanId, preferredDataCenterId));
+      NetworkResources network = getNetworkResources();
+
+      return (network == null ? null : network.getTestInternetGatewayId(label, provisionIfNull, vlanId, preferredDataCenterId));
     }
 
     public @Nullable String getTestTopicId(@Nonnull String label, boolean provisionIfNull) {
-        return (platformResources == null ? null : platformResources.getTestTopicId(label, provisionIfNull));
+        PlatformResources platform = getPlatformResources();
+
+        return (platform == null ? null : platform.getTestTopicId(label, provisionIfNull));
     }
 
     public @Nullable String getTestTopologyId(@Nonnull String label, boolean provisionIfNull) {
-        return (ciResources == null ? null : ciResources.getTestTopologyId(label, provisionIfNull));
+        CIResources ci = getCIResources();
+
+        return (ci == null ? null : ci.getTestTopologyId(label, provisionIfNull));
     }
 
     public @Nullable String getTestUserId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredGroupId) {
-        return (identityResources == null ? null : identityResources.getTestUserId(label, provisionIfNull, preferredGroupId));
+        IdentityResources identity = getIdentityResources();
+
+        return (identity == null ? null : identity.getTestUserId(label, provisionIfNull, preferredGroupId));
     }
 
     public @Nullable String getTestVLANFirewallId(@Nonnull String label, boolean provisionIfNull, @Nullable String inVlanId) {
@@ -722,7 +1257,8 @@ public class DaseinTestManager {
                 return null;
             }
         }
-        String id = (networkResources == null ? null : networkResources.getTestFirewallId(label, provisionIfNull, inVlanId));
+        NetworkResources network = getNetworkResources();
+        String id = (network == null ? null : network.getTestFirewallId(label, provisionIfNull, inVlanId));
 
         if( id != null ) {
             try {
@@ -743,11 +1279,15 @@ public class DaseinTestManager {
     }
 
     public @Nullable String getTestVLANId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
-        return (networkResources == null ? null : networkResources.getTestVLANId(label, provisionIfNull, preferredDataCenterId));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestVLANId(label, provisionIfNull, preferredDataCenterId));
     }
 
     public @Nullable String getTestRoutingTableId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
-      return (networkResources == null ? null : networkResources.getTestRoutingTableId(label, provisionIfNull, vlanId, preferredDataCenterId));
+      NetworkResources network = getNetworkResources();
+
+      return (network == null ? null : network.getTestRoutingTableId(label, provisionIfNull, vlanId, preferredDataCenterId));
     }
 
     public @Nullable String getTestVMId(@Nonnull String label, @Nullable VmState desiredState, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
@@ -755,46 +1295,94 @@ public class DaseinTestManager {
     }
     
     public @Nullable String getTestVMId(@Nonnull String label, @Nonnull String vmName, @Nullable VmState desiredState, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
-        if( computeResources == null ) {
+        ComputeResources compute = getComputeResources();
+
+        if( compute == null ) {
             return null;
         }
-        return computeResources.getTestVmId(label, vmName, desiredState, provisionIfNull, preferredDataCenterId);
+        return compute.getTestVmId(label, vmName, desiredState, provisionIfNull, preferredDataCenterId);
     }
 
     public @Nullable String getTestVLANVMId(@Nonnull String label, @Nullable VmState desiredState, @Nullable String vlanId, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
-      if( computeResources == null ) {
+      ComputeResources compute = getComputeResources();
+
+      if( compute == null ) {
         return null;
       }
-      return computeResources.getTestVLANVmId(label, desiredState, vlanId, provisionIfNull, preferredDataCenterId);
+      return compute.getTestVLANVmId(label, desiredState, vlanId, provisionIfNull, preferredDataCenterId);
     }
 
     public @Nullable String getTestVMProductId() {
-        return (computeResources == null ? null : computeResources.getTestVMProductId());
+        ComputeResources compute = getComputeResources();
+
+        return (compute == null ? null : compute.getTestVMProductId());
     }
 
     public @Nullable String getTestVolumeId(@Nonnull String label, boolean provisionIfNull, @Nullable VolumeFormat preferredFormat, @Nullable String preferredDataCenterId) {
-        if( computeResources == null ) {
+        ComputeResources compute = getComputeResources();
+
+        if( compute == null ) {
             return null;
         }
-        return computeResources.getTestVolumeId(label, provisionIfNull, preferredFormat, preferredDataCenterId);
+        return compute.getTestVolumeId(label, provisionIfNull, preferredFormat, preferredDataCenterId);
     }
 
     public @Nullable String getTestVolumeProductId() {
-        return (computeResources == null ? null : computeResources.getTestVolumeProductId());
+        ComputeResources compute = getComputeResources();
+
+        return (compute == null ? null : compute.getTestVolumeProductId());
     }
 
     public @Nullable String getTestZoneId(@Nonnull String label, boolean provisionIfNull) {
-        return (networkResources == null ? null : networkResources.getTestZoneId(label, provisionIfNull));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestZoneId(label, provisionIfNull));
     }
 
     public @Nullable String getTestVpnId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
-        return (networkResources == null ? null : networkResources.getTestVpnId(label, provisionIfNull, preferredDataCenterId));
+        NetworkResources network = getNetworkResources();
+
+        return (network == null ? null : network.getTestVpnId(label, provisionIfNull, preferredDataCenterId));
     }
 
     public @Nonnull CloudProvider getProvider() {
         return provider;
     }
 
+    /**
+     * Provides the CI services of the provider, instrumented so that the latency of every call made through them
+     * is recorded per API for the current test and for the test run. The other services provided by the test
+     * manager are instrumented in the same way.
+     * @return the instrumented CI services of the provider, if any
+     */
+    public @Nullable CIServices getCIServices() {
+        return ServiceProxy.wrap(provider.getCIServices(), CIServices.class, recorder, capabilities);
+    }
+
+    public @Nullable ComputeServices getComputeServices() {
+        return ServiceProxy.wrap(provider.getComputeServices(), ComputeServices.class, recorder, capabilities);
+    }
+
+    public @Nullable DataCenterServices getDataCenterServices() {
+        return ServiceProxy.wrap(provider.getDataCenterServices(), DataCenterServices.class, recorder, capabilities);
+    }
+
+    public @Nullable IdentityServices getIdentityServices() {
+        return ServiceProxy.wrap(provider.getIdentityServices(), IdentityServices.class, recorder, capabilities);
+    }
+
+    public @Nullable NetworkServices getNetworkServices() {
+        return ServiceProxy.wrap(provider.getNetworkServices(), NetworkServices.class, recorder, capabilities);
+    }
+
+    public @Nullable PlatformServices getPlatformServices() {
+        return ServiceProxy.wrap(provider.getPlatformServices(), PlatformServices.class, recorder, capabilities);
+    }
+
+    public @Nullable StorageServices getStorageServices() {
+        return ServiceProxy.wrap(provider.getStorageServices(), StorageServices.class, recorder, capabilities);
+    }
+
     /**
      * Checks to see if the test currently being executed is supposed to be skipped.
      * A test is assumed to be run unless there are a list of inclusions and the test is not
@@ -807,95 +1395,73 @@ public class DaseinTestManager {
      *     -Ddasein.inclusions=StatelessVMTests.listVirtualMachines,StatelessDCTests
      * </pre>
      * This will execute only the listVirtualMachines test from StatelessVMTests and all StatelessDCTests. All other
-     * tests will be skipped.
+     * tests will be skipped. Globs, regular expressions and tags are also supported as described in {@link TestSelector}.
      * @return true if the current test is to be skipped
      */
     public boolean isTestSkipped() {
-        if( inclusions == null && exclusions == null ) {
-            return false;
-        }
-        String s = suite.toLowerCase();
-        String t = (name == null ? null : name.toLowerCase());
+        TestSelector s = selector;
 
-        Boolean suiteIncluded = null;
-        Boolean testIncluded = null;
-
-        if( inclusions != null ) {
-            if( inclusions.contains(s) ) {
-                suiteIncluded = true;
-            }
-            if( t != null && inclusions.contains(s + "." + t) ) {
-                testIncluded = true;
-            }
-            if( suiteIncluded == null && testIncluded == null ) {
-                skip();
-                return true;
-            }
-        }
-        if( exclusions != null ) {
-            if( t != null && exclusions.contains(s + "." + t) ) {
-                if( testIncluded == null || !testIncluded ) {
-                    skip();
-                    return true;
-                }
-                return false; // conflict goes to not skipping
-            }
-            if( exclusions.contains(s) ) {
-                if( testIncluded != null && testIncluded ) {
-                    return false; // specific test inclusion overrides suite exclusion
-                }
-                // suite included must be true to get this far
-                if( suiteIncluded != null && suiteIncluded ) {
-                    return false; // conflict goes to skipping
-                }
-            }
+        if( s == null || s.isSelected(testClass, name.get()) ) {
+            return false;
         }
-        return false;
+        skip();
+        return true;
     }
 
     public void ok(@Nonnull String message) {
-        logger.info(prefix + message + " (OK)");
+        log(Level.INFO, message + " (OK)");
     }
 
     public void out(@Nonnull String message) {
-        logger.info(prefix + message);
+        log(Level.INFO, message);
     }
 
     public void out(@Nonnull String key, boolean value) {
-        out(key, String.valueOf(value));
+        record(key, value);
     }
 
     public void out(@Nonnull String key, int value) {
-        out(key, String.valueOf(value));
+        record(key, value);
     }
 
     public void out(@Nonnull String key, long value) {
-        out(key, String.valueOf(value));
+        record(key, value);
     }
 
     public void out(@Nonnull String key, double value) {
-        out(key, String.valueOf(value));
+        record(key, value);
     }
 
     public void out(@Nonnull String key, float value) {
-        out(key, String.valueOf(value));
+        record(key, value);
     }
 
     public void out(@Nonnull String key, Object value) {
-        out(key, value == null ? "null" : value.toString());
+        if( value == null || value instanceof Number || value instanceof Boolean || value instanceof Enum ) {
+            record(key, value);
+        }
+        else {
+            // other values may change before the event is written, so capture their current form
+            record(key, value.toString());
+        }
     }
 
     public void out(@Nonnull String key, @Nullable String value) {
-        out(logger, prefix, key, value);
+        record(key, value);
+    }
+
+    private void record(@Nonnull String key, @Nullable Object value) {
+        log(new EventSink.Event(logger, Level.INFO, getPrefix(), suite, name.get(), key, value));
     }
 
     public void skip() {
-        skipCount++;
+        skipCount.incrementAndGet();
+        TestMetrics.skipped();
         out("SKIPPING");
     }
 
     public void warn(@Nonnull String message) {
-        logger.warn(prefix + "WARNING: " + message);
+        log(Level.WARN, "WARNING: " + message);
     }
     
     public String getUserName() {
@@ -0,0 +1,327 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.ProviderContext;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Properties;
+
+/**
+ * Small on-disk cache of the fixtures tests discover at start up, such as the image and product used to provision
+ * test virtual machines. Each cache file belongs to one provider, cloud, region and account and expires after a
+ * fixed time to live. Callers are expected to re-check each cached value with a cheap lookup before using it and to
+ * rediscover and {@link #save()} all values if any check fails. The cache is controlled with the {@link System}
+ * properties:
+ * <pre>
+ *     -Ddasein.cache.dir=/var/tmp/dasein-cache -Ddasein.cache.ttl=360
+ * </pre>
+ * The directory defaults to dasein-cache in the temporary directory of the JVM and the time to live, in minutes,
+ * defaults to 360. A time to live of 0 disables the cache.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class DiscoveryCache {
+    static public final String CACHE_DIR = "dasein.cache.dir";
+    static public final String CACHE_TTL = "dasein.cache.ttl";
+
+    static private final String CREATED = "dasein.created";
+    static private final String KEY     = "dasein.key";
+
+    static private final long DEFAULT_TTL = 360L;
+
+    static private final Logger logger = Logger.getLogger(DiscoveryCache.class);
+
+    /**
+     * Loads the cache for the cloud account the provider is connected to.
+     * @param provider the connected provider
+     * @param qualifiers additional values that the cached fixtures depend on, such as fixture overrides set in system properties
+     * @return the cache, empty if no unexpired cache exists or caching is disabled
+     */
+    static public @Nonnull DiscoveryCache getInstance(@Nonnull CloudProvider provider, @Nullable String ... qualifiers) {
+        DiscoveryCache cache = new DiscoveryCache(getKey(provider, qualifiers), getTimeToLive());
+
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * @param provider the connected provider
+     * @param qualifiers additional values to include in the key
+     * @return a key identifying the provider, cloud, region and account the provider is connected to
+     */
+    static @Nonnull String getKey(@Nonnull CloudProvider provider, @Nullable String ... qualifiers) {
+        ProviderContext ctx = provider.getContext();
+        String regionId = (ctx == null ? null : ctx.getRegionId());
+        String account = (ctx == null ? null : ctx.getAccountNumber());
+        StringBuilder key = new StringBuilder();
+
+        key.append(provider.getProviderName()).append('|').append(provider.getCloudName());
+        key.append('|').append(regionId).append('|').append(account);
+        for( String qualifier : qualifiers ) {
+            key.append('|').append(qualifier);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the directory holding the cache files
+     */
+    static @Nonnull File getDirectory() {
+        String dir = DaseinTestManager.getSystemProperty(CACHE_DIR);
+
+        if( dir == null ) {
+            return new File(System.getProperty("java.io.tmpdir"), "dasein-cache");
+        }
+        return new File(dir);
+    }
+
+    static private @Nonnegative long getTimeToLive() {
+        String prop = DaseinTestManager.getSystemProperty(CACHE_TTL);
+
+        if( prop != null ) {
+            try {
+                long minutes = Long.parseLong(prop.trim());
+
+                if( minutes >= 0L ) {
+                    return minutes * 60000L;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return DEFAULT_TTL * 60000L;
+    }
+
+    static @Nonnull String digest(@Nonnull String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            StringBuilder hex = new StringBuilder();
+
+            for( byte b : md.digest(key.getBytes("utf-8")) ) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        }
+        catch( Exception e ) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private final File       file;
+    private final String     key;
+    private       long       created;
+    private       boolean    loaded;
+    private final long       timeToLive;
+    private final Properties values = new Properties();
+
+    private DiscoveryCache(@Nonnull String key, @Nonnegative long timeToLive) {
+        this.key = key;
+        this.timeToLive = timeToLive;
+        this.file = new File(getDirectory(), "discovery-" + digest(key) + ".properties");
+    }
+
+    /**
+     * Reads a cache file.
+     * @param file the file to read
+     * @return the contents of the file, or null if the file does not exist or cannot be read
+     */
+    static @Nullable Properties read(@Nonnull File file) {
+        if( !file.exists() ) {
+            return null;
+        }
+        Properties props = new Properties();
+        InputStream input = null;
+
+        try {
+            input = new FileInputStream(file);
+            props.load(input);
+            return props;
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to read cache " + file + ": " + e.getMessage());
+            return null;
+        }
+        finally {
+            if( input != null ) {
+                try {
+                    input.close();
+                }
+                catch( Throwable ignore ) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces a cache file. Failures are logged and otherwise ignored since caches are only an optimization.
+     * @param file the file to write
+     * @param props the contents of the file
+     * @param comment the comment at the head of the file
+     */
+    static void write(@Nonnull File file, @Nonnull Properties props, @Nonnull String comment) {
+        File dir = file.getParentFile();
+
+        if( !dir.exists() && !dir.mkdirs() ) {
+            logger.warn("Unable to create cache directory " + dir);
+            return;
+        }
+        OutputStream output = null;
+        File tmp = null;
+
+        try {
+            tmp = File.createTempFile("dasein-", ".tmp", dir);
+            output = new FileOutputStream(tmp);
+            props.store(output, comment);
+            output.close();
+            output = null;
+            // other runs may read the cache concurrently, so never expose a partially written file
+            if( !tmp.renameTo(file) && (!file.delete() || !tmp.renameTo(file)) ) {
+                logger.warn("Unable to replace cache " + file);
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to write cache " + file + ": " + e.getMessage());
+        }
+        finally {
+            if( output != null ) {
+                try {
+                    output.close();
+                }
+                catch( Throwable ignore ) {
+                    // ignore
+                }
+            }
+            if( tmp != null && tmp.exists() && !tmp.delete() ) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+    private void load() {
+        if( !isEnabled() ) {
+            return;
+        }
+        Properties props = read(file);
+
+        if( props == null || !key.equals(props.getProperty(KEY)) ) {
+            return;
+        }
+        try {
+            created = Long.parseLong(props.getProperty(CREATED, "0"));
+        }
+        catch( NumberFormatException e ) {
+            return;
+        }
+        if( created + timeToLive < System.currentTimeMillis() ) {
+            return;
+        }
+        props.remove(KEY);
+        props.remove(CREATED);
+        values.putAll(props);
+        loaded = true;
+    }
+
+    /**
+     * Discards all cached values so that they may be rediscovered.
+     */
+    public void clear() {
+        values.clear();
+        loaded = false;
+    }
+
+    /**
+     * @param name the name of the cached value
+     * @return the cached value, or null if the value is not cached
+     */
+    public @Nullable String get(@Nonnull String name) {
+        return values.getProperty(name);
+    }
+
+    /**
+     * @return the age of the cache in milliseconds
+     */
+    public long getAge() {
+        return (loaded ? System.currentTimeMillis() - created : 0L);
+    }
+
+    /**
+     * @return true if caching has not been disabled
+     */
+    public boolean isEnabled() {
+        return (timeToLive > 0L);
+    }
+
+    /**
+     * @return true if unexpired values were loaded from disk
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Sets a value to be cached.
+     * @param name the name of the value
+     * @param value the value, or null if nothing is to be cached under the name
+     */
+    public void put(@Nonnull String name, @Nullable String value) {
+        if( value == null ) {
+            values.remove(name);
+        }
+        else {
+            values.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Writes the current values to disk, restarting their time to live. Failures are logged and otherwise ignored
+     * since the cache is only an optimization.
+     */
+    public void save() {
+        if( !isEnabled() ) {
+            return;
+        }
+        Properties props = new Properties();
+
+        created = System.currentTimeMillis();
+        props.putAll(values);
+        props.setProperty(KEY, key);
+        props.setProperty(CREATED, String.valueOf(created));
+        write(file, props, "Dasein Cloud test fixtures");
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return file.getPath();
+    }
+}
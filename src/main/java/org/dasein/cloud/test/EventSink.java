@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes test output on a background thread so that formatting and logging do not count against the duration
+ * of the tests producing the output. Test managers publish structured {@link Event}s into a bounded queue (publishers
+ * block while it is full, so no output is ever dropped) and a single writer drains the queue, formats each event
+ * and writes it to its log4j logger. Events published together are written together, without interleaving.
+ * <p>
+ * If the {@link System} property dasein.events.file is set, every event is also appended to that file as one JSON
+ * object per line with its timestamp, thread, test, level and either its key and typed value or its message.
+ * The queue capacity may be set with dasein.events.capacity (8192 by default).
+ * </p>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class EventSink {
+    static public final String EVENTS_CAPACITY = "dasein.events.capacity";
+    static public final String EVENTS_FILE     = "dasein.events.file";
+
+    static private final int DEFAULT_CAPACITY = 8192;
+    static private final int MAX_BATCH        = 1024;
+
+    /**
+     * A single line of test output. Key/value events are formatted only when written.
+     */
+    static public class Event {
+        private final String key;
+        private final Level  level;
+        private final Logger logger;
+        private final String message;
+        private final String prefix;
+        private final String suite;
+        private final String test;
+        private final String thread;
+        private final long   timestamp;
+        private final Object value;
+
+        /**
+         * @param logger the logger to which the event is written
+         * @param level the log level of the event
+         * @param prefix the prefix identifying the test in the log
+         * @param suite the test class that produced the event
+         * @param test the test method that produced the event, if any
+         * @param message the message
+         */
+        public Event(@Nonnull Logger logger, @Nonnull Level level, @Nonnull String prefix, @Nullable String suite, @Nullable String test, @Nonnull String message) {
+            this(logger, level, prefix, suite, test, null, null, message);
+        }
+
+        /**
+         * @param logger the logger to which the event is written
+         * @param level the log level of the event
+         * @param prefix the prefix identifying the test in the log
+         * @param suite the test class that produced the event
+         * @param test the test method that produced the event, if any
+         * @param key the key being reported
+         * @param value the value being reported, which must be immutable
+         */
+        public Event(@Nonnull Logger logger, @Nonnull Level level, @Nonnull String prefix, @Nullable String suite, @Nullable String test, @Nonnull String key, @Nullable Object value) {
+            this(logger, level, prefix, suite, test, key, value, null);
+        }
+
+        private Event(Logger logger, Level level, String prefix, String suite, String test, String key, Object value, String message) {
+            this.logger = logger;
+            this.level = level;
+            this.prefix = prefix;
+            this.suite = suite;
+            this.test = test;
+            this.key = key;
+            this.value = value;
+            this.message = message;
+            this.thread = Thread.currentThread().getName();
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        public @Nonnull String format() {
+            if( key == null ) {
+                return prefix + message;
+            }
+            return prefix + DaseinTestManager.pad(key) + value;
+        }
+
+        public @Nonnull String toJson() {
+            LinkedHashMap<String,Object> fields = new LinkedHashMap<String, Object>();
+
+            fields.put("timestamp", timestamp);
+            fields.put("thread", thread);
+            if( suite != null ) {
+                fields.put("test", test == null ? suite : suite + "." + test);
+            }
+            fields.put("level", level.toString());
+            if( key == null ) {
+                fields.put("message", message);
+                return new JSONObject(fields).toString();
+            }
+            fields.put("key", key);
+            fields.put("value", toJsonValue(value));
+
+            String json = new JSONObject(fields).toString();
+
+            if( json == null ) {
+                // org.json refuses non-finite numbers anywhere in the value
+                fields.put("value", String.valueOf(value));
+                json = new JSONObject(fields).toString();
+            }
+            return json;
+        }
+
+        static private @Nullable Object toJsonValue(@Nullable Object value) {
+            if( value == null || value instanceof Boolean || value instanceof Number || value instanceof Map || value instanceof Collection ) {
+                return value;
+            }
+            if( value instanceof Iterable ) {
+                ArrayList<Object> items = new ArrayList<Object>();
+
+                for( Object item : (Iterable<?>)value ) {
+                    items.add(item);
+                }
+                return items;
+            }
+            return value.toString();
+        }
+    }
+
+    static private final AtomicLong                 published   = new AtomicLong(0L);
+    static private final Object                     publishLock = new Object();
+    static private final ArrayBlockingQueue<Event>  queue;
+    static private final AtomicLong                 written     = new AtomicLong(0L);
+    static private final Object                     writtenLock = new Object();
+
+    static private Writer jsonl;
+
+    static {
+        int capacity = DEFAULT_CAPACITY;
+        String prop = DaseinTestManager.getSystemProperty(EVENTS_CAPACITY);
+
+        if( prop != null ) {
+            try {
+                capacity = Math.max(1, Integer.parseInt(prop.trim()));
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        queue = new ArrayBlockingQueue<Event>(capacity);
+        prop = DaseinTestManager.getSystemProperty(EVENTS_FILE);
+        if( prop != null ) {
+            try {
+                jsonl = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(prop, true), "utf-8"));
+            }
+            catch( IOException e ) {
+                Logger.getLogger(EventSink.class).warn("Unable to open event file " + prop + ": " + e.getMessage());
+            }
+        }
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "dasein-events");
+
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flush(5000L);
+                if( jsonl != null ) {
+                    try {
+                        jsonl.close();
+                    }
+                    catch( IOException ignore ) {
+                        // ignore
+                    }
+                }
+            }
+        }, "dasein-events-shutdown"));
+    }
+
+    /**
+     * Queues an event for writing, blocking if the queue is full.
+     * @param event the event to be written
+     */
+    static public void publish(@Nonnull Event event) {
+        publish(Collections.singletonList(event));
+    }
+
+    /**
+     * Queues a group of events that will be written together, blocking if the queue is full.
+     * @param events the events to be written
+     */
+    static public void publish(@Nonnull List<Event> events) {
+        synchronized( publishLock ) {
+            for( Event event : events ) {
+                try {
+                    queue.put(event);
+                    published.incrementAndGet();
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    // write directly rather than losing output
+                    event.logger.log(event.level, event.format());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for every event published so far to be written.
+     */
+    static public void flush() {
+        flush(0L);
+    }
+
+    static private void flush(long timeoutMillis) {
+        long target = published.get();
+        long deadline = (timeoutMillis > 0L ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE);
+
+        synchronized( writtenLock ) {
+            while( written.get() < target && System.currentTimeMillis() < deadline ) {
+                try {
+                    writtenLock.wait(100L);
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    static private void drain() {
+        ArrayList<Event> batch = new ArrayList<Event>();
+
+        while( true ) {
+            try {
+                batch.add(queue.take());
+            }
+            catch( InterruptedException e ) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for( Event event : batch ) {
+                try {
+                    event.logger.log(event.level, event.format());
+                }
+                catch( Throwable ignore ) {
+                    // ignore
+                }
+                if( jsonl != null ) {
+                    try {
+                        jsonl.write(event.toJson());
+                        jsonl.write("\n");
+                    }
+                    catch( Throwable ignore ) {
+                        // ignore
+                    }
+                }
+            }
+            if( jsonl != null ) {
+                try {
+                    jsonl.flush();
+                }
+                catch( IOException ignore ) {
+                    // ignore
+                }
+            }
+            written.addAndGet(batch.size());
+            batch.clear();
+            synchronized( writtenLock ) {
+                writtenLock.notifyAll();
+            }
+        }
+    }
+}
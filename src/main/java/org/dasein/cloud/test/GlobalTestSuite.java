@@ -30,7 +30,7 @@ import org.junit.runners.Suite;
  *
  * @author George Reese
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({ StatefulTestSuite.class, StatelessTestSuite.class })
 public class GlobalTestSuite {
     @BeforeClass
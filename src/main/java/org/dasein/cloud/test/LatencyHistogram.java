@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory, thread-safe histogram of latencies in microseconds. Buckets are log-linear: each power of two is
+ * split into 16 equal buckets, so any percentile is reported to within about 6% of the true value regardless of
+ * how many values have been recorded or how widely they range.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class LatencyHistogram {
+    static private final int SUB_BUCKET_BITS  = 4;
+    static private final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static private final int BUCKET_COUNT     = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    static int getBucket(long value) {
+        if( value < SUB_BUCKET_COUNT ) {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long getHighestValue(int bucket) {
+        if( bucket < SUB_BUCKET_COUNT ) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        return (1L << exponent) + (bucket % SUB_BUCKET_COUNT) * width + width - 1;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong      count  = new AtomicLong(0L);
+    private final AtomicLong      max    = new AtomicLong(0L);
+    private final AtomicLong      total  = new AtomicLong(0L);
+
+    public LatencyHistogram() { }
+
+    /**
+     * @param micros the latency being recorded in microseconds
+     */
+    public void record(@Nonnegative long micros) {
+        if( micros < 0L ) {
+            micros = 0L;
+        }
+        counts.incrementAndGet(getBucket(micros));
+        count.incrementAndGet();
+        total.addAndGet(micros);
+        long m = max.get();
+
+        while( micros > m && !max.compareAndSet(m, micros) ) {
+            m = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long c = count.get();
+
+        return (c < 1 ? 0L : total.get()/c);
+    }
+
+    /**
+     * @param percentile the percentile (0-100) to fetch
+     * @return an upper bound on the latency in microseconds at the specified percentile, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long c = count.get();
+
+        if( c < 1 ) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long)Math.ceil((percentile/100.0) * c));
+        long seen = 0L;
+
+        for( int i=0; i<BUCKET_COUNT; i++ ) {
+            seen += counts.get(i);
+            if( seen >= target ) {
+                return Math.min(getHighestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return the count, 50th, 90th and 99th percentiles and maximum latency formatted for the test log
+     */
+    public @Nonnull String summarize() {
+        return getCount() + " calls, p50 " + millis(getPercentile(50)) + ", p90 " + millis(getPercentile(90)) + ", p99 " + millis(getPercentile(99)) + ", max " + millis(getMax());
+    }
+
+    static private @Nonnull String millis(long micros) {
+        if( micros < 10000L ) {
+            return (((float)micros)/1000f) + "ms";
+        }
+        return (micros/1000L) + "ms";
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return summarize();
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps stateful fixtures that tests do not modify, such as the stateful VLAN and its subnets, alive between test
+ * runs. Fixtures kept by a run are recorded in a local lease file (ID, kind, label, time created, time last used and
+ * a fingerprint of the options with which they were provisioned) and skipped by teardown. The next run against the
+ * same provider, cloud, region and account reuses a leased fixture with the same label and fingerprint after a
+ * single health check instead of provisioning a new one. Leases not used within their time to live, and leased
+ * fixtures that fail their health check, are reaped: their owners add them to the teardown graph of the run. The
+ * store is opt-in and controlled with the {@link System} property:
+ * <pre>
+ *     -Ddasein.lease.ttl=1440
+ * </pre>
+ * The time to live is in minutes and defaults to 0, which disables leasing. With leasing disabled the lease file is
+ * still read, so that the {@link OrphanSweeper} leaves leased fixtures alone, but it is neither used nor rewritten.
+ * Lease files are kept in the directory of the {@link DiscoveryCache}.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class LeaseStore {
+    static private final Logger logger = Logger.getLogger(LeaseStore.class);
+
+    static public final String LEASE_TTL = "dasein.lease.ttl";
+
+    /**
+     * The label prefix under which reaped fixtures are registered for teardown.
+     */
+    static public final String EXPIRED = "expired-lease-";
+
+    static private final String KEY   = "dasein.key";
+    static private final String LEASE = "lease.";
+
+    static private final ConcurrentHashMap<String,LeaseStore> stores = new ConcurrentHashMap<String, LeaseStore>();
+
+    /**
+     * Checks that a leased fixture can still be used.
+     */
+    public interface HealthCheck {
+        /**
+         * @param id the ID of the leased fixture
+         * @return true if the fixture exists and is ready for use
+         * @throws CloudException an error occurred with the cloud provider checking the fixture
+         * @throws InternalException an error occurred within Dasein Cloud checking the fixture
+         */
+        boolean isHealthy(@Nonnull String id) throws CloudException, InternalException;
+    }
+
+    static private class Lease {
+        private final long         created;
+        private final String       fingerprint;
+        private final String       id;
+        private final ResourceKind kind;
+        private final String       label;
+        private       boolean      kept;
+        private       long         lastUsed;
+
+        private Lease(@Nonnull ResourceKind kind, @Nonnull String id, @Nonnull String label, @Nonnull String fingerprint, long created, long lastUsed) {
+            this.kind = kind;
+            this.id = id;
+            this.label = label;
+            this.fingerprint = fingerprint;
+            this.created = created;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * Provides the lease store for the cloud account the provider is connected to, loading it on first use.
+     * @param provider the connected provider
+     * @return the lease store
+     */
+    static public @Nonnull LeaseStore getInstance(@Nonnull CloudProvider provider) {
+        String key = DiscoveryCache.getKey(provider);
+        LeaseStore store = stores.get(key);
+
+        if( store == null ) {
+            LeaseStore created = new LeaseStore(key, getTimeToLive());
+
+            store = stores.putIfAbsent(key, created);
+            if( store == null ) {
+                store = created;
+                store.load();
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Records the fixtures kept by this run in every lease store that has been used.
+     */
+    static public void saveAll() {
+        for( LeaseStore store : stores.values() ) {
+            store.save();
+        }
+    }
+
+    static private @Nonnegative long getTimeToLive() {
+        String prop = DaseinTestManager.getSystemProperty(LEASE_TTL);
+
+        if( prop != null ) {
+            try {
+                long minutes = Long.parseLong(prop.trim());
+
+                if( minutes > 0L ) {
+                    return minutes * 60000L;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return 0L;
+    }
+
+    private final File              file;
+    private final String            key;
+    private final ArrayList<Lease>  leases  = new ArrayList<Lease>();
+    private final ArrayList<Lease>  expired = new ArrayList<Lease>();
+    private final long              timeToLive;
+
+    private LeaseStore(@Nonnull String key, @Nonnegative long timeToLive) {
+        this.key = key;
+        this.timeToLive = timeToLive;
+        this.file = new File(DiscoveryCache.getDirectory(), "leases-" + DiscoveryCache.digest(key) + ".properties");
+    }
+
+    private synchronized void load() {
+        // the file is read even with leasing disabled so that the sweeper never reclaims leased fixtures
+        Properties props = DiscoveryCache.read(file);
+
+        if( props == null || !key.equals(props.getProperty(KEY)) ) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        for( int i=0; props.getProperty(LEASE + i + ".id") != null; i++ ) {
+            String prefix = LEASE + i + ".";
+
+            try {
+                Lease lease = new Lease(ResourceKind.valueOf(props.getProperty(prefix + "kind")), props.getProperty(prefix + "id"), props.getProperty(prefix + "label", ""), props.getProperty(prefix + "fingerprint", ""), Long.parseLong(props.getProperty(prefix + "created")), Long.parseLong(props.getProperty(prefix + "lastUsed")));
+
+                if( isEnabled() && lease.lastUsed + timeToLive < now ) {
+                    expired.add(lease);
+                }
+                else {
+                    leases.add(lease);
+                }
+            }
+            catch( RuntimeException e ) {
+                logger.warn("Ignoring unreadable lease " + i + " in " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true if leasing has been enabled
+     */
+    public boolean isEnabled() {
+        return (timeToLive > 0L);
+    }
+
+    /**
+     * @param id the ID of a fixture
+     * @return true if the fixture is kept for the next run and must not be torn down
+     */
+    public synchronized boolean isKept(@Nullable String id) {
+        for( Lease lease : leases ) {
+            if( lease.kept && lease.id.equals(id) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param id the ID of a fixture
+     * @return true if the fixture is leased by this or an earlier run and must not be treated as leaked
+     */
+    public synchronized boolean isLeased(@Nullable String id) {
+        for( Lease lease : leases ) {
+            if( lease.id.equals(id) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps a newly provisioned fixture for reuse by later runs.
+     * @param kind the kind of fixture
+     * @param label the label under which the fixture is registered
+     * @param id the ID of the fixture
+     * @param fingerprint a fingerprint of the options with which the fixture was provisioned
+     */
+    public synchronized void keep(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull String id, @Nonnull String fingerprint) {
+        if( !isEnabled() ) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Lease lease = new Lease(kind, id, label, fingerprint, now, now);
+
+        lease.kept = true;
+        leases.add(lease);
+    }
+
+    /**
+     * Removes the leases that have expired or failed their health check so that the caller can tear the fixtures
+     * down.
+     * @param kind the kind of fixture
+     * @return the IDs of the fixtures to tear down
+     */
+    public synchronized @Nonnull List<String> reap(@Nonnull ResourceKind kind) {
+        ArrayList<String> ids = new ArrayList<String>();
+        Iterator<Lease> it = expired.iterator();
+
+        while( it.hasNext() ) {
+            Lease lease = it.next();
+
+            if( lease.kind.equals(kind) ) {
+                ids.add(lease.id);
+                it.remove();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Reuses a fixture leased by an earlier run.
+     * @param kind the kind of fixture
+     * @param label the label under which the fixture is needed
+     * @param fingerprint a fingerprint of the options with which the fixture would be provisioned
+     * @param check checks that the fixture can still be used
+     * @return the ID of a healthy fixture, or null if none is leased and one must be provisioned
+     */
+    public synchronized @Nullable String reuse(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull String fingerprint, @Nonnull HealthCheck check) {
+        if( !isEnabled() ) {
+            return null;
+        }
+        Iterator<Lease> it = leases.iterator();
+
+        while( it.hasNext() ) {
+            Lease lease = it.next();
+
+            if( lease.kept || !lease.kind.equals(kind) || !lease.label.equals(label) || !lease.fingerprint.equals(fingerprint) ) {
+                continue;
+            }
+            boolean healthy;
+
+            try {
+                healthy = check.isHealthy(lease.id);
+            }
+            catch( Throwable t ) {
+                healthy = false;
+            }
+            if( healthy ) {
+                lease.kept = true;
+                lease.lastUsed = System.currentTimeMillis();
+                DaseinTestManager.out(logger, null, "Reused " + kind, lease.id + " (" + ((lease.lastUsed - lease.created)/60000L) + " minutes old)");
+                return lease.id;
+            }
+            it.remove();
+            expired.add(lease);
+        }
+        return null;
+    }
+
+    /**
+     * Writes the leases of the fixtures kept by this run and those of earlier runs that have not expired. Failures
+     * are logged and otherwise ignored.
+     */
+    public synchronized void save() {
+        if( !isEnabled() ) {
+            return;
+        }
+        Properties props = new Properties();
+        int i = 0;
+
+        props.setProperty(KEY, key);
+        for( Lease lease : leases ) {
+            String prefix = LEASE + (i++) + ".";
+
+            props.setProperty(prefix + "id", lease.id);
+            props.setProperty(prefix + "kind", lease.kind.name());
+            props.setProperty(prefix + "label", lease.label);
+            props.setProperty(prefix + "fingerprint", lease.fingerprint);
+            props.setProperty(prefix + "created", String.valueOf(lease.created));
+            props.setProperty(prefix + "lastUsed", String.valueOf(lease.lastUsed));
+        }
+        DiscoveryCache.write(file, props, "Dasein Cloud test fixture leases");
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return file.getPath();
+    }
+}
@@ -0,0 +1,638 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.ImageFilterOptions;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageSupport;
+import org.dasein.cloud.compute.Snapshot;
+import org.dasein.cloud.compute.SnapshotState;
+import org.dasein.cloud.compute.SnapshotSupport;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VirtualMachineSupport;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.compute.Volume;
+import org.dasein.cloud.compute.VolumeState;
+import org.dasein.cloud.compute.VolumeSupport;
+import org.dasein.cloud.identity.IdentityServices;
+import org.dasein.cloud.identity.SSHKeypair;
+import org.dasein.cloud.identity.ShellKeySupport;
+import org.dasein.cloud.network.DNSSupport;
+import org.dasein.cloud.network.DNSZone;
+import org.dasein.cloud.network.Firewall;
+import org.dasein.cloud.network.FirewallSupport;
+import org.dasein.cloud.network.IPVersion;
+import org.dasein.cloud.network.InternetGateway;
+import org.dasein.cloud.network.IpAddress;
+import org.dasein.cloud.network.IpAddressSupport;
+import org.dasein.cloud.network.LoadBalancer;
+import org.dasein.cloud.network.LoadBalancerState;
+import org.dasein.cloud.network.LoadBalancerSupport;
+import org.dasein.cloud.network.NetworkFirewallSupport;
+import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.network.RoutingTable;
+import org.dasein.cloud.network.Subnet;
+import org.dasein.cloud.network.VLAN;
+import org.dasein.cloud.network.VLANSupport;
+import org.dasein.cloud.network.Vpn;
+import org.dasein.cloud.network.VpnSupport;
+import org.dasein.cloud.platform.Database;
+import org.dasein.cloud.platform.DatabaseState;
+import org.dasein.cloud.platform.PlatformServices;
+import org.dasein.cloud.platform.RelationalDatabaseSupport;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.compute.ComputeResources;
+import org.dasein.cloud.test.identity.IdentityResources;
+import org.dasein.cloud.test.network.NetworkResources;
+import org.dasein.cloud.test.platform.PlatformResources;
+import org.dasein.cloud.test.storage.StorageResources;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Reclaims cloud resources leaked by earlier test runs, for example when the JVM running them was killed before it
+ * could clean up. Virtual machines, volumes, snapshots, machine images, load balancers, firewalls, network firewalls,
+ * VLANs, subnets, routing tables, VPNs, DNS zones, root buckets, relational databases and SSH keypairs are listed and
+ * a resource is selected if it carries the dsntestcase tag or its name starts with one of the prefixes used by the
+ * tests, is older than a minimum age, and is not leased through the {@link LeaseStore}. Resources whose cloud reports
+ * no creation time are aged from the first sweep that saw them, so resources of a suite running concurrently are never
+ * touched. Static IPs, internet gateways and the contents of buckets carry no name of their own; they are selected
+ * with the virtual machine, load balancer, VLAN or bucket they belong to, so an address leaked on its own is not
+ * reclaimed. SSL certificates, CDN distributions, message queues, notification topics, users, groups and CI
+ * resources are not swept. Selected resources are handed to the resources class of their domain and removed in
+ * parallel through a {@link TeardownGraph}. The sweeper runs standalone through {@link #main(String[])} or at the
+ * start of a test run, and is controlled with the {@link System} properties:
+ * <pre>
+ *     -Ddasein.sweep=true -Ddasein.sweep.dryRun=true -Ddasein.sweep.age=180 -Ddasein.sweep.prefixes=dsnvm,dsnlb
+ * </pre>
+ * dasein.sweep enables sweeping at the start of a test run, a dry run only reports what would be reclaimed, the
+ * minimum age is in minutes (default 180) and the prefixes default to those used by the tests in this project.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class OrphanSweeper {
+    static private final Logger logger = Logger.getLogger(OrphanSweeper.class);
+
+    static public final String SWEEP          = "dasein.sweep";
+    static public final String SWEEP_AGE      = "dasein.sweep.age";
+    static public final String SWEEP_DRY_RUN  = "dasein.sweep.dryRun";
+    static public final String SWEEP_PREFIXES = "dasein.sweep.prefixes";
+
+    /**
+     * The label prefix under which swept resources are registered for teardown.
+     */
+    static public final String ORPHAN = "orphan-";
+
+    static private final String   TAG              = "dsntestcase";
+    static private final long     DEFAULT_AGE      = 180L;
+    static private final String[] DEFAULT_PREFIXES = {
+            "testvm-", "dsnvm", "dsnstfvm", "dsnvol", "dsnnfsvol", "dsnvolprv", "dsnsnap", "dsnimg", "dsnnet",
+            "dsnsub", "dsnrtb", "dsnfw", "dsnlb", "dsnvpn", "dsnbkt", "dsnrdbms", "dsnkp"
+    };
+
+    /**
+     * The names of the DNS zones provisioned by the tests, which do not start with a test prefix.
+     */
+    static private final Pattern TEST_ZONE = Pattern.compile("dasein[0-9]+\\.org\\.?");
+
+    static private class Candidate {
+        private final String       id;
+        private final ResourceKind kind;
+        private final String       name;
+        private final long         created;
+        private final Blob         blob;
+
+        private Candidate(@Nonnull ResourceKind kind, @Nonnull String id, @Nullable String name, long created, @Nullable Blob blob) {
+            this.kind = kind;
+            this.id = id;
+            this.name = name;
+            this.created = created;
+            this.blob = blob;
+        }
+    }
+
+    /**
+     * Sweeps the cloud configured for the test run, see {@link DaseinTestManager#constructProvider()}.
+     * @param args --dry-run to only report what would be reclaimed
+     */
+    static public void main(String ... args) {
+        boolean dryRun = Boolean.parseBoolean(DaseinTestManager.getSystemProperty(SWEEP_DRY_RUN));
+
+        for( String arg : args ) {
+            if( arg.equals("--dry-run") ) {
+                dryRun = true;
+            }
+        }
+        try {
+            new OrphanSweeper(ProviderPool.acquire()).sweep(dryRun);
+        }
+        finally {
+            ProviderPool.closeAll();
+            EventSink.flush();
+        }
+    }
+
+    static private @Nonnull String[] getPrefixes() {
+        String prop = DaseinTestManager.getSystemProperty(SWEEP_PREFIXES);
+
+        if( prop == null ) {
+            return DEFAULT_PREFIXES;
+        }
+        ArrayList<String> prefixes = new ArrayList<String>();
+
+        for( String prefix : prop.split(",") ) {
+            if( !prefix.trim().isEmpty() ) {
+                prefixes.add(prefix.trim());
+            }
+        }
+        return prefixes.toArray(new String[prefixes.size()]);
+    }
+
+    static private long getMinimumAge() {
+        String prop = DaseinTestManager.getSystemProperty(SWEEP_AGE);
+
+        if( prop != null ) {
+            try {
+                long minutes = Long.parseLong(prop.trim());
+
+                if( minutes >= 0L ) {
+                    return minutes * CalendarWrapper.MINUTE;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return DEFAULT_AGE * CalendarWrapper.MINUTE;
+    }
+
+    private final ArrayList<Candidate> candidates = new ArrayList<Candidate>();
+    private final long                 minimumAge;
+    private final String[]             prefixes;
+    private final CloudProvider        provider;
+    private final File                 sightingsFile;
+
+    public OrphanSweeper(@Nonnull CloudProvider provider) {
+        this.provider = provider;
+        this.minimumAge = getMinimumAge();
+        this.prefixes = getPrefixes();
+        this.sightingsFile = new File(DiscoveryCache.getDirectory(), "sweep-" + DiscoveryCache.digest(DiscoveryCache.getKey(provider)) + ".properties");
+    }
+
+    private boolean isTestResource(@Nullable String name, @Nullable Map<String,String> tags) {
+        if( tags != null && "true".equals(tags.get(TAG)) ) {
+            return true;
+        }
+        if( name != null ) {
+            for( String prefix : prefixes ) {
+                if( name.startsWith(prefix) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void consider(@Nonnull ResourceKind kind, @Nullable String id, @Nullable String name, @Nullable Map<String,String> tags, long created) {
+        if( id != null && isTestResource(name, tags) ) {
+            candidates.add(new Candidate(kind, id, name, created, null));
+        }
+    }
+
+    private void consider(@Nonnull ResourceKind kind, @Nonnull Blob blob, @Nullable String name) {
+        if( isTestResource(name, null) ) {
+            candidates.add(new Candidate(kind, blob.toString(), name, blob.getCreationTimestamp(), blob));
+        }
+    }
+
+    private void findComputeResources() {
+        ComputeServices services = provider.getComputeServices();
+
+        if( services == null ) {
+            return;
+        }
+        VirtualMachineSupport vmSupport = services.getVirtualMachineSupport();
+
+        if( vmSupport != null ) {
+            try {
+                for( VirtualMachine vm : vmSupport.listVirtualMachines() ) {
+                    if( !VmState.TERMINATED.equals(vm.getCurrentState()) ) {
+                        consider(ResourceKind.VIRTUAL_MACHINE, vm.getProviderVirtualMachineId(), vm.getName(), vm.getTags(), vm.getCreationTimestamp());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list virtual machines: " + t.getMessage());
+            }
+        }
+        VolumeSupport volumeSupport = services.getVolumeSupport();
+
+        if( volumeSupport != null ) {
+            try {
+                for( Volume volume : volumeSupport.listVolumes() ) {
+                    if( !VolumeState.DELETED.equals(volume.getCurrentState()) ) {
+                        consider(ResourceKind.VOLUME, volume.getProviderVolumeId(), volume.getName(), volume.getTags(), volume.getCreationTimestamp());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list volumes: " + t.getMessage());
+            }
+        }
+        SnapshotSupport snapshotSupport = services.getSnapshotSupport();
+
+        if( snapshotSupport != null ) {
+            try {
+                for( Snapshot snapshot : snapshotSupport.listSnapshots() ) {
+                    if( !SnapshotState.DELETED.equals(snapshot.getCurrentState()) ) {
+                        consider(ResourceKind.SNAPSHOT, snapshot.getProviderSnapshotId(), snapshot.getName(), snapshot.getTags(), snapshot.getSnapshotTimestamp());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list snapshots: " + t.getMessage());
+            }
+        }
+        MachineImageSupport imageSupport = services.getImageSupport();
+
+        if( imageSupport != null ) {
+            try {
+                for( MachineImage image : imageSupport.listImages(ImageFilterOptions.getInstance(ImageClass.MACHINE)) ) {
+                    if( !MachineImageState.DELETED.equals(image.getCurrentState()) ) {
+                        consider(ResourceKind.MACHINE_IMAGE, image.getProviderMachineImageId(), image.getName(), image.getTags(), image.getCreationTimestamp());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list machine images: " + t.getMessage());
+            }
+        }
+    }
+
+    private void findNetworkResources() {
+        NetworkServices services = provider.getNetworkServices();
+
+        if( services == null ) {
+            return;
+        }
+        LoadBalancerSupport lbSupport = services.getLoadBalancerSupport();
+
+        if( lbSupport != null ) {
+            try {
+                for( LoadBalancer lb : lbSupport.listLoadBalancers() ) {
+                    if( !LoadBalancerState.TERMINATED.equals(lb.getCurrentState()) ) {
+                        consider(ResourceKind.LOAD_BALANCER, lb.getProviderLoadBalancerId(), lb.getName(), null, lb.getCreationTimestamp());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list load balancers: " + t.getMessage());
+            }
+        }
+        FirewallSupport firewallSupport = services.getFirewallSupport();
+
+        if( firewallSupport != null ) {
+            try {
+                for( Firewall firewall : firewallSupport.list() ) {
+                    ResourceKind kind = ( firewall.getProviderVlanId() == null ? ResourceKind.FIREWALL : ResourceKind.VLAN_FIREWALL );
+
+                    consider(kind, firewall.getProviderFirewallId(), firewall.getName(), firewall.getTags(), 0L);
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list firewalls: " + t.getMessage());
+            }
+        }
+        NetworkFirewallSupport nfSupport = services.getNetworkFirewallSupport();
+
+        if( nfSupport != null ) {
+            try {
+                for( Firewall firewall : nfSupport.listFirewalls() ) {
+                    consider(ResourceKind.NETWORK_FIREWALL, firewall.getProviderFirewallId(), firewall.getName(), firewall.getTags(), 0L);
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list network firewalls: " + t.getMessage());
+            }
+        }
+        VpnSupport vpnSupport = services.getVpnSupport();
+
+        if( vpnSupport != null ) {
+            try {
+                for( Vpn vpn : vpnSupport.listVpns() ) {
+                    consider(ResourceKind.VPN, vpn.getProviderVpnId(), vpn.getName(), null, 0L);
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list VPNs: " + t.getMessage());
+            }
+        }
+        DNSSupport dnsSupport = services.getDnsSupport();
+
+        if( dnsSupport != null ) {
+            try {
+                for( DNSZone zone : dnsSupport.listDnsZones() ) {
+                    String name = zone.getDomainName();
+
+                    if( name != null && TEST_ZONE.matcher(name).matches() ) {
+                        candidates.add(new Candidate(ResourceKind.DNS_ZONE, zone.getProviderDnsZoneId(), name, 0L, null));
+                    }
+                    else {
+                        consider(ResourceKind.DNS_ZONE, zone.getProviderDnsZoneId(), name, null, 0L);
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list DNS zones: " + t.getMessage());
+            }
+        }
+        VLANSupport vlanSupport = services.getVlanSupport();
+
+        if( vlanSupport != null ) {
+            try {
+                for( VLAN vlan : vlanSupport.listVlans() ) {
+                    consider(ResourceKind.VLAN, vlan.getProviderVlanId(), vlan.getName(), vlan.getTags(), 0L);
+                    try {
+                        for( Subnet subnet : vlanSupport.listSubnets(vlan.getProviderVlanId()) ) {
+                            consider(ResourceKind.SUBNET, subnet.getProviderSubnetId(), subnet.getName(), subnet.getTags(), 0L);
+                        }
+                    }
+                    catch( Throwable ignore ) {
+                        // subnets are not supported in every cloud
+                    }
+                    try {
+                        for( RoutingTable rtb : vlanSupport.listRoutingTablesForVlan(vlan.getProviderVlanId()) ) {
+                            consider(ResourceKind.ROUTING_TABLE, rtb.getProviderRoutingTableId(), rtb.getName(), null, 0L);
+                        }
+                    }
+                    catch( Throwable ignore ) {
+                        // routing tables are not supported in every cloud
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list VLANs: " + t.getMessage());
+            }
+        }
+    }
+
+    private void findPlatformResources() {
+        PlatformServices services = provider.getPlatformServices();
+
+        if( services == null ) {
+            return;
+        }
+        RelationalDatabaseSupport rdbmsSupport = services.getRelationalDatabaseSupport();
+
+        if( rdbmsSupport != null ) {
+            try {
+                for( Database db : rdbmsSupport.listDatabases() ) {
+                    if( !DatabaseState.DELETED.equals(db.getCurrentState()) && !DatabaseState.DELETING.equals(db.getCurrentState()) ) {
+                        consider(ResourceKind.RDBMS, db.getProviderDatabaseId(), db.getName(), null, db.getCreationTimestamp());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list databases: " + t.getMessage());
+            }
+        }
+    }
+
+    private void findIdentityResources() {
+        IdentityServices services = provider.getIdentityServices();
+
+        if( services == null ) {
+            return;
+        }
+        ShellKeySupport keySupport = services.getShellKeySupport();
+
+        if( keySupport != null ) {
+            try {
+                for( SSHKeypair keypair : keySupport.list() ) {
+                    consider(ResourceKind.KEYPAIR, keypair.getProviderKeypairId(), keypair.getName(), null, 0L);
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list keypairs: " + t.getMessage());
+            }
+        }
+    }
+
+    private void findStorageResources() {
+        StorageServices services = provider.getStorageServices();
+
+        if( services == null ) {
+            return;
+        }
+        BlobStoreSupport support = services.getBlobStoreSupport();
+
+        if( support != null ) {
+            try {
+                for( Blob root : support.list(null) ) {
+                    if( root.isContainer() ) {
+                        consider(ResourceKind.ROOT_BUCKET, root, root.getBucketName());
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list buckets: " + t.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds the resources that carry no name of their own and belong to a selected resource: the internet gateways
+     * of a VLAN, the static IPs assigned to a virtual machine, load balancer or VLAN, and the contents of a bucket.
+     * @param selected the resources selected for reclaiming
+     */
+    private void findDependents(@Nonnull ArrayList<Candidate> selected) {
+        HashSet<String> owners = new HashSet<String>();
+
+        for( Candidate candidate : selected ) {
+            owners.add(candidate.id);
+        }
+        NetworkServices network = provider.getNetworkServices();
+        VLANSupport vlanSupport = ( network == null ? null : network.getVlanSupport() );
+        IpAddressSupport ipSupport = ( network == null ? null : network.getIpAddressSupport() );
+        StorageServices storage = provider.getStorageServices();
+        BlobStoreSupport blobSupport = ( storage == null ? null : storage.getBlobStoreSupport() );
+
+        for( Candidate candidate : selected ) {
+            if( candidate.kind.equals(ResourceKind.VLAN) && vlanSupport != null ) {
+                try {
+                    for( InternetGateway gateway : vlanSupport.listInternetGateways(candidate.id) ) {
+                        candidates.add(new Candidate(ResourceKind.INTERNET_GATEWAY, gateway.getProviderInternetGatewayId(), null, 0L, null));
+                    }
+                }
+                catch( Throwable ignore ) {
+                    // internet gateways are not supported in every cloud
+                }
+            }
+            else if( candidate.kind.equals(ResourceKind.ROOT_BUCKET) && blobSupport != null && candidate.blob != null ) {
+                try {
+                    for( Blob item : blobSupport.list(candidate.blob.getBucketName()) ) {
+                        if( !item.isContainer() ) {
+                            candidates.add(new Candidate(ResourceKind.ROOT_OBJECT, item.toString(), item.getObjectName(), 0L, item));
+                            continue;
+                        }
+                        candidates.add(new Candidate(ResourceKind.CHILD_BUCKET, item.toString(), item.getObjectName(), 0L, item));
+                        for( Blob child : blobSupport.list(item.getBucketName() + "/" + item.getObjectName()) ) {
+                            if( !child.isContainer() ) {
+                                candidates.add(new Candidate(ResourceKind.CHILD_OBJECT, child.toString(), child.getObjectName(), 0L, child));
+                            }
+                        }
+                    }
+                }
+                catch( Throwable t ) {
+                    logger.warn("Unable to list the contents of bucket " + candidate.name + ": " + t.getMessage());
+                }
+            }
+        }
+        if( ipSupport != null ) {
+            try {
+                for( IPVersion version : ipSupport.getCapabilities().listSupportedIPVersions() ) {
+                    for( IpAddress address : ipSupport.listIpPool(version, false) ) {
+                        if( owners.contains(address.getServerId()) || owners.contains(address.getProviderLoadBalancerId()) || owners.contains(address.getProviderVlanId()) ) {
+                            ResourceKind kind;
+
+                            if( address.getProviderVlanId() == null ) {
+                                kind = ( IPVersion.IPV4.equals(version) ? ResourceKind.STATIC_IP4 : ResourceKind.STATIC_IP6 );
+                            }
+                            else {
+                                kind = ( IPVersion.IPV4.equals(version) ? ResourceKind.VLAN_IP4 : ResourceKind.VLAN_IP6 );
+                            }
+                            candidates.add(new Candidate(kind, address.getProviderIpAddressId(), address.getAddress(), 0L, null));
+                        }
+                    }
+                }
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list static IPs: " + t.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds leaked test resources and, unless this is a dry run, removes them.
+     * @param dryRun true to only report the resources that would be reclaimed
+     * @return the number of resources reclaimed or, in a dry run, the number that would be reclaimed
+     */
+    public int sweep(boolean dryRun) {
+        long now = System.currentTimeMillis();
+        LeaseStore leases = LeaseStore.getInstance(provider);
+        ComputeResources compute = new ComputeResources(provider);
+        IdentityResources identity = new IdentityResources(provider);
+        NetworkResources network = new NetworkResources(provider);
+        PlatformResources platform = new PlatformResources(provider);
+        StorageResources storage = new StorageResources(provider);
+        ArrayList<Candidate> selected = new ArrayList<Candidate>();
+        Properties seen = new Properties();
+
+        logger.info("BEGIN Orphan Sweep ------------------------------------------------------------------------------");
+        try {
+            Properties sightings = DiscoveryCache.read(sightingsFile);
+
+            if( sightings == null ) {
+                sightings = new Properties();
+            }
+            candidates.clear();
+            findComputeResources();
+            findNetworkResources();
+            findPlatformResources();
+            findIdentityResources();
+            findStorageResources();
+            for( Candidate candidate : candidates ) {
+                String key = candidate.kind.name() + "." + candidate.id;
+                long created = candidate.created;
+
+                // clouds that do not report creation times are aged from the first sweep that saw the resource
+                if( created < 1L ) {
+                    try {
+                        created = Long.parseLong(sightings.getProperty(key, String.valueOf(now)));
+                    }
+                    catch( NumberFormatException e ) {
+                        created = now;
+                    }
+                    seen.setProperty(key, String.valueOf(created));
+                }
+                long age = now - created;
+
+                if( age < minimumAge || leases.isLeased(candidate.id) ) {
+                    continue;
+                }
+                selected.add(candidate);
+                DaseinTestManager.out(logger, null, ( dryRun ? "Would Reclaim " : "Reclaiming " ) + candidate.kind, candidate.id + " " + candidate.name + " (" + (age/CalendarWrapper.MINUTE) + " minutes old)");
+            }
+            DiscoveryCache.write(sightingsFile, seen, "Dasein Cloud test resources without creation times");
+            candidates.clear();
+            findDependents(selected);
+            for( Candidate candidate : candidates ) {
+                if( !leases.isLeased(candidate.id) ) {
+                    selected.add(candidate);
+                    DaseinTestManager.out(logger, null, ( dryRun ? "Would Reclaim " : "Reclaiming " ) + candidate.kind, candidate.id + " " + candidate.name + " (belongs to a reclaimed resource)");
+                }
+            }
+            if( dryRun ) {
+                DaseinTestManager.out(logger, null, "Would Reclaim", String.valueOf(selected.size()));
+                return selected.size();
+            }
+            for( Candidate candidate : selected ) {
+                String label = ORPHAN + candidate.id;
+
+                if( candidate.blob != null ) {
+                    storage.adopt(candidate.kind, label, candidate.blob);
+                }
+                else if( !compute.adopt(candidate.kind, label, candidate.id) && !network.adopt(candidate.kind, label, candidate.id) && !platform.adopt(candidate.kind, label, candidate.id) ) {
+                    identity.adopt(candidate.kind, label, candidate.id);
+                }
+            }
+            TeardownGraph graph = new TeardownGraph();
+
+            compute.addTeardown(graph);
+            network.addTeardown(graph);
+            platform.addTeardown(graph);
+            identity.addTeardown(graph);
+            storage.addTeardown(graph);
+            graph.execute();
+            graph.report(logger);
+            DaseinTestManager.out(logger, null, "Reclaimed", graph.getRemoved() + " of " + selected.size());
+            return graph.getRemoved();
+        }
+        finally {
+            logger.info("END Orphan Sweep ------------------------------------------------------------------------------");
+            logger.info("");
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges concurrent status polls on resources of the same kind into a single list call. While two or more
+ * resources of the kind are being waited on, a poll for any one of them is answered from the most recent list of
+ * all resources of the kind, and a new list is fetched at most once per freshness window no matter how many
+ * waiters ask for it. A single waiter simply fetches its resource directly, as does any waiter whose resource is
+ * missing from the list (some clouds list newly created or recently removed resources late or not at all). A waiter
+ * stops counting as soon as its {@link StateWaiter} wait ends, so the coordinator returns to direct fetches once
+ * fewer than two waits remain.
+ * <pre>
+ *     vm = StateWaiter.waitFor("VM PENDING &gt; RUNNING", policy, vm, vmPoller.getFetcher(vmId), condition);
+ * </pre>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class PollCoordinator<T> {
+    /**
+     * Lists and fetches resources of the coordinated kind.
+     * @param <T> the type of resource
+     */
+    public interface Source<T> {
+        /**
+         * @param id the unique ID of the resource
+         * @return the resource or null if it no longer exists
+         * @throws CloudException an error occurred with the cloud provider fetching the resource
+         * @throws InternalException an error occurred within Dasein Cloud fetching the resource
+         */
+        public @Nullable T get(@Nonnull String id) throws CloudException, InternalException;
+
+        /**
+         * @param resource the resource
+         * @return the unique ID of the resource
+         */
+        public @Nullable String getId(@Nonnull T resource);
+
+        /**
+         * @return all resources of the coordinated kind
+         * @throws CloudException an error occurred with the cloud provider listing the resources
+         * @throws InternalException an error occurred within Dasein Cloud listing the resources
+         */
+        public @Nonnull Iterable<T> list() throws CloudException, InternalException;
+    }
+
+    static public final long DEFAULT_WINDOW = 2000L;
+
+    // a waiter whose fetcher is used outside of StateWaiter is never told it is done, so one that has not polled
+    // within this period is assumed to be done (the maximum backoff is 30 seconds)
+    static private final long ACTIVE_PERIOD = 60000L;
+
+    static private final CopyOnWriteArrayList<PollCoordinator<?>> coordinators = new CopyOnWriteArrayList<PollCoordinator<?>>();
+
+    private final ConcurrentHashMap<String,Long> active   = new ConcurrentHashMap<String, Long>();
+    private final AtomicLong                     gets     = new AtomicLong(0L);
+    private final ResourceKind                   kind;
+    private final AtomicLong                     lists    = new AtomicLong(0L);
+    private final Object                         lock     = new Object();
+    private final AtomicLong                     polls    = new AtomicLong(0L);
+    private final Source<T>                      source;
+    private final long                           window;
+
+    private FutureTask<Map<String,T>> pending;
+    private Map<String,T>             snapshot;
+    private long                      snapshotTimestamp;
+
+    public PollCoordinator(@Nonnull ResourceKind kind, @Nonnull Source<T> source) {
+        this(kind, source, DEFAULT_WINDOW);
+    }
+
+    public PollCoordinator(@Nonnull ResourceKind kind, @Nonnull Source<T> source, @Nonnegative long window) {
+        this.kind = kind;
+        this.source = source;
+        this.window = window;
+        coordinators.add(this);
+    }
+
+    /**
+     * Fetches the current state of the specified resource, from a shared list of all resources of the kind if
+     * other resources of the kind are being polled at the same time.
+     * @param id the unique ID of the resource
+     * @return the current state of the resource or null if it no longer exists
+     * @throws CloudException an error occurred with the cloud provider fetching the resource
+     * @throws InternalException an error occurred within Dasein Cloud fetching the resource
+     */
+    public @Nullable T fetch(@Nonnull String id) throws CloudException, InternalException {
+        long now = System.currentTimeMillis();
+
+        polls.incrementAndGet();
+        active.put(id, now);
+        if( countActive(now) > 1 ) {
+            T resource = getSnapshot().get(id);
+
+            if( resource != null ) {
+                return resource;
+            }
+        }
+        gets.incrementAndGet();
+        return source.get(id);
+    }
+
+    /**
+     * @param id the unique ID of the resource
+     * @return a fetcher for use with {@link StateWaiter} that polls the resource through this coordinator
+     */
+    public @Nonnull StateWaiter.Fetcher<T> getFetcher(@Nonnull final String id) {
+        return new StateWaiter.TrackingFetcher<T>() {
+            @Override
+            public @Nullable T fetch() throws CloudException, InternalException {
+                return PollCoordinator.this.fetch(id);
+            }
+
+            @Override
+            public void finished() {
+                active.remove(id);
+            }
+        };
+    }
+
+    public @Nonnull ResourceKind getKind() {
+        return kind;
+    }
+
+    private int countActive(long now) {
+        Iterator<Map.Entry<String,Long>> it = active.entrySet().iterator();
+        int count = 0;
+
+        while( it.hasNext() ) {
+            if( now - it.next().getValue() > ACTIVE_PERIOD ) {
+                it.remove();
+            }
+            else {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private @Nonnull Map<String,T> getSnapshot() throws CloudException, InternalException {
+        FutureTask<Map<String,T>> task;
+        boolean owner = false;
+
+        synchronized( lock ) {
+            if( snapshot != null && System.currentTimeMillis() - snapshotTimestamp < window ) {
+                return snapshot;
+            }
+            if( pending == null ) {
+                pending = new FutureTask<Map<String,T>>(new Callable<Map<String,T>>() {
+                    @Override
+                    public Map<String,T> call() throws Exception {
+                        try {
+                            HashMap<String,T> map = new HashMap<String, T>();
+
+                            lists.incrementAndGet();
+                            for( T resource : source.list() ) {
+                                String id = source.getId(resource);
+
+                                if( id != null ) {
+                                    map.put(id, resource);
+                                }
+                            }
+                            synchronized( lock ) {
+                                snapshot = map;
+                                snapshotTimestamp = System.currentTimeMillis();
+                            }
+                            return map;
+                        }
+                        finally {
+                            synchronized( lock ) {
+                                pending = null;
+                            }
+                        }
+                    }
+                });
+                owner = true;
+            }
+            task = pending;
+        }
+        if( owner ) {
+            task.run();
+        }
+        try {
+            return task.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException("Interrupted while listing " + kind);
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+
+            if( cause instanceof CloudException ) {
+                throw (CloudException)cause;
+            }
+            if( cause instanceof InternalException ) {
+                throw (InternalException)cause;
+            }
+            throw new InternalException("Failed to list " + kind + ": " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Logs, for each resource kind polled through a coordinator, how many polls were requested and how many API
+     * calls were actually made to answer them.
+     * @param logger the logger to which the report is written
+     */
+    static public void report(@Nonnull Logger logger) {
+        for( PollCoordinator<?> coordinator : coordinators ) {
+            long count = coordinator.polls.get();
+
+            if( count > 0 ) {
+                DaseinTestManager.out(logger, null, "---> " + coordinator.kind + " polls", count + " polls, " + coordinator.lists.get() + " list calls, " + coordinator.gets.get() + " get calls");
+            }
+        }
+    }
+}
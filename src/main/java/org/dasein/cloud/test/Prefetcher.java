@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the lookups of stateless fixtures concurrently during test initialization instead of serially from the
+ * first test that needs each of them. Every lookup publishes what it finds under the
+ * {@link DaseinTestManager#STATELESS} label of the registry of its domain, exactly as it does when triggered by a
+ * test, so tests find the fixture already registered. A lookup that finds nothing is simply repeated when a test
+ * asks for the fixture. Prefetching is on by default and controlled with the {@link System} properties:
+ * <pre>
+ *     -Ddasein.prefetch=false -Ddasein.prefetch.threads=8
+ * </pre>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class Prefetcher {
+    static private final Logger logger = Logger.getLogger(Prefetcher.class);
+
+    static public final String PREFETCH         = "dasein.prefetch";
+    static public final String PREFETCH_THREADS = "dasein.prefetch.threads";
+
+    static private final int DEFAULT_THREADS = 8;
+
+    static private class Lookup {
+        private final ResourceKind kind;
+        private final Callable<?>  task;
+
+        private Lookup(@Nonnull ResourceKind kind, @Nonnull Callable<?> task) {
+            this.kind = kind;
+            this.task = task;
+        }
+    }
+
+    static private class Tally {
+        private final AtomicInteger found  = new AtomicInteger(0);
+        private final AtomicLong    millis = new AtomicLong(0L);
+        private final AtomicInteger total  = new AtomicInteger(0);
+    }
+
+    /**
+     * @return true unless prefetching has been disabled with dasein.prefetch=false
+     */
+    static public boolean isEnabled() {
+        String prop = DaseinTestManager.getSystemProperty(PREFETCH);
+
+        return (prop == null || !prop.trim().equalsIgnoreCase("false"));
+    }
+
+    private long                              duration;
+    private final ArrayList<Lookup>           lookups = new ArrayList<Lookup>();
+    private final EnumMap<ResourceKind,Tally> tallies = new EnumMap<ResourceKind, Tally>(ResourceKind.class);
+
+    public Prefetcher() {
+        for( ResourceKind kind : ResourceKind.values() ) {
+            tallies.put(kind, new Tally());
+        }
+    }
+
+    /**
+     * Adds a stateless lookup to be run when this prefetcher executes.
+     * @param kind the kind of fixture looked up
+     * @param task the lookup, returning the fixture found or null if there is none
+     */
+    public synchronized void add(@Nonnull ResourceKind kind, @Nonnull Callable<?> task) {
+        lookups.add(new Lookup(kind, task));
+    }
+
+    /**
+     * Runs all lookups on a pool of dasein.prefetch.threads threads (8 by default) and waits for them to complete.
+     * @return the number of fixtures found
+     */
+    public int execute() {
+        ArrayList<Lookup> toRun;
+
+        synchronized( this ) {
+            toRun = new ArrayList<Lookup>(lookups);
+            lookups.clear();
+        }
+        if( toRun.isEmpty() ) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int before = getFound();
+        ExecutorService service = Executors.newFixedThreadPool(Math.min(getThreadCount(), toRun.size()));
+
+        try {
+            for( final Lookup lookup : toRun ) {
+                service.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        Tally tally = tallies.get(lookup.kind);
+                        long start = System.currentTimeMillis();
+
+                        tally.total.incrementAndGet();
+                        try {
+                            if( lookup.task.call() != null ) {
+                                tally.found.incrementAndGet();
+                            }
+                        }
+                        catch( Throwable t ) {
+                            logger.warn("Failed to prefetch stateless " + lookup.kind + ": " + t.getMessage());
+                        }
+                        finally {
+                            tally.millis.addAndGet(System.currentTimeMillis() - start);
+                        }
+                    }
+                });
+            }
+            service.shutdown();
+            if( !service.awaitTermination(CalendarWrapper.MINUTE * 10L, TimeUnit.MILLISECONDS) ) {
+                logger.warn("Gave up waiting for stateless lookups to complete");
+            }
+        }
+        catch( InterruptedException e ) {
+            logger.warn("Interrupted while waiting for stateless lookups to complete");
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            service.shutdownNow();
+        }
+        duration += (System.currentTimeMillis() - start);
+        return (getFound() - before);
+    }
+
+    private int getThreadCount() {
+        String prop = DaseinTestManager.getSystemProperty(PREFETCH_THREADS);
+
+        if( prop != null ) {
+            try {
+                int count = Integer.parseInt(prop.trim());
+
+                if( count > 0 ) {
+                    return count;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return DEFAULT_THREADS;
+    }
+
+    /**
+     * @return the total number of stateless fixtures found by this prefetcher
+     */
+    public int getFound() {
+        int count = 0;
+
+        for( Tally tally : tallies.values() ) {
+            count += tally.found.get();
+        }
+        return count;
+    }
+
+    /**
+     * Logs the number of fixtures of each kind found and how long their lookups took in total.
+     * @param logger the logger to which the report is written
+     */
+    public void report(@Nonnull Logger logger) {
+        boolean header = false;
+
+        for( Map.Entry<ResourceKind,Tally> entry : tallies.entrySet() ) {
+            Tally tally = entry.getValue();
+
+            if( tally.total.get() > 0 ) {
+                if( !header ) {
+                    logger.info("Prefetch:");
+                    header = true;
+                }
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), tally.found.get() + " of " + tally.total.get() + " found, " + (((float)tally.millis.get())/1000f) + " seconds");
+            }
+        }
+        if( header ) {
+            DaseinTestManager.out(logger, null, "---> Elapsed", (((float)duration)/1000f) + " seconds");
+        }
+    }
+}
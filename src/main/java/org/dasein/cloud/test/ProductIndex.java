@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * An immutable, sorted index of the products offered by a cloud, built once from a product listing and then
+ * queried many times. The order is chosen by the caller so that the constraint being queried on leads it; "the
+ * smallest product satisfying X" is then a {@link #ceiling(Object)} lookup against a probe product holding the
+ * minimum acceptable values, answered in logarithmic time without listing or scanning the products again.
+ * @param <T> the type of product
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class ProductIndex<T> {
+    private final TreeSet<T> products;
+
+    /**
+     * Builds an index of the specified products.
+     * @param products the products to index, already filtered to those usable for testing
+     * @param order the order of the index; products it considers equal are indexed once
+     */
+    public ProductIndex(@Nonnull Iterable<T> products, @Nonnull Comparator<? super T> order) {
+        this.products = new TreeSet<T>(order);
+        for( T product : products ) {
+            this.products.add(product);
+        }
+    }
+
+    /**
+     * @param probe a product holding the minimum acceptable values
+     * @return the first product ordered at or after the probe, or null if there is none
+     */
+    public @Nullable T ceiling(@Nonnull T probe) {
+        return products.ceiling(probe);
+    }
+
+    /**
+     * @return the first product in the index, or null if the index is empty
+     */
+    public @Nullable T first() {
+        return (products.isEmpty() ? null : products.first());
+    }
+
+    /**
+     * @return the last product in the index, or null if the index is empty
+     */
+    public @Nullable T last() {
+        return (products.isEmpty() ? null : products.last());
+    }
+
+    public boolean isEmpty() {
+        return products.isEmpty();
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return products.size() + " products";
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares connected cloud providers across test classes. A provider is bootstrapped (cloud registration, context
+ * requirements, credential files and connection) once per distinct set of credential overrides and handed to
+ * every test manager that asks for the same credentials. Concurrent requests for credentials not yet bootstrapped
+ * wait on the single bootstrap in progress. Pooled providers are closed only by {@link #closeAll()} at the end
+ * of the test run.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class ProviderPool {
+    static private final ConcurrentHashMap<String,FutureTask<CloudProvider>> providers = new ConcurrentHashMap<String, FutureTask<CloudProvider>>();
+
+    static private final AtomicInteger acquisitions  = new AtomicInteger(0);
+    static private final AtomicInteger bootstraps    = new AtomicInteger(0);
+    static private final AtomicLong    bootstrapTime = new AtomicLong(0L);
+    static private final AtomicLong    maxBootstrap  = new AtomicLong(0L);
+
+    /**
+     * @return a connected provider for the credentials configured for the test run
+     */
+    static public @Nonnull CloudProvider acquire() {
+        return acquire(null, null, null);
+    }
+
+    /**
+     * Provides a connected provider for the specified credential overrides, bootstrapping it if this is the first
+     * request for those credentials.
+     * @param overrideAccount the account number to use in place of the configured one, if any
+     * @param overrideShared the shared key to use in place of the configured one, if any
+     * @param overrideSecret the secret key to use in place of the configured one, if any
+     * @return a connected provider
+     * @see DaseinTestManager#constructProvider(String, String, String)
+     */
+    static public @Nonnull CloudProvider acquire(@Nullable final String overrideAccount, @Nullable final String overrideShared, @Nullable final String overrideSecret) {
+        String key = toKey(overrideAccount) + "\n" + toKey(overrideShared) + "\n" + toKey(overrideSecret);
+        FutureTask<CloudProvider> task = providers.get(key);
+
+        acquisitions.incrementAndGet();
+        if( task == null ) {
+            FutureTask<CloudProvider> created = new FutureTask<CloudProvider>(new Callable<CloudProvider>() {
+                @Override
+                public CloudProvider call() throws Exception {
+                    long start = System.currentTimeMillis();
+                    CloudProvider provider = DaseinTestManager.constructProvider(overrideAccount, overrideShared, overrideSecret);
+                    long millis = System.currentTimeMillis() - start;
+
+                    bootstraps.incrementAndGet();
+                    bootstrapTime.addAndGet(millis);
+                    long max = maxBootstrap.get();
+
+                    while( millis > max && !maxBootstrap.compareAndSet(max, millis) ) {
+                        max = maxBootstrap.get();
+                    }
+                    return provider;
+                }
+            });
+
+            task = providers.putIfAbsent(key, created);
+            if( task == null ) {
+                task = created;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a cloud provider");
+        }
+        catch( ExecutionException e ) {
+            // a failed bootstrap is not cached so that the next request tries again
+            providers.remove(key, task);
+            Throwable cause = e.getCause();
+
+            if( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            throw new RuntimeException("Unable to initialise CloudProvider: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Closes every pooled provider. Providers acquired afterwards are bootstrapped anew.
+     */
+    static public void closeAll() {
+        ArrayList<FutureTask<CloudProvider>> tasks = new ArrayList<FutureTask<CloudProvider>>(providers.values());
+
+        providers.clear();
+        for( FutureTask<CloudProvider> task : tasks ) {
+            try {
+                task.get().close();
+            }
+            catch( Throwable ignore ) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Returns a provider to the pool. Pooled providers remain connected until {@link #closeAll()} is called, so
+     * this is a no-op for pooled providers; a provider that did not come from the pool is closed.
+     * @param provider the provider being released
+     */
+    static public void release(@Nonnull CloudProvider provider) {
+        for( FutureTask<CloudProvider> task : providers.values() ) {
+            try {
+                if( task.isDone() && task.get() == provider ) {
+                    return;
+                }
+            }
+            catch( Throwable ignore ) {
+                // ignore
+            }
+        }
+        provider.close();
+    }
+
+    static public void report(@Nonnull Logger logger) {
+        int count = bootstraps.get();
+
+        DaseinTestManager.out(logger, null, "Provider Bootstraps", count + " for " + acquisitions.get() + " acquisitions");
+        if( count > 0 ) {
+            DaseinTestManager.out(logger, null, "Bootstrap Time", "avg " + ((((float)bootstrapTime.get())/count)/1000f) + " seconds, max " + (((float)maxBootstrap.get())/1000f) + " seconds");
+        }
+    }
+
+    static private @Nonnull String toKey(@Nullable String value) {
+        return (value == null ? "-" : "=" + value);
+    }
+}
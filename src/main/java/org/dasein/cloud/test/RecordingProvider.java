@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.ContextRequirements;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.ci.CIServices;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.dc.DataCenterServices;
+import org.dasein.cloud.identity.IdentityServices;
+import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.platform.PlatformServices;
+import org.dasein.cloud.storage.StorageServices;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.Callable;
+
+/**
+ * Stands in for a connected provider, handing out services whose calls are recorded to or replayed from a
+ * {@link CloudRecording}. Names, context and the presence of services come from the configured provider, which
+ * answers them without contacting the cloud.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class RecordingProvider extends CloudProvider {
+    private final CloudProvider  provider;
+    private final CloudRecording recording;
+
+    RecordingProvider(@Nonnull CloudProvider provider, @Nonnull CloudRecording recording) {
+        this.provider = provider;
+        this.recording = recording;
+    }
+
+    @Override
+    public void close() {
+        provider.close();
+    }
+
+    @Override
+    public @Nullable CIServices getCIServices() {
+        return recording.wrap(provider.getCIServices(), CIServices.class);
+    }
+
+    @Override
+    public @Nonnull String getCloudName() {
+        return provider.getCloudName();
+    }
+
+    @Override
+    public @Nullable ComputeServices getComputeServices() {
+        return recording.wrap(provider.getComputeServices(), ComputeServices.class);
+    }
+
+    @Override
+    public @Nullable ProviderContext getContext() {
+        return provider.getContext();
+    }
+
+    @Override
+    public @Nonnull ContextRequirements getContextRequirements() {
+        return provider.getContextRequirements();
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Override
+    public @Nonnull DataCenterServices getDataCenterServices() {
+        return recording.wrap(provider.getDataCenterServices(), DataCenterServices.class);
+    }
+
+    @Override
+    public @Nullable IdentityServices getIdentityServices() {
+        return recording.wrap(provider.getIdentityServices(), IdentityServices.class);
+    }
+
+    @Override
+    public @Nullable NetworkServices getNetworkServices() {
+        return recording.wrap(provider.getNetworkServices(), NetworkServices.class);
+    }
+
+    @Override
+    public @Nullable PlatformServices getPlatformServices() {
+        return recording.wrap(provider.getPlatformServices(), PlatformServices.class);
+    }
+
+    @Override
+    public @Nonnull String getProviderName() {
+        return provider.getProviderName();
+    }
+
+    @Override
+    public @Nullable StorageServices getStorageServices() {
+        return recording.wrap(provider.getStorageServices(), StorageServices.class);
+    }
+
+    @Override
+    public boolean hasCIServices() {
+        return provider.hasCIServices();
+    }
+
+    @Override
+    public boolean hasComputeServices() {
+        return provider.hasComputeServices();
+    }
+
+    @Override
+    public boolean hasIdentityServices() {
+        return provider.hasIdentityServices();
+    }
+
+    @Override
+    public boolean hasNetworkServices() {
+        return provider.hasNetworkServices();
+    }
+
+    @Override
+    public boolean hasPlatformServices() {
+        return provider.hasPlatformServices();
+    }
+
+    @Override
+    public boolean hasStorageServices() {
+        return provider.hasStorageServices();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return provider.isConnected();
+    }
+
+    @Override
+    public @Nullable String testContext() {
+        try {
+            return (String)recording.call("CloudProvider.testContext", null, String.class, new Class<?>[0], new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return provider.testContext();
+                }
+            });
+        }
+        catch( RuntimeException e ) {
+            throw e;
+        }
+        catch( Error e ) {
+            throw e;
+        }
+        catch( Throwable t ) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the configured provider standing behind this one
+     */
+    public @Nonnull CloudProvider getProvider() {
+        return provider;
+    }
+}
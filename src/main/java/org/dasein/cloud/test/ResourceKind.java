@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The kinds of cloud resources the test framework provisions and tracks on behalf of tests.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public enum ResourceKind {
+    INFRASTRUCTURE("CI", "Infrastructures"),
+    TOPOLOGY("CI", "Topologies"),
+
+    MACHINE_IMAGE("Compute", "Machine Images"),
+    SNAPSHOT("Compute", "Snapshots"),
+    VIRTUAL_MACHINE("Compute", "Virtual Machines"),
+    VOLUME("Compute", "Volumes"),
+
+    GROUP("Identity", "Groups"),
+    KEYPAIR("Identity", "SSH Keypairs"),
+    USER("Identity", "Users"),
+
+    DNS_ZONE("Network", "DNS Zones"),
+    FIREWALL("Network", "Firewalls (Standard)"),
+    INTERNET_GATEWAY("Network", "Internet Gateways"),
+    LOAD_BALANCER("Network", "Load Balancers"),
+    NETWORK_FIREWALL("Network", "Network Firewalls"),
+    ROUTING_TABLE("Network", "Routing Tables"),
+    SSL_CERTIFICATE("Network", "SSL Certificates"),
+    STATIC_IP4("Network", "Static IPs (Standard/IPv4)"),
+    STATIC_IP6("Network", "Static IPs (Standard/IPv6)"),
+    SUBNET("Network", "Subnets"),
+    VLAN("Network", "VLANs"),
+    VLAN_FIREWALL("Network", "Firewalls (VLAN)"),
+    VLAN_IP4("Network", "Static IPs (VLAN/IPv4)"),
+    VLAN_IP6("Network", "Static IPs (VLAN/IPv6)"),
+    VPN("Network", "VPNs"),
+
+    CDN_DISTRIBUTION("Platform", "CDN Distributions"),
+    MESSAGE_QUEUE("Platform", "Message Queues"),
+    NOTIFICATION_TOPIC("Platform", "Notification Topics"),
+    RDBMS("Platform", "RDBMS Instances"),
+
+    CHILD_BUCKET("Storage", "Child Buckets"),
+    CHILD_OBJECT("Storage", "Child Objects"),
+    ROOT_BUCKET("Storage", "Root Buckets"),
+    ROOT_OBJECT("Storage", "Root Objects");
+
+    private final String displayName;
+    private final String domain;
+
+    ResourceKind(@Nonnull String domain, @Nonnull String displayName) {
+        this.domain = domain;
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return the human readable, plural name of this kind of resource as used in reports
+     */
+    public @Nonnull String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return the resource domain (Compute, Network, Storage, etc.) to which this kind of resource belongs
+     */
+    public @Nonnull String getDomain() {
+        return domain;
+    }
+
+    /**
+     * Identifies the kinds of resources that must be torn down before resources of this kind can be removed. A VLAN,
+     * for example, cannot be removed while subnets, gateways or firewalls still exist inside it.
+     * @return the kinds of resources on whose removal the removal of this kind of resource depends
+     */
+    public @Nonnull ResourceKind[] getTeardownPrerequisites() {
+        switch( this ) {
+            case TOPOLOGY: return new ResourceKind[] { INFRASTRUCTURE };
+            case SNAPSHOT: return new ResourceKind[] { MACHINE_IMAGE };
+            case VOLUME: return new ResourceKind[] { VIRTUAL_MACHINE };
+            case GROUP: return new ResourceKind[] { USER };
+            case KEYPAIR: return new ResourceKind[] { VIRTUAL_MACHINE };
+            case FIREWALL: case VLAN_FIREWALL: return new ResourceKind[] { VIRTUAL_MACHINE, LOAD_BALANCER };
+            case NETWORK_FIREWALL: return new ResourceKind[] { VIRTUAL_MACHINE };
+            case SSL_CERTIFICATE: return new ResourceKind[] { LOAD_BALANCER };
+            case STATIC_IP4: case STATIC_IP6: case VLAN_IP4: case VLAN_IP6: return new ResourceKind[] { VIRTUAL_MACHINE, LOAD_BALANCER };
+            case INTERNET_GATEWAY: return new ResourceKind[] { VIRTUAL_MACHINE, LOAD_BALANCER, VLAN_IP4, VLAN_IP6, VPN };
+            case SUBNET: return new ResourceKind[] { VIRTUAL_MACHINE, LOAD_BALANCER, NETWORK_FIREWALL, VLAN_IP4, VLAN_IP6, RDBMS, INFRASTRUCTURE };
+            case ROUTING_TABLE: return new ResourceKind[] { SUBNET, INTERNET_GATEWAY };
+            case VLAN: return new ResourceKind[] { SUBNET, ROUTING_TABLE, INTERNET_GATEWAY, VLAN_FIREWALL, NETWORK_FIREWALL, VPN };
+            case CHILD_BUCKET: return new ResourceKind[] { CHILD_OBJECT };
+            case ROOT_BUCKET: return new ResourceKind[] { ROOT_OBJECT, CHILD_OBJECT, CHILD_BUCKET, CDN_DISTRIBUTION };
+            default: return new ResourceKind[0];
+        }
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe mapping of test labels to the resources provisioned for them. Labels are reserved atomically, so
+ * tests provisioning resources under the same label from different threads each end up with a distinct label
+ * without any locking. A test fixture shared under a single label is instead provisioned through
+ * {@link #reserve(String, Object, Provisioner)}, which lets only one caller provision the label at a time while the
+ * others wait for and share its result. Lookups and releases never block.
+ * @param <T> the type used to identify a provisioned resource (usually its provider ID)
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class ResourceRegistry<T> {
+    /**
+     * Provisions the resource for a reserved label.
+     * @param <T> the type used to identify a provisioned resource
+     */
+    public interface Provisioner<T> {
+        /**
+         * Provisions the resource and registers it under the reserved label.
+         * @return the newly provisioned resource, or null if none could be provisioned
+         * @throws CloudException an error occurred with the cloud provider provisioning the resource
+         * @throws InternalException an error occurred within Dasein Cloud provisioning the resource
+         */
+        public @Nullable T provision() throws CloudException, InternalException;
+    }
+
+    private final ResourceKind                            kind;
+    private final ConcurrentHashMap<String,FutureTask<T>> reservations = new ConcurrentHashMap<String, FutureTask<T>>();
+    private final ConcurrentHashMap<String,T>             resources    = new ConcurrentHashMap<String, T>();
+    private final AtomicInteger                           sequence     = new AtomicInteger(0);
+
+    public ResourceRegistry(@Nonnull ResourceKind kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Registers a resource under the specified label or, if that label is already taken, under the label with
+     * the next free numeric suffix.
+     * @param label the preferred label
+     * @param resource the resource to register
+     * @return the label under which the resource was actually registered
+     */
+    public @Nonnull String register(@Nonnull String label, @Nonnull T resource) {
+        String candidate = label;
+
+        while( resources.putIfAbsent(candidate, resource) != null ) {
+            candidate = label + sequence.incrementAndGet();
+        }
+        TestMetrics.provisioned(kind);
+        return candidate;
+    }
+
+    /**
+     * Reserves the label and provisions a resource for it, unless another caller is already doing so or has done
+     * so since the resource registered under the label was found to be unusable. A caller finding the label
+     * reserved waits for the provisioning in progress and shares its result, so concurrent callers provisioning
+     * the same fixture end up with a single resource rather than one each.
+     * @param label the label to provision
+     * @param unusable the resource the caller found registered under the label and cannot use, if any; it is
+     *                 released from the label before the new resource is provisioned
+     * @param provisioner provisions the resource and registers it under the label
+     * @return the resource now registered under the label, or null if none could be provisioned
+     * @throws CloudException an error occurred with the cloud provider provisioning the resource
+     * @throws InternalException an error occurred within Dasein Cloud provisioning the resource
+     */
+    public @Nullable T reserve(@Nonnull String label, @Nullable T unusable, @Nonnull final Provisioner<T> provisioner) throws CloudException, InternalException {
+        FutureTask<T> task = reservations.get(label);
+
+        if( task == null ) {
+            FutureTask<T> created = new FutureTask<T>(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return provisioner.provision();
+                }
+            });
+
+            task = reservations.putIfAbsent(label, created);
+            if( task == null ) {
+                try {
+                    T current = resources.get(label);
+
+                    // someone else provisioned the label between the caller's lookup and this reservation
+                    if( current != null && !current.equals(unusable) ) {
+                        return current;
+                    }
+                    if( current != null ) {
+                        resources.remove(label, current);
+                    }
+                    task = created;
+                    task.run();
+                }
+                finally {
+                    reservations.remove(label, created);
+                }
+            }
+        }
+        try {
+            return task.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+        }
+        catch( ExecutionException e ) {
+            if( e.getCause() instanceof CloudException ) {
+                throw (CloudException)e.getCause();
+            }
+            if( e.getCause() instanceof InternalException ) {
+                throw (InternalException)e.getCause();
+            }
+            throw new InternalException(e.getCause());
+        }
+    }
+
+    /**
+     * Registers a resource under the specified label, replacing any resource already registered with that label.
+     * @param label the label
+     * @param resource the resource to register or null to release the label
+     * @return the resource previously registered under the label, if any
+     */
+    public @Nullable T put(@Nonnull String label, @Nullable T resource) {
+        if( resource == null ) {
+            return resources.remove(label);
+        }
+        return resources.put(label, resource);
+    }
+
+    public boolean containsKey(@Nullable String label) {
+        return (label != null && resources.containsKey(label));
+    }
+
+    public @Nullable T get(@Nullable String label) {
+        return (label == null ? null : resources.get(label));
+    }
+
+    /**
+     * Provides a weakly consistent view of the registered resources that is safe to iterate while other threads
+     * register or release resources.
+     * @return the registered label/resource pairs
+     */
+    public @Nonnull Set<Map.Entry<String,T>> entrySet() {
+        return resources.entrySet();
+    }
+
+    public @Nonnull ResourceKind getKind() {
+        return kind;
+    }
+
+    public boolean isEmpty() {
+        return resources.isEmpty();
+    }
+
+    /**
+     * Releases the label so it may be reused.
+     * @param label the label to release
+     * @return the resource that had been registered under the label, if any
+     */
+    public @Nullable T remove(@Nullable String label) {
+        return (label == null ? null : resources.remove(label));
+    }
+
+    /**
+     * Moves a registered resource to the specified label or, if that label is already taken, to the label with
+     * the next free numeric suffix. Unlike {@link #register(String, Object)}, the resource is not counted as
+     * newly provisioned.
+     * @param resource the resource to move
+     * @param label the preferred label
+     * @return the label under which the resource is now registered, or null if the resource was not registered
+     */
+    public @Nullable String relabel(@Nonnull T resource, @Nonnull String label) {
+        for( Map.Entry<String,T> entry : resources.entrySet() ) {
+            if( resource.equals(entry.getValue()) ) {
+                if( entry.getKey().equals(label) ) {
+                    return label;
+                }
+                if( resources.remove(entry.getKey(), resource) ) {
+                    String candidate = label;
+
+                    while( resources.putIfAbsent(candidate, resource) != null ) {
+                        candidate = label + sequence.incrementAndGet();
+                    }
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return resources.size();
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return resources.toString();
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.json.JSONObject;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Machine-readable report of a test run, written as one JSON object per line to the file named by the
+ * {@link System} property dasein.report.file:
+ * <pre>
+ *     -Ddasein.report.file=target/dasein-report.jsonl
+ * </pre>
+ * A record of type "test" is appended as each test finishes, carrying its outcome, duration, API calls and
+ * latencies, the resources it provisioned and the time it spent waiting on state changes. A single record of
+ * type "summary" is appended when the run is cleaned up. Every record is flushed as it is written, so the file
+ * may be tailed while the run is in progress and remains usable if the run is killed. Each summary ends a run; the
+ * next run in the same JVM reopens the file and counts its outcomes afresh.
+ * <p>
+ * Test outcomes are only known to JUnit. When tests run under {@link DaseinSuite}, a listener holds the record of
+ * each test until JUnit reports it finished and then writes it as "passed", "failed", "skipped" or "ignored".
+ * Tests run without that listener are reported as "completed" or "skipped".
+ * </p>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class RunReport {
+    static public final String REPORT_FILE = "dasein.report.file";
+
+    static private final Logger logger = Logger.getLogger(RunReport.class);
+
+    static private final IdentityHashMap<RunNotifier,Listener>          listeners = new IdentityHashMap<RunNotifier, Listener>();
+    static private final ConcurrentHashMap<String,Map<String,Object>> pending   = new ConcurrentHashMap<String, Map<String, Object>>();
+    static private final ConcurrentHashMap<String,String>             failures  = new ConcurrentHashMap<String, String>();
+
+    static private final AtomicInteger failed  = new AtomicInteger(0);
+    static private final AtomicInteger passed  = new AtomicInteger(0);
+
+    static private volatile boolean listening;
+    static private boolean          opened;
+    static private Writer           writer;
+
+    /**
+     * @return true if a report file has been configured for this run
+     */
+    static public boolean isEnabled() {
+        return (DaseinTestManager.getSystemProperty(REPORT_FILE) != null);
+    }
+
+    /**
+     * Starts tracking test outcomes reported to the specified notifier. Nested suites share the notifier of the
+     * outermost suite, so only the first call for a given notifier attaches a listener.
+     * @param notifier the notifier of the suite about to run
+     * @return true if a listener was attached and {@link #detach(RunNotifier)} must be called when the suite finishes
+     */
+    static boolean attach(@Nonnull RunNotifier notifier) {
+        if( !isEnabled() ) {
+            return false;
+        }
+        synchronized( listeners ) {
+            if( listeners.containsKey(notifier) ) {
+                return false;
+            }
+            Listener listener = new Listener();
+
+            listeners.put(notifier, listener);
+            notifier.addListener(listener);
+            listening = true;
+            return true;
+        }
+    }
+
+    /**
+     * Stops tracking test outcomes for the specified notifier and writes any records still held for it.
+     * @param notifier the notifier passed to {@link #attach(RunNotifier)}
+     */
+    static void detach(@Nonnull RunNotifier notifier) {
+        synchronized( listeners ) {
+            Listener listener = listeners.remove(notifier);
+
+            if( listener != null ) {
+                notifier.removeListener(listener);
+            }
+            listening = !listeners.isEmpty();
+        }
+        if( !listening ) {
+            for( String key : pending.keySet() ) {
+                finish(key, null);
+            }
+        }
+    }
+
+    /**
+     * Records a test that has just ended. The record is written immediately unless a listener will supply the
+     * outcome of the test, in which case it is held until JUnit reports the test finished.
+     * @param testClass the class of the test
+     * @param record the fields describing the test, excluding its outcome
+     * @param skipped true if the test skipped itself
+     */
+    static void testEnded(@Nonnull Class<?> testClass, @Nonnull Map<String,Object> record, boolean skipped) {
+        if( !isEnabled() ) {
+            return;
+        }
+        Object test = record.get("test");
+
+        if( listening && test != null ) {
+            if( skipped ) {
+                record.put("outcome", "skipped");
+            }
+            pending.put(testClass.getName() + "#" + test, record);
+        }
+        else {
+            record.put("outcome", skipped ? "skipped" : "completed");
+            write(record);
+        }
+    }
+
+    /**
+     * Writes the summary record for the run and closes the report, resetting it for any later run.
+     * @param summary the fields describing the run as a whole
+     */
+    static void summarize(@Nonnull Map<String,Object> summary) {
+        if( !isEnabled() ) {
+            return;
+        }
+        for( String key : pending.keySet() ) {
+            finish(key, null);
+        }
+        LinkedHashMap<String,Object> record = new LinkedHashMap<String, Object>();
+
+        record.put("type", "summary");
+        record.putAll(summary);
+        if( passed.get() > 0 || failed.get() > 0 ) {
+            record.put("passed", passed.get());
+            record.put("failed", failed.get());
+        }
+        write(record);
+        synchronized( RunReport.class ) {
+            if( writer != null ) {
+                try {
+                    writer.close();
+                }
+                catch( Throwable ignore ) {
+                    // ignore
+                }
+                writer = null;
+            }
+            opened = false;
+            passed.set(0);
+            failed.set(0);
+        }
+    }
+
+    static private void finish(@Nonnull String key, @Nullable String outcome) {
+        Map<String,Object> record = pending.remove(key);
+        String message = failures.remove(key);
+
+        if( record == null ) {
+            if( message == null ) {
+                return;
+            }
+            // the test failed before its test manager was able to record anything
+            int idx = key.indexOf('#');
+
+            record = new LinkedHashMap<String, Object>();
+            record.put("type", "test");
+            record.put("class", key.substring(0, idx));
+            record.put("test", key.substring(idx+1));
+        }
+        if( message != null ) {
+            record.put("outcome", "failed");
+            record.put("message", message);
+        }
+        else if( !record.containsKey("outcome") ) {
+            record.put("outcome", outcome == null ? "completed" : outcome);
+        }
+        write(record);
+    }
+
+    static private synchronized void write(@Nonnull Map<String,Object> record) {
+        if( !opened ) {
+            String file = DaseinTestManager.getSystemProperty(REPORT_FILE);
+
+            opened = true;
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "utf-8"));
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to open run report " + file + ": " + e.getMessage());
+            }
+        }
+        if( writer != null ) {
+            String json = new JSONObject(record).toString();
+
+            if( json == null ) {
+                logger.warn("Unable to format run report record " + record);
+                return;
+            }
+            try {
+                writer.write(json);
+                writer.write('\n');
+                writer.flush();
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to write run report: " + e.getMessage());
+                try {
+                    writer.close();
+                }
+                catch( Throwable ignore ) {
+                    // ignore
+                }
+                writer = null;
+            }
+        }
+    }
+
+    static private @Nonnull String getKey(@Nonnull Description description) {
+        return description.getClassName() + "#" + description.getMethodName();
+    }
+
+    static private class Listener extends RunListener {
+        @Override
+        public void testAssumptionFailure(Failure failure) {
+            Map<String,Object> record = pending.get(getKey(failure.getDescription()));
+
+            if( record != null ) {
+                record.put("outcome", "skipped");
+            }
+        }
+
+        @Override
+        public void testFailure(Failure failure) throws Exception {
+            String message = failure.getMessage();
+
+            if( message == null ) {
+                Throwable t = failure.getException();
+
+                message = (t == null ? "" : t.getClass().getName());
+            }
+            failures.put(getKey(failure.getDescription()), message);
+        }
+
+        @Override
+        public void testFinished(Description description) throws Exception {
+            String key = getKey(description);
+
+            if( failures.containsKey(key) ) {
+                failed.incrementAndGet();
+            }
+            else {
+                Map<String,Object> record = pending.get(key);
+
+                if( record == null || !"skipped".equals(record.get("outcome")) ) {
+                    passed.incrementAndGet();
+                }
+            }
+            finish(key, "passed");
+        }
+
+        @Override
+        public void testIgnored(Description description) throws Exception {
+            LinkedHashMap<String,Object> record = new LinkedHashMap<String, Object>();
+
+            record.put("type", "test");
+            record.put("class", description.getClassName());
+            record.put("test", description.getMethodName());
+            record.put("outcome", "ignored");
+            write(record);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Wraps Dasein Cloud service and support interfaces so that the time taken by every call made through them is
+ * reported to a {@link Recorder}. Services and support objects returned by a wrapped object are themselves
+ * wrapped, so wrapping the services returned by a provider instruments every call made through them. Calls that
+ * merely navigate to another service or support object, capability lookups and hasXSupport() checks are not timed.
+ * Calls are named for the interface and method on which they were made (e.g. "VirtualMachineSupport.listVirtualMachines").
+ * Calls that return lazily populated results are timed only until the result is returned.
+ * @version 2015.10 initial version
+ * @version 2015.10 capability lookups may answer from a {@link CapabilitySnapshot}
+ * @since 2015.10
+ */
+public class ServiceProxy implements InvocationHandler {
+    /**
+     * Receives the latency of calls made through wrapped services.
+     */
+    public interface Recorder {
+        /**
+         * @param api the interface and method called
+         * @param nanos the time taken by the call in nanoseconds, whether or not it succeeded
+         */
+        public void record(@Nonnull String api, long nanos);
+    }
+
+    /**
+     * Wraps the specified service or support object.
+     * @param target the object to wrap
+     * @param type the interface through which the object is used
+     * @param recorder the recorder receiving call latencies
+     * @param <T> the type of the interface
+     * @return the wrapped object, or null if the target is null
+     */
+    static public @Nullable <T> T wrap(@Nullable T target, @Nonnull Class<T> type, @Nonnull Recorder recorder) {
+        return wrap(target, type, recorder, null);
+    }
+
+    /**
+     * Wraps the specified service or support object so that capability lookups made through it also answer from
+     * the specified snapshot.
+     * @param target the object to wrap
+     * @param type the interface through which the object is used
+     * @param recorder the recorder receiving call latencies
+     * @param snapshot the snapshot remembering capabilities, if any
+     * @param <T> the type of the interface
+     * @return the wrapped object, or null if the target is null
+     */
+    static public @Nullable <T> T wrap(@Nullable T target, @Nonnull Class<T> type, @Nonnull Recorder recorder, @Nullable CapabilitySnapshot snapshot) {
+        // objects already wrapped by another proxy, such as a replayed recording, are wrapped again
+        if( target == null || (Proxy.isProxyClass(target.getClass()) && Proxy.getInvocationHandler(target) instanceof ServiceProxy) ) {
+            return target;
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new ServiceProxy(target, type, recorder, snapshot)));
+    }
+
+    static private boolean isWrappable(@Nonnull Class<?> type) {
+        String name = type.getSimpleName();
+
+        return ( type.isInterface() && type.getName().startsWith("org.dasein.cloud.") && (name.endsWith("Services") || name.endsWith("Support")) );
+    }
+
+    private final Recorder           recorder;
+    private final CapabilitySnapshot snapshot;
+    private final Object             target;
+    private final Class<?>           type;
+
+    private ServiceProxy(@Nonnull Object target, @Nonnull Class<?> type, @Nonnull Recorder recorder, @Nullable CapabilitySnapshot snapshot) {
+        this.target = target;
+        this.type = type;
+        this.recorder = recorder;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if( method.getDeclaringClass().equals(Object.class) ) {
+            if( method.getName().equals("equals") ) {
+                return ( args[0] == proxy || target.equals(args[0]) );
+            }
+            return method.invoke(target, args);
+        }
+        Class<?> returnType = method.getReturnType();
+        String name = method.getName();
+        boolean navigation = isWrappable(returnType);
+        boolean timed = !navigation && !name.equals("getCapabilities") && !name.startsWith("has");
+        long start = System.nanoTime();
+
+        try {
+            Object result = method.invoke(target, args);
+
+            if( navigation ) {
+                return wrap(result, (Class<Object>)returnType, recorder, snapshot);
+            }
+            if( snapshot != null && name.equals("getCapabilities") ) {
+                return snapshot.memoize(result, (Class<Object>)returnType);
+            }
+            return result;
+        }
+        catch( InvocationTargetException e ) {
+            throw e.getCause();
+        }
+        finally {
+            if( timed ) {
+                recorder.record(type.getSimpleName() + "." + name, System.nanoTime() - start);
+            }
+        }
+    }
+}
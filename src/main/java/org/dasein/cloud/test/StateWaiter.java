@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waits for a cloud resource to reach a desired state. Polling starts fast so that quick transitions are noticed
+ * almost as soon as they happen, then backs off exponentially (with jitter, so parallel waiters do not poll in
+ * lock step) so that slow transitions do not hammer the cloud API. Every wait is recorded under a transition name,
+ * and {@link #report(Logger)} summarizes how long each transition actually took.
+ * <pre>
+ *     vm = StateWaiter.waitFor("VM PENDING &gt; RUNNING", StateWaiter.WaitPolicy.getInstance(), vm, fetcher, condition);
+ * </pre>
+ * Errors fetching the resource are ignored and the last known state of the resource is retained.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class StateWaiter {
+    /**
+     * Fetches the current state of the resource being waited on.
+     * @param <T> the type of resource
+     */
+    public interface Fetcher<T> {
+        /**
+         * @return the current state of the resource or null if it no longer exists
+         * @throws CloudException an error occurred with the cloud provider fetching the resource
+         * @throws InternalException an error occurred within Dasein Cloud fetching the resource
+         */
+        public @Nullable T fetch() throws CloudException, InternalException;
+    }
+
+    /**
+     * A fetcher that is told when the wait using it is over, successfully or not, so that it can stop tracking the
+     * resource.
+     * @param <T> the type of resource
+     */
+    public interface TrackingFetcher<T> extends Fetcher<T> {
+        public void finished();
+    }
+
+    /**
+     * Identifies whether a resource has reached the state being waited for.
+     * @param <T> the type of resource
+     */
+    public interface Condition<T> {
+        /**
+         * @param resource the current state of the resource, null if it no longer exists
+         * @return true if waiting is complete
+         */
+        public boolean isSatisfied(@Nullable T resource);
+    }
+
+    /**
+     * Describes how often to poll and for how long. Polls happen every fast poll interval during the initial fast
+     * poll window, after which the interval starts at the initial backoff and grows by the backoff multiplier up to
+     * the maximum interval. Each interval is randomly varied by up to the jitter fraction in either direction.
+     */
+    static public class WaitPolicy {
+        static public @Nonnull WaitPolicy getInstance() {
+            return new WaitPolicy();
+        }
+
+        static public @Nonnull WaitPolicy getInstance(@Nonnegative long deadlineMillis) {
+            return new WaitPolicy().withDeadline(deadlineMillis);
+        }
+
+        private long   deadlineMillis     = 20L * 60L * 1000L;
+        private long   fastPollInterval   = 2000L;
+        private long   fastPollWindow     = 30000L;
+        private long   initialBackoff     = 5000L;
+        private double jitter             = 0.2;
+        private long   maxInterval        = 30000L;
+        private double multiplier         = 1.5;
+
+        private WaitPolicy() { }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public long getFastPollInterval() {
+            return fastPollInterval;
+        }
+
+        public long getFastPollWindow() {
+            return fastPollWindow;
+        }
+
+        public long getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public long getMaxInterval() {
+            return maxInterval;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public @Nonnull WaitPolicy withBackoff(@Nonnegative long initialBackoff, @Nonnegative long maxInterval, double multiplier) {
+            this.initialBackoff = initialBackoff;
+            this.maxInterval = Math.max(initialBackoff, maxInterval);
+            this.multiplier = Math.max(1.0, multiplier);
+            return this;
+        }
+
+        public @Nonnull WaitPolicy withDeadline(@Nonnegative long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+            return this;
+        }
+
+        public @Nonnull WaitPolicy withFastPoll(@Nonnegative long windowMillis, @Nonnegative long intervalMillis) {
+            this.fastPollWindow = windowMillis;
+            this.fastPollInterval = intervalMillis;
+            return this;
+        }
+
+        public @Nonnull WaitPolicy withJitter(double fraction) {
+            this.jitter = Math.min(1.0, Math.max(0.0, fraction));
+            return this;
+        }
+    }
+
+    static private class Transition {
+        private final AtomicInteger count    = new AtomicInteger(0);
+        private final AtomicLong    max      = new AtomicLong(0L);
+        private final AtomicLong    min      = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong    polls    = new AtomicLong(0L);
+        private final AtomicInteger timeouts = new AtomicInteger(0);
+        private final AtomicLong    total    = new AtomicLong(0L);
+    }
+
+    static private final Random                                  random      = new Random();
+    static private final ConcurrentHashMap<String,Transition>    transitions = new ConcurrentHashMap<String, Transition>();
+
+    /**
+     * Fetches the resource and waits for it to satisfy the condition.
+     * @param transition the name under which the time taken is recorded (e.g. "VM PENDING &gt; RUNNING")
+     * @param policy the polling policy
+     * @param fetcher fetches the current state of the resource
+     * @param condition identifies when waiting is complete
+     * @param <T> the type of resource
+     * @return the last known state of the resource, null if it no longer exists or could never be fetched
+     */
+    static public @Nullable <T> T waitFor(@Nonnull String transition, @Nonnull WaitPolicy policy, @Nonnull Fetcher<T> fetcher, @Nonnull Condition<T> condition) {
+        return waitFor(transition, policy, false, null, fetcher, condition);
+    }
+
+    /**
+     * Waits for a resource whose state is already known to satisfy the condition. No wait occurs if the known state
+     * already satisfies the condition.
+     * @param transition the name under which the time taken is recorded (e.g. "VM PENDING &gt; RUNNING")
+     * @param policy the polling policy
+     * @param current the current state of the resource
+     * @param fetcher fetches the current state of the resource
+     * @param condition identifies when waiting is complete
+     * @param <T> the type of resource
+     * @return the last known state of the resource, null if it no longer exists
+     */
+    static public @Nullable <T> T waitFor(@Nonnull String transition, @Nonnull WaitPolicy policy, @Nullable T current, @Nonnull Fetcher<T> fetcher, @Nonnull Condition<T> condition) {
+        return waitFor(transition, policy, true, current, fetcher, condition);
+    }
+
+    static private @Nullable <T> T waitFor(@Nonnull String transition, @Nonnull WaitPolicy policy, boolean known, @Nullable T current, @Nonnull Fetcher<T> fetcher, @Nonnull Condition<T> condition) {
+        try {
+            return poll(transition, policy, known, current, fetcher, condition);
+        }
+        finally {
+            if( fetcher instanceof TrackingFetcher ) {
+                ((TrackingFetcher<?>)fetcher).finished();
+            }
+        }
+    }
+
+    static private @Nullable <T> T poll(@Nonnull String transition, @Nonnull WaitPolicy policy, boolean known, @Nullable T current, @Nonnull Fetcher<T> fetcher, @Nonnull Condition<T> condition) {
+        long start = System.currentTimeMillis();
+        long deadline = start + policy.getDeadlineMillis();
+        long backoff = policy.getInitialBackoff();
+        int polls = 0;
+
+        if( !known ) {
+            try {
+                current = fetcher.fetch();
+                known = true;
+            }
+            catch( Throwable ignore ) {
+                // ignore
+            }
+            polls++;
+        }
+        boolean satisfied = (known && condition.isSatisfied(current));
+
+        while( !satisfied ) {
+            long now = System.currentTimeMillis();
+            long delay;
+
+            if( now >= deadline ) {
+                break;
+            }
+            if( now - start < policy.getFastPollWindow() ) {
+                delay = policy.getFastPollInterval();
+            }
+            else {
+                delay = backoff;
+                backoff = Math.min(policy.getMaxInterval(), (long)(backoff * policy.getMultiplier()));
+            }
+            if( policy.getJitter() > 0.0 ) {
+                delay = (long)(delay * (1.0 + policy.getJitter() * (2.0 * random.nextDouble() - 1.0)));
+            }
+            delay = Math.max(1L, Math.min(delay, deadline - now));
+            try {
+                Thread.sleep(delay);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                current = fetcher.fetch();
+                known = true;
+            }
+            catch( Throwable ignore ) {
+                // keep the last known state
+            }
+            polls++;
+            satisfied = (known && condition.isSatisfied(current));
+        }
+        record(transition, System.currentTimeMillis() - start, polls, satisfied);
+        return current;
+    }
+
+    static private void record(@Nonnull String name, long millis, int polls, boolean satisfied) {
+        Transition t = transitions.get(name);
+
+        TestMetrics.waited(millis);
+        if( t == null ) {
+            Transition created = new Transition();
+
+            t = transitions.putIfAbsent(name, created);
+            if( t == null ) {
+                t = created;
+            }
+        }
+        t.count.incrementAndGet();
+        t.total.addAndGet(millis);
+        t.polls.addAndGet(polls);
+        if( !satisfied ) {
+            t.timeouts.incrementAndGet();
+        }
+        long m = t.max.get();
+
+        while( millis > m && !t.max.compareAndSet(m, millis) ) {
+            m = t.max.get();
+        }
+        m = t.min.get();
+        while( millis < m && !t.min.compareAndSet(m, millis) ) {
+            m = t.min.get();
+        }
+    }
+
+    /**
+     * Logs, for each transition waited on, how many times it was waited on and how long it took.
+     * @param logger the logger to which the report is written
+     */
+    static public void report(@Nonnull Logger logger) {
+        for( Map.Entry<String,Transition> entry : new TreeMap<String,Transition>(transitions).entrySet() ) {
+            Transition t = entry.getValue();
+            int count = t.count.get();
+
+            if( count < 1 ) {
+                continue;
+            }
+            DaseinTestManager.out(logger, null, "---> " + entry.getKey(), count + " waits, min " + seconds(t.min.get()) + ", avg " + seconds(t.total.get()/count) + ", max " + seconds(t.max.get()) + ", " + t.polls.get() + " polls, " + t.timeouts.get() + " timeouts");
+        }
+    }
+
+    static private @Nonnull String seconds(long millis) {
+        return (((float)millis)/1000f) + "s";
+    }
+}
@@ -50,7 +50,7 @@ import org.junit.runners.Suite;
  *
  * @author George Reese
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({
         StatefulObjectStoreTests.class,
         StatefulOfflineStoreTests.class,
@@ -53,8 +53,9 @@ import org.junit.runners.Suite;
  *
  * @author George Reese
  * @version 2013.07 added MQ support (issue #6)
+ * @version 2015.10 optional concurrent execution via {@link ConcurrentSuite}
  */
-@RunWith(Suite.class)
+@RunWith(ConcurrentSuite.class)
 @Suite.SuiteClasses({
         StatelessObjectStoreTests.class,
         StatelessOfflineStoreTests.class,
@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes test resources in parallel while honoring the order in which cloud resources must be removed. Each
+ * resource is a node whose teardown task starts as soon as the nodes it depends on have finished, so independent
+ * resources are removed concurrently and dependent resources wait only on what actually blocks them rather than on
+ * fixed delays. A resource added with the resources it depends on (a volume with the virtual machine to which it is
+ * attached, for example) waits only on those resources. A resource added without them, because the cloud does not
+ * report which resources use it, conservatively waits on every resource of a kind it may depend on (see
+ * {@link ResourceKind#getTeardownPrerequisites()}).
+ * <p>
+ * A teardown task returns true if the resource may be counted as de-provisioned (including when it no longer
+ * exists), false if it should not be counted, and throws an exception if removal failed. Tasks that remove a
+ * resource other resources depend on should not return until that resource is actually gone.
+ * </p>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class TeardownGraph {
+    static private final Logger logger = Logger.getLogger(TeardownGraph.class);
+
+    static public final String TEARDOWN_THREADS = "dasein.teardown.threads";
+
+    static private final int DEFAULT_THREADS = 8;
+
+    static private class Node {
+        private final ArrayList<Node>   dependents = new ArrayList<Node>();
+        private final String            id;
+        private final ResourceKind      kind;
+        private final AtomicInteger     pending    = new AtomicInteger(0);
+        private final HashSet<String>   prerequisites;
+        private final Callable<Boolean> task;
+
+        private Node(@Nonnull ResourceKind kind, @Nonnull String id, @Nonnull Callable<Boolean> task, @Nullable HashSet<String> prerequisites) {
+            this.kind = kind;
+            this.id = id;
+            this.task = task;
+            this.prerequisites = prerequisites;
+        }
+
+        private boolean dependsOn(@Nonnull Node other, @Nonnull EnumSet<ResourceKind> prerequisiteKinds) {
+            if( prerequisites == null ) {
+                return prerequisiteKinds.contains(other.kind);
+            }
+            return prerequisites.contains(other.id);
+        }
+    }
+
+    static private class Tally {
+        private final AtomicInteger failed  = new AtomicInteger(0);
+        private final AtomicLong    millis  = new AtomicLong(0L);
+        private final AtomicInteger removed = new AtomicInteger(0);
+        private final AtomicInteger total   = new AtomicInteger(0);
+    }
+
+    /**
+     * Calculates every kind of resource that must be gone before a resource of the specified kind can be removed,
+     * including indirect prerequisites (a VLAN waits on virtual machines even when no subnets are present).
+     * @param kind the kind of resource being removed
+     * @return all direct and indirect teardown prerequisites of the kind
+     */
+    static public @Nonnull EnumSet<ResourceKind> getAllPrerequisites(@Nonnull ResourceKind kind) {
+        EnumSet<ResourceKind> all = EnumSet.noneOf(ResourceKind.class);
+        ArrayList<ResourceKind> toVisit = new ArrayList<ResourceKind>();
+
+        toVisit.add(kind);
+        while( !toVisit.isEmpty() ) {
+            for( ResourceKind prerequisite : toVisit.remove(toVisit.size()-1).getTeardownPrerequisites() ) {
+                if( all.add(prerequisite) ) {
+                    toVisit.add(prerequisite);
+                }
+            }
+        }
+        return all;
+    }
+
+    private long                              duration;
+    private final ArrayList<Node>             nodes   = new ArrayList<Node>();
+    private final EnumMap<ResourceKind,Tally> tallies = new EnumMap<ResourceKind, Tally>(ResourceKind.class);
+
+    public TeardownGraph() {
+        for( ResourceKind kind : ResourceKind.values() ) {
+            tallies.put(kind, new Tally());
+        }
+    }
+
+    /**
+     * Adds a resource to be removed when this graph executes, after every resource of a kind it may depend on.
+     * @param kind the kind of resource
+     * @param id the ID of the resource, used for logging
+     * @param task the task that removes the resource
+     */
+    public synchronized void add(@Nonnull ResourceKind kind, @Nonnull String id, @Nonnull Callable<Boolean> task) {
+        nodes.add(new Node(kind, id, task, null));
+    }
+
+    /**
+     * Adds a resource to be removed when this graph executes, after the specified resources only.
+     * @param kind the kind of resource
+     * @param id the ID of the resource
+     * @param task the task that removes the resource
+     * @param prerequisites the IDs of the resources that must be removed first; those not in the graph are ignored
+     */
+    public synchronized void add(@Nonnull ResourceKind kind, @Nonnull String id, @Nonnull Callable<Boolean> task, @Nonnull Collection<String> prerequisites) {
+        nodes.add(new Node(kind, id, task, new HashSet<String>(prerequisites)));
+    }
+
+    /**
+     * Executes all teardown tasks on a pool of dasein.teardown.threads threads (8 by default) and waits for them to
+     * complete.
+     * @return the number of resources de-provisioned
+     */
+    public int execute() {
+        ArrayList<Node> toRemove;
+
+        synchronized( this ) {
+            toRemove = new ArrayList<Node>(nodes);
+            nodes.clear();
+        }
+        if( toRemove.isEmpty() ) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int before = getRemoved();
+        ArrayList<Node> roots = new ArrayList<Node>();
+
+        for( Node node : toRemove ) {
+            EnumSet<ResourceKind> prerequisites = getAllPrerequisites(node.kind);
+
+            for( Node other : toRemove ) {
+                if( other != node && node.dependsOn(other, prerequisites) ) {
+                    other.dependents.add(node);
+                    node.pending.incrementAndGet();
+                }
+            }
+        }
+        // roots must be identified before anything runs since completing nodes release their dependents
+        for( Node node : toRemove ) {
+            if( node.pending.get() == 0 ) {
+                roots.add(node);
+            }
+        }
+        ExecutorService service = Executors.newFixedThreadPool(Math.min(getThreadCount(), toRemove.size()));
+        CountDownLatch done = new CountDownLatch(toRemove.size());
+
+        try {
+            for( Node node : roots ) {
+                submit(service, node, done);
+            }
+            done.await();
+        }
+        catch( InterruptedException e ) {
+            logger.warn("Interrupted while waiting for teardown to complete");
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            service.shutdown();
+        }
+        duration += (System.currentTimeMillis() - start);
+        return (getRemoved() - before);
+    }
+
+    private int getThreadCount() {
+        String prop = DaseinTestManager.getSystemProperty(TEARDOWN_THREADS);
+
+        if( prop != null ) {
+            try {
+                int count = Integer.parseInt(prop.trim());
+
+                if( count > 0 ) {
+                    return count;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return DEFAULT_THREADS;
+    }
+
+    /**
+     * @return the total number of resources de-provisioned by this graph
+     */
+    public int getRemoved() {
+        int count = 0;
+
+        for( Tally tally : tallies.values() ) {
+            count += tally.removed.get();
+        }
+        return count;
+    }
+
+    /**
+     * @param domain the resource domain (see {@link ResourceKind#getDomain()})
+     * @return the number of resources in the domain de-provisioned by this graph
+     */
+    public int getRemoved(@Nonnull String domain) {
+        int count = 0;
+
+        for( Map.Entry<ResourceKind,Tally> entry : tallies.entrySet() ) {
+            if( entry.getKey().getDomain().equals(domain) ) {
+                count += entry.getValue().removed.get();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Logs the number of resources of each kind removed and how long their teardown tasks took in total.
+     * @param logger the logger to which the report is written
+     */
+    public void report(@Nonnull Logger logger) {
+        boolean header = false;
+
+        for( Map.Entry<ResourceKind,Tally> entry : tallies.entrySet() ) {
+            Tally tally = entry.getValue();
+
+            if( tally.total.get() > 0 ) {
+                if( !header ) {
+                    logger.info("Teardown:");
+                    header = true;
+                }
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), tally.removed.get() + " removed, " + tally.failed.get() + " failed, " + (((float)tally.millis.get())/1000f) + " seconds");
+            }
+        }
+        if( header ) {
+            DaseinTestManager.out(logger, null, "---> Elapsed", (((float)duration)/1000f) + " seconds");
+        }
+    }
+
+    private void submit(final @Nonnull ExecutorService service, final @Nonnull Node node, final @Nonnull CountDownLatch done) {
+        try {
+            service.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Tally tally = tallies.get(node.kind);
+                    long start = System.currentTimeMillis();
+
+                    tally.total.incrementAndGet();
+                    try {
+                        Boolean removed = node.task.call();
+
+                        if( removed != null && removed ) {
+                            tally.removed.incrementAndGet();
+                        }
+                    }
+                    catch( Throwable t ) {
+                        tally.failed.incrementAndGet();
+                        logger.warn("Failed to de-provision " + node.id + " (" + node.kind + "): " + t.getMessage());
+                    }
+                    finally {
+                        tally.millis.addAndGet(System.currentTimeMillis() - start);
+                        release(service, node, done);
+                    }
+                }
+            });
+        }
+        catch( RejectedExecutionException e ) {
+            // the teardown was abandoned; account for the node so that nothing is left waiting on it
+            logger.warn("Skipped de-provisioning " + node.id + " (" + node.kind + ") after teardown was interrupted");
+            release(service, node, done);
+        }
+    }
+
+    private void release(@Nonnull ExecutorService service, @Nonnull Node node, @Nonnull CountDownLatch done) {
+        try {
+            for( Node dependent : node.dependents ) {
+                if( dependent.pending.decrementAndGet() == 0 ) {
+                    submit(service, dependent, done);
+                }
+            }
+        }
+        finally {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Metrics gathered for the test currently executing on a thread: the resources it provisioned and the time it
+ * spent waiting for resources to change state. Test managers start collection when a test begins and harvest the
+ * metrics when it ends; activity on a thread with no test in progress is not attributed to any test.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class TestMetrics {
+    static private final ThreadLocal<TestMetrics> current = new ThreadLocal<TestMetrics>();
+
+    /**
+     * Starts collecting metrics for a test beginning on the current thread.
+     */
+    static void begin() {
+        current.set(new TestMetrics());
+    }
+
+    /**
+     * Stops collecting metrics for the test on the current thread.
+     * @return the metrics collected for the test, or null if none were being collected
+     */
+    static @Nullable TestMetrics end() {
+        TestMetrics metrics = current.get();
+
+        current.remove();
+        return metrics;
+    }
+
+    /**
+     * Attributes the provisioning of a resource to the test executing on the current thread, if any.
+     * @param kind the kind of resource provisioned
+     */
+    static public void provisioned(@Nonnull ResourceKind kind) {
+        TestMetrics metrics = current.get();
+
+        if( metrics != null ) {
+            String key = kind.name();
+            Integer count = metrics.provisioned.get(key);
+
+            metrics.provisioned.put(key, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Notes that the test executing on the current thread, if any, is being skipped.
+     */
+    static void skipped() {
+        TestMetrics metrics = current.get();
+
+        if( metrics != null ) {
+            metrics.skipped = true;
+        }
+    }
+
+    /**
+     * Attributes time spent waiting on a resource to the test executing on the current thread, if any.
+     * @param millis the time spent waiting in milliseconds
+     */
+    static public void waited(@Nonnegative long millis) {
+        TestMetrics metrics = current.get();
+
+        if( metrics != null ) {
+            metrics.waits++;
+            metrics.waitMillis += millis;
+        }
+    }
+
+    private final TreeMap<String,Integer> provisioned = new TreeMap<String, Integer>();
+    private boolean                       skipped;
+    private long                          waitMillis;
+    private int                           waits;
+
+    private TestMetrics() { }
+
+    /**
+     * @return the number of resources provisioned by the test, by resource kind
+     */
+    public @Nonnull Map<String,Integer> getProvisioned() {
+        return provisioned;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    public int getWaits() {
+        return waits;
+    }
+
+    public boolean isSkipped() {
+        return skipped;
+    }
+}
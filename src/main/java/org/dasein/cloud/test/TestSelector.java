@@ -0,0 +1,350 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.junit.Test;
+import org.junit.runners.Suite;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which tests to run based on the {@link System} properties dasein.inclusions and dasein.exclusions.
+ * Each property is a comma-separated list of rules. A rule may be:
+ * <ul>
+ *     <li>a test class name (e.g. "StatelessVMTests") or a single test (e.g. "StatelessVMTests.listVirtualMachines")</li>
+ *     <li>a glob in which * and ? are wildcards (e.g. "Stateful*VLAN*.create*"), a glob without a "." applying to whole test classes</li>
+ *     <li>a regular expression prefixed with "re:" matched against "TestClass.testMethod" (e.g. "re:Stateless.*Tests\.list.*")</li>
+ *     <li>a tag prefixed with "tag:", either "stateless", "stateful" or the domain of the test class (e.g. "tag:network")</li>
+ * </ul>
+ * All matching is case insensitive. The rules are parsed once and decisions are cached per test, so asking about
+ * the same test many times is cheap. A test is run unless there are inclusions and the test does not match any
+ * of them, or it matches an exclusion. If a test matches both an inclusion and an exclusion, the conflict is
+ * resolved in favor of executing the test, except that a test-level exclusion beats a class-level inclusion.
+ * <p>
+ * Running this class lists the tests that would run under the current rules without connecting to any cloud,
+ * which is useful for planning how to split a run:
+ * </p>
+ * <pre>
+ *     java -Ddasein.inclusions=tag:network -cp ... org.dasein.cloud.test.TestSelector [suite class...]
+ * </pre>
+ * @version 2015.10 initial version
+ * @version 2015.10 Domains of the selected tests for lazy resource initialization
+ * @since 2015.10
+ */
+public class TestSelector {
+    static public final String EXCLUSIONS = "dasein.exclusions";
+    static public final String INCLUSIONS = "dasein.inclusions";
+
+    static private final String REGEX_PREFIX = "re:";
+    static private final String TAG_PREFIX   = "tag:";
+
+    static private class Rule {
+        private final Pattern pattern;  // matched against the class name or class.method
+        private final String  source;
+        private final boolean suiteLevel;
+        private final String  tag;
+
+        private Rule(@Nonnull String source, @Nullable Pattern pattern, @Nullable String tag, boolean suiteLevel) {
+            this.source = source;
+            this.pattern = pattern;
+            this.tag = tag;
+            this.suiteLevel = suiteLevel;
+        }
+
+        private boolean matches(@Nonnull Class<?> testClass, @Nullable String method) {
+            String suite = testClass.getSimpleName().toLowerCase(Locale.ENGLISH);
+
+            if( tag != null ) {
+                return getTags(testClass).contains(tag);
+            }
+            if( suiteLevel ) {
+                return pattern.matcher(suite).matches();
+            }
+            return ( method != null && pattern.matcher(suite + "." + method.toLowerCase(Locale.ENGLISH)).matches() );
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return source;
+        }
+    }
+
+    /**
+     * @return a selector built from the current values of the dasein.inclusions and dasein.exclusions properties
+     */
+    static public @Nonnull TestSelector getInstance() {
+        return getInstance(System.getProperty(INCLUSIONS), System.getProperty(EXCLUSIONS));
+    }
+
+    static public @Nonnull TestSelector getInstance(@Nullable String inclusions, @Nullable String exclusions) {
+        return new TestSelector(parse(inclusions), parse(exclusions));
+    }
+
+    /**
+     * @param testClass a test class
+     * @return the tags describing the test class: "stateless" or "stateful" and the domain (package) of the class
+     */
+    static public @Nonnull TreeSet<String> getTags(@Nonnull Class<?> testClass) {
+        TreeSet<String> tags = new TreeSet<String>();
+        String name = testClass.getSimpleName().toLowerCase(Locale.ENGLISH);
+        Package p = testClass.getPackage();
+
+        if( name.startsWith("stateless") ) {
+            tags.add("stateless");
+        }
+        else if( name.startsWith("stateful") ) {
+            tags.add("stateful");
+        }
+        if( p != null ) {
+            String pkg = p.getName();
+
+            tags.add(pkg.substring(pkg.lastIndexOf('.') + 1).toLowerCase(Locale.ENGLISH));
+        }
+        return tags;
+    }
+
+    static private @Nullable List<Rule> parse(@Nullable String rules) {
+        if( rules == null || rules.trim().equals("") ) {
+            return null;
+        }
+        ArrayList<Rule> list = new ArrayList<Rule>();
+
+        for( String rule : rules.split(",") ) {
+            rule = rule.trim();
+            if( rule.equals("") ) {
+                continue;
+            }
+            String lower = rule.toLowerCase(Locale.ENGLISH);
+
+            if( lower.startsWith(TAG_PREFIX) ) {
+                list.add(new Rule(rule, null, lower.substring(TAG_PREFIX.length()).trim(), true));
+            }
+            else if( lower.startsWith(REGEX_PREFIX) ) {
+                list.add(new Rule(rule, Pattern.compile(rule.substring(REGEX_PREFIX.length()).trim(), Pattern.CASE_INSENSITIVE), null, false));
+            }
+            else {
+                StringBuilder regex = new StringBuilder();
+
+                for( char c : lower.toCharArray() ) {
+                    if( c == '*' ) {
+                        regex.append(".*");
+                    }
+                    else if( c == '?' ) {
+                        regex.append('.');
+                    }
+                    else {
+                        regex.append(Pattern.quote(String.valueOf(c)));
+                    }
+                }
+                list.add(new Rule(rule, Pattern.compile(regex.toString()), null, !lower.contains(".")));
+            }
+        }
+        return ( list.isEmpty() ? null : Collections.unmodifiableList(list) );
+    }
+
+    private final ConcurrentHashMap<String,Boolean> decisions = new ConcurrentHashMap<String, Boolean>();
+    private final List<Rule>                        exclusions;
+    private final List<Rule>                        inclusions;
+
+    private TestSelector(@Nullable List<Rule> inclusions, @Nullable List<Rule> exclusions) {
+        this.inclusions = inclusions;
+        this.exclusions = exclusions;
+    }
+
+    /**
+     * @return a description of the exclusion rules or null if there are none
+     */
+    public @Nullable String getExclusions() {
+        return ( exclusions == null ? null : exclusions.toString() );
+    }
+
+    /**
+     * @return a description of the inclusion rules or null if there are none
+     */
+    public @Nullable String getInclusions() {
+        return ( inclusions == null ? null : inclusions.toString() );
+    }
+
+    /**
+     * Identifies the domains (packages) to which at least one selected test belongs, so that resources are only
+     * prepared for domains that will be tested.
+     * @param root the suite whose test classes are considered
+     * @return the domains of the selected tests
+     */
+    public @Nonnull TreeSet<String> getSelectedDomains(@Nonnull Class<?> root) {
+        ArrayList<Class<?>> testClasses = new ArrayList<Class<?>>();
+        TreeSet<String> domains = new TreeSet<String>();
+
+        collect(root, testClasses);
+        for( Class<?> testClass : testClasses ) {
+            for( Method m : testClass.getMethods() ) {
+                if( m.getAnnotation(Test.class) != null && isSelected(testClass, m.getName()) ) {
+                    TreeSet<String> tags = getTags(testClass);
+
+                    tags.remove("stateless");
+                    tags.remove("stateful");
+                    domains.addAll(tags);
+                    break;
+                }
+            }
+        }
+        return domains;
+    }
+
+    /**
+     * @return true if every test will be selected
+     */
+    public boolean isEverything() {
+        return ( inclusions == null && exclusions == null );
+    }
+
+    /**
+     * Identifies whether the specified test is to be run.
+     * @param testClass the test class
+     * @param method the test method or null to ask about the test class as a whole
+     * @return true if the test should be run
+     */
+    public boolean isSelected(@Nonnull Class<?> testClass, @Nullable String method) {
+        if( isEverything() ) {
+            return true;
+        }
+        String key = ( method == null ? testClass.getName() : testClass.getName() + "#" + method );
+        Boolean selected = decisions.get(key);
+
+        if( selected == null ) {
+            selected = decide(testClass, method);
+            decisions.putIfAbsent(key, selected);
+        }
+        return selected;
+    }
+
+    private boolean decide(@Nonnull Class<?> testClass, @Nullable String method) {
+        boolean suiteIncluded = false;
+        boolean testIncluded = false;
+
+        if( inclusions != null ) {
+            for( Rule rule : inclusions ) {
+                if( rule.matches(testClass, method) ) {
+                    if( rule.suiteLevel ) {
+                        suiteIncluded = true;
+                    }
+                    else {
+                        testIncluded = true;
+                    }
+                }
+            }
+            if( !suiteIncluded && !testIncluded ) {
+                return false;
+            }
+        }
+        if( exclusions != null ) {
+            for( Rule rule : exclusions ) {
+                if( rule.matches(testClass, method) ) {
+                    if( !rule.suiteLevel ) {
+                        return testIncluded; // conflict goes to not skipping
+                    }
+                    if( !testIncluded && !suiteIncluded ) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the tests selected under the current inclusions and exclusions without executing any of them.
+     * @param args the suite or test classes to walk, {@link GlobalTestSuite} if none are specified
+     * @throws ClassNotFoundException one of the specified classes does not exist
+     */
+    static public void main(String ... args) throws ClassNotFoundException {
+        TestSelector selector = getInstance();
+        ArrayList<Class<?>> roots = new ArrayList<Class<?>>();
+        TreeMap<String,List<String>> plan = new TreeMap<String, List<String>>();
+        int selected = 0, total = 0;
+
+        if( args.length < 1 ) {
+            roots.add(GlobalTestSuite.class);
+        }
+        else {
+            for( String name : args ) {
+                roots.add(Class.forName(name, false, TestSelector.class.getClassLoader()));
+            }
+        }
+        ArrayList<Class<?>> testClasses = new ArrayList<Class<?>>();
+
+        for( Class<?> root : roots ) {
+            collect(root, testClasses);
+        }
+        for( Class<?> testClass : testClasses ) {
+            ArrayList<String> methods = new ArrayList<String>();
+
+            for( Method m : testClass.getMethods() ) {
+                if( m.getAnnotation(Test.class) == null ) {
+                    continue;
+                }
+                total++;
+                if( selector.isSelected(testClass, m.getName()) ) {
+                    methods.add(m.getName());
+                    selected++;
+                }
+            }
+            if( !methods.isEmpty() ) {
+                Collections.sort(methods);
+                plan.put(testClass.getSimpleName(), methods);
+            }
+        }
+        System.out.println("Included: " + selector.getInclusions());
+        System.out.println("Excluded: " + selector.getExclusions());
+        for( String testClass : plan.keySet() ) {
+            List<String> methods = plan.get(testClass);
+
+            System.out.println(testClass + " (" + methods.size() + ")");
+            for( String m : methods ) {
+                System.out.println("    " + testClass + "." + m);
+            }
+        }
+        System.out.println("Selected " + selected + " of " + total + " tests in " + plan.size() + " of " + testClasses.size() + " classes");
+    }
+
+    static private void collect(@Nonnull Class<?> c, @Nonnull List<Class<?>> testClasses) {
+        Suite.SuiteClasses children = c.getAnnotation(Suite.SuiteClasses.class);
+
+        if( children == null ) {
+            if( !testClasses.contains(c) ) {
+                testClasses.add(c);
+            }
+            return;
+        }
+        for( Class<?> child : children.value() ) {
+            collect(child, testClasses);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provisions resources of one kind in the background so that stateful tests can lease a resource that is already
+ * (or nearly) ready instead of waiting for a launch of their own. Each lease immediately starts provisioning a
+ * replacement, so provisioning overlaps with the tests that run before the next lease. Pooled resources are
+ * registered in the registry of their domain under a label starting with {@link #WARM} and moved to the label of
+ * the test that leases them, so resources that are never leased are torn down with everything else. Pools are
+ * opt-in and sized with the {@link System} properties:
+ * <pre>
+ *     -Ddasein.warm.vms=2 -Ddasein.warm.volumes=1 -Ddasein.warm.ips=1
+ * </pre>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class WarmPool {
+    static private final Logger logger = Logger.getLogger(WarmPool.class);
+
+    static public final String WARM = "warm";
+
+    static public final String WARM_IPS     = "dasein.warm.ips";
+    static public final String WARM_VMS     = "dasein.warm.vms";
+    static public final String WARM_VOLUMES = "dasein.warm.volumes";
+
+    static private final CopyOnWriteArrayList<WarmPool> pools = new CopyOnWriteArrayList<WarmPool>();
+
+    /**
+     * Provisions a single resource for the pool.
+     */
+    public interface Provisioner {
+        /**
+         * Provisions a resource and registers it under the specified label.
+         * @param label the label under which the resource is registered
+         * @return the ID of the new resource
+         * @throws CloudException an error occurred with the cloud provider in provisioning the resource
+         * @throws InternalException an error occurred within Dasein Cloud provisioning the resource
+         */
+        @Nonnull String provision(@Nonnull String label) throws CloudException, InternalException;
+    }
+
+    /**
+     * Reads the configured size of a pool.
+     * @param property the system property holding the size
+     * @return the size of the pool, 0 if the pool is disabled
+     */
+    static public @Nonnegative int getSize(@Nonnull String property) {
+        String prop = DaseinTestManager.getSystemProperty(property);
+
+        if( prop != null ) {
+            try {
+                int size = Integer.parseInt(prop.trim());
+
+                if( size > 0 ) {
+                    return size;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Starts provisioning a pool of resources in the background.
+     * @param registry the registry in which the domain tracks resources of this kind
+     * @param size the number of resources to keep ready
+     * @param provisioner provisions each resource
+     * @return the pool, already filling
+     */
+    static public @Nonnull WarmPool start(@Nonnull ResourceRegistry<String> registry, @Nonnegative int size, @Nonnull Provisioner provisioner) {
+        WarmPool pool = new WarmPool(registry, size, provisioner);
+
+        pools.add(pool);
+        for( int i=0; i<size; i++ ) {
+            pool.fill();
+        }
+        DaseinTestManager.out(logger, null, "Warm Pool", "Provisioning " + size + " " + registry.getKind());
+        return pool;
+    }
+
+    /**
+     * Stops refilling every pool and waits for provisioning already in progress to finish, so that every pooled
+     * resource is registered before the test resources are torn down.
+     */
+    static public void closeAll() {
+        for( WarmPool pool : pools ) {
+            pool.closed = true;
+            pool.executor.shutdown();
+        }
+        for( WarmPool pool : pools ) {
+            try {
+                if( !pool.executor.awaitTermination(CalendarWrapper.MINUTE * 20L, TimeUnit.MILLISECONDS) ) {
+                    logger.warn("Gave up waiting for warm " + pool.registry.getKind() + " provisioning to finish");
+                }
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    static public void report(@Nonnull Logger logger) {
+        for( WarmPool pool : pools ) {
+            int provisioned = pool.provisioned.get();
+            long average = (provisioned == 0 ? 0L : pool.millis.get()/provisioned);
+
+            DaseinTestManager.out(logger, null, "Warm " + pool.registry.getKind(), pool.leased.get() + " leased, " + pool.missed.get() + " missed, " + provisioned + " provisioned (" + average + " ms avg), " + pool.failed.get() + " failed");
+        }
+    }
+
+    private final ExecutorService          executor;
+    private final String                   label;
+    private final Provisioner              provisioner;
+    private final ResourceRegistry<String> registry;
+    private final ConcurrentLinkedQueue<Future<String>> slots = new ConcurrentLinkedQueue<Future<String>>();
+
+    private final AtomicInteger failed      = new AtomicInteger(0);
+    private final AtomicInteger leased      = new AtomicInteger(0);
+    private final AtomicLong    millis      = new AtomicLong(0L);
+    private final AtomicInteger missed      = new AtomicInteger(0);
+    private final AtomicInteger provisioned = new AtomicInteger(0);
+
+    private volatile boolean closed;
+
+    private WarmPool(@Nonnull ResourceRegistry<String> registry, @Nonnegative int size, @Nonnull Provisioner provisioner) {
+        final String prefix = "dasein-" + WARM + "-" + registry.getKind().name().toLowerCase();
+
+        // each kind has its own label so that dependencies looked up by label (such as the static IP of a warm
+        // virtual machine) are never confused with resources pooled for other tests
+        this.label = WARM + "-" + registry.getKind().name().toLowerCase().replace('_', '-');
+        this.registry = registry;
+        this.provisioner = provisioner;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, size), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(@Nonnull Runnable r) {
+                Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private void fill() {
+        if( closed ) {
+            return;
+        }
+        try {
+            slots.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    // replacements queued behind a close are never started, so nothing is provisioned after teardown
+                    if( closed ) {
+                        return null;
+                    }
+                    long start = System.currentTimeMillis();
+
+                    try {
+                        String id = provisioner.provision(label);
+
+                        provisioned.incrementAndGet();
+                        millis.addAndGet(System.currentTimeMillis() - start);
+                        return id;
+                    }
+                    catch( Exception e ) {
+                        failed.incrementAndGet();
+                        logger.warn("Unable to provision warm " + registry.getKind() + ": " + e.getMessage());
+                        throw e;
+                    }
+                }
+            }));
+        }
+        catch( RejectedExecutionException ignore ) {
+            // closed while refilling
+        }
+    }
+
+    /**
+     * @return the label under which resources not yet leased are registered
+     */
+    public @Nonnull String getLabel() {
+        return label;
+    }
+
+    /**
+     * Leases a pooled resource, preferring one that is already provisioned and otherwise waiting for the
+     * provisioning that started first. A replacement starts provisioning immediately.
+     * @param label the label under which the leased resource is to be registered
+     * @return the ID of the leased resource, or null if the pool is empty or provisioning failed, in which case
+     * the caller should provision a resource itself
+     */
+    public @Nullable String lease(@Nonnull String label) {
+        Future<String> slot = null;
+
+        for( Future<String> candidate : slots ) {
+            if( candidate.isDone() && slots.remove(candidate) ) {
+                slot = candidate;
+                break;
+            }
+        }
+        if( slot == null ) {
+            slot = slots.poll();
+        }
+        if( slot == null ) {
+            missed.incrementAndGet();
+            return null;
+        }
+        fill();
+        String id;
+
+        try {
+            id = slot.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch( ExecutionException e ) {
+            missed.incrementAndGet();
+            return null;
+        }
+        if( id == null || registry.relabel(id, label) == null ) {
+            missed.incrementAndGet();
+            return null;
+        }
+        leased.incrementAndGet();
+        return id;
+    }
+}
@@ -28,11 +28,15 @@ import org.dasein.cloud.ci.Topology;
 import org.dasein.cloud.ci.TopologyState;
 import org.dasein.cloud.ci.TopologySupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.Prefetcher;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.cloud.test.ResourceRegistry;
+import org.dasein.cloud.test.TeardownGraph;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * [Class Documentation]
@@ -45,66 +49,87 @@ public class CIResources {
 
     private CloudProvider   provider;
 
-    private final HashMap<String,String> testInfrastructures = new HashMap<String, String>();
-    private final HashMap<String,String> testTopologies      = new HashMap<String, String>();
+    private final ResourceRegistry<String> testInfrastructures = new ResourceRegistry<String>(ResourceKind.INFRASTRUCTURE);
+    private final ResourceRegistry<String> testTopologies      = new ResourceRegistry<String>(ResourceKind.TOPOLOGY);
 
     public CIResources(@Nonnull CloudProvider provider) {
         this.provider = provider;
     }
 
-    public int close() {
+    /**
+     * Adds the removal of every CI resource provisioned for testing to the specified teardown graph.
+     * @param graph the graph to which teardown tasks are added
+     */
+    public void addTeardown(@Nonnull TeardownGraph graph) {
         CIServices ciServices = provider.getCIServices();
-        int count = 0;
 
-        if( ciServices != null ) {
-            ConvergedInfrastructureSupport ciSupport = ciServices.getConvergedInfrastructureSupport();
+        if( ciServices == null ) {
+            return;
+        }
+        final ConvergedInfrastructureSupport ciSupport = ciServices.getConvergedInfrastructureSupport();
+
+        if( ciSupport != null ) {
+            for( Map.Entry<String,String> entry : testInfrastructures.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String ciId = entry.getValue();
 
-            if( ciSupport != null ) {
-                for( Map.Entry<String,String> entry : testInfrastructures.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            ConvergedInfrastructure ci = ciSupport.getConvergedInfrastructure(entry.getValue());
+                    graph.add(ResourceKind.INFRASTRUCTURE, ciId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            ConvergedInfrastructure ci = ciSupport.getConvergedInfrastructure(ciId);
 
                             if( ci != null ) {
-                                ciSupport.terminate(entry.getValue(), null);
-                                count++;
-                            }
-                            else {
-                                count++;
+                                ciSupport.terminate(ciId, null);
                             }
+                            return true;
                         }
-                        catch( Throwable t ) {
-                            logger.warn("Failed to de-provision test CI " + entry.getValue() + ": " + t.getMessage());
-                        }
-                    }
+                    });
                 }
             }
+        }
 
-            TopologySupport tSupport = ciServices.getTopologySupport();
+        final TopologySupport tSupport = ciServices.getTopologySupport();
 
-            if( tSupport != null ) {
-                for( Map.Entry<String,String> entry : testTopologies.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            Topology t = tSupport.getTopology(entry.getValue());
+        if( tSupport != null ) {
+            for( Map.Entry<String,String> entry : testTopologies.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String topologyId = entry.getValue();
+
+                    graph.add(ResourceKind.TOPOLOGY, topologyId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Topology t = tSupport.getTopology(topologyId);
 
                             if( t != null ) {
                                 // TODO: implement this
-                                // tSupport.remove(entry.getKey());
-                                count++;
-                            }
-                            else {
-                                count++;
+                                // tSupport.remove(topologyId);
                             }
+                            return true;
                         }
-                        catch( Throwable t ) {
-                            logger.warn("Failed to de-provision test topology " + entry.getValue() + ": " + t.getMessage());
-                        }
-                    }
+                    });
                 }
             }
         }
-        return count;
+    }
+
+    /**
+     * Adds the lookup of every stateless CI fixture to the specified prefetcher.
+     * @param prefetcher the prefetcher to which the lookups are added
+     */
+    public void addPrefetch(@Nonnull Prefetcher prefetcher) {
+        prefetcher.add(ResourceKind.TOPOLOGY, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessTopology();
+            }
+        });
+    }
+
+    public int close() {
+        TeardownGraph graph = new TeardownGraph();
+
+        addTeardown(graph);
+        return graph.execute();
     }
 
     public @Nullable String getTestTopologyId(@Nonnull String label, boolean provisionIfNull) {
@@ -189,7 +214,7 @@ public class CIResources {
             logger.info("Provisioned CI Resources:");
             header = true;
             count += testInfrastructures.size();
-            DaseinTestManager.out(logger, null, "---> Infrastructures", testInfrastructures.size() + " " + testInfrastructures);
+            DaseinTestManager.out(logger, null, "---> " + testInfrastructures.getKind(), testInfrastructures.size() + " " + testInfrastructures);
         }
         testTopologies.remove(DaseinTestManager.STATELESS);
         if( !testTopologies.isEmpty() ) {
@@ -197,7 +222,7 @@ public class CIResources {
                 logger.info("Provisioned CI Resources:");
             }
             count += testTopologies.size();
-            DaseinTestManager.out(logger, null, "---> Topologies", testTopologies.size() + " " + testTopologies);
+            DaseinTestManager.out(logger, null, "---> " + testTopologies.getKind(), testTopologies.size() + " " + testTopologies);
         }
         return count;
     }
@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test.ci;
 
+import org.dasein.cloud.test.DaseinSuite;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -29,7 +30,7 @@ import org.junit.runners.Suite;
  * [Class Documentation]
  * @author George Reese
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({
         StatelessTopologyTests.class,
         StatefulTopologyTests.class,
@@ -75,11 +75,11 @@ public class StatefulCITests {
             name.getMethodName().startsWith("listVirtualMachines") ||
             name.getMethodName().startsWith("listConvergedInfrastructureStatus") ||
             name.getMethodName().startsWith("deleteCITopology")) {
-            //tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine()
+            //tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine()
             try {
                 CIProvisionOptions options = CIProvisionOptions.getInstance(name.getMethodName().toLowerCase(), "test-description", "us-central1-f", 1, "instance-template-2");
-                if( tm.getProvider().getCIServices() != null && tm.getProvider().getCIServices().getConvergedInfrastructureSupport() != null ) {
-                    ConvergedInfrastructure ci = tm.getProvider().getCIServices().getConvergedInfrastructureSupport().provision(options);
+                if( tm.getCIServices() != null && tm.getCIServices().getConvergedInfrastructureSupport() != null ) {
+                    ConvergedInfrastructure ci = tm.getCIServices().getConvergedInfrastructureSupport().provision(options);
                     testTopologyId = ci.getName();
                 }
             } catch ( Exception e ) {
@@ -95,13 +95,13 @@ public class StatefulCITests {
                 name.getMethodName().startsWith("listVLANs") ||
                 name.getMethodName().startsWith("listConvergedInfrastructureStatus") ||
                 name.getMethodName().startsWith("listVirtualMachines")) {
-                if( tm.getProvider().getCIServices() != null && tm.getProvider().getCIServices().getConvergedInfrastructureSupport() != null ) {
-                    tm.getProvider().getCIServices().getConvergedInfrastructureSupport().terminate(name.getMethodName().toLowerCase(), "test over");
+                if( tm.getCIServices() != null && tm.getCIServices().getConvergedInfrastructureSupport() != null ) {
+                    tm.getCIServices().getConvergedInfrastructureSupport().terminate(name.getMethodName().toLowerCase(), "test over");
                 }
             }
             if (name.getMethodName().startsWith("createCIFromTopolology")) {
-                if( tm.getProvider().getCIServices() != null && tm.getProvider().getCIServices().getConvergedInfrastructureSupport() != null ) {
-                    tm.getProvider().getCIServices().getConvergedInfrastructureSupport().terminate(name.getMethodName().toLowerCase(), "test over");
+                if( tm.getCIServices() != null && tm.getCIServices().getConvergedInfrastructureSupport() != null ) {
+                    tm.getCIServices().getConvergedInfrastructureSupport().terminate(name.getMethodName().toLowerCase(), "test over");
                 }
             }
         } catch ( Exception e ) {
@@ -113,7 +113,7 @@ public class StatefulCITests {
      */
     @Test
     public void createCIFromTopology() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
         if( services == null ) {
             tm.ok("No compute services in this cloud");
             return;
@@ -135,7 +135,7 @@ public class StatefulCITests {
      */
     @Test
     public void deleteCIFromTopology() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
         if( services == null ) {
             tm.ok("No compute services in this cloud");
             return;
@@ -152,7 +152,7 @@ public class StatefulCITests {
 
     @Test
     public void listConvergedInfrastructures() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
         if( services == null ) {
             tm.ok("No Converged Infrastructure services in this cloud");
             return;
@@ -174,7 +174,7 @@ public class StatefulCITests {
 
     @Test
     public void listVirtualMachines() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
         if (services == null) {
             tm.ok("No Converged Infrastructure services in this cloud");
             return;
@@ -196,7 +196,7 @@ public class StatefulCITests {
 
     @Test
     public void listVLANs() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
         if (services == null) {
             tm.ok("No Converged Infrastructure services in this cloud");
             return;
@@ -218,7 +218,7 @@ public class StatefulCITests {
 
     @Test
     public void listConvergedInfrastructureStatus() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services == null) {
             tm.ok("No Converged Infrastructure services in this cloud");
@@ -154,7 +154,7 @@ public class StatefulHttpLoadBalancerTests {
 
     @Test
     public void listHttpLoadBalancers() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services != null) {
             if (services.hasConvergedHttpLoadBalancerSupport()) {
@@ -179,7 +179,7 @@ public class StatefulHttpLoadBalancerTests {
 
     @Test
     public void getConvergedHttpLoadBalancer() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services != null) {
             if (services.hasConvergedHttpLoadBalancerSupport()) {
@@ -194,7 +194,7 @@ public class StatefulHttpLoadBalancerTests {
 
     @Test
     public void removeHttpLoadBalancers() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services != null) {
             if (services.hasConvergedHttpLoadBalancerSupport()) {
@@ -211,7 +211,7 @@ public class StatefulHttpLoadBalancerTests {
     // withExistingXXXXX()
     @Test
     public void createHttpLoadBalancer() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services != null) {
             if (services.hasConvergedHttpLoadBalancerSupport()) {
@@ -256,7 +256,7 @@ public class StatefulHttpLoadBalancerTests {
 
     @Test
     public void createHttpLoadBalancerUsingExistingHealthCheck() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services != null) {
             if (services.hasConvergedHttpLoadBalancerSupport()) {
@@ -289,7 +289,7 @@ public class StatefulHttpLoadBalancerTests {
 
     @Test
     public void createHttpLoadBalancerUsingExistingBackendService() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if (services != null) {
             if (services.hasConvergedHttpLoadBalancerSupport()) {
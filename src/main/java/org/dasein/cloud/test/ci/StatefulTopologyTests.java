@@ -129,7 +129,7 @@ public class StatefulTopologyTests {
      */
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
              TopologySupport support = services.getTopologySupport();
@@ -152,7 +152,7 @@ public class StatefulTopologyTests {
      */
     @Test
     public void createTopology() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
             TopologySupport support = services.getTopologySupport();
@@ -193,7 +193,7 @@ public class StatefulTopologyTests {
      */
     @Test
     public void deletePrivateTopologies() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
             TopologySupport support = services.getTopologySupport();
@@ -118,7 +118,7 @@ public class StatelessTopologyTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
              TopologySupport support = services.getTopologySupport();
@@ -138,7 +138,7 @@ public class StatelessTopologyTests {
 
     @Test
     public void getBogusTopology() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
             TopologySupport support = services.getTopologySupport();
@@ -160,7 +160,7 @@ public class StatelessTopologyTests {
 
     @Test
     public void getTopology() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
             TopologySupport support = services.getTopologySupport();
@@ -192,7 +192,7 @@ public class StatelessTopologyTests {
 
     @Test
     public void topologyContent() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
             TopologySupport support = services.getTopologySupport();
@@ -274,7 +274,7 @@ public class StatelessTopologyTests {
 
     @Test
     public void listPrivateTopologies() throws CloudException, InternalException {
-        CIServices services = tm.getProvider().getCIServices();
+        CIServices services = tm.getCIServices();
 
         if( services != null ) {
             TopologySupport support = services.getTopologySupport();
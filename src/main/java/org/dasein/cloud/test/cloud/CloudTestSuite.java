@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test.cloud;
 
+import org.dasein.cloud.test.DaseinSuite;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -32,7 +33,7 @@ import org.junit.runners.Suite;
  * @version 2013.04 initial version
  * @since 2013.04
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({ StatelessAuthenticationTests.class, StatelessDCTests.class })
 public class CloudTestSuite {
     @BeforeClass
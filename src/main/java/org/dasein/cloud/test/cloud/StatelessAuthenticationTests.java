@@ -25,6 +25,7 @@ import org.dasein.cloud.CloudProvider;
 import org.dasein.cloud.InternalException;
 import org.dasein.cloud.ProviderContext;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.ProviderPool;
 import org.junit.*;
 import org.junit.rules.TestName;
 
@@ -71,16 +72,16 @@ public class StatelessAuthenticationTests {
         initialAccount = System.getProperty("accountNumber");
 
         if( name.getMethodName().equals("invalidPassword") ) {
-            provider = DaseinTestManager.constructProvider(null, null, "ThisCannotPossiblyBeASecretKey");
+            provider = ProviderPool.acquire(null, null, "ThisCannotPossiblyBeASecretKey");
         }
         else if( name.getMethodName().equals("invalidAccount") ) {
-            provider = DaseinTestManager.constructProvider("MyWibblesAreTribbles", null, null);
+            provider = ProviderPool.acquire("MyWibblesAreTribbles", null, null);
         }
         else if( name.getMethodName().equals("invalidSharedKey") ) {
-            provider = DaseinTestManager.constructProvider(null, "MyWibblesAreTribbles", null);
+            provider = ProviderPool.acquire(null, "MyWibblesAreTribbles", null);
         }
         else {
-            provider = DaseinTestManager.constructProvider();
+            provider = ProviderPool.acquire();
         }
     }
 
@@ -82,7 +82,7 @@ public class StatelessDCTests {
         try {
             testDataCenterId = DaseinTestManager.getDefaultDataCenterId(true);
 
-            DataCenterServices services = tm.getProvider().getDataCenterServices();
+            DataCenterServices services = tm.getDataCenterServices();
 
             if (name.getMethodName().contains("Pool") && testDataCenterId != null) {
                 if (services.getCapabilities().supportsResourcePools()) {
@@ -127,7 +127,7 @@ public class StatelessDCTests {
     @Test
     public void configuration() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         tm.out("DC Services", services);
         assertNotNull("Data center services must be implemented for all clouds", services);
@@ -136,7 +136,7 @@ public class StatelessDCTests {
     @Test
     public void checkMetaData() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         tm.out("Term for Region", services.getCapabilities().getProviderTermForRegion(Locale.getDefault()));
         tm.out("Term for DataCenter", services.getCapabilities().getProviderTermForDataCenter(Locale.getDefault()));
@@ -147,7 +147,7 @@ public class StatelessDCTests {
     @Test
     public void getBogusRegion() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         Region region = services.getRegion(UUID.randomUUID().toString());
 
         tm.out("Bogus Region", region);
@@ -157,7 +157,7 @@ public class StatelessDCTests {
     @Test
     public void getRegion() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         Region region = services.getRegion(tm.getContext().getRegionId());
 
         tm.out("Region", region);
@@ -167,7 +167,7 @@ public class StatelessDCTests {
     @Test
     public void regionContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         Region region = services.getRegion(tm.getContext().getRegionId());
 
         assertNotNull("Failed to find the region associated with the current operational context", region);
@@ -184,7 +184,7 @@ public class StatelessDCTests {
     @Test
     public void listRegions() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         Iterable<Region> regions = services.listRegions();
         boolean found = false;
         int count = 0;
@@ -205,7 +205,7 @@ public class StatelessDCTests {
     @Test
     public void getBogusDataCenter() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         DataCenter dc = services.getDataCenter(UUID.randomUUID().toString());
 
         tm.out("Bogus Data Center", dc);
@@ -215,7 +215,7 @@ public class StatelessDCTests {
     @Test
     public void getDataCenter() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         DataCenter dc = services.getDataCenter(testDataCenterId);
 
         tm.out("Data Center", dc);
@@ -225,7 +225,7 @@ public class StatelessDCTests {
     @Test
     public void dataCenterContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         DataCenter dc = services.getDataCenter(testDataCenterId);
 
         assertNotNull("Failed to find the test data center", dc);
@@ -242,7 +242,7 @@ public class StatelessDCTests {
     @Test
     public void listDataCenters() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         Iterable<DataCenter> dataCenters = services.listDataCenters(tm.getContext().getRegionId());
         boolean found = false;
         int count = 0;
@@ -263,7 +263,7 @@ public class StatelessDCTests {
     @Test
     public void regionIntegrity() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         for( Region region : services.listRegions() ) {
             if( region.isActive() ) {
@@ -284,7 +284,7 @@ public class StatelessDCTests {
     @Test
     public void getBogusResourcePool() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (services.getCapabilities().supportsResourcePools()) {
             ResourcePool rp = services.getResourcePool(UUID.randomUUID().toString());
@@ -299,7 +299,7 @@ public class StatelessDCTests {
     @Test
     public void getResourcePool() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         if (testResourcePoolId != null) {
             ResourcePool rp = services.getResourcePool(testResourcePoolId);
 
@@ -319,7 +319,7 @@ public class StatelessDCTests {
     @Test
     public void resourcePoolContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (testResourcePoolId != null) {
             ResourcePool rp = services.getResourcePool(testResourcePoolId);
@@ -346,7 +346,7 @@ public class StatelessDCTests {
     @Test
     public void listResourcePools() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (services.getCapabilities().supportsResourcePools() ) {
             Iterable<ResourcePool> resourcePools = services.listResourcePools(testDataCenterId);
@@ -375,7 +375,7 @@ public class StatelessDCTests {
     @Test
     public void getBogusStoragePool() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (services.getCapabilities().supportsStoragePools()) {
             StoragePool storagePool = services.getStoragePool(UUID.randomUUID().toString());
@@ -390,7 +390,7 @@ public class StatelessDCTests {
     @Test
     public void getStoragePool() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         if (testStoragePoolId != null) {
             StoragePool storagePool = services.getStoragePool(testStoragePoolId);
 
@@ -410,7 +410,7 @@ public class StatelessDCTests {
     @Test
     public void storagePoolContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (testStoragePoolId != null) {
             StoragePool storagePool = services.getStoragePool(testStoragePoolId);
@@ -440,7 +440,7 @@ public class StatelessDCTests {
     @Test
     public void listStoragePools() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (services.getCapabilities().supportsStoragePools() ) {
             Iterable<StoragePool> storagePools = services.listStoragePools();
@@ -469,7 +469,7 @@ public class StatelessDCTests {
     @Test
     public void getBogusVMFolder() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (services.getCapabilities().supportsFolders()) {
             Folder folder = services.getVMFolder(UUID.randomUUID().toString());
@@ -484,7 +484,7 @@ public class StatelessDCTests {
     @Test
     public void getVMFolder() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
         if (testFolderId != null) {
             Folder folder = services.getVMFolder(testFolderId);
 
@@ -504,7 +504,7 @@ public class StatelessDCTests {
     @Test
     public void vmFolderContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (testFolderId != null) {
             Folder folder = services.getVMFolder(testFolderId);
@@ -538,7 +538,7 @@ public class StatelessDCTests {
     @Test
     public void listVMFolders() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        DataCenterServices services = tm.getProvider().getDataCenterServices();
+        DataCenterServices services = tm.getDataCenterServices();
 
         if (services.getCapabilities().supportsFolders() ) {
             Iterable<Folder> folders = services.listVMFolders();
@@ -20,6 +20,10 @@
 package org.dasein.cloud.test.compute;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -34,13 +38,26 @@ import org.dasein.cloud.dc.DataCenter;
 import org.dasein.cloud.network.NetworkServices;
 import org.dasein.cloud.network.Subnet;
 import org.dasein.cloud.network.SubnetCreateOptions;
+import org.dasein.cloud.network.SubnetState;
 import org.dasein.cloud.network.VLAN;
+import org.dasein.cloud.network.VLANState;
 import org.dasein.cloud.network.VLANSupport;
+import org.dasein.cloud.test.CapabilitySnapshot;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.DiscoveryCache;
+import org.dasein.cloud.test.PollCoordinator;
+import org.dasein.cloud.test.Prefetcher;
+import org.dasein.cloud.test.ProductIndex;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.cloud.test.ResourceRegistry;
+import org.dasein.cloud.test.StateWaiter;
+import org.dasein.cloud.test.TeardownGraph;
+import org.dasein.cloud.test.WarmPool;
 import org.dasein.cloud.test.identity.IdentityResources;
 import org.dasein.cloud.test.network.NetworkResources;
 import org.dasein.util.CalendarWrapper;
 import org.dasein.util.uom.storage.Gigabyte;
+import org.dasein.util.uom.storage.Megabyte;
 import org.dasein.util.uom.storage.Storage;
 
 import static org.junit.Assert.fail;
@@ -52,6 +69,13 @@ import static org.junit.Assert.fail;
  * @author George Reese
  * @version 2013.04
  * @version 2014.08 limited architectures to those supported in the cloud
+ * @version 2015.10 concurrent discovery of the test image and product
+ * @version 2015.10 discovered fixtures are cached on disk between runs
+ * @version 2015.10 stateful VMs and volumes may be leased from a warm pool
+ * @version 2015.10 the stateless snapshot may be looked up concurrently by a {@link Prefetcher}
+ * @version 2015.10 launch requirements are answered from the {@link CapabilitySnapshot}
+ * @version 2015.10 batches of virtual machines may be torn down in parallel
+ * @version 2015.10 products are chosen from a {@link ProductIndex} shared by every image of an architecture
  * @since 2013.02
  */
 public class ComputeResources {
@@ -59,12 +83,66 @@ public class ComputeResources {
 
     static private final Random random = new Random();
 
+    static private final String CACHED_DATA_CENTER    = "dataCenter";
+    static private final String CACHED_MACHINE_IMAGE  = "machineImage";
+    static private final String CACHED_VM             = "statelessVm";
+    static private final String CACHED_VM_PRODUCT     = "vmProduct";
+    static private final String CACHED_VOLUME         = "statelessVolume";
+    static private final String CACHED_VOLUME_PRODUCT = "volumeProduct";
+
+    static private final int MINIMUM_RAM_IN_MB = 1001;
+
+    // smallest RAM first, then fewest CPUs, then cheapest, so minimum requirements are answered by a ceiling lookup
+    static private final Comparator<VirtualMachineProduct> PRODUCT_ORDER = new Comparator<VirtualMachineProduct>() {
+        @Override
+        public int compare(VirtualMachineProduct a, VirtualMachineProduct b) {
+            int c = compareInts(getRamInMb(a), getRamInMb(b));
+
+            if( c == 0 ) {
+                c = compareInts(a.getCpuCount(), b.getCpuCount());
+            }
+            if( c == 0 ) {
+                c = Float.compare(a.getStandardHourlyRate(), b.getStandardHourlyRate());
+            }
+            if( c == 0 ) {
+                String x = a.getProviderProductId(), y = b.getProviderProductId();
+
+                c = (x == null ? (y == null ? 0 : -1) : (y == null ? 1 : x.compareTo(y)));
+            }
+            return c;
+        }
+
+        private int compareInts(int x, int y) {
+            return (x < y ? -1 : (x == y ? 0 : 1));
+        }
+    };
+
+    /**
+     * Learns of each virtual machine launched by {@link #provisionManyVMs} as the launch yields its ID.
+     */
+    public interface LaunchListener {
+        /**
+         * @param vmId the ID of a virtual machine just launched, already registered for teardown
+         */
+        public void launched(@Nonnull String vmId);
+    }
+
     private CloudProvider provider;
 
-    private final Map<String, String> testMachineImages = new HashMap<String, String>();
-    private final Map<String, String> testSnapshots     = new HashMap<String, String>();
-    private final Map<String, String> testVMs           = new HashMap<String, String>();
-    private final Map<String, String> testVolumes       = new HashMap<String, String>();
+    private final ResourceRegistry<String> testMachineImages = new ResourceRegistry<String>(ResourceKind.MACHINE_IMAGE);
+    private final ResourceRegistry<String> testSnapshots     = new ResourceRegistry<String>(ResourceKind.SNAPSHOT);
+    private final ResourceRegistry<String> testVMs           = new ResourceRegistry<String>(ResourceKind.VIRTUAL_MACHINE);
+    private final ResourceRegistry<String> testVolumes       = new ResourceRegistry<String>(ResourceKind.VOLUME);
+
+    private final ConcurrentHashMap<String,FutureTask<ProductIndex<VirtualMachineProduct>>> productIndexes = new ConcurrentHashMap<String, FutureTask<ProductIndex<VirtualMachineProduct>>>();
+
+    private PollCoordinator<VirtualMachine> vmPoller;
+    private PollCoordinator<Volume>         volumePoller;
+
+    private volatile WarmPool vmPool;
+    private volatile String   vmPoolDataCenterId;
+    private volatile WarmPool volumePool;
+    private volatile String   volumePoolDataCenterId;
 
     //defaults
     private String   testDataCenterId = DaseinTestManager.getSystemProperty("test.dataCenter");
@@ -86,7 +164,7 @@ public class ComputeResources {
             logger.info("Provisioned Compute Resources:");
             header = true;
             count += testMachineImages.size();
-            DaseinTestManager.out(logger, null, "---> Machine Images", testMachineImages.size() + " " + testMachineImages);
+            DaseinTestManager.out(logger, null, "---> " + testMachineImages.getKind(), testMachineImages.size() + " " + testMachineImages);
         }
         testSnapshots.remove(DaseinTestManager.STATELESS);
         if( !testSnapshots.isEmpty() ) {
@@ -95,7 +173,7 @@ public class ComputeResources {
                 header = true;
             }
             count += testSnapshots.size();
-            DaseinTestManager.out(logger, null, "---> Snapshots", testSnapshots.size() + " " + testSnapshots);
+            DaseinTestManager.out(logger, null, "---> " + testSnapshots.getKind(), testSnapshots.size() + " " + testSnapshots);
         }
         testVMs.remove(DaseinTestManager.STATELESS);
         if( !testVMs.isEmpty() ) {
@@ -104,7 +182,7 @@ public class ComputeResources {
                 header = true;
             }
             count += testVMs.size();
-            DaseinTestManager.out(logger, null, "---> Virtual Machines", testVMs.size() + " " + testVMs);
+            DaseinTestManager.out(logger, null, "---> " + testVMs.getKind(), testVMs.size() + " " + testVMs);
         }
         testVolumes.remove(DaseinTestManager.STATELESS);
         if( !testVolumes.isEmpty() ) {
@@ -112,133 +190,271 @@ public class ComputeResources {
                 logger.info("Provisioned Compute Resources:");
             }
             count += testVolumes.size();
-            DaseinTestManager.out(logger, null, "---> Volumes", testVolumes.size() + " " + testVolumes);
+            DaseinTestManager.out(logger, null, "---> " + testVolumes.getKind(), testVolumes.size() + " " + testVolumes);
         }
         return count;
     }
 
-    public int close() {
+    /**
+     * Adds the removal of every compute resource provisioned for testing to the specified teardown graph.
+     * @param graph the graph to which teardown tasks are added
+     */
+    public void addTeardown(@Nonnull TeardownGraph graph) {
         ComputeServices computeServices = provider.getComputeServices();
-        int count = 0;
 
-        if( computeServices != null ) {
-            VirtualMachineSupport vmSupport = computeServices.getVirtualMachineSupport();
+        if( computeServices == null ) {
+            return;
+        }
+        final VirtualMachineSupport vmSupport = computeServices.getVirtualMachineSupport();
 
-            if( vmSupport != null ) {
-                for( Map.Entry<String, String> entry : testVMs.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            // Sometimes VMs don't have enough time to start before they are terminated
-                            // by tests, this causes stuck unterminated VMs. Let's try to take care of
-                            // that:
-                            long timeout = System.currentTimeMillis() + 5 * 60 * 1000;
-                            VirtualMachine vm = null;
-                            while(System.currentTimeMillis() < timeout) {
-                                vm = vmSupport.getVirtualMachine(entry.getValue());
-                                if( vm == null || !VmState.PENDING.equals(vm.getCurrentState()) ) {
-                                    break;
-                                }
-                                Thread.sleep(10000);
-                            };
-                            if( vm != null ) {
-                                vmSupport.terminate(entry.getValue());
-                                count++;
-                            }
-                            else {
-                                count++;
-                            }
-                        } catch( Throwable t ) {
-                            logger.warn("Failed to de-provision test VM " + entry.getValue() + ": " + t.getMessage());
-                        }
-                    }
+        if( vmSupport != null ) {
+            for( Map.Entry<String, String> entry : testVMs.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    graph.add(ResourceKind.VIRTUAL_MACHINE, entry.getValue(), getVmTeardown(vmSupport, entry.getValue()));
                 }
             }
+        }
 
-            MachineImageSupport imageSupport = computeServices.getImageSupport();
+        final MachineImageSupport imageSupport = computeServices.getImageSupport();
 
-            if( imageSupport != null ) {
-                for( Map.Entry<String, String> entry : testMachineImages.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            MachineImage img = imageSupport.getImage(entry.getValue());
+        if( imageSupport != null ) {
+            for( Map.Entry<String, String> entry : testMachineImages.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String imageId = entry.getValue();
+
+                    graph.add(ResourceKind.MACHINE_IMAGE, imageId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            MachineImage img = imageSupport.getImage(imageId);
 
                             if( img != null ) {
-                                imageSupport.remove(entry.getValue());
-                                count++;
-                            }
-                            else {
-                                count++;
+                                imageSupport.remove(imageId);
                             }
-                        } catch( Throwable t ) {
-                            logger.warn("Failed to de-provision test image " + entry.getValue() + ": " + t.getMessage());
+                            return true;
                         }
-                    }
+                    });
                 }
             }
+        }
 
-            SnapshotSupport snapshotSupport = computeServices.getSnapshotSupport();
+        final SnapshotSupport snapshotSupport = computeServices.getSnapshotSupport();
 
-            if( snapshotSupport != null ) {
-                for( Map.Entry<String, String> entry : testSnapshots.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            Snapshot snapshot = snapshotSupport.getSnapshot(entry.getValue());
+        if( snapshotSupport != null ) {
+            for( Map.Entry<String, String> entry : testSnapshots.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String snapshotId = entry.getValue();
+
+                    graph.add(ResourceKind.SNAPSHOT, snapshotId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Snapshot snapshot = snapshotSupport.getSnapshot(snapshotId);
 
                             if( snapshot != null ) {
-                                snapshotSupport.remove(entry.getValue());
-                                count++;
-                            }
-                            else {
-                                count++;
+                                snapshotSupport.remove(snapshotId);
                             }
-                        } catch( Throwable t ) {
-                            logger.warn("Failed to de-provision test snapshot " + entry.getValue() + " post-test: " + t.getMessage());
+                            return true;
                         }
-                    }
+                    });
                 }
             }
-            VolumeSupport volumeSupport = computeServices.getVolumeSupport();
+        }
 
-            if( volumeSupport != null ) {
-                for( Map.Entry<String, String> entry : testVolumes.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            Volume volume = volumeSupport.getVolume(entry.getValue());
+        final VolumeSupport volumeSupport = computeServices.getVolumeSupport();
 
-                            if( volume != null ) {
-                                volumeSupport.detach(entry.getValue(), true);
+        if( volumeSupport != null ) {
+            for( Map.Entry<String, String> entry : testVolumes.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String volumeId = entry.getValue();
+                    Callable<Boolean> task = new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Volume volume = volumeSupport.getVolume(volumeId);
+
+                            if( volume == null ) {
+                                return true;
                             }
-                        } catch( Throwable ignore ) {
-                            // IGNORE
+                            if( volume.getProviderVirtualMachineId() != null ) {
+                                try {
+                                    volumeSupport.detach(volumeId, true);
+                                }
+                                catch( Throwable ignore ) {
+                                    // may already be detaching along with its terminated VM
+                                }
+                                volume = StateWaiter.waitFor("Volume attached > detached", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 5L), volume, getVolumeFetcher(volumeSupport, volumeId), new StateWaiter.Condition<Volume>() {
+                                    @Override
+                                    public boolean isSatisfied(@Nullable Volume resource) {
+                                        return ( resource == null || resource.getProviderVirtualMachineId() == null );
+                                    }
+                                });
+                                if( volume == null ) {
+                                    return true;
+                                }
+                            }
+                            volumeSupport.remove(volumeId);
+                            return true;
                         }
+                    };
+
+                    try {
+                        Volume volume = volumeSupport.getVolume(volumeId);
+                        String vmId = ( volume == null ? null : volume.getProviderVirtualMachineId() );
+
+                        // a volume need only wait for the virtual machine to which it is attached, if any
+                        graph.add(ResourceKind.VOLUME, volumeId, task, vmId == null ? Collections.<String>emptyList() : Collections.singletonList(vmId));
+                    }
+                    catch( Throwable ignore ) {
+                        graph.add(ResourceKind.VOLUME, volumeId, task);
                     }
                 }
-                try {
-                    Thread.sleep(60000L);
-                } catch( InterruptedException ignore ) {
-                }
-                for( Map.Entry<String, String> entry : testVolumes.entrySet() ) {
-                    if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                        try {
-                            Volume volume = volumeSupport.getVolume(entry.getValue());
+            }
+        }
+    }
 
-                            if( volume != null ) {
-                                volumeSupport.remove(entry.getValue());
-                                count++;
-                            }
-                            else {
-                                count++;
-                            }
-                        } catch( Throwable t ) {
-                            logger.warn("Failed to de-provision test volume " + entry.getValue() + ": " + t.getMessage());
+    /**
+     * Takes over a compute resource this framework did not provision in this run, such as one leaked by an earlier
+     * run, so that it is removed with the other test resources.
+     * @param kind the kind of resource
+     * @param label the label under which the resource is registered
+     * @param id the ID of the resource
+     * @return true if the resource was adopted, false if compute resources do not track that kind of resource
+     */
+    public boolean adopt(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull String id) {
+        switch( kind ) {
+            case MACHINE_IMAGE: testMachineImages.put(label, id); return true;
+            case SNAPSHOT: testSnapshots.put(label, id); return true;
+            case VIRTUAL_MACHINE: testVMs.put(label, id); return true;
+            case VOLUME: testVolumes.put(label, id); return true;
+            default: return false;
+        }
+    }
+
+    /**
+     * Adds the lookup of every stateless compute fixture to the specified prefetcher.
+     * @param prefetcher the prefetcher to which the lookups are added
+     */
+    public void addPrefetch(@Nonnull Prefetcher prefetcher) {
+        prefetcher.add(ResourceKind.SNAPSHOT, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessSnapshot();
+            }
+        });
+    }
+
+    public int close() {
+        TeardownGraph graph = new TeardownGraph();
+
+        addTeardown(graph);
+        return graph.execute();
+    }
+
+    private @Nonnull Callable<Boolean> getVmTeardown(@Nonnull final VirtualMachineSupport vmSupport, @Nonnull final String vmId) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                // Sometimes VMs don't have enough time to start before they are terminated
+                // by tests, this causes stuck unterminated VMs. Let's try to take care of
+                // that:
+                VirtualMachine vm = vmSupport.getVirtualMachine(vmId);
+
+                if( vm != null && VmState.PENDING.equals(vm.getCurrentState()) ) {
+                    vm = StateWaiter.waitFor("VM PENDING > *", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 5L), vm, getVmFetcher(vmSupport, vmId), new StateWaiter.Condition<VirtualMachine>() {
+                        @Override
+                        public boolean isSatisfied(@Nullable VirtualMachine resource) {
+                            return ( resource == null || !VmState.PENDING.equals(resource.getCurrentState()) );
                         }
-                    }
+                    });
+                }
+                if( vm != null ) {
+                    vmSupport.terminate(vmId);
+                    // volumes, addresses and networks cannot be released until the VM is actually gone
+                    waitForTermination(vmSupport, vmId);
                 }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Terminates a batch of test virtual machines in parallel through a {@link TeardownGraph} and waits for them to
+     * be gone, releasing their labels so they are not torn down again when the tests complete.
+     * @param vmSupport the virtual machine support through which the virtual machines are terminated
+     * @param vmIds the virtual machines to terminate
+     * @return the number of virtual machines terminated
+     */
+    public int teardownVMs(@Nonnull VirtualMachineSupport vmSupport, @Nonnull Collection<String> vmIds) {
+        TeardownGraph graph = new TeardownGraph();
+
+        for( String vmId : vmIds ) {
+            graph.add(ResourceKind.VIRTUAL_MACHINE, vmId, getVmTeardown(vmSupport, vmId));
+        }
+        int count = graph.execute();
+
+        for( Map.Entry<String,String> entry : testVMs.entrySet() ) {
+            if( vmIds.contains(entry.getValue()) ) {
+                testVMs.remove(entry.getKey());
             }
         }
         return count;
     }
 
+    private void waitForTermination(@Nonnull VirtualMachineSupport vmSupport, @Nonnull String vmId) {
+        StateWaiter.waitFor("VM * > TERMINATED", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 10L), getVmFetcher(vmSupport, vmId), new StateWaiter.Condition<VirtualMachine>() {
+            @Override
+            public boolean isSatisfied(@Nullable VirtualMachine resource) {
+                return ( resource == null || VmState.TERMINATED.equals(resource.getCurrentState()) );
+            }
+        });
+    }
+
+    private @Nonnull StateWaiter.Fetcher<VirtualMachine> getVmFetcher(@Nonnull final VirtualMachineSupport support, @Nonnull String vmId) {
+        synchronized( this ) {
+            if( vmPoller == null ) {
+                vmPoller = new PollCoordinator<VirtualMachine>(ResourceKind.VIRTUAL_MACHINE, new PollCoordinator.Source<VirtualMachine>() {
+                    @Override
+                    public @Nullable VirtualMachine get(@Nonnull String id) throws CloudException, InternalException {
+                        return support.getVirtualMachine(id);
+                    }
+
+                    @Override
+                    public @Nullable String getId(@Nonnull VirtualMachine resource) {
+                        return resource.getProviderVirtualMachineId();
+                    }
+
+                    @Override
+                    public @Nonnull Iterable<VirtualMachine> list() throws CloudException, InternalException {
+                        return support.listVirtualMachines();
+                    }
+                });
+            }
+        }
+        return vmPoller.getFetcher(vmId);
+    }
+
+    private @Nonnull StateWaiter.Fetcher<Volume> getVolumeFetcher(@Nonnull final VolumeSupport support, @Nonnull String volumeId) {
+        synchronized( this ) {
+            if( volumePoller == null ) {
+                volumePoller = new PollCoordinator<Volume>(ResourceKind.VOLUME, new PollCoordinator.Source<Volume>() {
+                    @Override
+                    public @Nullable Volume get(@Nonnull String id) throws CloudException, InternalException {
+                        return support.getVolume(id);
+                    }
+
+                    @Override
+                    public @Nullable String getId(@Nonnull Volume resource) {
+                        return resource.getProviderVolumeId();
+                    }
+
+                    @Override
+                    public @Nonnull Iterable<Volume> list() throws CloudException, InternalException {
+                        return support.listVolumes();
+                    }
+                });
+            }
+        }
+        return volumePoller.getFetcher(volumeId);
+    }
+
     private @Nullable String findStatelessSnapshot() {
         ComputeServices computeServices = provider.getComputeServices();
 
@@ -327,7 +543,7 @@ public class ComputeResources {
         return testImagePlatform;
     }
 
-    public @Nullable String getTestImageId( @Nonnull String label, boolean provisionIfNull ) {
+    public @Nullable String getTestImageId( @Nonnull final String label, boolean provisionIfNull ) {
         String id = testMachineImages.get(label);
 
         if( id == null ) {
@@ -346,11 +562,16 @@ public class ComputeResources {
                 ComputeServices services = provider.getComputeServices();
 
                 if( services != null ) {
-                    MachineImageSupport support = services.getImageSupport();
+                    final MachineImageSupport support = services.getImageSupport();
 
                     if( support != null ) {
                         try {
-                            return provisionImage(support, label, "dsnimg", null);
+                            return testMachineImages.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                                @Override
+                                public @Nullable String provision() throws CloudException, InternalException {
+                                    return provisionImage(support, label, "dsnimg", null);
+                                }
+                            });
                         } catch( Throwable ignore ) {
                             return null;
                         }
@@ -361,7 +582,7 @@ public class ComputeResources {
         return id;
     }
 
-    public @Nullable String getTestSnapshotId( @Nonnull String label, boolean provisionIfNull ) {
+    public @Nullable String getTestSnapshotId( @Nonnull final String label, boolean provisionIfNull ) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testSnapshots.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -385,11 +606,16 @@ public class ComputeResources {
         ComputeServices services = provider.getComputeServices();
 
         if( services != null ) {
-            SnapshotSupport support = services.getSnapshotSupport();
+            final SnapshotSupport support = services.getSnapshotSupport();
 
             if( support != null ) {
                 try {
-                    return provisionSnapshot(support, label, "dsnsnap" + ( System.currentTimeMillis() % 10000 ), null);
+                    return testSnapshots.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                        @Override
+                        public @Nullable String provision() throws CloudException, InternalException {
+                            return provisionSnapshot(support, label, "dsnsnap" + ( System.currentTimeMillis() % 10000 ), null);
+                        }
+                    });
                 } catch( Throwable ignore ) {
                     return null;
                 }
@@ -402,10 +628,10 @@ public class ComputeResources {
         return getTestVmId(label, "dsnvm", desiredState, provisionIfNull, preferredDataCenterId);
     }
 
-    public @Nullable String getTestVmId( @Nonnull String label, @Nonnull String vmName, @Nullable VmState desiredState, boolean provisionIfNull, @Nullable String preferredDataCenterId ) {
+    public @Nullable String getTestVmId( @Nonnull final String label, @Nonnull final String vmName, @Nullable VmState desiredState, boolean provisionIfNull, @Nullable final String preferredDataCenterId ) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testVMs.entrySet() ) {
-                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
+                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) && !entry.getKey().startsWith(WarmPool.WARM) ) {
                     String id = entry.getValue();
 
                     if( id != null ) {
@@ -430,15 +656,22 @@ public class ComputeResources {
         ComputeServices services = provider.getComputeServices();
 
         if( services != null ) {
-            VirtualMachineSupport support = services.getVirtualMachineSupport();
+            final VirtualMachineSupport support = services.getVirtualMachineSupport();
 
             if( support != null ) {
                 try {
                     VirtualMachine vm = ( id == null ? null : support.getVirtualMachine(id) );
 
                     if( ( vm == null || VmState.TERMINATED.equals(vm.getCurrentState()) ) && provisionIfNull ) {
-                        id = provisionVM(support, label, "testvm-" + label, vmName, preferredDataCenterId);
-                        vm = support.getVirtualMachine(id);
+                        id = testVMs.reserve(label, id, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                String leased = leaseVm(label, vmName, preferredDataCenterId);
+
+                                return ( leased == null ? provisionVM(support, label, "testvm-" + label, vmName, preferredDataCenterId) : leased );
+                            }
+                        });
+                        vm = ( id == null ? null : support.getVirtualMachine(id) );
                     }
                     if( vm != null && desiredState != null ) {
                         setState(support, vm, desiredState);
@@ -458,7 +691,7 @@ public class ComputeResources {
         return null;
     }
 
-    public @Nullable String getTestVLANVmId(@Nonnull String label, @Nullable VmState desiredState, @Nullable String vlanId, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
+    public @Nullable String getTestVLANVmId(@Nonnull final String label, @Nullable VmState desiredState, @Nullable final String vlanId, boolean provisionIfNull, @Nullable final String preferredDataCenterId) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testVMs.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -493,80 +726,18 @@ public class ComputeResources {
         ComputeServices services = provider.getComputeServices();
 
         if( services != null ) {
-            VirtualMachineSupport support = services.getVirtualMachineSupport();
+            final VirtualMachineSupport support = services.getVirtualMachineSupport();
             if( support != null ) {
                 try {
                     VirtualMachine vm = (id == null ? null : support.getVirtualMachine(id));
                     if( (vm == null || VmState.TERMINATED.equals(vm.getCurrentState()) || vm.getProviderVlanId() == null || !vm.getProviderVlanId().equalsIgnoreCase(vlanId)) && provisionIfNull ) {
-                        String testImageId = getTestImageId(DaseinTestManager.STATELESS, false);
-                        if( testImageId == null ) {
-                            throw new CloudException("No test image exists for provisioning a virtual machine");
-                        }
-                        long now = System.currentTimeMillis();
-                        String name = "dasein-test-" + label + " " + now;
-                        String host = "dsnvm" + (now%10000);
-                        VMLaunchOptions vmOpts = VMLaunchOptions.getInstance(testVMProductId, testImageId, name, host, "Test VM for stateful integration tests for Dasein Cloud").withExtendedAnalytics();
-                        NetworkResources network = DaseinTestManager.getNetworkResources();
-                        if( vlanId != null ) {
-                            NetworkServices ns = provider.getNetworkServices();
-                            VLANSupport vs = ns.getVlanSupport();
-                            VLAN v = vs.getVlan(vlanId);
-                            Iterable<Subnet> subnets = vs.listSubnets(vlanId);
-                            if( subnets.iterator().hasNext() ) {
-                                Subnet sub = subnets.iterator().next();
-                                vmOpts.inSubnet( null, v.getProviderDataCenterId(), sub.getProviderVlanId(), sub.getProviderSubnetId());
-                            } else {
-                                Subnet sub = vs.createSubnet(SubnetCreateOptions.getInstance(vlanId, "192.168.50.0/24", "dsnsub", "dasein test create vm for vlan"));
-                                vmOpts.inSubnet( null, v.getProviderDataCenterId(), sub.getProviderVlanId(), sub.getProviderSubnetId());
-                            }
-                        } else {
-                            if( network != null ) {
-                                String networkId = network.getTestVLANId(DaseinTestManager.STATEFUL, true, preferredDataCenterId);
-
-                                if( networkId == null ) {
-                                    networkId = network.getTestVLANId(DaseinTestManager.STATELESS, false, preferredDataCenterId);
-                                }
-
-                                // wait for network to be ready
-                                try {
-                                    Thread.sleep(10000L);
-                                }
-                                catch( InterruptedException ignore ) {
-                                }
-
-                                if( networkId != null ) {
-
-                                    String subnetId = network.getTestSubnetId(DaseinTestManager.STATEFUL, true, networkId, preferredDataCenterId);
-
-                                    if( subnetId == null ) {
-                                        subnetId = network.getTestSubnetId(DaseinTestManager.STATELESS, true, networkId, preferredDataCenterId);
-                                    }
-                                    if( subnetId != null ) {
-
-                                        // wait for subnet to be ready
-                                        try { Thread.sleep(10000L); }
-                                        catch( InterruptedException ignore ) { }
-
-                                        @SuppressWarnings("ConstantConditions") Subnet subnet = provider.getNetworkServices().getVlanSupport().getSubnet(subnetId);
-
-                                        if( subnet != null ) {
-                                            String dcId = subnet.getProviderDataCenterId();
-
-                                            if( dcId == null ) {
-                                                for( DataCenter dc : provider.getDataCenterServices().listDataCenters(provider.getContext().getRegionId()) ) {
-                                                    if( (dc.isActive() && dc.isAvailable()) || dcId == null ) {
-                                                        dcId = dc.getProviderDataCenterId();
-                                                    }
-                                                }
-                                            }
-                                            vmOpts.inSubnet(null, dcId, vlanId, subnetId);
-                                        }
-                                    }
-                                }
+                        id = testVMs.reserve(label, id, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionVLANVm(support, label, vlanId, preferredDataCenterId);
                             }
-                        }
-                        id = provisionVM(support, label, vmOpts, preferredDataCenterId);
-                        vm = support.getVirtualMachine(id);
+                        });
+                        vm = ( id == null ? null : support.getVirtualMachine(id) );
                     }
                     if( vm != null && desiredState != null ) {
                         setState(support, vm, desiredState);
@@ -596,14 +767,101 @@ public class ComputeResources {
         return null;
     }
 
+    private @Nonnull String provisionVLANVm(@Nonnull VirtualMachineSupport support, @Nonnull String label, @Nullable String vlanId, @Nullable String preferredDataCenterId) throws CloudException, InternalException {
+        String testImageId = getTestImageId(DaseinTestManager.STATELESS, false);
+        if( testImageId == null ) {
+            throw new CloudException("No test image exists for provisioning a virtual machine");
+        }
+        long now = System.currentTimeMillis();
+        String name = "dasein-test-" + label + " " + now;
+        String host = "dsnvm" + (now%10000);
+        VMLaunchOptions vmOpts = VMLaunchOptions.getInstance(testVMProductId, testImageId, name, host, "Test VM for stateful integration tests for Dasein Cloud").withExtendedAnalytics();
+        NetworkResources network = DaseinTestManager.getNetworkResources();
+        if( vlanId != null ) {
+            NetworkServices ns = provider.getNetworkServices();
+            VLANSupport vs = ns.getVlanSupport();
+            VLAN v = vs.getVlan(vlanId);
+            Iterable<Subnet> subnets = vs.listSubnets(vlanId);
+            if( subnets.iterator().hasNext() ) {
+                Subnet sub = subnets.iterator().next();
+                vmOpts.inSubnet( null, v.getProviderDataCenterId(), sub.getProviderVlanId(), sub.getProviderSubnetId());
+            } else {
+                Subnet sub = vs.createSubnet(SubnetCreateOptions.getInstance(vlanId, "192.168.50.0/24", "dsnsub", "dasein test create vm for vlan"));
+                vmOpts.inSubnet( null, v.getProviderDataCenterId(), sub.getProviderVlanId(), sub.getProviderSubnetId());
+            }
+        } else {
+            if( network != null ) {
+                String networkId = network.getTestVLANId(DaseinTestManager.STATEFUL, true, preferredDataCenterId);
+
+                if( networkId == null ) {
+                    networkId = network.getTestVLANId(DaseinTestManager.STATELESS, false, preferredDataCenterId);
+                }
+
+                if( networkId != null ) {
+                    @SuppressWarnings("ConstantConditions") final VLANSupport vlanSupport = provider.getNetworkServices().getVlanSupport();
+                    final String readyVlanId = networkId;
+
+                    // wait for network to be ready
+                    StateWaiter.waitFor("VLAN * > AVAILABLE", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 5L), new StateWaiter.Fetcher<VLAN>() {
+                        @Override
+                        public @Nullable VLAN fetch() throws CloudException, InternalException {
+                            return vlanSupport.getVlan(readyVlanId);
+                        }
+                    }, new StateWaiter.Condition<VLAN>() {
+                        @Override
+                        public boolean isSatisfied(@Nullable VLAN resource) {
+                            return ( resource == null || VLANState.AVAILABLE.equals(resource.getCurrentState()) );
+                        }
+                    });
+
+                    String subnetId = network.getTestSubnetId(DaseinTestManager.STATEFUL, true, networkId, preferredDataCenterId);
+
+                    if( subnetId == null ) {
+                        subnetId = network.getTestSubnetId(DaseinTestManager.STATELESS, true, networkId, preferredDataCenterId);
+                    }
+                    if( subnetId != null ) {
+                        final String readySubnetId = subnetId;
+
+                        // wait for subnet to be ready
+                        Subnet subnet = StateWaiter.waitFor("Subnet * > AVAILABLE", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 5L), new StateWaiter.Fetcher<Subnet>() {
+                            @Override
+                            public @Nullable Subnet fetch() throws CloudException, InternalException {
+                                return vlanSupport.getSubnet(readySubnetId);
+                            }
+                        }, new StateWaiter.Condition<Subnet>() {
+                            @Override
+                            public boolean isSatisfied(@Nullable Subnet resource) {
+                                return ( resource == null || SubnetState.AVAILABLE.equals(resource.getCurrentState()) );
+                            }
+                        });
+
+                        if( subnet != null ) {
+                            String dcId = subnet.getProviderDataCenterId();
+
+                            if( dcId == null ) {
+                                for( DataCenter dc : provider.getDataCenterServices().listDataCenters(provider.getContext().getRegionId()) ) {
+                                    if( (dc.isActive() && dc.isAvailable()) || dcId == null ) {
+                                        dcId = dc.getProviderDataCenterId();
+                                    }
+                                }
+                            }
+                            vmOpts.inSubnet(null, dcId, vlanId, subnetId);
+                        }
+                    }
+                }
+            }
+        }
+        return provisionVM(support, label, vmOpts, preferredDataCenterId);
+    }
+
     public @Nullable String getTestVMProductId() {
         return testVMProductId;
     }
 
-    public @Nullable String getTestVolumeId( @Nonnull String label, boolean provisionIfNull, @Nullable VolumeFormat desiredFormat, @Nullable String preferredDataCenterId ) {
+    public @Nullable String getTestVolumeId( @Nonnull final String label, boolean provisionIfNull, @Nullable final VolumeFormat desiredFormat, @Nullable final String preferredDataCenterId ) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testVolumes.entrySet() ) {
-                if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
+                if( !entry.getKey().equals(DaseinTestManager.REMOVED) && !entry.getKey().startsWith(WarmPool.WARM) ) {
                     String id = entry.getValue();
 
                     if( id != null ) {
@@ -621,11 +879,18 @@ public class ComputeResources {
             ComputeServices services = provider.getComputeServices();
 
             if( services != null ) {
-                VolumeSupport support = services.getVolumeSupport();
+                final VolumeSupport support = services.getVolumeSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionVolume(support, label, "dsnvol" + ( System.currentTimeMillis() % 10000 ), desiredFormat, preferredDataCenterId);
+                        return testVolumes.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                String leased = leaseVolume(label, desiredFormat, preferredDataCenterId);
+
+                                return ( leased == null ? provisionVolume(support, label, "dsnvol" + ( System.currentTimeMillis() % 10000 ), desiredFormat, preferredDataCenterId) : leased );
+                            }
+                        });
                     } catch( Throwable ignore ) {
                         return null;
                     }
@@ -639,41 +904,202 @@ public class ComputeResources {
         return testVolumeProductId;
     }
 
-    private @Nullable VirtualMachineProduct getMinimalProductForImageId(@Nonnull String imageId) {
-        VirtualMachineProduct currentProduct = null;
-        if( provider.hasComputeServices() && provider.getComputeServices().hasVirtualMachineSupport() ) {
-            VirtualMachineSupport vmSupport = provider.getComputeServices().getVirtualMachineSupport();
-            try {
-                VirtualMachineProductFilterOptions options = VirtualMachineProductFilterOptions.getInstance().withDataCenterId(testDataCenterId);
-                Iterable<VirtualMachineProduct> products = vmSupport.listProducts(imageId, options);
-                for( VirtualMachineProduct product : products ) {
-                    if( !product.getStatus().equals(VirtualMachineProduct.Status.CURRENT) ) {
-                        continue;
-                    }
-                    if( currentProduct == null ) {
-                        currentProduct = product;
-                    }
-                    else if( currentProduct.getRamSize().intValue() > product.getRamSize().intValue() ) {
-                        if( product.getRamSize().intValue() > 1000 ) {
-                            currentProduct = product;
-                        }
+    private @Nullable String leaseVm(@Nonnull String label, @Nonnull String vmName, @Nullable String preferredDataCenterId) {
+        WarmPool pool = vmPool;
+
+        // warm VMs are launched with the default host name in the default data center
+        if( pool == null || !vmName.equals("dsnvm") || label.startsWith(WarmPool.WARM) ) {
+            return null;
+        }
+        if( preferredDataCenterId != null && !preferredDataCenterId.equals(vmPoolDataCenterId) ) {
+            return null;
+        }
+        return pool.lease(label);
+    }
+
+    private @Nullable String leaseVolume(@Nonnull String label, @Nullable VolumeFormat desiredFormat, @Nullable String preferredDataCenterId) {
+        WarmPool pool = volumePool;
+
+        // warm volumes are created in the default format in the default data center
+        if( pool == null || desiredFormat != null || label.startsWith(WarmPool.WARM) ) {
+            return null;
+        }
+        if( preferredDataCenterId != null && !preferredDataCenterId.equals(volumePoolDataCenterId) ) {
+            return null;
+        }
+        return pool.lease(label);
+    }
+
+    /**
+     * Starts provisioning the warm pools of virtual machines and volumes configured with
+     * {@link WarmPool#WARM_VMS} and {@link WarmPool#WARM_VOLUMES}. Stateful tests then lease from these pools
+     * before provisioning resources of their own. Must be called after {@link #init()}.
+     */
+    public void startWarmPools() {
+        ComputeServices computeServices = provider.getComputeServices();
+
+        if( computeServices == null ) {
+            return;
+        }
+        final VirtualMachineSupport vmSupport = computeServices.getVirtualMachineSupport();
+        int size = WarmPool.getSize(WarmPool.WARM_VMS);
+
+        if( vmSupport != null && size > 0 && getTestImageId(DaseinTestManager.STATELESS, false) != null ) {
+            final String dataCenterId = testDataCenterId;
+
+            vmPoolDataCenterId = dataCenterId;
+            vmPool = WarmPool.start(testVMs, size, new WarmPool.Provisioner() {
+                @Override
+                public @Nonnull String provision(@Nonnull String label) throws CloudException, InternalException {
+                    String id = provisionVM(vmSupport, label, "testvm-" + label, "dsnvm", dataCenterId);
+                    VirtualMachine vm = vmSupport.getVirtualMachine(id);
+
+                    // a leased VM should be ready to use, so wait out the launch here rather than in the test
+                    if( vm != null ) {
+                        setState(vmSupport, vm, VmState.RUNNING);
                     }
-                    else {
-                        if( currentProduct.getRamSize().intValue() < 1024 && product.getRamSize().intValue() < 2200 ) {
-                            currentProduct = product;
+                    return id;
+                }
+            });
+        }
+        final VolumeSupport volumeSupport = computeServices.getVolumeSupport();
+
+        size = WarmPool.getSize(WarmPool.WARM_VOLUMES);
+        if( volumeSupport != null && size > 0 ) {
+            final String dataCenterId = testDataCenterId;
+
+            volumePoolDataCenterId = dataCenterId;
+            volumePool = WarmPool.start(testVolumes, size, new WarmPool.Provisioner() {
+                @Override
+                public @Nonnull String provision(@Nonnull String label) throws CloudException, InternalException {
+                    String id = provisionVolume(volumeSupport, label, "dsnvol" + ( System.currentTimeMillis() % 10000 ), null, dataCenterId);
+
+                    StateWaiter.waitFor("Volume PENDING > *", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 10L), getVolumeFetcher(volumeSupport, id), new StateWaiter.Condition<Volume>() {
+                        @Override
+                        public boolean isSatisfied(@Nullable Volume resource) {
+                            return ( resource == null || !VolumeState.PENDING.equals(resource.getCurrentState()) );
                         }
-                        else if( currentProduct.getCpuCount() > product.getCpuCount() ) {
-                            if( ( currentProduct.getRamSize().intValue() * 2 ) > product.getRamSize().intValue() ) {
-                                currentProduct = product;
-                            }
+                    });
+                    return id;
+                }
+            });
+        }
+    }
+
+    /**
+     * Provides the index of the current products of the test data center for images of the specified architecture,
+     * listing them (with the specified image) the first time the architecture is seen. Candidate images of the
+     * same architecture share the index rather than each listing the products again.
+     * @param vmSupport the virtual machine support listing the products
+     * @param image an image of the architecture whose products are listed
+     * @return the product index
+     * @throws CloudException an error occurred with the cloud provider listing the products
+     * @throws InternalException an error occurred within Dasein Cloud listing the products
+     */
+    private @Nonnull ProductIndex<VirtualMachineProduct> getProductIndex(@Nonnull final VirtualMachineSupport vmSupport, @Nonnull final MachineImage image) throws CloudException, InternalException {
+        String key = image.getArchitecture() + "/" + testDataCenterId;
+        FutureTask<ProductIndex<VirtualMachineProduct>> task = productIndexes.get(key);
+
+        if( task == null ) {
+            FutureTask<ProductIndex<VirtualMachineProduct>> created = new FutureTask<ProductIndex<VirtualMachineProduct>>(new Callable<ProductIndex<VirtualMachineProduct>>() {
+                @Override
+                public ProductIndex<VirtualMachineProduct> call() throws Exception {
+                    VirtualMachineProductFilterOptions options = VirtualMachineProductFilterOptions.getInstance().withDataCenterId(testDataCenterId);
+                    ArrayList<VirtualMachineProduct> current = new ArrayList<VirtualMachineProduct>();
+
+                    for( VirtualMachineProduct product : vmSupport.listProducts(image.getProviderMachineImageId(), options) ) {
+                        if( VirtualMachineProduct.Status.CURRENT.equals(product.getStatus()) ) {
+                            current.add(product);
                         }
                     }
+                    return new ProductIndex<VirtualMachineProduct>(current, PRODUCT_ORDER);
                 }
+            });
+
+            task = productIndexes.putIfAbsent(key, created);
+            if( task == null ) {
+                task = created;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+        }
+        catch( ExecutionException e ) {
+            // do not remember failures
+            productIndexes.remove(key, task);
+            if( e.getCause() instanceof CloudException ) {
+                throw (CloudException)e.getCause();
+            }
+            throw new InternalException(e.getCause());
+        }
+    }
+
+    /**
+     * Finds the smallest current product with at least {@link #MINIMUM_RAM_IN_MB} of RAM, preferring fewer CPUs and
+     * then a lower price, or the largest product if none has that much RAM.
+     * @param image the image being provisioned
+     * @return the product with which to provision the image, or null if no product is available
+     */
+    private @Nullable VirtualMachineProduct getMinimalProduct(@Nonnull MachineImage image) {
+        if( provider.hasComputeServices() && provider.getComputeServices().hasVirtualMachineSupport() ) {
+            try {
+                ProductIndex<VirtualMachineProduct> index = getProductIndex(provider.getComputeServices().getVirtualMachineSupport(), image);
+                VirtualMachineProduct probe = new VirtualMachineProduct();
+
+                probe.setRamSize(new Storage<Megabyte>(MINIMUM_RAM_IN_MB, Storage.MEGABYTE));
+                probe.setCpuCount(0);
+                VirtualMachineProduct product = index.ceiling(probe);
+
+                return ( product == null ? index.last() : product );
             } catch( Throwable ignore ) {
                 // ignore
             }
         }
-        return currentProduct;
+        return null;
+    }
+
+    /**
+     * Finds the smallest current product for the test data center satisfying the specified minimums, sharing the
+     * product index built while discovering the test image.
+     * @param image the image to be provisioned
+     * @param minimumRamInMb the minimum RAM in megabytes
+     * @param minimumCpuCount the minimum number of CPUs
+     * @return the smallest product with at least the specified RAM (and, among those with the least RAM, the
+     * fewest CPUs satisfying the minimum), or null if no product qualifies
+     * @throws CloudException an error occurred with the cloud provider listing the products
+     * @throws InternalException an error occurred within Dasein Cloud listing the products
+     */
+    public @Nullable VirtualMachineProduct findProduct(@Nonnull MachineImage image, int minimumRamInMb, int minimumCpuCount) throws CloudException, InternalException {
+        ComputeServices services = provider.getComputeServices();
+        VirtualMachineSupport vmSupport = (services == null ? null : services.getVirtualMachineSupport());
+
+        if( vmSupport == null ) {
+            return null;
+        }
+        ProductIndex<VirtualMachineProduct> index = getProductIndex(vmSupport, image);
+        VirtualMachineProduct probe = new VirtualMachineProduct();
+
+        probe.setRamSize(new Storage<Megabyte>(minimumRamInMb, Storage.MEGABYTE));
+        probe.setCpuCount(minimumCpuCount);
+        VirtualMachineProduct product = index.ceiling(probe);
+
+        // products with more RAM may have fewer CPUs than the minimum; walk up until one satisfies both
+        while( product != null && product.getCpuCount() < minimumCpuCount ) {
+            probe.setRamSize(new Storage<Megabyte>(getRamInMb(product) + 1, Storage.MEGABYTE));
+            product = index.ceiling(probe);
+        }
+        return product;
+    }
+
+    static private int getRamInMb(@Nonnull VirtualMachineProduct product) {
+        Storage<?> ram = product.getRamSize();
+
+        return (ram == null ? 0 : ram.intValue());
     }
 
     public void init() {
@@ -684,9 +1110,126 @@ public class ComputeResources {
             return;
         }
 
-        testDataCenterId = DaseinTestManager.getDefaultDataCenterId(true);
         testImageId = DaseinTestManager.getSystemProperty("test.machineImage");
 
+        DiscoveryCache cache = DiscoveryCache.getInstance(provider, testDataCenterId, testImageId);
+
+        if( cache.isLoaded() ) {
+            if( restore(computeServices, cache) ) {
+                DaseinTestManager.out(logger, null, "Discovery Cache", "Valid (" + (cache.getAge()/CalendarWrapper.MINUTE) + " minutes old) " + cache);
+                return;
+            }
+            DaseinTestManager.out(logger, null, "Discovery Cache", "Invalid, rediscovering " + cache);
+            cache.clear();
+        }
+        discover(computeServices);
+        // a partial discovery is not worth remembering; the next run should try again
+        if( cache.isEnabled() && testMachineImages.get(DaseinTestManager.STATELESS) != null && testVMProductId != null ) {
+            cache.put(CACHED_DATA_CENTER, testDataCenterId);
+            cache.put(CACHED_MACHINE_IMAGE, testMachineImages.get(DaseinTestManager.STATELESS));
+            cache.put(CACHED_VM_PRODUCT, testVMProductId);
+            cache.put(CACHED_VOLUME_PRODUCT, testVolumeProductId);
+            cache.put(CACHED_VM, testVMs.get(DaseinTestManager.STATELESS));
+            cache.put(CACHED_VOLUME, testVolumes.get(DaseinTestManager.STATELESS));
+            cache.save();
+        }
+    }
+
+    /**
+     * Restores the fixtures discovered by an earlier run, re-checking each with a single lookup.
+     * @param computeServices the compute services of the cloud
+     * @param cache the cache of fixtures discovered by an earlier run
+     * @return true if every cached fixture is still usable, false if the fixtures must be rediscovered
+     */
+    private boolean restore(@Nonnull ComputeServices computeServices, @Nonnull DiscoveryCache cache) {
+        String dataCenterId = cache.get(CACHED_DATA_CENTER);
+        String imageId = cache.get(CACHED_MACHINE_IMAGE);
+        String productId = cache.get(CACHED_VM_PRODUCT);
+        String volumeProductId = cache.get(CACHED_VOLUME_PRODUCT);
+        String vmId = cache.get(CACHED_VM);
+        String volumeId = cache.get(CACHED_VOLUME);
+        Platform platform = null;
+
+        // an entry without the image and product it exists to remember is left over from a failed discovery
+        if( imageId == null || productId == null ) {
+            return false;
+        }
+        try {
+            if( dataCenterId != null ) {
+                //noinspection ConstantConditions
+                DataCenter dc = provider.getDataCenterServices().getDataCenter(dataCenterId);
+
+                if( dc == null || !dc.isActive() || !dc.isAvailable() ) {
+                    return false;
+                }
+            }
+            MachineImageSupport imageSupport = computeServices.getImageSupport();
+            MachineImage image = (imageSupport == null ? null : imageSupport.getImage(imageId));
+
+            if( image == null || !MachineImageState.ACTIVE.equals(image.getCurrentState()) ) {
+                return false;
+            }
+            platform = image.getPlatform();
+            VirtualMachineSupport vmSupport = computeServices.getVirtualMachineSupport();
+            VirtualMachineProduct vmProduct = (vmSupport == null ? null : vmSupport.getProduct(productId));
+
+            if( vmProduct == null || !VirtualMachineProduct.Status.CURRENT.equals(vmProduct.getStatus()) ) {
+                return false;
+            }
+            if( vmId != null ) {
+                VirtualMachine vm = (vmSupport == null ? null : vmSupport.getVirtualMachine(vmId));
+
+                if( vm == null || !VmState.RUNNING.equals(vm.getCurrentState()) ) {
+                    return false;
+                }
+            }
+            VolumeSupport volumeSupport = computeServices.getVolumeSupport();
+
+            if( volumeId != null ) {
+                Volume volume = (volumeSupport == null ? null : volumeSupport.getVolume(volumeId));
+
+                if( volume == null || VolumeState.DELETED.equals(volume.getCurrentState()) ) {
+                    return false;
+                }
+            }
+            if( volumeProductId != null ) {
+                boolean found = false;
+
+                // volume products cannot be looked up individually, but the list is short
+                if( volumeSupport != null ) {
+                    for( VolumeProduct product : volumeSupport.listVolumeProducts() ) {
+                        if( volumeProductId.equals(product.getProviderProductId()) ) {
+                            found = true;
+                            break;
+                        }
+                    }
+                }
+                if( !found ) {
+                    return false;
+                }
+            }
+        }
+        catch( Throwable ignore ) {
+            return false;
+        }
+        testDataCenterId = dataCenterId;
+        testImagePlatform = platform;
+        testVMProductId = productId;
+        testVolumeProductId = volumeProductId;
+        testMachineImages.put(DaseinTestManager.STATELESS, imageId);
+        if( vmId != null ) {
+            testVMs.put(DaseinTestManager.STATELESS, vmId);
+        }
+        if( volumeId != null ) {
+            testVolumes.put(DaseinTestManager.STATELESS, volumeId);
+        }
+        return true;
+    }
+
+    private void discover(@Nonnull ComputeServices computeServices) {
+        // not DaseinTestManager.getDefaultDataCenterId(), which would initialize these resources all over again
+        testDataCenterId = getTestDataCenterId(true);
+
         VirtualMachineProduct currentProduct = null;
 
         MachineImageSupport imageSupport = computeServices.getImageSupport();
@@ -695,9 +1238,11 @@ public class ComputeResources {
             // let's make sure we find the test image (if required via "test.machineImage" env parameter)
             if( testImageId != null ) {
                 try {
-                    currentProduct = getMinimalProductForImageId(testImageId);
-
                     MachineImage image = imageSupport.getImage(testImageId);
+
+                    if( image != null ) {
+                        currentProduct = getMinimalProduct(image);
+                    }
                     if (image != null && MachineImageState.ACTIVE.equals(image.getCurrentState())) {
                         testImagePlatform = image.getPlatform(); // need this for provisioning requirements
                         testMachineImages.put(DaseinTestManager.STATELESS, testImageId);
@@ -725,63 +1270,24 @@ public class ComputeResources {
                 // ignore
             }
 
-            final Platform[] searchPlatforms = new Platform[]{Platform.UBUNTU, Platform.WINDOWS, Platform.COREOS, Platform.CENT_OS, Platform.RHEL};
-            // test product is still not found, let's find a test image in our private images
+            // test product is still not found, let's find a test image in our private images and then in public images
             if( testVMProductId == null ) {
-                for( Platform platform : searchPlatforms ) {
-                    ImageFilterOptions options = ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(platform);
-
-                    try {
-                        for (MachineImage image : imageSupport.listImages(options)) {
-                            if (MachineImageState.ACTIVE.equals(image.getCurrentState()) && "".equals(image.getSoftware())) {
-                                currentProduct = getMinimalProductForImageId(image.getProviderMachineImageId());
-                                if( currentProduct != null ) {
-                                    testVMProductId = currentProduct.getProviderProductId();
-                                    testMachineImages.put(DaseinTestManager.STATELESS, image.getProviderMachineImageId());
-                                    testImagePlatform = image.getPlatform();
-                                    if (!volumeBased || image.getType().equals(MachineImageType.VOLUME)) {
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Throwable ignore) {
-                        // ignore
-                    }
-                    if (testVMProductId != null) {
-                        break;
+                final Platform[] searchPlatforms = new Platform[]{Platform.UBUNTU, Platform.WINDOWS, Platform.COREOS, Platform.CENT_OS, Platform.RHEL};
+                ImageDiscovery discovery = new ImageDiscovery(imageSupport, searchPlatforms, volumeBased, new ImageDiscovery.ProductLookup() {
+                    @Override
+                    public VirtualMachineProduct lookup(@Nonnull MachineImage image) {
+                        return getMinimalProduct(image);
                     }
-                }
-            }
+                });
+                ImageDiscovery.Match match = discovery.discover();
 
-            // test product is still not found, let's find a test image in public images
-            if( testVMProductId == null ) {
-                for( Platform platform : searchPlatforms ) {
-                    ImageFilterOptions options = ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(platform);
-
-                    try {
-                        for (MachineImage image : imageSupport.searchPublicImages(options)) {
-                            if (MachineImageState.ACTIVE.equals(image.getCurrentState()) && "".equals(image.getSoftware())) {
-                                currentProduct = getMinimalProductForImageId(image.getProviderMachineImageId());
-                                if( currentProduct != null ) {
-                                    testVMProductId = currentProduct.getProviderProductId();
-                                    testMachineImages.put(DaseinTestManager.STATELESS, image.getProviderMachineImageId());
-                                    testImagePlatform = image.getPlatform();
-                                    if (!volumeBased || image.getType().equals(MachineImageType.VOLUME)) {
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Throwable ignore) {
-                        // ignore
-                    }
-                    if (testVMProductId != null) {
-                        break;
-                    }
+                if( match != null ) {
+                    testVMProductId = match.getProduct().getProviderProductId();
+                    testMachineImages.put(DaseinTestManager.STATELESS, match.getImage().getProviderMachineImageId());
+                    testImagePlatform = match.getImage().getPlatform();
                 }
+                DaseinTestManager.out(logger, null, "Image Discovery", discovery.getMillis() + " ms (" + discovery.getSearches() + " searches, " + discovery.getLookups() + " product lookups)");
             }
-
         }
         testVolumeProductId = findTestVolumeProductId();
 
@@ -906,12 +1412,7 @@ public class ComputeResources {
 
             String id = ImageCreateOptions.getInstance(vm, namePrefix + ( System.currentTimeMillis() % 10000 ), "Test machine image with label " + label).build(provider);
 
-            synchronized ( testMachineImages ) {
-                while( testMachineImages.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testMachineImages.put(label, id);
-            }
+            testMachineImages.register(label, id);
             return id;
         }
         else if( !support.getCapabilities().identifyLocalBundlingRequirement().equals(Requirement.REQUIRED) ) {
@@ -921,12 +1422,7 @@ public class ComputeResources {
             if( format != null ) {
                 String id = support.bundleVirtualMachine(vmId, format, "dsnimg" + ( System.currentTimeMillis() % 100000 ), "dsnimg");
 
-                synchronized ( testMachineImages ) {
-                    while( testMachineImages.containsKey(label) ) {
-                        label = label + random.nextInt(9);
-                    }
-                    testMachineImages.put(label, id);
-                }
+                testMachineImages.register(label, id);
                 return id;
             }
         }
@@ -948,21 +1444,12 @@ public class ComputeResources {
             Volume volume = vs.getVolume(volumeId);
 
             if( volume != null ) {
-                long timeout = System.currentTimeMillis() + ( CalendarWrapper.MINUTE * 20L );
-
-                while( timeout > System.currentTimeMillis() ) {
-                    try {
-                        Thread.sleep(15000L);
-                    } catch( InterruptedException ignore ) {
+                volume = StateWaiter.waitFor("Volume " + volume.getCurrentState() + " > AVAILABLE", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 20L), volume, getVolumeFetcher(vs, volumeId), new StateWaiter.Condition<Volume>() {
+                    @Override
+                    public boolean isSatisfied(@Nullable Volume resource) {
+                        return ( resource == null || resource.getCurrentState().equals(VolumeState.AVAILABLE) || resource.getCurrentState().equals(VolumeState.DELETED) );
                     }
-                    try {
-                        volume = vs.getVolume(volumeId);
-                    } catch( Throwable ignore ) {
-                    }
-                    if( volume == null || volume.getCurrentState().equals(VolumeState.AVAILABLE) || volume.getCurrentState().equals(VolumeState.DELETED) ) {
-                        break;
-                    }
-                }
+                });
             }
             if( volume != null && volume.getProviderVirtualMachineId() == null && support.getCapabilities().identifyAttachmentRequirement().equals(Requirement.REQUIRED) ) {
                 String vmId = getTestVmId(DaseinTestManager.STATEFUL, VmState.RUNNING, true, volume.getProviderDataCenterId());
@@ -989,25 +1476,25 @@ public class ComputeResources {
         if( id == null ) {
             throw new CloudException("Unable to create a snapshot");
         }
-        synchronized ( testSnapshots ) {
-            while( testSnapshots.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testSnapshots.put(label, id);
-        }
+        testSnapshots.register(label, id);
         return id;
 
     }
 
     public @Nonnull Iterable<String> provisionManyVMs( @Nonnull VirtualMachineSupport support, @Nonnull String label, @Nonnull VMLaunchOptions options, @Nullable String preferredDataCenter, int count ) throws CloudException, InternalException {
+        return provisionManyVMs(support, label, options, preferredDataCenter, count, null);
+    }
+
+    public @Nonnull Iterable<String> provisionManyVMs( @Nonnull VirtualMachineSupport support, @Nonnull String label, @Nonnull VMLaunchOptions options, @Nullable String preferredDataCenter, int count, @Nullable LaunchListener listener ) throws CloudException, InternalException {
+        VirtualMachineCapabilities capabilities = CapabilitySnapshot.getInstance(provider).memoize(support.getCapabilities(), VirtualMachineCapabilities.class);
 
         if( preferredDataCenter != null ) {
             options.inDataCenter(preferredDataCenter);
         }
-        if( options.getBootstrapUser() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyPasswordRequirement(testImagePlatform)) ) {
+        if( options.getBootstrapUser() == null && Requirement.REQUIRED.equals(capabilities.identifyPasswordRequirement(testImagePlatform)) ) {
             options.withBootstrapUser("dasein", "x" + random.nextInt(100000) + System.currentTimeMillis());
         }
-        if( options.getBootstrapKey() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyShellKeyRequirement(testImagePlatform)) ) {
+        if( options.getBootstrapKey() == null && Requirement.REQUIRED.equals(capabilities.identifyShellKeyRequirement(testImagePlatform)) ) {
             IdentityResources identity = DaseinTestManager.getIdentityResources();
 
             if( identity != null ) {
@@ -1018,7 +1505,7 @@ public class ComputeResources {
                 }
             }
         }
-        if( options.getVlanId() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyVlanRequirement()) ) {
+        if( options.getVlanId() == null && Requirement.REQUIRED.equals(capabilities.identifyVlanRequirement()) ) {
             NetworkResources network = DaseinTestManager.getNetworkResources();
 
             if( network != null ) {
@@ -1071,7 +1558,7 @@ public class ComputeResources {
                 }
             }
         }
-        if( options.getStaticIpIds().length < 1 && Requirement.REQUIRED.equals(support.getCapabilities().identifyStaticIPRequirement()) ) {
+        if( options.getStaticIpIds().length < 1 && Requirement.REQUIRED.equals(capabilities.identifyStaticIPRequirement()) ) {
             NetworkResources network = DaseinTestManager.getNetworkResources();
 
             if( network != null ) {
@@ -1088,34 +1575,36 @@ public class ComputeResources {
                 }
             }
         }
-        if( options.getRootVolumeProductId() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyRootVolumeRequirement()) && testVolumeProductId != null ) {
+        if( options.getRootVolumeProductId() == null && Requirement.REQUIRED.equals(capabilities.identifyRootVolumeRequirement()) && testVolumeProductId != null ) {
             options.withRootVolumeProduct(testVolumeProductId);
         }
         options.withMetaData("dsntestcase", "true");
 
+        ArrayList<String> ids = new ArrayList<String>();
 
-        Iterable<String> ids = options.buildMany(provider, count);
-
-        for( String id : ids ) {
-            synchronized ( testVMs ) {
-                while( testVMs.containsKey(label) ) {
-                    label = label + random.nextInt(9);
+        // each ID is registered as the launch yields it, so those yielded before a failure are still torn down
+        for( String id : options.buildMany(provider, count) ) {
+            if( id != null ) {
+                testVMs.register(label, id);
+                ids.add(id);
+                if( listener != null ) {
+                    listener.launched(id);
                 }
-                testVMs.put(label, id);
             }
         }
         return ids;
     }
 
     public @Nonnull String provisionVM( @Nonnull VirtualMachineSupport support, @Nonnull String label, @Nonnull VMLaunchOptions options, @Nullable String preferredDataCenter ) throws CloudException, InternalException {
+        VirtualMachineCapabilities capabilities = CapabilitySnapshot.getInstance(provider).memoize(support.getCapabilities(), VirtualMachineCapabilities.class);
 
         if( preferredDataCenter != null ) {
             options.inDataCenter(preferredDataCenter);
         }
-        if( options.getBootstrapUser() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyPasswordRequirement(testImagePlatform)) ) {
+        if( options.getBootstrapUser() == null && Requirement.REQUIRED.equals(capabilities.identifyPasswordRequirement(testImagePlatform)) ) {
             options.withBootstrapUser("dasein", "x" + random.nextInt(100000) + System.currentTimeMillis());
         }
-        if( options.getBootstrapKey() == null && !Requirement.NONE.equals(support.getCapabilities().identifyShellKeyRequirement(testImagePlatform)) ) {
+        if( options.getBootstrapKey() == null && !Requirement.NONE.equals(capabilities.identifyShellKeyRequirement(testImagePlatform)) ) {
             IdentityResources identity = DaseinTestManager.getIdentityResources();
 
             if( identity != null ) {
@@ -1126,11 +1615,14 @@ public class ComputeResources {
                 }
             }
         }
-        if( options.getVlanId() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyVlanRequirement()) ) {
+        if( options.getVlanId() == null && Requirement.REQUIRED.equals(capabilities.identifyVlanRequirement()) ) {
             NetworkResources network = DaseinTestManager.getNetworkResources();
 
             if( network != null ) {
-                String networkId = network.getTestVLANId(label, true, preferredDataCenter);
+                // warm VMs are leased by tests that would otherwise have provisioned them in the shared stateful
+                // network, so they go there too rather than into a network of their own
+                String networkLabel = ( label.startsWith(WarmPool.WARM) ? DaseinTestManager.STATEFUL : label );
+                String networkId = network.getTestVLANId(networkLabel, true, preferredDataCenter);
 
                 if( networkId == null ) {
                     networkId = network.getTestVLANId(DaseinTestManager.STATELESS, false, preferredDataCenter);
@@ -1181,7 +1673,7 @@ public class ComputeResources {
                 }
             }
         }
-        if( options.getStaticIpIds().length < 1 && Requirement.REQUIRED.equals(support.getCapabilities().identifyStaticIPRequirement()) ) {
+        if( options.getStaticIpIds().length < 1 && Requirement.REQUIRED.equals(capabilities.identifyStaticIPRequirement()) ) {
             NetworkResources network = DaseinTestManager.getNetworkResources();
 
             if( network != null ) {
@@ -1198,18 +1690,13 @@ public class ComputeResources {
                 }
             }
         }
-        if( options.getRootVolumeProductId() == null && Requirement.REQUIRED.equals(support.getCapabilities().identifyRootVolumeRequirement()) && testVolumeProductId != null ) {
+        if( options.getRootVolumeProductId() == null && Requirement.REQUIRED.equals(capabilities.identifyRootVolumeRequirement()) && testVolumeProductId != null ) {
             options.withRootVolumeProduct(testVolumeProductId);
         }
         options.withMetaData("dsntestcase", "true");
         String id = options.build(provider);
 
-        synchronized ( testVMs ) {
-            while( testVMs.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testVMs.put(label, id);
-        }
+        testVMs.register(label, id);
         return id;
     }
 
@@ -1242,6 +1729,10 @@ public class ComputeResources {
     }
 
     public @Nonnull Iterable<String> provisionManyVMs( @Nonnull VirtualMachineSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nonnull String hostPrefix, @Nullable String preferredDataCenter, int count ) throws CloudException, InternalException {
+        return provisionManyVMs(support, label, namePrefix, hostPrefix, preferredDataCenter, count, null);
+    }
+
+    public @Nonnull Iterable<String> provisionManyVMs( @Nonnull VirtualMachineSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nonnull String hostPrefix, @Nullable String preferredDataCenter, int count, @Nullable LaunchListener listener ) throws CloudException, InternalException {
         String testImageId = getTestImageId(DaseinTestManager.STATELESS, false);
         if( testImageId == null ) {
             throw new CloudException("No test image exists for provisioning a virtual machine");
@@ -1250,7 +1741,7 @@ public class ComputeResources {
         String name = namePrefix + "-" + now;
         String host = hostPrefix + ( now % 10000 );
 
-        return provisionManyVMs(support, label, VMLaunchOptions.getInstance(testVMProductId, testImageId, name, host, "Test VM for stateful integration tests for Dasein Cloud").withExtendedAnalytics(), preferredDataCenter, count);
+        return provisionManyVMs(support, label, VMLaunchOptions.getInstance(testVMProductId, testImageId, name, host, "Test VM for stateful integration tests for Dasein Cloud").withExtendedAnalytics(), preferredDataCenter, count, listener);
     }
 
     public @Nonnull String provisionVolume( @Nonnull VolumeSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable VolumeFormat desiredFormat, @Nullable String preferredDataCenterId ) throws CloudException, InternalException {
@@ -1347,17 +1838,12 @@ public class ComputeResources {
         if( volume != null && testDataCenterId == null ) {
             testDataCenterId = volume.getProviderDataCenterId();
         }
-        synchronized ( testVolumes ) {
-            while( testVolumes.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testVolumes.put(label, id);
-        }
+        testVolumes.register(label, id);
         return id;
 
     }
 
-    private boolean setState( @Nonnull VirtualMachineSupport support, @Nonnull VirtualMachine vm, @Nonnull VmState state ) {
+    private boolean setState( @Nonnull VirtualMachineSupport support, @Nonnull VirtualMachine vm, final @Nonnull VmState state ) {
         VmState currentState = vm.getCurrentState();
 
         if( state.equals(currentState) ) {
@@ -1367,30 +1853,23 @@ public class ComputeResources {
             return false;
         }
         String id = vm.getProviderVirtualMachineId();
+        VirtualMachine v = StateWaiter.waitFor("VM " + currentState + " > *", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 20L), vm, getVmFetcher(support, id), new StateWaiter.Condition<VirtualMachine>() {
+            @Override
+            public boolean isSatisfied(@Nullable VirtualMachine resource) {
+                if( resource == null ) {
+                    return true;
+                }
+                VmState s = resource.getCurrentState();
 
-        long timeout = System.currentTimeMillis() + ( CalendarWrapper.MINUTE * 20L );
-
-
-        while( timeout > System.currentTimeMillis() ) {
-            if( !currentState.equals(VmState.PENDING) && !currentState.equals(VmState.PAUSING) && !currentState.equals(VmState.REBOOTING) && !currentState.equals(VmState.STOPPING) && !currentState.equals(VmState.SUSPENDING) ) {
-                break;
+                return ( !s.equals(VmState.PENDING) && !s.equals(VmState.PAUSING) && !s.equals(VmState.REBOOTING) && !s.equals(VmState.STOPPING) && !s.equals(VmState.SUSPENDING) );
             }
-            try {
-                Thread.sleep(15000L);
-            } catch( InterruptedException ignore ) {
-            }
-            try {
-                VirtualMachine v = support.getVirtualMachine(id);
+        });
 
-                if( v == null ) {
-                    return state.equals(VmState.TERMINATED);
-                }
-                vm = v;
-                currentState = vm.getCurrentState();
-            } catch( Throwable ignore ) {
-                // ignore
-            }
+        if( v == null ) {
+            return false;
         }
+        vm = v;
+        currentState = vm.getCurrentState();
         try {
             if( state.equals(VmState.RUNNING) ) {
                 if( currentState.equals(VmState.PAUSED) ) {
@@ -1430,29 +1909,12 @@ public class ComputeResources {
         } catch( Throwable ignore ) {
             return false;
         }
-        timeout = System.currentTimeMillis() + ( CalendarWrapper.MINUTE * 20L );
-
-
-        while( timeout > System.currentTimeMillis() ) {
-            if( state.equals(currentState) ) {
-                return true;
-            }
-            try {
-                Thread.sleep(15000L);
-            } catch( InterruptedException ignore ) {
+        v = StateWaiter.waitFor("VM " + currentState + " > " + state, StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE * 20L), vm, getVmFetcher(support, id), new StateWaiter.Condition<VirtualMachine>() {
+            @Override
+            public boolean isSatisfied(@Nullable VirtualMachine resource) {
+                return ( resource == null || state.equals(resource.getCurrentState()) );
             }
-            try {
-                VirtualMachine v = support.getVirtualMachine(id);
-
-                if( v == null ) {
-                    return state.equals(VmState.TERMINATED);
-                }
-                vm = v;
-                currentState = vm.getCurrentState();
-            } catch( Throwable ignore ) {
-                // ignore
-            }
-        }
-        return false;
+        });
+        return ( v != null && state.equals(v.getCurrentState()) );
     }
 }
@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test.compute;
 
+import org.dasein.cloud.test.DaseinSuite;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.dasein.cloud.test.ci.StatelessTopologyTests;
 import org.junit.AfterClass;
@@ -32,7 +33,7 @@ import org.junit.runners.Suite;
  *
  * @author George Reese
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({
         StatefulVMTests.class,
         StatefulImageTests.class,
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.compute;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.test.DaseinTestManager;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Scans an image catalog (typically the result of a public image search) in a single pass as the images arrive,
+ * keeping only aggregates: counts by platform, architecture, type and state plus a small random sample of images.
+ * Images are handed to an optional {@link Check} as they are read and are not retained, so the scan runs in
+ * bounded memory however large the catalog is. The scan measures the time to the first image, the throughput in
+ * images per second and the peak growth of the used heap while it ran, which make pagination and parsing
+ * regressions in providers visible. Time spent in the check, which may itself call the cloud, is measured apart
+ * and left out of the scan time and throughput.
+ * <pre>
+ *     ImageCatalogScan scan = new ImageCatalogScan(5);
+ *
+ *     scan.scan(support.searchPublicImages(options), check);
+ *     scan.report(tm, "Public Images");
+ * </pre>
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class ImageCatalogScan {
+    /**
+     * Checks images as the scan reads them.
+     */
+    public interface Check {
+        /**
+         * @param image the image just read
+         * @param index the zero-based position of the image in the catalog
+         * @throws CloudException an error occurred with the cloud provider checking the image
+         * @throws InternalException an error occurred within Dasein Cloud checking the image
+         */
+        public void check(@Nonnull MachineImage image, @Nonnegative int index) throws CloudException, InternalException;
+    }
+
+    // heap usage is sampled this often rather than per image to keep the scan cheap
+    static private final int HEAP_SAMPLE_INTERVAL = 500;
+
+    static private final Random random = new Random();
+
+    private final TreeMap<String,Integer> architectures = new TreeMap<String, Integer>();
+    private       long                    checkNanos;
+    private       int                     count;
+    private       long                    elapsedMillis  = -1L;
+    private       long                    firstMillis    = -1L;
+    private       long                    peakHeapGrowth;
+    private final TreeMap<String,Integer> platforms      = new TreeMap<String, Integer>();
+    private final ArrayList<MachineImage> samples;
+    private final int                     sampleSize;
+    private final TreeMap<String,Integer> states         = new TreeMap<String, Integer>();
+    private final TreeMap<String,Integer> types          = new TreeMap<String, Integer>();
+
+    /**
+     * @param sampleSize the number of images kept as a uniform random sample of the catalog
+     */
+    public ImageCatalogScan(@Nonnegative int sampleSize) {
+        this.sampleSize = sampleSize;
+        this.samples = new ArrayList<MachineImage>(sampleSize);
+    }
+
+    /**
+     * Reads the catalog once, aggregating and checking each image as it arrives.
+     * @param images the catalog, which should be lazily populated for memory to remain bounded
+     * @param check the check applied to each image, if any
+     * @return the number of images read
+     * @throws CloudException an error occurred with the cloud provider reading the catalog or checking an image
+     * @throws InternalException an error occurred within Dasein Cloud reading the catalog or checking an image
+     */
+    public int scan(@Nonnull Iterable<MachineImage> images, @Nullable Check check) throws CloudException, InternalException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        long start = System.currentTimeMillis();
+
+        for( MachineImage image : images ) {
+            if( firstMillis < 0L ) {
+                firstMillis = System.currentTimeMillis() - start;
+            }
+            increment(platforms, image.getPlatform());
+            increment(architectures, image.getArchitecture());
+            increment(types, image.getType());
+            increment(states, image.getCurrentState());
+            // reservoir sampling keeps every image equally likely to be among the samples
+            if( samples.size() < sampleSize ) {
+                samples.add(image);
+            }
+            else if( sampleSize > 0 ) {
+                int slot = random.nextInt(count + 1);
+
+                if( slot < sampleSize ) {
+                    samples.set(slot, image);
+                }
+            }
+            if( check != null ) {
+                long checkStart = System.nanoTime();
+
+                try {
+                    check.check(image, count);
+                }
+                finally {
+                    checkNanos += System.nanoTime() - checkStart;
+                }
+            }
+            count++;
+            if( count % HEAP_SAMPLE_INTERVAL == 0 ) {
+                peakHeapGrowth = Math.max(peakHeapGrowth, memory.getHeapMemoryUsage().getUsed() - baseline);
+            }
+        }
+        peakHeapGrowth = Math.max(peakHeapGrowth, memory.getHeapMemoryUsage().getUsed() - baseline);
+        elapsedMillis = Math.max(0L, System.currentTimeMillis() - start - getCheckMillis());
+        return count;
+    }
+
+    static private void increment(@Nonnull Map<String,Integer> counts, @Nullable Object key) {
+        String k = String.valueOf(key);
+        Integer c = counts.get(k);
+
+        counts.put(k, c == null ? 1 : c + 1);
+    }
+
+    /**
+     * @return the total time spent in the check in milliseconds
+     */
+    public long getCheckMillis() {
+        return checkNanos/1000000L;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the image counts by platform name
+     */
+    public @Nonnull Map<String,Integer> getPlatforms() {
+        return platforms;
+    }
+
+    /**
+     * @return a uniform random sample of the images read
+     */
+    public @Nonnull List<MachineImage> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the images read per second, 0 if nothing was read
+     */
+    public float getThroughput() {
+        if( count < 1 ) {
+            return 0f;
+        }
+        return (count * 1000f)/Math.max(1L, elapsedMillis);
+    }
+
+    /**
+     * Writes the aggregates, samples and measurements of the scan to the test log.
+     * @param tm the test manager of the test running the scan
+     * @param name the name of the catalog scanned
+     */
+    public void report(@Nonnull DaseinTestManager tm, @Nonnull String name) {
+        tm.out("Total " + name + " Count", count);
+        tm.out(name + " by Platform", platforms);
+        tm.out(name + " by Architecture", architectures);
+        tm.out(name + " by Type", types);
+        tm.out(name + " by State", states);
+        for( MachineImage image : samples ) {
+            tm.out(name + " Sample", image);
+        }
+        tm.out(name + " Time to First", firstMillis < 0L ? "-" : firstMillis + "ms");
+        tm.out(name + " Scan Time", elapsedMillis + "ms");
+        tm.out(name + " Check Time", getCheckMillis() + "ms");
+        tm.out(name + " Throughput", getThroughput() + " images/s");
+        // the used heap also includes garbage not yet collected, so this is an upper bound on what was retained
+        tm.out(name + " Peak Heap Growth", (Math.max(0L, peakHeapGrowth)/1024L) + "KB");
+    }
+}
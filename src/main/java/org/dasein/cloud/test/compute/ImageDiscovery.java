@@ -0,0 +1,433 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.compute;
+
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.ImageFilterOptions;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageSupport;
+import org.dasein.cloud.compute.MachineImageType;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.cloud.compute.VirtualMachineProduct;
+import org.dasein.cloud.test.DaseinTestManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent search for an image and product with which to provision test virtual machines. Private images are
+ * preferred to public images and, within each, platforms are preferred in the order given. All image searches
+ * start at once, each on a thread of its own, and stream their candidates as they read them. Product lookups run
+ * on a separate pool, so they start while the searches are still reading, and are queued by preference, so the
+ * most preferred candidates are always checked first; each search has only a few lookups in flight at a time.
+ * The match chosen is the one a serial search would choose, but each candidate is checked as soon as its search
+ * yields it rather than after the search has read the whole catalog. As soon as the most preferred acceptable
+ * candidate is known, all outstanding searches and lookups are cancelled. The number of product lookup threads
+ * is set with the {@link System} property dasein.discovery.threads (default 8).
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+class ImageDiscovery {
+    static public final String DISCOVERY_THREADS = "dasein.discovery.threads";
+
+    static private final int DEFAULT_THREADS = 8;
+
+    static private final int LOOKUPS_PER_GROUP = 4;
+
+    // marks the end of the candidates of a group
+    static private final Candidate END = new Candidate(null, null);
+
+    /**
+     * Finds the product with which an image is best provisioned for testing.
+     */
+    interface ProductLookup {
+        @Nullable VirtualMachineProduct lookup(@Nonnull MachineImage image);
+    }
+
+    /**
+     * An image and the product with which to provision it.
+     */
+    static class Match {
+        private final MachineImage          image;
+        private final VirtualMachineProduct product;
+
+        Match(@Nonnull MachineImage image, @Nonnull VirtualMachineProduct product) {
+            this.image = image;
+            this.product = product;
+        }
+
+        @Nonnull MachineImage getImage() {
+            return image;
+        }
+
+        @Nonnull VirtualMachineProduct getProduct() {
+            return product;
+        }
+    }
+
+    static private int getThreadCount() {
+        String prop = DaseinTestManager.getSystemProperty(DISCOVERY_THREADS);
+
+        if( prop != null ) {
+            try {
+                int count = Integer.parseInt(prop.trim());
+
+                if( count > 0 ) {
+                    return count;
+                }
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return DEFAULT_THREADS;
+    }
+
+    private final MachineImageSupport support;
+    private final Platform[]          platforms;
+    private final ProductLookup       productLookup;
+    private final boolean             volumeBased;
+
+    private final ConcurrentHashMap<String,RankedTask<VirtualMachineProduct>> products = new ConcurrentHashMap<String, RankedTask<VirtualMachineProduct>>();
+    private final AtomicInteger lookups  = new AtomicInteger(0);
+    private final AtomicInteger searches = new AtomicInteger(0);
+    private final AtomicInteger sequence = new AtomicInteger(0);
+
+    private ThreadPoolExecutor lookupExecutor;
+    private long               millis;
+
+    /**
+     * @param support the image support of the cloud
+     * @param platforms the platforms to search, most preferred first
+     * @param volumeBased true if volume-backed images are preferred to other images on the same platform
+     * @param productLookup finds the product with which to provision a candidate image
+     */
+    ImageDiscovery(@Nonnull MachineImageSupport support, @Nonnull Platform[] platforms, boolean volumeBased, @Nonnull ProductLookup productLookup) {
+        this.support = support;
+        this.platforms = platforms;
+        this.volumeBased = volumeBased;
+        this.productLookup = productLookup;
+    }
+
+    /**
+     * Searches the private images and then the public images of each platform for an active image without
+     * additional software that can be provisioned with a current product. The first platform to yield such an
+     * image wins. Within that platform, the first volume-backed image wins if volume-backed images are preferred,
+     * otherwise the first image; if there is no volume-backed image, the last image wins, as it did when the
+     * platforms were searched one at a time.
+     * @return the most preferred match, or null if none exists
+     */
+    @Nullable Match discover() {
+        long start = System.currentTimeMillis();
+        int threads = getThreadCount();
+        ArrayList<Group> groups = new ArrayList<Group>();
+
+        ExecutorService searchExecutor = Executors.newFixedThreadPool(Math.max(1, 2 * platforms.length), new DiscoveryFactory("search"));
+
+        lookupExecutor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new DiscoveryFactory("lookup"));
+        try {
+            for( boolean publicImages : new boolean[] { false, true } ) {
+                for( Platform platform : platforms ) {
+                    Group group = new Group(groups.size());
+
+                    groups.add(group);
+                    searchExecutor.submit(new Search(group, platform, publicImages));
+                }
+            }
+            for( Group group : groups ) {
+                Match match = resolve(group);
+
+                if( match != null ) {
+                    return match;
+                }
+            }
+            return null;
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        finally {
+            // cancels the searches and lookups still queued or running
+            searchExecutor.shutdownNow();
+            lookupExecutor.shutdownNow();
+            millis = System.currentTimeMillis() - start;
+        }
+    }
+
+    /**
+     * Checks the candidates of a group in search order as the search yields them, without waiting for the search
+     * to finish.
+     * @param group the group to resolve
+     * @return the first preferred acceptable candidate of the group, else its last acceptable candidate, or null if
+     * the group has none
+     * @throws InterruptedException discovery was interrupted
+     */
+    private @Nullable Match resolve(@Nonnull Group group) throws InterruptedException {
+        Match fallback = null;
+
+        while( true ) {
+            Candidate candidate = group.arrived.take();
+
+            if( candidate == END ) {
+                return fallback;
+            }
+            VirtualMachineProduct product;
+
+            try {
+                product = candidate.product.get();
+            }
+            catch( ExecutionException e ) {
+                continue;
+            }
+            catch( CancellationException e ) {
+                continue;
+            }
+            if( product == null ) {
+                continue;
+            }
+            Match match = new Match(candidate.image, product);
+
+            if( isPreferred(candidate.image) ) {
+                return match;
+            }
+            // a serial search kept overwriting its choice until it found a preferred image
+            fallback = match;
+        }
+    }
+
+    private boolean isPreferred(@Nonnull MachineImage image) {
+        return ( !volumeBased || MachineImageType.VOLUME.equals(image.getType()) );
+    }
+
+    /**
+     * @return the time taken by the last discovery in milliseconds
+     */
+    long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the number of product lookups made
+     */
+    int getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * @return the number of image searches made
+     */
+    int getSearches() {
+        return searches.get();
+    }
+
+    static private class Candidate {
+        private final MachineImage                      image;
+        private final RankedTask<VirtualMachineProduct> product;
+
+        public Candidate(@Nullable MachineImage image, @Nullable RankedTask<VirtualMachineProduct> product) {
+            this.image = image;
+            this.product = product;
+        }
+    }
+
+    /**
+     * The candidates of one platform search, in the order the search yielded them. At most
+     * {@link #LOOKUPS_PER_GROUP} of their product lookups are in flight at once; the others wait their turn so
+     * that a large catalog does not flood the pool with lookups that will never be needed.
+     */
+    private class Group {
+        private final LinkedBlockingQueue<Candidate>                arrived = new LinkedBlockingQueue<Candidate>();
+        private final int                                           index;
+        private       int                                           inFlight;
+        private volatile boolean                                    settled;
+        private final LinkedList<RankedTask<VirtualMachineProduct>> waiting = new LinkedList<RankedTask<VirtualMachineProduct>>();
+
+        public Group(int index) {
+            this.index = index;
+        }
+
+        private void submit(@Nonnull RankedTask<VirtualMachineProduct> lookup) {
+            synchronized( this ) {
+                if( inFlight >= LOOKUPS_PER_GROUP ) {
+                    waiting.add(lookup);
+                    return;
+                }
+                inFlight++;
+            }
+            execute(lookup);
+        }
+
+        private void lookupDone() {
+            RankedTask<VirtualMachineProduct> next;
+
+            synchronized( this ) {
+                next = waiting.poll();
+                if( next == null ) {
+                    inFlight--;
+                    return;
+                }
+            }
+            execute(next);
+        }
+
+        private void execute(@Nonnull RankedTask<VirtualMachineProduct> lookup) {
+            try {
+                lookupExecutor.execute(lookup);
+            }
+            catch( RejectedExecutionException e ) {
+                // discovery is complete
+                lookup.cancel(false);
+            }
+        }
+    }
+
+    private class Search implements Callable<Integer> {
+        private final Group    group;
+        private final Platform platform;
+        private final boolean  publicImages;
+
+        public Search(@Nonnull Group group, @Nonnull Platform platform, boolean publicImages) {
+            this.group = group;
+            this.platform = platform;
+            this.publicImages = publicImages;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            ImageFilterOptions options = ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(platform);
+            int count = 0;
+
+            searches.incrementAndGet();
+            try {
+                Iterable<MachineImage> images;
+
+                if( publicImages ) {
+                    images = support.searchPublicImages(options);
+                }
+                else {
+                    images = support.listImages(options);
+                }
+                for( MachineImage image : images ) {
+                    // nothing after a preferred match can be accepted, so there is no point in reading further
+                    if( Thread.currentThread().isInterrupted() || group.settled ) {
+                        break;
+                    }
+                    if( MachineImageState.ACTIVE.equals(image.getCurrentState()) && "".equals(image.getSoftware()) ) {
+                        group.arrived.add(new Candidate(image, getProduct(group, image)));
+                        count++;
+                    }
+                }
+            }
+            finally {
+                group.arrived.add(END);
+            }
+            return count;
+        }
+    }
+
+    private @Nonnull RankedTask<VirtualMachineProduct> getProduct(@Nonnull final Group group, @Nonnull final MachineImage image) {
+        String imageId = image.getProviderMachineImageId();
+        RankedTask<VirtualMachineProduct> task = products.get(imageId);
+
+        if( task == null ) {
+            RankedTask<VirtualMachineProduct> created = new RankedTask<VirtualMachineProduct>(group.index, sequence.incrementAndGet(), new Callable<VirtualMachineProduct>() {
+                @Override
+                public VirtualMachineProduct call() throws Exception {
+                    lookups.incrementAndGet();
+                    VirtualMachineProduct product = productLookup.lookup(image);
+
+                    if( product != null && isPreferred(image) ) {
+                        group.settled = true;
+                    }
+                    return product;
+                }
+            }) {
+                @Override
+                protected void done() {
+                    group.lookupDone();
+                }
+            };
+
+            task = products.putIfAbsent(imageId, created);
+            if( task == null ) {
+                task = created;
+                group.submit(task);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Task ordered by preference group, then by submission order.
+     */
+    static private class RankedTask<V> extends FutureTask<V> implements Comparable<RankedTask<?>> {
+        private final int group;
+        private final int sequence;
+
+        public RankedTask(int group, int sequence, @Nonnull Callable<V> callable) {
+            super(callable);
+            this.group = group;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(@Nonnull RankedTask<?> other) {
+            if( group != other.group ) {
+                return (group < other.group ? -1 : 1);
+            }
+            return (sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1));
+        }
+    }
+
+    static private class DiscoveryFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(0);
+        private final String        role;
+
+        public DiscoveryFactory(@Nonnull String role) {
+            this.role = role;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-discovery-" + role + "-" + count.incrementAndGet());
+
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
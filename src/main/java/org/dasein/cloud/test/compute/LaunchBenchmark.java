@@ -0,0 +1,334 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.compute;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.OperationNotSupportedException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VirtualMachineSupport;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.LatencyHistogram;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Launches a burst of virtual machines with a single {@link ComputeResources#provisionManyVMs} call (and therefore
+ * {@link org.dasein.cloud.compute.VMLaunchOptions#buildMany}), waits on all of them at once and reports how the
+ * cloud coped: the time to the first ID and to all IDs, the distribution of the time each virtual machine took to
+ * reach RUNNING, the throttling errors met along the way and the API calls issued per virtual machine. All virtual
+ * machines are polled together with one status listing per round rather than one lookup each, falling back to
+ * full listings where status listings are not supported. The batch is then terminated in parallel. The burst is
+ * configured with the {@link System} properties:
+ * <pre>
+ *     -Ddasein.burst.count=100 -Ddasein.burst.poll=1000 -Ddasein.burst.timeout=30
+ * </pre>
+ * The count is the number of virtual machines launched (the benchmark is skipped unless it is set), the poll the
+ * interval in milliseconds between status rounds and the timeout the minutes to wait for every virtual machine to
+ * run. API calls are those issued by the benchmark; calls a driver makes internally are not visible to it.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class LaunchBenchmark {
+    static public final String BURST_COUNT   = "dasein.burst.count";
+    static public final String BURST_POLL    = "dasein.burst.poll";
+    static public final String BURST_TIMEOUT = "dasein.burst.timeout";
+
+    static private final int  LAUNCH_ATTEMPTS = 3;
+    static private final long MAX_BACKOFF     = CalendarWrapper.SECOND * 30L;
+
+    static private long getLong(@Nonnull String property, long defaultValue) {
+        String prop = DaseinTestManager.getSystemProperty(property);
+
+        if( prop != null ) {
+            try {
+                return Long.parseLong(prop.trim());
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return the number of virtual machines to launch in a burst, 0 if the benchmark is disabled
+     */
+    static public int getBurstCount() {
+        return (int)Math.max(0L, getLong(BURST_COUNT, 0L));
+    }
+
+    /**
+     * @param e an error returned by the cloud
+     * @return true if the error indicates the request was throttled
+     */
+    static public boolean isThrottling(@Nonnull CloudException e) {
+        if( CloudErrorType.THROTTLING.equals(e.getErrorType()) ) {
+            return true;
+        }
+        String message = (e.getMessage() == null ? "" : e.getMessage().toLowerCase(Locale.ENGLISH));
+
+        return ( message.contains("throttl") || message.contains("rate exceeded") || message.contains("limit exceeded") || message.contains("too many requests") );
+    }
+
+    private final ComputeResources      compute;
+    private final VirtualMachineSupport support;
+
+    private       int                   apiCalls;
+    private       long                  firstIdMillis = -1L;
+    private       long                  allIdsMillis  = -1L;
+    private final ArrayList<String>     failed        = new ArrayList<String>();
+    private final ArrayList<String>     ids           = new ArrayList<String>();
+    private final LatencyHistogram      toRunning     = new LatencyHistogram();
+    private       long                  start;
+    private       long                  teardownMillis = -1L;
+    private       int                   throttled;
+
+    public LaunchBenchmark(@Nonnull ComputeResources compute, @Nonnull VirtualMachineSupport support) {
+        this.compute = compute;
+        this.support = support;
+    }
+
+    /**
+     * Launches the burst, retrying with backoff if it is throttled. Each ID is timed as the launch yields it. A
+     * throttled attempt keeps the virtual machines it launched, including any the error hid, and the retry launches
+     * only the remainder.
+     * @param label the label under which the virtual machines are registered for teardown
+     * @param dataCenterId the data center in which the virtual machines are launched, if any
+     * @param count the number of virtual machines to launch
+     * @return the IDs of the virtual machines launched
+     * @throws CloudException an error occurred with the cloud provider launching the virtual machines
+     * @throws InternalException an error occurred within Dasein Cloud launching the virtual machines
+     */
+    public @Nonnull List<String> launch(@Nonnull String label, @Nullable String dataCenterId, @Nonnegative int count) throws CloudException, InternalException {
+        ComputeResources.LaunchListener listener = new ComputeResources.LaunchListener() {
+            @Override
+            public void launched(@Nonnull String vmId) {
+                record(vmId);
+            }
+        };
+        long backoff = CalendarWrapper.SECOND;
+
+        start = System.currentTimeMillis();
+        for( int attempt=1; ; attempt++ ) {
+            // every attempt names its virtual machines apart so those a failed attempt launched can be found
+            String namePrefix = "dasein-burst-" + (start % 10000) + "-" + attempt;
+
+            try {
+                apiCalls++;
+                compute.provisionManyVMs(support, label, namePrefix, "dsnburst", dataCenterId, count - ids.size(), listener);
+                allIdsMillis = System.currentTimeMillis() - start;
+                return ids;
+            }
+            catch( InternalException e ) {
+                recover(label, namePrefix);
+                throw e;
+            }
+            catch( CloudException e ) {
+                recover(label, namePrefix);
+                if( !isThrottling(e) || attempt >= LAUNCH_ATTEMPTS ) {
+                    throw e;
+                }
+                throttled++;
+                if( ids.size() >= count ) {
+                    allIdsMillis = System.currentTimeMillis() - start;
+                    return ids;
+                }
+                backoff = sleep(backoff);
+            }
+        }
+    }
+
+    private void record(@Nonnull String vmId) {
+        if( firstIdMillis < 0L ) {
+            firstIdMillis = System.currentTimeMillis() - start;
+        }
+        ids.add(vmId);
+    }
+
+    /**
+     * Registers for teardown, and for the wait, the virtual machines a failed attempt launched without yielding
+     * their IDs.
+     * @param label the label under which the virtual machines are registered
+     * @param namePrefix the name prefix of the failed attempt
+     */
+    private void recover(@Nonnull String label, @Nonnull String namePrefix) {
+        try {
+            apiCalls++;
+            for( VirtualMachine vm : support.listVirtualMachines() ) {
+                String id = vm.getProviderVirtualMachineId();
+                String name = vm.getName();
+
+                if( name != null && name.startsWith(namePrefix + "-") && !ids.contains(id) && !VmState.TERMINATED.equals(vm.getCurrentState()) ) {
+                    compute.adopt(ResourceKind.VIRTUAL_MACHINE, label + "-" + id, id);
+                    record(id);
+                }
+            }
+        }
+        catch( Throwable ignore ) {
+            // the launch error is the one worth reporting
+        }
+    }
+
+    /**
+     * Waits for every launched virtual machine to reach RUNNING, recording the time each took from the launch
+     * request. Virtual machines that fail (enter ERROR or TERMINATED) are no longer waited on.
+     * @return the number of virtual machines that reached RUNNING within the timeout
+     */
+    public int awaitRunning() {
+        long interval = getLong(BURST_POLL, CalendarWrapper.SECOND);
+        long deadline = System.currentTimeMillis() + getLong(BURST_TIMEOUT, 30L) * CalendarWrapper.MINUTE;
+        HashSet<String> pending = new HashSet<String>(ids);
+        boolean statusSupported = true;
+        int running = 0;
+
+        while( !pending.isEmpty() && System.currentTimeMillis() < deadline ) {
+            Map<String,Object> states = new HashMap<String, Object>();
+
+            try {
+                apiCalls++;
+                if( statusSupported ) {
+                    try {
+                        for( ResourceStatus status : support.listVirtualMachineStatus() ) {
+                            states.put(status.getProviderResourceId(), status.getResourceStatus());
+                        }
+                    }
+                    catch( OperationNotSupportedException e ) {
+                        statusSupported = false;
+                        apiCalls++;
+                    }
+                }
+                if( !statusSupported ) {
+                    for( VirtualMachine vm : support.listVirtualMachines() ) {
+                        states.put(vm.getProviderVirtualMachineId(), vm.getCurrentState());
+                    }
+                }
+                interval = Math.max(getLong(BURST_POLL, CalendarWrapper.SECOND), interval/2L);
+            }
+            catch( CloudException e ) {
+                if( isThrottling(e) ) {
+                    throttled++;
+                    interval = Math.min(MAX_BACKOFF, interval * 2L);
+                }
+            }
+            catch( InternalException ignore ) {
+                // try again next round
+            }
+            long now = System.currentTimeMillis();
+
+            for( Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+                String id = it.next();
+                Object state = states.get(id);
+
+                // virtual machines missing from the listing are often simply not listed yet
+                if( VmState.RUNNING.equals(state) ) {
+                    toRunning.record((now - start) * 1000L);
+                    running++;
+                    it.remove();
+                }
+                else if( VmState.ERROR.equals(state) || VmState.TERMINATED.equals(state) ) {
+                    failed.add(id);
+                    it.remove();
+                }
+            }
+            if( !pending.isEmpty() ) {
+                sleep(interval);
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Terminates the whole batch in parallel and waits for it to be gone.
+     * @return the number of virtual machines terminated
+     */
+    public int teardown() {
+        long t = System.currentTimeMillis();
+        int count = compute.teardownVMs(support, ids);
+
+        teardownMillis = System.currentTimeMillis() - t;
+        return count;
+    }
+
+    private long sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        return Math.min(MAX_BACKOFF, millis * 2L);
+    }
+
+    public @Nonnull List<String> getFailed() {
+        return failed;
+    }
+
+    public @Nonnull List<String> getIds() {
+        return ids;
+    }
+
+    public @Nonnull LatencyHistogram getTimeToRunning() {
+        return toRunning;
+    }
+
+    public int getThrottled() {
+        return throttled;
+    }
+
+    /**
+     * Writes the results of the burst to the test log.
+     * @param tm the test manager of the test running the benchmark
+     */
+    public void report(@Nonnull DaseinTestManager tm) {
+        tm.out("Burst size", ids.size());
+        tm.out("Time to first ID", seconds(firstIdMillis));
+        tm.out("Time to all IDs", seconds(allIdsMillis));
+        tm.out("Time to RUNNING p50", seconds(toRunning.getPercentile(50)/1000L));
+        tm.out("Time to RUNNING p90", seconds(toRunning.getPercentile(90)/1000L));
+        tm.out("Time to RUNNING p99", seconds(toRunning.getPercentile(99)/1000L));
+        tm.out("Time to RUNNING max", seconds(toRunning.getMax()/1000L));
+        tm.out("Reached RUNNING", toRunning.getCount());
+        tm.out("Failed", failed.size());
+        tm.out("Throttling errors", throttled);
+        tm.out("API calls per VM", ids.isEmpty() ? 0f : ((float)apiCalls)/ids.size());
+        if( teardownMillis >= 0L ) {
+            tm.out("Teardown", seconds(teardownMillis));
+        }
+    }
+
+    static private @Nonnull String seconds(long millis) {
+        return ( millis < 0L ? "-" : (((float)millis)/1000f) + "s" );
+    }
+}
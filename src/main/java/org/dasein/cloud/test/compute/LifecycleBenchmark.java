@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.compute;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VirtualMachineCapabilities;
+import org.dasein.cloud.compute.VirtualMachineSupport;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.LatencyHistogram;
+import org.dasein.cloud.test.StateWaiter;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives one or more virtual machines through repeated stop, start, reboot, pause and unpause cycles and measures
+ * how long each transition takes, from the request until the new state is first observed. Polling is sub-second
+ * for the whole wait so that the histograms resolve fast transitions, and each virtual machine of the fleet is
+ * cycled on its own thread. Transitions the cloud does not support for the current state are skipped. A
+ * transition that times out ends the cycles of its virtual machine, since its state is no longer known. A reboot
+ * whose virtual machine is never seen to leave RUNNING is counted as unobserved rather than timed, since the wait
+ * for the change says nothing about how long the reboot took. The benchmark is configured with the {@link System} properties:
+ * <pre>
+ *     -Ddasein.lifecycle.cycles=5 -Ddasein.lifecycle.fleet=1 -Ddasein.lifecycle.poll=250 -Ddasein.lifecycle.timeout=20
+ * </pre>
+ * The cycles are the number of cycles per virtual machine (the benchmark is skipped unless it is set), the fleet
+ * the number of virtual machines cycled at once, the poll the interval in milliseconds between state checks and
+ * the timeout the minutes to wait for any one transition.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class LifecycleBenchmark {
+    static private final Logger logger = Logger.getLogger(LifecycleBenchmark.class);
+
+    static public final String LIFECYCLE_CYCLES  = "dasein.lifecycle.cycles";
+    static public final String LIFECYCLE_FLEET   = "dasein.lifecycle.fleet";
+    static public final String LIFECYCLE_POLL    = "dasein.lifecycle.poll";
+    static public final String LIFECYCLE_TIMEOUT = "dasein.lifecycle.timeout";
+
+    /**
+     * A transition measured by the benchmark, in the order in which transitions are driven within a cycle.
+     */
+    static public enum Transition {
+        STOP(VmState.RUNNING, VmState.STOPPED), START(VmState.STOPPED, VmState.RUNNING), REBOOT(VmState.RUNNING, VmState.RUNNING),
+        PAUSE(VmState.RUNNING, VmState.PAUSED), UNPAUSE(VmState.PAUSED, VmState.RUNNING);
+
+        private final VmState from;
+        private final VmState to;
+
+        private Transition(@Nonnull VmState from, @Nonnull VmState to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public @Nonnull VmState getFrom() {
+            return from;
+        }
+
+        public @Nonnull VmState getTo() {
+            return to;
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return name() + " " + from + " > " + to;
+        }
+    }
+
+    static private long getLong(@Nonnull String property, long defaultValue) {
+        String prop = DaseinTestManager.getSystemProperty(property);
+
+        if( prop != null ) {
+            try {
+                return Long.parseLong(prop.trim());
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return the number of cycles per virtual machine, 0 if the benchmark is disabled
+     */
+    static public int getCycles() {
+        return (int)Math.max(0L, getLong(LIFECYCLE_CYCLES, 0L));
+    }
+
+    /**
+     * @return the number of virtual machines cycled at once
+     */
+    static public int getFleetSize() {
+        return (int)Math.max(1L, getLong(LIFECYCLE_FLEET, 1L));
+    }
+
+    private final EnumMap<Transition,LatencyHistogram> latencies  = new EnumMap<Transition, LatencyHistogram>(Transition.class);
+    private final EnumMap<Transition,AtomicInteger>    skipped    = new EnumMap<Transition, AtomicInteger>(Transition.class);
+    private final EnumMap<Transition,AtomicInteger>    timeouts   = new EnumMap<Transition, AtomicInteger>(Transition.class);
+    private final EnumMap<Transition,AtomicInteger>    unobserved = new EnumMap<Transition, AtomicInteger>(Transition.class);
+
+    private final VirtualMachineSupport support;
+
+    public LifecycleBenchmark(@Nonnull VirtualMachineSupport support) {
+        this.support = support;
+        for( Transition t : Transition.values() ) {
+            latencies.put(t, new LatencyHistogram());
+            skipped.put(t, new AtomicInteger(0));
+            timeouts.put(t, new AtomicInteger(0));
+            unobserved.put(t, new AtomicInteger(0));
+        }
+    }
+
+    /**
+     * Cycles every virtual machine concurrently and waits for all of them to finish.
+     * @param vmIds the running virtual machines to cycle
+     * @param cycles the number of cycles per virtual machine
+     */
+    public void run(@Nonnull Collection<String> vmIds, final int cycles) {
+        if( vmIds.isEmpty() ) {
+            return;
+        }
+        ExecutorService service = Executors.newFixedThreadPool(vmIds.size());
+
+        try {
+            for( final String vmId : vmIds ) {
+                service.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            cycle(vmId, cycles);
+                        }
+                        catch( Throwable t ) {
+                            logger.warn("Lifecycle of " + vmId + " ended early: " + t.getMessage());
+                        }
+                    }
+                });
+            }
+            service.shutdown();
+            if( !service.awaitTermination(CalendarWrapper.DAY, TimeUnit.MILLISECONDS) ) {
+                logger.warn("Gave up waiting for lifecycle cycles to complete");
+            }
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            service.shutdownNow();
+        }
+    }
+
+    private void cycle(@Nonnull String vmId, int cycles) throws CloudException, InternalException {
+        VirtualMachineCapabilities capabilities = support.getCapabilities();
+
+        for( int i=0; i<cycles; i++ ) {
+            for( Transition t : Transition.values() ) {
+                VirtualMachine vm = support.getVirtualMachine(vmId);
+
+                if( vm == null ) {
+                    throw new CloudException("Virtual machine " + vmId + " no longer exists");
+                }
+                if( !t.getFrom().equals(vm.getCurrentState()) || !isSupported(capabilities, t) ) {
+                    skipped.get(t).incrementAndGet();
+                    continue;
+                }
+                if( !drive(vmId, t) ) {
+                    timeouts.get(t).incrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean isSupported(@Nonnull VirtualMachineCapabilities capabilities, @Nonnull Transition t) throws CloudException, InternalException {
+        switch( t ) {
+            case STOP: return capabilities.canStop(t.getFrom());
+            case START: return capabilities.canStart(t.getFrom());
+            case REBOOT: return capabilities.canReboot(t.getFrom());
+            case PAUSE: return capabilities.canPause(t.getFrom());
+            case UNPAUSE: return capabilities.canUnpause(t.getFrom());
+        }
+        return false;
+    }
+
+    private boolean drive(@Nonnull final String vmId, @Nonnull final Transition t) throws CloudException, InternalException {
+        long poll = Math.max(1L, getLong(LIFECYCLE_POLL, 250L));
+        long timeout = getLong(LIFECYCLE_TIMEOUT, 20L) * CalendarWrapper.MINUTE;
+        StateWaiter.WaitPolicy policy = StateWaiter.WaitPolicy.getInstance(timeout).withFastPoll(timeout, poll).withJitter(0.0);
+        StateWaiter.Fetcher<VirtualMachine> fetcher = new StateWaiter.Fetcher<VirtualMachine>() {
+            @Override
+            public @Nullable VirtualMachine fetch() throws CloudException, InternalException {
+                return support.getVirtualMachine(vmId);
+            }
+        };
+        long start = System.currentTimeMillis();
+        boolean observed = true;
+
+        switch( t ) {
+            case STOP: support.stop(vmId); break;
+            case START: support.start(vmId); break;
+            case REBOOT: support.reboot(vmId); break;
+            case PAUSE: support.pause(vmId); break;
+            case UNPAUSE: support.unpause(vmId); break;
+        }
+        if( t.getFrom().equals(t.getTo()) ) {
+            // a reboot is complete once the virtual machine has been seen to leave RUNNING and come back, but some
+            // clouds report RUNNING throughout; give those a short window to show the change before accepting it
+            VirtualMachine left = StateWaiter.waitFor("VM lifecycle " + t.name() + " leave " + t.getFrom(), StateWaiter.WaitPolicy.getInstance(Math.min(timeout, CalendarWrapper.MINUTE)).withFastPoll(timeout, poll).withJitter(0.0), fetcher, new StateWaiter.Condition<VirtualMachine>() {
+                @Override
+                public boolean isSatisfied(@Nullable VirtualMachine resource) {
+                    return ( resource == null || !t.getFrom().equals(resource.getCurrentState()) );
+                }
+            });
+
+            observed = ( left == null || !t.getFrom().equals(left.getCurrentState()) );
+        }
+        VirtualMachine vm = StateWaiter.waitFor("VM lifecycle " + t, policy, fetcher, new StateWaiter.Condition<VirtualMachine>() {
+            @Override
+            public boolean isSatisfied(@Nullable VirtualMachine resource) {
+                return ( resource == null || t.getTo().equals(resource.getCurrentState()) );
+            }
+        });
+
+        if( vm == null || !t.getTo().equals(vm.getCurrentState()) ) {
+            return false;
+        }
+        if( !observed ) {
+            // the elapsed time is just the leave window, not the reboot
+            unobserved.get(t).incrementAndGet();
+            return true;
+        }
+        latencies.get(t).record((System.currentTimeMillis() - start) * 1000L);
+        return true;
+    }
+
+    /**
+     * @param t the transition
+     * @return the histogram of the time the transition took in microseconds
+     */
+    public @Nonnull LatencyHistogram getLatency(@Nonnull Transition t) {
+        return latencies.get(t);
+    }
+
+    /**
+     * @return the total number of transitions that timed out
+     */
+    public int getTimeouts() {
+        int count = 0;
+
+        for( AtomicInteger c : timeouts.values() ) {
+            count += c.get();
+        }
+        return count;
+    }
+
+    /**
+     * @return the total number of transitions completed without the virtual machine ever being seen to change state
+     */
+    public int getUnobserved() {
+        int count = 0;
+
+        for( AtomicInteger c : unobserved.values() ) {
+            count += c.get();
+        }
+        return count;
+    }
+
+    /**
+     * Writes the latency histogram of every transition to the test log.
+     * @param tm the test manager of the test running the benchmark
+     */
+    public void report(@Nonnull DaseinTestManager tm) {
+        for( Map.Entry<Transition,LatencyHistogram> entry : latencies.entrySet() ) {
+            Transition t = entry.getKey();
+            LatencyHistogram h = entry.getValue();
+
+            tm.out(t.toString(), h.getCount() + " transitions, p50 " + seconds(h.getPercentile(50)) + ", p90 " + seconds(h.getPercentile(90)) + ", p99 " + seconds(h.getPercentile(99)) + ", max " + seconds(h.getMax()) + ", " + timeouts.get(t).get() + " timeouts, " + unobserved.get(t).get() + " unobserved, " + skipped.get(t).get() + " skipped");
+        }
+    }
+
+    static private @Nonnull String seconds(long micros) {
+        return (((float)(micros/1000L))/1000f) + "s";
+    }
+}
@@ -102,7 +102,7 @@ public class StatefulImageTests {
         if( testImageId != null ) {
             if( name.getMethodName().equals("addPrivateShare") || name.getMethodName().equals("addPublicShare") ||
                     name.getMethodName().equals("removePrivateShare") || name.getMethodName().equals("removePublicShare") || name.getMethodName().equals("removeAllShares") ) {
-                ComputeServices services = tm.getProvider().getComputeServices();
+                ComputeServices services = tm.getComputeServices();
 
                 if( services != null ) {
                     MachineImageSupport support = services.getImageSupport();
@@ -118,7 +118,7 @@ public class StatefulImageTests {
                 }
             }
             if( testShareAccount != null && ( name.getMethodName().equals("removePrivateShare") || name.getMethodName().equals("removeAllShares") ) ) {
-                ComputeServices services = tm.getProvider().getComputeServices();
+                ComputeServices services = tm.getComputeServices();
 
                 if( services != null ) {
                     MachineImageSupport support = services.getImageSupport();
@@ -134,7 +134,7 @@ public class StatefulImageTests {
                 }
             }
             if( name.getMethodName().equals("removePublicShare") || name.getMethodName().equals("removeAllShares") ) {
-                ComputeServices services = tm.getProvider().getComputeServices();
+                ComputeServices services = tm.getComputeServices();
 
                 if( services != null ) {
                     MachineImageSupport support = services.getImageSupport();
@@ -158,7 +158,7 @@ public class StatefulImageTests {
             if( provisionedImage != null ) {
                 try {
                     //noinspection ConstantConditions
-                    tm.getProvider().getComputeServices().getImageSupport().remove(provisionedImage);
+                    tm.getComputeServices().getImageSupport().remove(provisionedImage);
                 }
                 catch( Throwable t ) {
                     tm.warn("Unable to de-provision image " + provisionedImage + ": " + t.getMessage());
@@ -176,7 +176,7 @@ public class StatefulImageTests {
     @Test
     public void listShares() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -215,7 +215,7 @@ public class StatefulImageTests {
     @Test
     public void addPrivateShare() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -304,7 +304,7 @@ public class StatefulImageTests {
     @Test
     public void removePrivateShare() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -393,7 +393,7 @@ public class StatefulImageTests {
 
     @Test
     public void addPublicShare() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -455,7 +455,7 @@ public class StatefulImageTests {
     @Test
     public void removePublicShare() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -517,7 +517,7 @@ public class StatefulImageTests {
     @Test
     public void removeAllShares() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -590,7 +590,7 @@ public class StatefulImageTests {
         else {
             capturedOnce = true;
         }
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud " + tm.getProvider().getCloudName());
@@ -702,7 +702,7 @@ public class StatefulImageTests {
         else {
             capturedOnce = true;
         }
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         if( services == null ) {
             tm.ok("No compute services in this cloud " + tm.getProvider().getCloudName());
             return;
@@ -839,7 +839,7 @@ public class StatefulImageTests {
         else {
             capturedOnce = true;
         }
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         if( services == null ) {
             tm.ok("No compute services in this cloud " + tm.getProvider().getCloudName());
             return;
@@ -936,7 +936,7 @@ public class StatefulImageTests {
     @Test
     public void bundleVM() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -1039,7 +1039,7 @@ public class StatefulImageTests {
     @Test
     public void bundleVMAsync() throws Throwable {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
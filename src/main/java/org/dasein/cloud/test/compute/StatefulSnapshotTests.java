@@ -79,7 +79,7 @@ public class StatefulSnapshotTests {
 
         testDataCenterId = DaseinTestManager.getDefaultDataCenterId(false);
 
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         SnapshotSupport support = null;
 
         if( services != null ) {
@@ -127,7 +127,7 @@ public class StatefulSnapshotTests {
                 Snapshot sourceSnapshot = null;
 
                 try {
-                    for( Region r : tm.getProvider().getDataCenterServices().listRegions() ) {
+                    for( Region r : tm.getDataCenterServices().listRegions() ) {
                         //noinspection ConstantConditions
                         if( !r.getProviderRegionId().equals(tm.getContext().getRegionId()) ) {
                             for( Snapshot snapshot : support.listSnapshots() ) {
@@ -221,7 +221,7 @@ public class StatefulSnapshotTests {
     public void after() {
         try {
             if( provisionedSnapshotId != null ) {
-                ComputeServices services = tm.getProvider().getComputeServices();
+                ComputeServices services = tm.getComputeServices();
 
                 if( services != null ) {
                     SnapshotSupport support = services.getSnapshotSupport();
@@ -249,7 +249,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void filterSnapshots() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -303,7 +303,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void createSnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -348,7 +348,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void copySnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -389,7 +389,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void removeSnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -423,7 +423,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void listShares() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -462,7 +462,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void addPrivateShare() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -521,7 +521,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void removePrivateShare() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -581,7 +581,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void addPublicShare() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -625,7 +625,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void removePublicShare() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -672,7 +672,7 @@ public class StatefulSnapshotTests {
 
     @Test
     public void removeAllShares() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -721,7 +721,7 @@ public class StatefulSnapshotTests {
 /*
     @Test
     public void mountVolumeFromSnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -46,6 +46,7 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -100,7 +101,7 @@ public class StatefulVMTests {
             }
             try {
                 //noinspection ConstantConditions
-                v = tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine(vm.getProviderVirtualMachineId());
+                v = tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine(vm.getProviderVirtualMachineId());
                 if( v == null && !targetState.equals(VmState.TERMINATED) ) {
                     gone++;
                     if( gone > 10 ) {
@@ -127,7 +128,7 @@ public class StatefulVMTests {
 
         testDataCenterId = tm.getTestDataCenterId(false);
 
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         if( services == null || services.getVirtualMachineSupport() == null ) {
             return;
         }
@@ -200,7 +201,7 @@ public class StatefulVMTests {
     @Test
     public void disableAnalytics() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -225,7 +226,7 @@ public class StatefulVMTests {
     @Test
     public void enableAnalytics() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -250,7 +251,7 @@ public class StatefulVMTests {
     @Test
     public void launch() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
 
@@ -293,7 +294,7 @@ public class StatefulVMTests {
     public void launchVMWithIP() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         if( services == null ) {
             tm.ok("No compute services in this cloud");
             return;
@@ -336,7 +337,7 @@ public class StatefulVMTests {
         String vlanId = tm.getTestVLANId(DaseinTestManager.STATELESS, true, options.getDataCenterId());
         if( vlanId != null ) {
             options.inVlan(null, testDataCenterId, vlanId);
-            NetworkServices networkServices = tm.getProvider().getNetworkServices();
+            NetworkServices networkServices = tm.getNetworkServices();
             if( networkServices == null ) {
                 fail("Test is inconsitent: vlanId is specified, but the cloud doesn't have network services");
             }
@@ -439,7 +440,7 @@ public class StatefulVMTests {
     @Test
     public void launchMany() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -476,11 +477,76 @@ public class StatefulVMTests {
         }
     }
 
+    @Test
+    public void launchBurst() throws CloudException, InternalException {
+        assumeTrue(!tm.isTestSkipped());
+        int count = LaunchBenchmark.getBurstCount();
+
+        if( count < 1 ) {
+            tm.ok("Burst launch benchmark not enabled, set " + LaunchBenchmark.BURST_COUNT + " to run it");
+            return;
+        }
+        ComputeServices services = tm.getComputeServices();
+        VirtualMachineSupport support = (services == null ? null : services.getVirtualMachineSupport());
+        ComputeResources compute = DaseinTestManager.getComputeResources();
+
+        if( support == null || compute == null || !support.isSubscribed() ) {
+            tm.ok("No virtual machine support in this cloud");
+            return;
+        }
+        LaunchBenchmark benchmark = new LaunchBenchmark(compute, support);
+
+        try {
+            List<String> ids = benchmark.launch("burst", testDataCenterId, count);
+
+            assertEquals("The burst did not launch the requested number of virtual machines", count, ids.size());
+            int running = benchmark.awaitRunning();
+
+            assertTrue("Virtual machines failed to launch: " + benchmark.getFailed(), benchmark.getFailed().isEmpty());
+            assertEquals("Not every virtual machine reached RUNNING in time", count, running);
+        }
+        finally {
+            benchmark.teardown();
+            benchmark.report(tm);
+        }
+    }
+
+    @Test
+    public void lifecycleCycles() throws CloudException, InternalException {
+        assumeTrue(!tm.isTestSkipped());
+        int cycles = LifecycleBenchmark.getCycles();
+
+        if( cycles < 1 ) {
+            tm.ok("Lifecycle benchmark not enabled, set " + LifecycleBenchmark.LIFECYCLE_CYCLES + " to run it");
+            return;
+        }
+        ComputeServices services = tm.getComputeServices();
+        VirtualMachineSupport support = (services == null ? null : services.getVirtualMachineSupport());
+
+        if( support == null || !support.isSubscribed() ) {
+            tm.ok("No virtual machine support in this cloud");
+            return;
+        }
+        ArrayList<String> vmIds = new ArrayList<String>();
+
+        for( int i=0; i<LifecycleBenchmark.getFleetSize(); i++ ) {
+            String vmId = tm.getTestVMId("lifecycle" + i, VmState.RUNNING, true, testDataCenterId);
+
+            assertNotNull("Unable to provision a virtual machine for the lifecycle benchmark", vmId);
+            vmIds.add(vmId);
+        }
+        LifecycleBenchmark benchmark = new LifecycleBenchmark(support);
+
+        benchmark.run(vmIds, cycles);
+        benchmark.report(tm);
+        assertEquals("Lifecycle transitions timed out", 0, benchmark.getTimeouts());
+    }
+
     @Test
     public void launchVMWithResourcePool() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        DataCenterServices dcServices = tm.getProvider().getDataCenterServices();
+        DataCenterServices dcServices = tm.getDataCenterServices();
         if (dcServices == null) {
             tm.ok("No datacenter services in this cloud");
             return;
@@ -491,7 +557,7 @@ public class StatefulVMTests {
             return;
         }
 
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -568,10 +634,10 @@ public class StatefulVMTests {
     public void launchVMWithAffinityGroup() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        DataCenterServices dcServices = tm.getProvider().getDataCenterServices();
+        DataCenterServices dcServices = tm.getDataCenterServices();
         if (dcServices != null) {
             if (dcServices.getCapabilities().supportsAffinityGroups()) {
-                ComputeServices services = tm.getProvider().getComputeServices();
+                ComputeServices services = tm.getComputeServices();
 
                 if( services != null ) {
                     AffinityGroupSupport affinityGroupSupport = services.getAffinityGroupSupport();
@@ -661,7 +727,7 @@ public class StatefulVMTests {
     public void launchVMWithStoragePool() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        DataCenterServices dcServices = tm.getProvider().getDataCenterServices();
+        DataCenterServices dcServices = tm.getDataCenterServices();
         if (dcServices != null) {
             if (dcServices.getCapabilities().supportsStoragePools()) {
                 Iterable<StoragePool> pools = dcServices.listStoragePools();
@@ -675,7 +741,7 @@ public class StatefulVMTests {
                         }
                     }
                     if (!testStoragePoolId.equals("")) {
-                        ComputeServices services = tm.getProvider().getComputeServices();
+                        ComputeServices services = tm.getComputeServices();
 
                         if( services != null ) {
                             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -774,7 +840,7 @@ public class StatefulVMTests {
     public void launchVMWithVMFolder() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        DataCenterServices dcServices = tm.getProvider().getDataCenterServices();
+        DataCenterServices dcServices = tm.getDataCenterServices();
         if (dcServices != null) {
             if (dcServices.getCapabilities().supportsFolders()) {
                 Iterable<Folder> folders = dcServices.listVMFolders();
@@ -787,7 +853,7 @@ public class StatefulVMTests {
                         }
                     }
                     if (!testVMFolderId.equals("")) {
-                        ComputeServices services = tm.getProvider().getComputeServices();
+                        ComputeServices services = tm.getComputeServices();
 
                         if( services != null ) {
                             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -886,7 +952,7 @@ public class StatefulVMTests {
     public void launchVMWithClientRequestToken() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -930,7 +996,7 @@ public class StatefulVMTests {
     @Test
     public void filterVMs() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -976,7 +1042,7 @@ public class StatefulVMTests {
     @Test
     public void stop() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1030,7 +1096,7 @@ public class StatefulVMTests {
     @Test
     public void modifyInstance() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -1113,7 +1179,7 @@ public class StatefulVMTests {
     @Test
     public void start() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1160,7 +1226,7 @@ public class StatefulVMTests {
     @Test
     public void pause() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1207,7 +1273,7 @@ public class StatefulVMTests {
     @Test
     public void unpause() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1254,7 +1320,7 @@ public class StatefulVMTests {
     @Test
     public void suspend() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1301,7 +1367,7 @@ public class StatefulVMTests {
     @Test
     public void resume() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1349,7 +1415,7 @@ public class StatefulVMTests {
     @Test
     public void reboot() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -1386,7 +1452,7 @@ public class StatefulVMTests {
     @Test
     public void terminate() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -110,7 +110,7 @@ public class StatefulVolumeTests {
             testVolumeId = tm.getTestVolumeId(DaseinTestManager.REMOVED, true, null, testDataCenterId);
         }
         else if( name.getMethodName().equals("filterVolumes") ) {
-            ComputeServices services = tm.getProvider().getComputeServices();
+            ComputeServices services = tm.getComputeServices();
 
             if( services != null ) {
                 VolumeSupport support = services.getVolumeSupport();
@@ -132,7 +132,7 @@ public class StatefulVolumeTests {
 
             if( testVMId != null ) {
                 try {
-                    VirtualMachine vm = tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
+                    VirtualMachine vm = tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
 
                     if( vm != null ) {
                         dc = vm.getProviderDataCenterId();
@@ -146,11 +146,11 @@ public class StatefulVolumeTests {
 
             if( testVolumeId != null ) {
                 try {
-                    @SuppressWarnings("ConstantConditions") Volume v = tm.getProvider().getComputeServices().getVolumeSupport().getVolume(testVolumeId);
+                    @SuppressWarnings("ConstantConditions") Volume v = tm.getComputeServices().getVolumeSupport().getVolume(testVolumeId);
 
                     if( v != null && v.getProviderVirtualMachineId() != null ) {
                         //noinspection ConstantConditions
-                        tm.getProvider().getComputeServices().getVolumeSupport().detach(testVolumeId, true);
+                        tm.getComputeServices().getVolumeSupport().detach(testVolumeId, true);
                         try { Thread.sleep(60000L); }
                         catch( InterruptedException ignore ) { }
                     }
@@ -166,7 +166,7 @@ public class StatefulVolumeTests {
 
             if( testVMId != null ) {
                 try {
-                    VirtualMachine vm = tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
+                    VirtualMachine vm = tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
 
                     if( vm != null ) {
                         dc = vm.getProviderDataCenterId();
@@ -180,8 +180,8 @@ public class StatefulVolumeTests {
 
             if( testVolumeId != null && testVMId != null ) {
                 try {
-                    VolumeSupport support = tm.getProvider().getComputeServices().getVolumeSupport();
-                    VirtualMachine vm = tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
+                    VolumeSupport support = tm.getComputeServices().getVolumeSupport();
+                    VirtualMachine vm = tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
 
                     if( vm != null ) {
                         Volume v = support.getVolume(testVolumeId);
@@ -224,11 +224,11 @@ public class StatefulVolumeTests {
 
             if( testVolumeId != null ) {
                 try {
-                    @SuppressWarnings("ConstantConditions") Volume v = tm.getProvider().getComputeServices().getVolumeSupport().getVolume(testVolumeId);
+                    @SuppressWarnings("ConstantConditions") Volume v = tm.getComputeServices().getVolumeSupport().getVolume(testVolumeId);
 
                     if( v != null && v.getProviderVirtualMachineId() != null ) {
                         //noinspection ConstantConditions
-                        tm.getProvider().getComputeServices().getVolumeSupport().detach(testVolumeId, true);
+                        tm.getComputeServices().getVolumeSupport().detach(testVolumeId, true);
                         try { Thread.sleep(60000L); }
                         catch( InterruptedException ignore ) { }
                     }
@@ -243,11 +243,11 @@ public class StatefulVolumeTests {
 
             if( testVolumeId != null ) {
                 try {
-                    @SuppressWarnings("ConstantConditions") Volume v = tm.getProvider().getComputeServices().getVolumeSupport().getVolume(testVolumeId);
+                    @SuppressWarnings("ConstantConditions") Volume v = tm.getComputeServices().getVolumeSupport().getVolume(testVolumeId);
 
                     if( v != null && v.getProviderVirtualMachineId() != null ) {
                         //noinspection ConstantConditions
-                        tm.getProvider().getComputeServices().getVolumeSupport().detach(testVolumeId, true);
+                        tm.getComputeServices().getVolumeSupport().detach(testVolumeId, true);
                         try { Thread.sleep(60000L); }
                         catch( InterruptedException ignore ) { }
                     }
@@ -262,7 +262,7 @@ public class StatefulVolumeTests {
     @After
     public void after() {
         try {
-            ComputeServices services = tm.getProvider().getComputeServices();
+            ComputeServices services = tm.getComputeServices();
 
             if( services != null ) {
                 VolumeSupport support = services.getVolumeSupport();
@@ -311,7 +311,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void filterVolumes() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -359,7 +359,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void createBlockVolume() throws CloudException, InternalException {
-        final ComputeServices services = tm.getProvider().getComputeServices();
+        final ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -441,7 +441,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void createNFSVolume() throws CloudException, InternalException {
-        final ComputeServices services = tm.getProvider().getComputeServices();
+        final ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -530,7 +530,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void createFromSnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -619,7 +619,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void attach() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -714,7 +714,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void detach() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -776,7 +776,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void attachToBogusVM() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -840,7 +840,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void detachUnattachedVolume() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -883,7 +883,7 @@ public class StatefulVolumeTests {
 
     @Test
     public void removeVolume() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
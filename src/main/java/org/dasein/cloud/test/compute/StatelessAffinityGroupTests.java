@@ -76,7 +76,7 @@ public class StatelessAffinityGroupTests {
             testDataCenterId = DaseinTestManager.getDefaultDataCenterId(true);
 
             if (testDataCenterId != null) {
-                ComputeServices computeServices = tm.getProvider().getComputeServices();
+                ComputeServices computeServices = tm.getComputeServices();
                 if (computeServices.hasAffinityGroupSupport()) {
                     AffinityGroupSupport support = computeServices.getAffinityGroupSupport();
                     AffinityGroupFilterOptions options = AffinityGroupFilterOptions.getInstance().withDataCenterId(testDataCenterId);
@@ -101,7 +101,7 @@ public class StatelessAffinityGroupTests {
     @Test
     public void getBogusAffinityGroup() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices computeServices = tm.getProvider().getComputeServices();
+        ComputeServices computeServices = tm.getComputeServices();
         if (computeServices.hasAffinityGroupSupport()) {
             AffinityGroupSupport services = computeServices.getAffinityGroupSupport();
             AffinityGroup ag = services.get(UUID.randomUUID().toString());
@@ -118,7 +118,7 @@ public class StatelessAffinityGroupTests {
     public void getAffinityGroup() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        ComputeServices computeServices = tm.getProvider().getComputeServices();
+        ComputeServices computeServices = tm.getComputeServices();
         if (computeServices.hasAffinityGroupSupport()) {
             if (testAffinityGroupId != null) {
                 AffinityGroupSupport services = computeServices.getAffinityGroupSupport();
@@ -138,7 +138,7 @@ public class StatelessAffinityGroupTests {
     public void affinityGroupContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        ComputeServices computeServices = tm.getProvider().getComputeServices();
+        ComputeServices computeServices = tm.getComputeServices();
         if (computeServices.hasAffinityGroupSupport()) {
             if (testAffinityGroupId != null) {
                 AffinityGroupSupport services = computeServices.getAffinityGroupSupport();
@@ -172,7 +172,7 @@ public class StatelessAffinityGroupTests {
     public void listAffinityGroups() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        ComputeServices computeServices = tm.getProvider().getComputeServices();
+        ComputeServices computeServices = tm.getComputeServices();
         if (computeServices.hasAffinityGroupSupport()) {
             if (testDataCenterId != null) {
                 if (testAffinityGroupId != null) {
@@ -61,6 +61,8 @@ import static org.junit.Assume.assumeTrue;
 public class StatelessImageTests {
     static private final Random random = new Random();
 
+    static private final int SAMPLE_SIZE = 5;
+
     static private DaseinTestManager tm;
 
     @BeforeClass
@@ -154,6 +156,31 @@ public class StatelessImageTests {
         }
     }
 
+    /**
+     * Streams the public images of a platform through an {@link ImageCatalogScan}, checking every image for the
+     * first 100 and one in five after that.
+     */
+    private int scanPublicLibrary(@Nonnull final MachineImageSupport support, @Nonnull final Platform platform, @Nonnull String name, boolean library) throws CloudException, InternalException {
+        Iterable<MachineImage> images = support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(platform));
+        ImageCatalogScan scan = new ImageCatalogScan(SAMPLE_SIZE);
+
+        assertNotNull("searchPublicImages() must return a non-null list of images even if the image class is not supported or public libraries are not supported", images);
+        scan.scan(images, new ImageCatalogScan.Check() {
+            @Override
+            public void check(@Nonnull MachineImage image, int index) throws CloudException, InternalException {
+                if( index < 100 || random.nextInt(100) < 20 ) {
+                    assertEquals("The platform for the image " + image.getProviderMachineImageId() + " is not " + platform, platform, image.getPlatform());
+                    assertTrue("The image " + image.getProviderMachineImageId() + " is actually private", support.isImageSharedWithPublic(image.getProviderMachineImageId()));
+                }
+            }
+        });
+        scan.report(tm, "Public " + name + " Image");
+        if( !library ) {
+            assertTrue("Because public machine image libraries are not supported, the list of " + name + " images should be empty", scan.getCount() == 0);
+        }
+        return scan.getCount();
+    }
+
     private void assertListEquals(@Nonnull String errorMessage, @Nonnull Iterable<MachineImage> expected, @Nonnull Iterable<MachineImage> actual) {
         int expectedCount = 0, actualCount = 0;
 
@@ -187,7 +214,7 @@ public class StatelessImageTests {
     @Test
     public void checkMetaData() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -259,7 +286,7 @@ public class StatelessImageTests {
     @Test
     public void getBogusImage() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -282,7 +309,7 @@ public class StatelessImageTests {
     @Test
     public void getImage() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -315,7 +342,7 @@ public class StatelessImageTests {
     @Test
     public void imageContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -375,7 +402,7 @@ public class StatelessImageTests {
     @Test
     public void listMachineImages() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -421,7 +448,7 @@ public class StatelessImageTests {
     public void removeMachineImage() throws CloudException, InternalException {
         String manual_name_of_image_to_be_removed = "qa-project-2_roger-test";
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -469,7 +496,7 @@ public class StatelessImageTests {
     @Test
     public void listKernelImages() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -513,7 +540,7 @@ public class StatelessImageTests {
     @Test
     public void listRamdiskImages() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -557,7 +584,7 @@ public class StatelessImageTests {
     @Test
     public void listMachineImageStatus() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -595,7 +622,7 @@ public class StatelessImageTests {
     @Test
     public void listKernelImageStatus() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -633,7 +660,7 @@ public class StatelessImageTests {
     @Test
     public void listRamdiskImageStatus() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -671,7 +698,7 @@ public class StatelessImageTests {
     @Test
     public void compareImageListAndStatus() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -721,7 +748,7 @@ public class StatelessImageTests {
     @Test
     public void findTestLinuxOrWindowsInPrivateLibrary() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -822,7 +849,7 @@ public class StatelessImageTests {
     @Test
     public void findAllPublicImages() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -837,19 +864,18 @@ public class StatelessImageTests {
                 }
 
                 Iterable<MachineImage> images = support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).matchingAny());
-                int count = 0;
+                ImageCatalogScan scan = new ImageCatalogScan(SAMPLE_SIZE);
 
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
-                for( MachineImage image : images ) {
-                    count++;
-                    tm.out("Image", image);
-                }
-                tm.out("Total Machine Image Count", count);
+                scan.scan(images, new ImageCatalogScan.Check() {
+                    @Override
+                    public void check(@Nonnull MachineImage image, int index) {
+                        assertImageContent(image, ImageClass.MACHINE, Boolean.TRUE);
+                    }
+                });
+                scan.report(tm, "Public Machine Image");
                 if( !supported ) {
-                    assertTrue("Because machine images are not supported, the list of images should be empty", count == 0);
-                }
-                if( count > 0 ) {
-                    assertImageContent(images, ImageClass.MACHINE, Boolean.TRUE);
+                    assertTrue("Because machine images are not supported, the list of images should be empty", scan.getCount() == 0);
                 }
             }
         }
@@ -858,7 +884,7 @@ public class StatelessImageTests {
     @Test
     public void findUbuntuOrWindowsOrRHELInPublicLibrary() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
@@ -871,66 +897,12 @@ public class StatelessImageTests {
                         supported = true;
                     }
                 }
-                Iterable<MachineImage> images = support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(Platform.UBUNTU));
-                int ubuntu = 0;
-
-                assertNotNull("searchPublicImages() must return a non-null list of images even if the image class is not supported or public libraries are not supported", images);
-                for( MachineImage image : images ) {
-                    ubuntu++;
-                    tm.out("Ubuntu Public Image", image);
-                }
-                tm.out("Total Public Ubuntu Image Count", ubuntu);
-                if( !supported || !support.getCapabilities().supportsPublicLibrary(ImageClass.MACHINE) ) {
-                    assertTrue("Because public machine image libraries are not supported, the list of images should be empty", ubuntu == 0);
-                }
-                for( MachineImage image : images ) {
-                    // if there are more than 100 images, check only one in five
-                    if( ubuntu < 100 || random.nextInt(100) < 20 ) {
-                        assertEquals("The platform for the image " + image.getProviderMachineImageId() + " is not Ubuntu", Platform.UBUNTU, image.getPlatform());
-                        assertTrue("The image " + image.getProviderMachineImageId() + " is actually private", support.isImageSharedWithPublic(image.getProviderMachineImageId()));
-                    }
-                }
-
-                images = support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(Platform.RHEL));
-                int rhel = 0;
-
-                assertNotNull("searchPublicIMages() must return a non-null list of images even if the image class is not supported", images);
-                for( MachineImage image : images ) {
-                    rhel++;
-                    tm.out("RHEL Image", image);
-                }
-                tm.out("Total Public RHEL Image Count", rhel);
-                if( !supported || !support.getCapabilities().supportsPublicLibrary(ImageClass.MACHINE) ) {
-                    assertTrue("Because public machine image libraries are not supported, the list of images should be empty", ubuntu == 0);
-                }
-                for( MachineImage image : images ) {
-                    // if there are more than 100 images, check only one in five
-                    if( rhel < 100 || random.nextInt(100) < 20 ) {
-                        assertEquals("The platform for the image " + image.getProviderMachineImageId() + " is not RHEL", Platform.RHEL, image.getPlatform());
-                        assertTrue("The image " + image.getProviderMachineImageId() + " is actually private", support.isImageSharedWithPublic(image.getProviderMachineImageId()));
-                    }
-                }
-
+                boolean library = supported && support.getCapabilities().supportsPublicLibrary(ImageClass.MACHINE);
+                int ubuntu = scanPublicLibrary(support, Platform.UBUNTU, "Ubuntu", library);
+                int rhel = scanPublicLibrary(support, Platform.RHEL, "RHEL", library);
+                int windows = scanPublicLibrary(support, Platform.WINDOWS, "Windows", library);
 
-                images = support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(Platform.WINDOWS));
-                int windows = 0;
-
-                assertNotNull("searchPublicImages() must return a non-null list of images even if the image class is not supported or public libraries are not supported", images);
-                for( MachineImage image : images ) {
-                    windows++;
-                    tm.out("Windows Public Image", image);
-                }
-                tm.out("Total Public Windows Image Count", windows);
-                if( !supported || !support.getCapabilities().supportsPublicLibrary(ImageClass.MACHINE) ) {
-                    assertTrue("Because public machine images libraries are not supported, the list of images should be empty", windows == 0);
-                }
-                for( MachineImage image : images ) {
-                    // if there are more than 100 images, check only one in five
-                    if( windows < 100 || random.nextInt(100) < 20 ) {
-                        assertEquals("The platform for the image " + image.getProviderMachineImageId() + " is not Windows", Platform.WINDOWS, image.getPlatform());
-                        assertTrue("The image " + image.getProviderMachineImageId() + " is actually private", support.isImageSharedWithPublic(image.getProviderMachineImageId()));
-                    }
-                }
+                tm.out("Total Public Ubuntu, RHEL and Windows Image Count", ubuntu + rhel + windows);
                 if( windows == 0 && ubuntu == 0 ) {
                     if( supported && support.getCapabilities().supportsPublicLibrary(ImageClass.MACHINE) ) {
                         tm.warn("No private Ubuntu or Windows images were found; the test may have failed or there may be nothing to find");
@@ -950,7 +922,7 @@ public class StatelessImageTests {
     @Test
     public void deprecation() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             MachineImageSupport support = services.getImageSupport();
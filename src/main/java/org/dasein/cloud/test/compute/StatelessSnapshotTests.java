@@ -87,7 +87,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -111,7 +111,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void getBogusSnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -131,7 +131,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void getSnapshot() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -174,7 +174,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void snapshotContent() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -226,7 +226,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void listSnapshots() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -263,7 +263,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void listSnapshotStatus() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -295,7 +295,7 @@ public class StatelessSnapshotTests {
 
     @Test
     public void compareVSnapshotListAndStatus() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("Compute services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
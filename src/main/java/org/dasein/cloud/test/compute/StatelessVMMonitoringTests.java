@@ -89,7 +89,7 @@ public class StatelessVMMonitoringTests {
     @Test
     public void checkMetaData() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -110,7 +110,7 @@ public class StatelessVMMonitoringTests {
     @Test
     public void getConsoleOutput() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -138,7 +138,7 @@ public class StatelessVMMonitoringTests {
     @Test
     public void getStatisticsForLastHour() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -195,7 +195,7 @@ public class StatelessVMMonitoringTests {
     @Test
     public void getSamplesForLastHour() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
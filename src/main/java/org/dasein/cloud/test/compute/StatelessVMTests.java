@@ -94,7 +94,7 @@ public class StatelessVMTests {
     @Test
     public void checkMetaData() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -202,7 +202,7 @@ public class StatelessVMTests {
 
     @Test
     public void deprecatedCapabilities() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -230,7 +230,7 @@ public class StatelessVMTests {
     @Test
     public void getBogusVMProduct() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -253,7 +253,7 @@ public class StatelessVMTests {
     @Test
     public void getVMProduct() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -278,7 +278,7 @@ public class StatelessVMTests {
     @Test
     public void productContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -321,7 +321,7 @@ public class StatelessVMTests {
     @Test
     public void listVMProductsForImage() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -354,7 +354,7 @@ public class StatelessVMTests {
     @Test
     public void getBogusVM() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -387,7 +387,7 @@ public class StatelessVMTests {
     @Test
     public void getVMPassword() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -422,7 +422,7 @@ public class StatelessVMTests {
     @Test
     public void getVMUserData() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -451,7 +451,7 @@ public class StatelessVMTests {
     @Test
     public void getVirtualMachine() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -479,7 +479,7 @@ public class StatelessVMTests {
     @Test
     public void virtualMachineContent() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -565,7 +565,7 @@ public class StatelessVMTests {
     @Test
     public void listVMs() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -608,7 +608,7 @@ public class StatelessVMTests {
     @Test
     public void listSpotPriceHistories() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services == null ) {
             tm.ok("No compute services in this cloud");
@@ -671,7 +671,7 @@ public class StatelessVMTests {
     @Test
     public void listVMStatus() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -714,7 +714,7 @@ public class StatelessVMTests {
     @Test
     public void compareVMListAndStatus() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
@@ -765,7 +765,7 @@ public class StatelessVMTests {
     public void requestSpotVm() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
 
-        ComputeServices computeServices = tm.getProvider().getComputeServices();
+        ComputeServices computeServices = tm.getComputeServices();
         if( computeServices == null ) {
             tm.ok("No compute services in this cloud");
             return;
@@ -160,7 +160,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -220,7 +220,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void volumeProductContent() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -270,7 +270,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void listVolumeProducts() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -311,7 +311,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void getBogusVolume() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -333,7 +333,7 @@ public class StatelessVolumeTests {
 
     @Test
      public void getVolume() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -365,7 +365,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void volumeContent() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -428,7 +428,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void listVolumes() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -467,7 +467,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void listVolumeStatus() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -501,7 +501,7 @@ public class StatelessVolumeTests {
 
     @Test
     public void compareVolumeListAndStatus() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
 
         if( services != null ) {
             VolumeSupport support = services.getVolumeSupport();
@@ -32,6 +32,10 @@ import org.dasein.cloud.identity.IdentityServices;
 import org.dasein.cloud.identity.SSHKeypair;
 import org.dasein.cloud.identity.ShellKeySupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.Prefetcher;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.cloud.test.ResourceRegistry;
+import org.dasein.cloud.test.TeardownGraph;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -44,10 +48,9 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPublicKey;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.Callable;
 
 /**
  * Manages all identity resources for automated provisioning and de-provisioning during integration tests.
@@ -59,11 +62,9 @@ import java.util.Random;
 public class IdentityResources {
     static private final Logger logger = Logger.getLogger(IdentityResources.class);
 
-    static private final Random random = new Random();
-
-    private final HashMap<String,String> testGroups = new HashMap<String, String>();
-    private final HashMap<String,String> testKeys   = new HashMap<String, String>();
-    private final HashMap<String,String> testUsers  = new HashMap<String, String>();
+    private final ResourceRegistry<String> testGroups = new ResourceRegistry<String>(ResourceKind.GROUP);
+    private final ResourceRegistry<String> testKeys   = new ResourceRegistry<String>(ResourceKind.KEYPAIR);
+    private final ResourceRegistry<String> testUsers  = new ResourceRegistry<String>(ResourceKind.USER);
     private CloudProvider   provider;
 
     public IdentityResources(@Nonnull CloudProvider provider) {
@@ -104,60 +105,112 @@ public class IdentityResources {
         }
     }
 
-    public int close() {
-        int count = 0;
-
-        try {
-            IdentityServices identityServices = provider.getIdentityServices();
+    /**
+     * Adds the removal of every identity resource provisioned for testing to the specified teardown graph.
+     * @param graph the graph to which teardown tasks are added
+     */
+    public void addTeardown(@Nonnull TeardownGraph graph) {
+        IdentityServices identityServices = provider.getIdentityServices();
 
-            if( identityServices != null ) {
-                ShellKeySupport keySupport = identityServices.getShellKeySupport();
+        if( identityServices == null ) {
+            return;
+        }
+        final ShellKeySupport keySupport = identityServices.getShellKeySupport();
 
-                if( keySupport != null ) {
-                    for( Map.Entry<String,String> entry : testKeys.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                keySupport.deleteKeypair(entry.getValue());
-                                count++;
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test keypair " + entry.getValue() + ": " + t.getMessage());
-                            }
+        if( keySupport != null ) {
+            for( Map.Entry<String,String> entry : testKeys.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String keypairId = entry.getValue();
+
+                    graph.add(ResourceKind.KEYPAIR, keypairId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            keySupport.deleteKeypair(keypairId);
+                            return true;
                         }
-                    }
+                    });
                 }
-                IdentityAndAccessSupport iamSupport = identityServices.getIdentityAndAccessSupport();
-
-                if( iamSupport != null ) {
-                    for( Map.Entry<String,String> entry : testUsers.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                iamSupport.removeUser(entry.getValue());
-                                count++;
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test user " + entry.getValue() + ": " + t.getMessage());
-                            }
+            }
+        }
+        final IdentityAndAccessSupport iamSupport = identityServices.getIdentityAndAccessSupport();
+
+        if( iamSupport != null ) {
+            for( Map.Entry<String,String> entry : testUsers.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String userId = entry.getValue();
+
+                    graph.add(ResourceKind.USER, userId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            iamSupport.removeUser(userId);
+                            return true;
                         }
-                    }
-                    for( Map.Entry<String,String> entry : testGroups.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                iamSupport.removeGroup(entry.getValue());
-                                count++;
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test group " + entry.getValue() + ": " + t.getMessage());
-                            }
+                    });
+                }
+            }
+            for( Map.Entry<String,String> entry : testGroups.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String groupId = entry.getValue();
+
+                    graph.add(ResourceKind.GROUP, groupId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            iamSupport.removeGroup(groupId);
+                            return true;
                         }
-                    }
+                    });
                 }
             }
         }
-        catch( Throwable ignore ) {
-            // ignore
+    }
+
+    /**
+     * Takes over a identity resource this framework did not provision in this run, such as one leaked by an earlier
+     * run, so that it is removed with the other test resources.
+     * @param kind the kind of resource
+     * @param label the label under which the resource is registered
+     * @param id the ID of the resource
+     * @return true if the resource was adopted, false if identity resources do not track that kind of resource
+     */
+    public boolean adopt(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull String id) {
+        switch( kind ) {
+            case GROUP: testGroups.put(label, id); return true;
+            case KEYPAIR: testKeys.put(label, id); return true;
+            case USER: testUsers.put(label, id); return true;
+            default: return false;
         }
-        return count;
+    }
+
+    /**
+     * Adds the lookup of every stateless identity fixture to the specified prefetcher.
+     * @param prefetcher the prefetcher to which the lookups are added
+     */
+    public void addPrefetch(@Nonnull Prefetcher prefetcher) {
+        prefetcher.add(ResourceKind.GROUP, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessGroup();
+            }
+        });
+        prefetcher.add(ResourceKind.KEYPAIR, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessKeypair();
+            }
+        });
+        prefetcher.add(ResourceKind.USER, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessUser(null);
+            }
+        });
+    }
+
+    public int close() {
+        TeardownGraph graph = new TeardownGraph();
+
+        addTeardown(graph);
+        return graph.execute();
     }
 
     public int report() {
@@ -169,7 +222,7 @@ public class IdentityResources {
             logger.info("Provisioned Identity Resources:");
             header = true;
             count += testKeys.size();
-            DaseinTestManager.out(logger, null, "---> SSH Keypairs", testKeys.size() + " " + testKeys);
+            DaseinTestManager.out(logger, null, "---> " + testKeys.getKind(), testKeys.size() + " " + testKeys);
         }
         testGroups.remove(DaseinTestManager.STATELESS);
         if( !testGroups.isEmpty() ) {
@@ -178,7 +231,7 @@ public class IdentityResources {
                 header = true;
             }
             count += testGroups.size();
-            DaseinTestManager.out(logger, null, "---> Groups", testGroups.size() + " " + testGroups);
+            DaseinTestManager.out(logger, null, "---> " + testGroups.getKind(), testGroups.size() + " " + testGroups);
         }
         testUsers.remove(DaseinTestManager.STATELESS);
         if( !testUsers.isEmpty() ) {
@@ -186,12 +239,12 @@ public class IdentityResources {
                 logger.info("Provisioned Identity Resources:");
             }
             count+= testUsers.size();
-            DaseinTestManager.out(logger, null, "---> Users", testUsers.size() + " " + testUsers);
+            DaseinTestManager.out(logger, null, "---> " + testUsers.getKind(), testUsers.size() + " " + testUsers);
         }
         return count;
     }
 
-    public @Nullable String getTestGroupId(@Nonnull String label, boolean provisionIfNull) {
+    public @Nullable String getTestGroupId(@Nonnull final String label, boolean provisionIfNull) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testGroups.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -213,11 +266,16 @@ public class IdentityResources {
             IdentityServices services = provider.getIdentityServices();
 
             if( services != null ) {
-                IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
+                final IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionGroup(support, label, "dsngroup");
+                        return testGroups.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionGroup(support, label, "dsngroup");
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -228,7 +286,7 @@ public class IdentityResources {
         return null;
     }
 
-    public @Nullable String getTestKeypairId(@Nonnull String label, boolean provisionIfNull) {
+    public @Nullable String getTestKeypairId(@Nonnull final String label, boolean provisionIfNull) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testKeys.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -250,11 +308,16 @@ public class IdentityResources {
             IdentityServices services = provider.getIdentityServices();
 
             if( services != null ) {
-                ShellKeySupport support = services.getShellKeySupport();
+                final ShellKeySupport support = services.getShellKeySupport();
 
                 if( support != null ) {
                     try {
-                        return provisionKeypair(support, label, "dsnkp");
+                        return testKeys.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionKeypair(support, label, "dsnkp");
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -265,7 +328,7 @@ public class IdentityResources {
         return null;
     }
 
-    public @Nullable String getTestUserId(@Nonnull String label, boolean provisionIfNull, @Nullable String groupToJoin) {
+    public @Nullable String getTestUserId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String groupToJoin) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testUsers.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -300,11 +363,16 @@ public class IdentityResources {
             IdentityServices services = provider.getIdentityServices();
 
             if( services != null ) {
-                IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
+                final IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionUser(support, label, "dsnuser", groupToJoin);
+                        return testUsers.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionUser(support, label, "dsnuser", groupToJoin);
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -406,12 +474,7 @@ public class IdentityResources {
         if( id == null ) {
             throw new CloudException("No group was created");
         }
-        synchronized( testGroups ) {
-            while( testGroups.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testGroups.put(label, id);
-        }
+        testGroups.register(label, id);
         return id;
     }
 
@@ -430,12 +493,7 @@ public class IdentityResources {
         if( id == null ) {
             throw new CloudException("No keypair was generated");
         }
-        synchronized( testKeys ) {
-            while( testKeys.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testKeys.put(label, id);
-        }
+        testKeys.register(label, id);
         return id;
     }
 
@@ -445,12 +503,7 @@ public class IdentityResources {
         if( id == null ) {
             throw new CloudException("No user was created");
         }
-        synchronized( testUsers ) {
-            while( testUsers.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testUsers.put(label, id);
-        }
+        testUsers.register(label, id);
         return id;
     }
 }
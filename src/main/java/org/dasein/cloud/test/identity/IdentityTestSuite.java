@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test.identity;
 
+import org.dasein.cloud.test.DaseinSuite;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -31,7 +32,7 @@ import org.junit.runners.Suite;
  *
  * @author George Reese
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({
         StatefulKeypairTests.class,
         StatefulIAMTests.class,
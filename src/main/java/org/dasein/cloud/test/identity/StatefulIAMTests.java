@@ -76,7 +76,7 @@ public class StatefulIAMTests {
         tm.begin(name.getMethodName());
         assumeTrue(!tm.isTestSkipped());
 
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
         IdentityAndAccessSupport support = null;
 
         if( services != null ) {
@@ -786,7 +786,7 @@ public class StatefulIAMTests {
      * @return support instance if available, else {@code null}
      */
     private @Nullable IdentityAndAccessSupport getIASupport() {
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services == null ) {
             tm.ok("Identity services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
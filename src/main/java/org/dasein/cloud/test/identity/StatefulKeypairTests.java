@@ -84,7 +84,7 @@ public class StatefulKeypairTests {
         try {
             if( testKeyId != null ) {
                 //noinspection ConstantConditions
-                tm.getProvider().getIdentityServices().getShellKeySupport().deleteKeypair(testKeyId);
+                tm.getIdentityServices().getShellKeySupport().deleteKeypair(testKeyId);
             }
         }
         catch( Throwable ignore ) {
@@ -97,7 +97,7 @@ public class StatefulKeypairTests {
     @Test
     public void generateKeypair() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -135,7 +135,7 @@ public class StatefulKeypairTests {
     @Test
     public void importKeypair() throws CloudException, InternalException {
     assumeTrue(!tm.isTestSkipped());
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -182,7 +182,7 @@ public class StatefulKeypairTests {
     @Test
     public void removeKeypair() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
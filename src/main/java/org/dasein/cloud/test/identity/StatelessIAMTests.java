@@ -76,7 +76,7 @@ public class StatelessIAMTests {
     public void before() {
         tm.begin(name.getMethodName());
         assumeTrue(!tm.isTestSkipped());
-        identityServices = tm.getProvider().getIdentityServices();
+        identityServices = tm.getIdentityServices();
 
         if( identityServices == null ) {
             tm.ok("Identity services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
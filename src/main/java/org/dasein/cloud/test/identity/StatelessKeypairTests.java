@@ -81,7 +81,7 @@ public class StatelessKeypairTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -102,7 +102,7 @@ public class StatelessKeypairTests {
 
     @Test
     public void getBogusKeypair() throws CloudException, InternalException {
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -124,7 +124,7 @@ public class StatelessKeypairTests {
 
     @Test
     public void getKeypair() throws CloudException, InternalException {
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -151,7 +151,7 @@ public class StatelessKeypairTests {
 
     @Test
     public void keypairContent() throws CloudException, InternalException {
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -192,7 +192,7 @@ public class StatelessKeypairTests {
 
     @Test
     public void listKeypairs() throws CloudException, InternalException {
-        IdentityServices services = tm.getProvider().getIdentityServices();
+        IdentityServices services = tm.getIdentityServices();
 
         if( services != null ) {
             ShellKeySupport support = services.getShellKeySupport();
@@ -26,15 +26,26 @@ import org.dasein.cloud.compute.VirtualMachine;
 import org.dasein.cloud.compute.VmState;
 import org.dasein.cloud.dc.DataCenter;
 import org.dasein.cloud.network.*;
+import org.dasein.cloud.test.CapabilitySnapshot;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.LeaseStore;
+import org.dasein.cloud.test.PollCoordinator;
+import org.dasein.cloud.test.Prefetcher;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.cloud.test.ResourceRegistry;
+import org.dasein.cloud.test.StateWaiter;
+import org.dasein.cloud.test.TeardownGraph;
+import org.dasein.cloud.test.WarmPool;
 import org.dasein.cloud.test.compute.ComputeResources;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 /**
  * Caching of and access to network resources used in the various test cases.
@@ -42,6 +53,10 @@ import java.util.Random;
  *
  * @author George Reese
  * @version 2013.04 initial version
+ * @version 2015.10 stateful static IPs may be leased from a warm pool
+ * @version 2015.10 the stateful VLAN and subnets may be kept for later runs through a {@link LeaseStore}
+ * @version 2015.10 stateless fixtures may be looked up concurrently by a {@link Prefetcher}
+ * @version 2015.10 load balancer requirements are answered from the {@link CapabilitySnapshot}
  * @since 2013.04
  */
 public class NetworkResources {
@@ -51,24 +66,31 @@ public class NetworkResources {
 
     private CloudProvider provider;
     public final static String TEST_CIDR = "209.98.98.98/32";
-
-    private final Map<String, String> testGeneralFirewalls = new HashMap<String, String>();
-    private final Map<String, String> testIps4Free = new HashMap<String, String>();
-    private final Map<String, String> testIps6Free = new HashMap<String, String>();
-    private final Map<String, String> testIps4VLAN = new HashMap<String, String>();
-    private final Map<String, String> testIps6VLAN = new HashMap<String, String>();
-    private final Map<String, String> testLBs = new HashMap<String, String>();
-    private final Map<String, String> testSSLCertificates = new HashMap<String, String>();
-    private final Map<String, String> testNetworkFirewalls = new HashMap<String, String>();
-    private final Map<String, String> testSubnets = new HashMap<String, String>();
-    private final Map<String, String> testInternetGateways = new HashMap<String, String>();
-    private final Map<String, String> testVLANs = new HashMap<String, String>();
-    private final Map<String, String> testRouteTables = new HashMap<String, String>();
-    private final Map<String, String> testVLANFirewalls = new HashMap<String, String>();
-    private final Map<String, String> testZones = new HashMap<String, String>();
-    private final Map<String, String> testVpns = new HashMap<String, String>();
+    public final static String TEST_VLAN_CIDR = "192.168.1.0/24";
+
+    private final ResourceRegistry<String> testGeneralFirewalls = new ResourceRegistry<String>(ResourceKind.FIREWALL);
+    private final ResourceRegistry<String> testIps4Free = new ResourceRegistry<String>(ResourceKind.STATIC_IP4);
+    private final ResourceRegistry<String> testIps6Free = new ResourceRegistry<String>(ResourceKind.STATIC_IP6);
+    private final ResourceRegistry<String> testIps4VLAN = new ResourceRegistry<String>(ResourceKind.VLAN_IP4);
+    private final ResourceRegistry<String> testIps6VLAN = new ResourceRegistry<String>(ResourceKind.VLAN_IP6);
+    private final ResourceRegistry<String> testLBs = new ResourceRegistry<String>(ResourceKind.LOAD_BALANCER);
+    private final ResourceRegistry<String> testSSLCertificates = new ResourceRegistry<String>(ResourceKind.SSL_CERTIFICATE);
+    private final ResourceRegistry<String> testNetworkFirewalls = new ResourceRegistry<String>(ResourceKind.NETWORK_FIREWALL);
+    private final ResourceRegistry<String> testSubnets = new ResourceRegistry<String>(ResourceKind.SUBNET);
+    private final ResourceRegistry<String> testInternetGateways = new ResourceRegistry<String>(ResourceKind.INTERNET_GATEWAY);
+    private final ResourceRegistry<String> testVLANs = new ResourceRegistry<String>(ResourceKind.VLAN);
+    private final ResourceRegistry<String> testRouteTables = new ResourceRegistry<String>(ResourceKind.ROUTING_TABLE);
+    private final ResourceRegistry<String> testVLANFirewalls = new ResourceRegistry<String>(ResourceKind.VLAN_FIREWALL);
+    private final ResourceRegistry<String> testZones = new ResourceRegistry<String>(ResourceKind.DNS_ZONE);
+    private final ResourceRegistry<String> testVpns = new ResourceRegistry<String>(ResourceKind.VPN);
     private HealthCheckOptions testHttpHealthCheckOptions;
     private HealthCheckOptions testTcpHealthCheckOptions;
+    private PollCoordinator<LoadBalancer> lbPoller;
+
+    private volatile WarmPool  ipPool;
+    private volatile IPVersion ipPoolVersion;
+
+    private final LeaseStore leases;
 
     // make subnet creation more predicatable
     private final String[] cidrs = new String[]{"192.168.1.0/28", "192.168.1.20/28", "192.168.1.40/28", "192.168.1.60/28", "192.168.1.80/28",
@@ -78,6 +100,7 @@ public class NetworkResources {
 
     public NetworkResources(@Nonnull CloudProvider provider) {
         this.provider = provider;
+        this.leases = LeaseStore.getInstance(provider);
     }
 
     public int report() {
@@ -89,7 +112,7 @@ public class NetworkResources {
             logger.info("Provisioned Network Resources:");
             header = true;
             count += testGeneralFirewalls.size();
-            DaseinTestManager.out(logger, null, "---> Firewalls (Standard)", testGeneralFirewalls.size() + " " + testGeneralFirewalls);
+            DaseinTestManager.out(logger, null, "---> " + testGeneralFirewalls.getKind(), testGeneralFirewalls.size() + " " + testGeneralFirewalls);
         }
         testVLANFirewalls.remove(DaseinTestManager.STATELESS);
         if( !testVLANFirewalls.isEmpty() ) {
@@ -98,7 +121,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testVLANFirewalls.size();
-            DaseinTestManager.out(logger, null, "---> Firewalls (VLAN)", testVLANFirewalls.size() + " " + testVLANFirewalls);
+            DaseinTestManager.out(logger, null, "---> " + testVLANFirewalls.getKind(), testVLANFirewalls.size() + " " + testVLANFirewalls);
         }
         testNetworkFirewalls.remove(DaseinTestManager.STATELESS);
         if( !testNetworkFirewalls.isEmpty() ) {
@@ -107,7 +130,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testNetworkFirewalls.size();
-            DaseinTestManager.out(logger, null, "---> Network Firewalls", testNetworkFirewalls.size() + " " + testNetworkFirewalls);
+            DaseinTestManager.out(logger, null, "---> " + testNetworkFirewalls.getKind(), testNetworkFirewalls.size() + " " + testNetworkFirewalls);
         }
         testIps4Free.remove(DaseinTestManager.STATELESS);
         if( !testIps4Free.isEmpty() ) {
@@ -116,7 +139,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testIps4Free.size();
-            DaseinTestManager.out(logger, null, "---> Static IPs (Standard/IPv4)", testIps4Free.size() + " " + testIps4Free);
+            DaseinTestManager.out(logger, null, "---> " + testIps4Free.getKind(), testIps4Free.size() + " " + testIps4Free);
         }
         testIps6Free.remove(DaseinTestManager.STATELESS);
         if( !testIps6Free.isEmpty() ) {
@@ -125,7 +148,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testIps6Free.size();
-            DaseinTestManager.out(logger, null, "---> Static IPs (Standard/IPv6)", testIps6Free.size() + " " + testIps6Free);
+            DaseinTestManager.out(logger, null, "---> " + testIps6Free.getKind(), testIps6Free.size() + " " + testIps6Free);
         }
         testIps4VLAN.remove(DaseinTestManager.STATELESS);
         if( !testIps4VLAN.isEmpty() ) {
@@ -134,7 +157,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testIps4VLAN.size();
-            DaseinTestManager.out(logger, null, "---> Static IPs (VLAN/IPv4)", testIps4VLAN.size() + " " + testIps4VLAN);
+            DaseinTestManager.out(logger, null, "---> " + testIps4VLAN.getKind(), testIps4VLAN.size() + " " + testIps4VLAN);
         }
         testIps6VLAN.remove(DaseinTestManager.STATELESS);
         if( !testIps6VLAN.isEmpty() ) {
@@ -143,7 +166,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testIps6VLAN.size();
-            DaseinTestManager.out(logger, null, "---> Static IPs (VLAN/IPv6)", testIps6VLAN.size() + " " + testIps6VLAN);
+            DaseinTestManager.out(logger, null, "---> " + testIps6VLAN.getKind(), testIps6VLAN.size() + " " + testIps6VLAN);
         }
         testSubnets.remove(DaseinTestManager.STATELESS);
         if( !testSubnets.isEmpty() ) {
@@ -152,7 +175,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testSubnets.size();
-            DaseinTestManager.out(logger, null, "---> Subnets", testSubnets.size() + " " + testSubnets);
+            DaseinTestManager.out(logger, null, "---> " + testSubnets.getKind(), testSubnets.size() + " " + testSubnets);
         }
         testVLANs.remove(DaseinTestManager.STATELESS);
         if( !testVLANs.isEmpty() ) {
@@ -161,7 +184,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testVLANs.size();
-            DaseinTestManager.out(logger, null, "---> VLANs", testVLANs.size() + " " + testVLANs);
+            DaseinTestManager.out(logger, null, "---> " + testVLANs.getKind(), testVLANs.size() + " " + testVLANs);
         }
         testZones.remove(DaseinTestManager.STATELESS);
         if( !testZones.isEmpty() ) {
@@ -170,7 +193,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testZones.size();
-            DaseinTestManager.out(logger, null, "---> DNS Zones", testZones.size() + " " + testZones);
+            DaseinTestManager.out(logger, null, "---> " + testZones.getKind(), testZones.size() + " " + testZones);
         }
         testLBs.remove(DaseinTestManager.STATELESS);
         if( !testLBs.isEmpty() ) {
@@ -179,7 +202,7 @@ public class NetworkResources {
                 header = true;
             }
             count += testLBs.size();
-            DaseinTestManager.out(logger, null, "---> Load Balancers", testLBs.size() + " " + testLBs);
+            DaseinTestManager.out(logger, null, "---> " + testLBs.getKind(), testLBs.size() + " " + testLBs);
         }
         testSSLCertificates.remove(DaseinTestManager.STATELESS);
         if ( !testSSLCertificates.isEmpty() ) {
@@ -187,532 +210,564 @@ public class NetworkResources {
                 logger.info("Provisioned Network Resources:");
             }
             count += testSSLCertificates.size();
-            DaseinTestManager.out(logger, null, "---> SSL Certificates", testSSLCertificates.size() + " " +
+            DaseinTestManager.out(logger, null, "---> " + testSSLCertificates.getKind(), testSSLCertificates.size() + " " +
                     testSSLCertificates);
         }
         return count;
     }
 
-    public int close() {
-        int count = 0;
+    /**
+     * Adds the removal of every network resource provisioned for testing to the specified teardown graph.
+     * @param graph the graph to which teardown tasks are added
+     */
+    public void addTeardown(@Nonnull TeardownGraph graph) {
+        NetworkServices networkServices = provider.getNetworkServices();
 
-        try {
-            try {
-                Thread.sleep(10000L);
-            } catch( InterruptedException ignore ) {
-            }
-            NetworkServices networkServices = provider.getNetworkServices();
+        if( networkServices == null ) {
+            return;
+        }
+        final DNSSupport dnsSupport = networkServices.getDnsSupport();
 
-            if( networkServices != null ) {
-                DNSSupport dnsSupport = networkServices.getDnsSupport();
+        if( dnsSupport != null ) {
+            for( Map.Entry<String, String> entry : testZones.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String zoneId = entry.getValue();
 
-                if( dnsSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testZones.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                DNSZone zone = dnsSupport.getDnsZone(entry.getValue());
+                    graph.add(ResourceKind.DNS_ZONE, zoneId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            DNSZone zone = dnsSupport.getDnsZone(zoneId);
 
+                            if( zone != null ) {
                                 try {
-                                    if( zone != null ) {
+                                    for( DNSRecord record : dnsSupport.listDnsRecords(zone.getProviderDnsZoneId(), DNSRecordType.A, null) ) {
                                         try {
-                                            for( DNSRecord record : dnsSupport.listDnsRecords(zone.getProviderDnsZoneId(), DNSRecordType.A, null) ) {
-                                                try {
-                                                    dnsSupport.deleteDnsRecords(record);
-                                                } catch( Throwable ignore ) {
-                                                    // ignore
-                                                }
-                                            }
+                                            dnsSupport.deleteDnsRecords(record);
                                         } catch( Throwable ignore ) {
                                             // ignore
                                         }
-                                        dnsSupport.deleteDnsZone(zone.getProviderDnsZoneId());
-                                        count++;
-                                    } else {
-                                        count++;
                                     }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision test DNS zone " + entry.getValue() + ":" + t.getMessage());
+                                } catch( Throwable ignore ) {
+                                    // ignore
                                 }
+                                dnsSupport.deleteDnsZone(zone.getProviderDnsZoneId());
                             }
+                            return true;
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
+                    });
                 }
+            }
+        }
 
-                LoadBalancerSupport lbSupport = networkServices.getLoadBalancerSupport();
-
-                if( lbSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testLBs.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                LoadBalancer lb = lbSupport.getLoadBalancer(entry.getValue());
+        final LoadBalancerSupport lbSupport = networkServices.getLoadBalancerSupport();
 
-                                try {
-                                    if( lb != null ) {
-                                        // allow five minutes for the load balancer to stop pending
-                                        long timeout = System.currentTimeMillis() + 5 * 60 * 1000;
-                                        while( LoadBalancerState.PENDING.equals(lb.getCurrentState()) &&
-                                                timeout > System.currentTimeMillis() ) {
-                                            Thread.sleep(10000);
-                                            lb = lbSupport.getLoadBalancer(entry.getValue());
-                                        }
-                                        // no point wasting API calls if the load balancer is already gone
-                                        if( !LoadBalancerState.TERMINATED.equals(lb.getCurrentState()) ) {
-                                            lbSupport.removeLoadBalancer(lb.getProviderLoadBalancerId());
-                                        }
-                                        
-                                        try {
-                                            // only delete LBHC if it is separate from an LB
-                                            if( !Requirement.REQUIRED.equals(lbSupport.getCapabilities().identifyHealthCheckOnCreateRequirement()) ) {
-                                                lbSupport.removeLoadBalancerHealthCheck(lb.getProviderLoadBalancerId()); // named LBHC same as LB for convenience.
-                                            }
-                                        } catch (Throwable t ) { /* ignore if not supported */ }
-                                        
-                                        count++;
-                                    } else {
-                                        count++;
+        if( lbSupport != null ) {
+            for( Map.Entry<String, String> entry : testLBs.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String lbId = entry.getValue();
+
+                    graph.add(ResourceKind.LOAD_BALANCER, lbId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            LoadBalancer lb = lbSupport.getLoadBalancer(lbId);
+
+                            if( lb != null ) {
+                                // allow five minutes for the load balancer to stop pending
+                                lb = StateWaiter.waitFor("Load balancer PENDING > *", StateWaiter.WaitPolicy.getInstance(5 * 60 * 1000L), lb, getLoadBalancerFetcher(lbSupport, lbId), new StateWaiter.Condition<LoadBalancer>() {
+                                    @Override
+                                    public boolean isSatisfied(@Nullable LoadBalancer resource) {
+                                        return ( resource == null || !LoadBalancerState.PENDING.equals(resource.getCurrentState()) );
                                     }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision test load balancer " + entry.getValue() + ":" + t.getMessage());
+                                });
+                                if( lb == null ) {
+                                    return true;
+                                }
+                                // no point wasting API calls if the load balancer is already gone
+                                if( !LoadBalancerState.TERMINATED.equals(lb.getCurrentState()) ) {
+                                    lbSupport.removeLoadBalancer(lb.getProviderLoadBalancerId());
                                 }
-                            }
-                        }
-
-                        for ( Map.Entry<String, String> entry : testSSLCertificates.entrySet() ) {
-                            if ( !DaseinTestManager.STATELESS.equals(entry.getKey()) ) {
-                                SSLCertificate sslCertificate = lbSupport.getSSLCertificate(entry.getValue());
 
                                 try {
-                                    if ( sslCertificate != null ) {
-                                        lbSupport.removeSSLCertificate( entry.getValue() );
+                                    // only delete LBHC if it is separate from an LB
+                                    if( !Requirement.REQUIRED.equals(lbSupport.getCapabilities().identifyHealthCheckOnCreateRequirement()) ) {
+                                        lbSupport.removeLoadBalancerHealthCheck(lb.getProviderLoadBalancerId()); // named LBHC same as LB for convenience.
                                     }
-                                    count++;
-                                } catch ( Throwable t ) {
-                                    logger.warn("Failed to de-provision test SSL certificate " + entry.getValue() +
-                                            ":" + t.getMessage(), t);
-                                }
+                                } catch (Throwable t ) { /* ignore if not supported */ }
+
+                                // certificates, addresses and subnets stay in use until the load balancer is gone
+                                StateWaiter.waitFor("Load balancer * > TERMINATED", StateWaiter.WaitPolicy.getInstance(5 * 60 * 1000L), getLoadBalancerFetcher(lbSupport, lbId), new StateWaiter.Condition<LoadBalancer>() {
+                                    @Override
+                                    public boolean isSatisfied(@Nullable LoadBalancer resource) {
+                                        return ( resource == null || LoadBalancerState.TERMINATED.equals(resource.getCurrentState()) );
+                                    }
+                                });
                             }
+                            return true;
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
+                    });
                 }
+            }
 
-                IpAddressSupport ipSupport = networkServices.getIpAddressSupport();
+            for ( Map.Entry<String, String> entry : testSSLCertificates.entrySet() ) {
+                if ( !DaseinTestManager.STATELESS.equals(entry.getKey()) ) {
+                    final String certificateName = entry.getValue();
 
-                if( ipSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testIps4Free.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                IpAddress addr = ipSupport.getIpAddress(entry.getValue());
+                    graph.add(ResourceKind.SSL_CERTIFICATE, certificateName, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            SSLCertificate sslCertificate = lbSupport.getSSLCertificate(certificateName);
 
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromServer(entry.getValue());
-                                    }
-                                    try {
-                                        Thread.sleep(3000L);
-                                    } catch( InterruptedException ignore ) {
-                                    }
-                                } catch( Throwable ignore ) {
-                                    // ignore
-                                }
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromPool(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision static IP " + entry.getValue() + " post-test: " + t.getMessage());
-                                }
+                            if ( sslCertificate != null ) {
+                                lbSupport.removeSSLCertificate(certificateName);
                             }
+                            return true;
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
-                    try {
-                        for( Map.Entry<String, String> entry : testIps6Free.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                IpAddress addr = ipSupport.getIpAddress(entry.getValue());
+                    });
+                }
+            }
+        }
 
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromServer(entry.getValue());
-                                    }
-                                    try {
-                                        Thread.sleep(3000L);
-                                    } catch( InterruptedException ignore ) {
-                                    }
-                                } catch( Throwable ignore ) {
-                                    // ignore
-                                }
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromPool(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision static IP " + entry.getValue() + " post-test: " + t.getMessage());
-                                }
-                            }
-                        }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
-                    try {
-                        for( Map.Entry<String, String> entry : testIps4VLAN.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                IpAddress addr = ipSupport.getIpAddress(entry.getValue());
+        IpAddressSupport ipSupport = networkServices.getIpAddressSupport();
 
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromServer(entry.getValue());
-                                    }
-                                    try {
-                                        Thread.sleep(3000L);
-                                    } catch( InterruptedException ignore ) {
-                                    }
-                                } catch( Throwable ignore ) {
-                                    // ignore
-                                }
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromPool(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision static IP " + entry.getValue() + " post-test: " + t.getMessage());
-                                }
-                            }
-                        }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
-                    try {
-                        for( Map.Entry<String, String> entry : testIps6VLAN.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                IpAddress addr = ipSupport.getIpAddress(entry.getValue());
+        if( ipSupport != null ) {
+            addIpTeardown(graph, ipSupport, testIps4Free);
+            addIpTeardown(graph, ipSupport, testIps6Free);
+            addIpTeardown(graph, ipSupport, testIps4VLAN);
+            addIpTeardown(graph, ipSupport, testIps6VLAN);
+        }
 
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromServer(entry.getValue());
-                                    }
-                                    try {
-                                        Thread.sleep(3000L);
-                                    } catch( InterruptedException ignore ) {
-                                    }
-                                } catch( Throwable ignore ) {
-                                    // ignore
-                                }
-                                try {
-                                    if( addr != null ) {
-                                        ipSupport.releaseFromPool(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision static IP " + entry.getValue() + " post-test: " + t.getMessage());
-                                }
-                            }
-                        }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
-                }
+        final VpnSupport vpnSupport = networkServices.getVpnSupport();
 
-                VpnSupport vpnSupport = networkServices.getVpnSupport();
+        if( vpnSupport != null ) {
+            for( Map.Entry<String, String> entry : testVpns.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String vpnId = entry.getValue();
 
-                if( vpnSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testVpns.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                Vpn v = vpnSupport.getVpn(entry.getValue());
+                    graph.add(ResourceKind.VPN, vpnId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Vpn v = vpnSupport.getVpn(vpnId);
 
-                                if( v != null ) {
-                                    try {
-                                        vpnSupport.deleteVpn(v.getProviderVpnId());
-                                    } catch( Throwable t ) {
-                                        logger.warn("Failed to remove VPN " + v + ":" + t.getMessage());
-                                    }
-                                }
+                            if( v != null ) {
+                                vpnSupport.deleteVpn(v.getProviderVpnId());
                             }
+                            return false; // VPNs are not part of the provisioning report
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
+                    });
                 }
+            }
+        }
 
-                VLANSupport vlanSupport = networkServices.getVlanSupport();
+        final NetworkFirewallSupport nfSupport = networkServices.getNetworkFirewallSupport();
 
-                if( vlanSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testVLANs.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                VLAN v = vlanSupport.getVlan(entry.getValue());
+        if( nfSupport != null ) {
+            for( Map.Entry<String, String> entry : testNetworkFirewalls.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String firewallId = entry.getValue();
 
-                                if( v != null ) {
-                                    try {
-                                        if( vlanSupport.isConnectedViaInternetGateway(v.getProviderVlanId()) ) {
-                                            vlanSupport.removeInternetGateway(v.getProviderVlanId());
-                                        }
-                                    } catch( Throwable t ) {
-                                        logger.warn("Failed to remove internet gateway for test VLAN " + v + ":" + t.getMessage());
-                                    }
-                                }
+                    graph.add(ResourceKind.NETWORK_FIREWALL, firewallId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Firewall f = nfSupport.getFirewall(firewallId);
+
+                            if( f != null ) {
+                                nfSupport.removeFirewall(firewallId);
                             }
+                            return true;
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
+                    });
                 }
+            }
+        }
 
-                NetworkFirewallSupport nfSupport = networkServices.getNetworkFirewallSupport();
+        final FirewallSupport firewallSupport = networkServices.getFirewallSupport();
 
-                if( nfSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testNetworkFirewalls.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                try {
-                                    Firewall f = nfSupport.getFirewall(entry.getValue());
+        if( firewallSupport != null ) {
+            addFirewallTeardown(graph, firewallSupport, testGeneralFirewalls);
+            addFirewallTeardown(graph, firewallSupport, testVLANFirewalls);
+        }
 
-                                    if( f != null ) {
-                                        nfSupport.removeFirewall(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
+        final VLANSupport vlanSupport = networkServices.getVlanSupport();
+
+        if( vlanSupport != null ) {
+            for( Map.Entry<String, String> entry : testInternetGateways.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String gatewayId = entry.getValue();
+
+                    graph.add(ResourceKind.INTERNET_GATEWAY, gatewayId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            InternetGateway ig = vlanSupport.getInternetGatewayById(gatewayId);
+
+                            if( ig != null ) {
+                                try {
+                                    vlanSupport.removeInternetGatewayById(gatewayId);
                                 } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision network firewall " + entry.getValue() + " post-test: " + t.getMessage());
+                                    logger.warn("Failed to de-provision internetgateway (1) " + gatewayId + " post-test: " + t.getMessage());
+                                    Thread.sleep(30000L);
+                                    vlanSupport.removeInternetGatewayById(gatewayId);
                                 }
                             }
+                            return true;
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
+                    });
                 }
+            }
+            for( String subnetId : leases.reap(ResourceKind.SUBNET) ) {
+                testSubnets.put(LeaseStore.EXPIRED + subnetId, subnetId);
+            }
+            for( Map.Entry<String, String> entry : testSubnets.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) && !leases.isKept(entry.getValue()) ) {
+                    final String subnetId = entry.getValue();
 
-                FirewallSupport firewallSupport = networkServices.getFirewallSupport();
+                    graph.add(ResourceKind.SUBNET, subnetId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Subnet s = vlanSupport.getSubnet(subnetId);
 
-                if( firewallSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testGeneralFirewalls.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                            if( s != null ) {
                                 try {
-                                    Firewall f = firewallSupport.getFirewall(entry.getValue());
-
-                                    if( f != null ) {
-                                        firewallSupport.delete(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
+                                    vlanSupport.removeSubnet(subnetId);
                                 } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision standard firewall " + entry.getValue() + " post-test: " + t.getMessage());
+                                    logger.warn("Failed to de-provision subnet (1) " + subnetId + " post-test: " + t.getMessage());
+                                    Thread.sleep(30000L);
+                                    vlanSupport.removeSubnet(subnetId);
                                 }
                             }
+                            return true;
                         }
+                    });
+                }
+            }
+            for( Map.Entry<String, String> entry : testRouteTables.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String routingTableId = entry.getValue();
 
-                        for( Map.Entry<String, String> entry : testVLANFirewalls.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                try {
-                                    Firewall f = firewallSupport.getFirewall(entry.getValue());
+                    graph.add(ResourceKind.ROUTING_TABLE, routingTableId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            RoutingTable rtb = vlanSupport.getRoutingTable(routingTableId);
 
-                                    if( f != null ) {
-                                        firewallSupport.delete(entry.getValue());
-                                        count++;
-                                    } else {
-                                        count++;
-                                    }
+                            if( rtb != null ) {
+                                try {
+                                    vlanSupport.removeRoutingTable(routingTableId);
                                 } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision VLAN firewall " + entry.getValue() + " post-test: " + t.getMessage());
+                                    logger.warn("Failed to de-provision routetable (1) " + routingTableId + " post-test: " + t.getMessage());
+                                    Thread.sleep(30000L);
+                                    vlanSupport.removeRoutingTable(routingTableId);
                                 }
                             }
+                            return true;
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
+                    });
                 }
+            }
+            for( String vlanId : leases.reap(ResourceKind.VLAN) ) {
+                testVLANs.put(LeaseStore.EXPIRED + vlanId, vlanId);
+            }
+            for( Map.Entry<String, String> entry : testVLANs.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) && !leases.isKept(entry.getValue()) ) {
+                    final String vlanId = entry.getValue();
 
-                if( vlanSupport != null ) {
-                    try {
-                        for( Map.Entry<String, String> entry : testInternetGateways.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                InternetGateway ig = vlanSupport.getInternetGatewayById(entry.getValue());
+                    graph.add(ResourceKind.VLAN, vlanId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            VLAN v = vlanSupport.getVlan(vlanId);
 
-                                if( ig != null ) {
-                                    try {
-                                        vlanSupport.removeInternetGatewayById(entry.getValue());
-                                        count++;
-                                    } catch( Throwable t ) {
-                                        logger.warn("Failed to de-provision internetgateway (1) " + entry.getValue() + " post-test: " + t.getMessage());
+                            if( v == null ) {
+                                return true;
+                            }
+                            try {
+                                if( vlanSupport.isConnectedViaInternetGateway(v.getProviderVlanId()) ) {
+                                    vlanSupport.removeInternetGateway(v.getProviderVlanId());
+                                }
+                            } catch( Throwable t ) {
+                                logger.warn("Failed to remove internet gateway for test VLAN " + v + ":" + t.getMessage());
+                            }
+                            if( nfSupport != null ) {
+                                for( Firewall fw : nfSupport.listFirewalls() ) {
+                                    if( fw.getProviderVlanId().equals(vlanId) ) {
                                         try {
-                                            Thread.sleep(30000L);
-                                        } catch( InterruptedException ignore ) {
+                                            nfSupport.removeFirewall(fw.getProviderFirewallId());
+                                        } catch( Throwable t ) {
+                                            logger.warn("Failed to remove network firewall for test VLAN " + v + ": " + t.getMessage());
                                         }
+                                    }
+                                }
+                            }
+                            if( firewallSupport != null ) {
+                                for( Firewall fw : firewallSupport.list() ) {
+                                    if( vlanId.equals(fw.getProviderFirewallId()) ) {
                                         try {
-                                            vlanSupport.removeInternetGatewayById(entry.getValue());
-                                            count++;
-                                        } catch( Throwable t2 ) {
-                                            logger.warn("Failed to de-provision internetgateway (final) " + entry.getValue() + " post-test: " + t2.getMessage());
+                                            firewallSupport.delete(fw.getProviderFirewallId());
+                                        } catch( Throwable t ) {
+                                            logger.warn("Failed to remove test VLAN firewall for VLAN " + v + ": " + t.getMessage());
                                         }
                                     }
-                                } else {
-                                    count++;
                                 }
                             }
-
-                        }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
-                    try {
-                        for( Map.Entry<String, String> entry : testSubnets.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                Subnet s = vlanSupport.getSubnet(entry.getValue());
-
-                                if( s != null ) {
+                            try {
+                                for( Subnet subnet : vlanSupport.listSubnets(vlanId) ) {
                                     try {
-                                        vlanSupport.removeSubnet(entry.getValue());
-                                        count++;
+                                        vlanSupport.removeSubnet(subnet.getProviderSubnetId());
                                     } catch( Throwable t ) {
-                                        logger.warn("Failed to de-provision subnet (1) " + entry.getValue() + " post-test: " + t.getMessage());
-                                        try {
-                                            Thread.sleep(30000L);
-                                        } catch( InterruptedException ignore ) {
-                                        }
-                                        try {
-                                            vlanSupport.removeSubnet(entry.getValue());
-                                            count++;
-                                        } catch( Throwable t2 ) {
-                                            logger.warn("Failed to de-provision subnet (final) " + entry.getValue() + " post-test: " + t2.getMessage());
-                                        }
+                                        logger.warn("Failed to de-provision subnet " + subnet.getProviderSubnetId() + " for test VLAN " + vlanId + " post-test: " + t.getMessage());
                                     }
-                                } else {
-                                    count++;
                                 }
+                            } catch( Throwable t ) {
+                                logger.warn("Failed to de-provision subnets for test VLAN " + vlanId + " post-test: " + t.getMessage());
                             }
-
-                        }
-                    } catch( Throwable ignore ) {
-                        // ignore
-                    }
-                    try {
-                        for( Map.Entry<String, String> entry : testRouteTables.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                RoutingTable rtb = vlanSupport.getRoutingTable(entry.getValue());
-
-                                if( rtb != null ) {
+                            try {
+                                for( RoutingTable routeTable : vlanSupport.listRoutingTablesForVlan(vlanId) ) {
                                     try {
-                                        vlanSupport.removeRoutingTable(entry.getValue());
-                                        count++;
+                                        vlanSupport.removeRoutingTable(routeTable.getProviderRoutingTableId());
                                     } catch( Throwable t ) {
-                                        logger.warn("Failed to de-provision routetable (1) " + entry.getValue() + " post-test: " + t.getMessage());
-                                        try {
-                                            Thread.sleep(30000L);
-                                        } catch( InterruptedException ignore ) {
-                                        }
-                                        try {
-                                            vlanSupport.removeRoutingTable(entry.getValue());
-                                            count++;
-                                        } catch( Throwable t2 ) {
-                                            logger.warn("Failed to de-provision routetable (final) " + entry.getValue() + " post-test: " + t2.getMessage());
-                                        }
+                                        logger.warn("Failed to de-provision route table " + routeTable.getProviderRoutingTableId() + " for test VLAN " + vlanId + " post-test: " + t.getMessage());
                                     }
-                                } else {
-                                    count++;
                                 }
+                            } catch( Throwable t ) {
+                                logger.warn("Failed to de-provision route tables for test VLAN " + vlanId + " post-test: " + t.getMessage());
                             }
+                            vlanSupport.removeVlan(vlanId);
+                            return true;
+                        }
+                    });
+                }
+            }
+        }
+    }
 
+    private void addFirewallTeardown(@Nonnull TeardownGraph graph, final @Nonnull FirewallSupport firewallSupport, @Nonnull ResourceRegistry<String> registry) {
+        for( Map.Entry<String, String> entry : registry.entrySet() ) {
+            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                final String firewallId = entry.getValue();
+
+                graph.add(registry.getKind(), firewallId, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        Firewall f = firewallSupport.getFirewall(firewallId);
+
+                        if( f != null ) {
+                            firewallSupport.delete(firewallId);
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
+                        return true;
                     }
-                    try {
-                        for( Map.Entry<String, String> entry : testVLANs.entrySet() ) {
-                            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                                VLAN v = vlanSupport.getVlan(entry.getValue());
+                });
+            }
+        }
+    }
 
-                                if( v != null ) {
-                                    try {
-                                        if( vlanSupport.isConnectedViaInternetGateway(v.getProviderVlanId()) ) {
-                                            vlanSupport.removeInternetGateway(v.getProviderVlanId());
-                                        }
-                                    } catch( Throwable t ) {
-                                        logger.warn("Failed to remove internet gateway for test VLAN " + v + ":" + t.getMessage());
-                                    }
-                                } else {
-                                    count++;
-                                    continue;
-                                }
-                                if( nfSupport != null ) {
-                                    for( Firewall fw : nfSupport.listFirewalls() ) {
-                                        if( fw.getProviderVlanId().equals(entry.getValue()) ) {
-                                            try {
-                                                nfSupport.removeFirewall(fw.getProviderFirewallId());
-                                            } catch( Throwable t ) {
-                                                logger.warn("Failed to remove network firewall for test VLAN " + v + ": " + t.getMessage());
-                                            }
-                                        }
-                                    }
-                                }
-                                if( firewallSupport != null ) {
-                                    for( Firewall fw : firewallSupport.list() ) {
-                                        if( entry.getValue().equals(fw.getProviderFirewallId()) ) {
-                                            try {
-                                                firewallSupport.delete(fw.getProviderFirewallId());
-                                            } catch( Throwable t ) {
-                                                logger.warn("Failed to remove test VLAN firewall for VLAN " + v + ": " + t.getMessage());
-                                            }
-                                        }
-                                    }
-                                }
-                                try {
-                                    for( Subnet subnet : vlanSupport.listSubnets(entry.getValue()) ) {
-                                        try {
-                                            vlanSupport.removeSubnet(subnet.getProviderSubnetId());
-                                        } catch( Throwable t ) {
-                                            logger.warn("Failed to de-provision subnet " + subnet.getProviderSubnetId() + " for test VLAN " + entry.getValue() + " post-test: " + t.getMessage());
-                                        }
-                                    }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision subnets for test VLAN " + entry.getValue() + " post-test: " + t.getMessage());
-                                }
-                                try {
-                                    for( RoutingTable routeTable : vlanSupport.listRoutingTablesForVlan(entry.getValue()) ) {
-                                        try {
-                                            vlanSupport.removeRoutingTable(routeTable.getProviderRoutingTableId());
-                                        } catch( Throwable t ) {
-                                            logger.warn("Failed to de-provision route table " + routeTable.getProviderRoutingTableId() + " for test VLAN " + entry.getValue() + " post-test: " + t.getMessage());
-                                        }
-                                    }
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision route tables for test VLAN " + entry.getValue() + " post-test: " + t.getMessage());
+    private void addIpTeardown(@Nonnull TeardownGraph graph, final @Nonnull IpAddressSupport ipSupport, @Nonnull ResourceRegistry<String> registry) {
+        for( Map.Entry<String, String> entry : registry.entrySet() ) {
+            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                final String addressId = entry.getValue();
+                Callable<Boolean> task = new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        IpAddress addr = ipSupport.getIpAddress(addressId);
+
+                        if( addr == null ) {
+                            return true;
+                        }
+                        if( addr.isAssigned() ) {
+                            try {
+                                ipSupport.releaseFromServer(addressId);
+                            } catch( Throwable ignore ) {
+                                // ignore
+                            }
+                            // wait for the release to take effect rather than for a fixed period
+                            addr = StateWaiter.waitFor("IP address assigned > unassigned", StateWaiter.WaitPolicy.getInstance(2 * 60 * 1000L), addr, new StateWaiter.Fetcher<IpAddress>() {
+                                @Override
+                                public @Nullable IpAddress fetch() throws CloudException, InternalException {
+                                    return ipSupport.getIpAddress(addressId);
                                 }
-                                try {
-                                    vlanSupport.removeVlan(entry.getValue());
-                                    count++;
-                                } catch( Throwable t ) {
-                                    logger.warn("Failed to de-provision test VLAN " + entry.getValue() + " post-test: " + t.getMessage());
+                            }, new StateWaiter.Condition<IpAddress>() {
+                                @Override
+                                public boolean isSatisfied(@Nullable IpAddress resource) {
+                                    return ( resource == null || !resource.isAssigned() );
                                 }
+                            });
+                            if( addr == null ) {
+                                return true;
                             }
                         }
-                    } catch( Throwable ignore ) {
-                        // ignore
+                        ipSupport.releaseFromPool(addressId);
+                        return true;
                     }
+                };
+
+                try {
+                    IpAddress addr = ipSupport.getIpAddress(addressId);
+                    ArrayList<String> users = new ArrayList<String>();
+
+                    // an address need only wait for the virtual machine or load balancer to which it is assigned
+                    if( addr != null && addr.getServerId() != null ) {
+                        users.add(addr.getServerId());
+                    }
+                    if( addr != null && addr.getProviderLoadBalancerId() != null ) {
+                        users.add(addr.getProviderLoadBalancerId());
+                    }
+                    graph.add(registry.getKind(), addressId, task, users);
+                }
+                catch( Throwable ignore ) {
+                    graph.add(registry.getKind(), addressId, task);
                 }
             }
-        } catch( Throwable ignore ) {
-            // ignore
         }
-        return count;
+    }
+
+    /**
+     * Takes over a network resource this framework did not provision in this run, such as one leaked by an earlier
+     * run, so that it is removed with the other test resources.
+     * @param kind the kind of resource
+     * @param label the label under which the resource is registered
+     * @param id the ID of the resource
+     * @return true if the resource was adopted, false if network resources do not track that kind of resource
+     */
+    public boolean adopt(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull String id) {
+        switch( kind ) {
+            case DNS_ZONE: testZones.put(label, id); return true;
+            case FIREWALL: testGeneralFirewalls.put(label, id); return true;
+            case INTERNET_GATEWAY: testInternetGateways.put(label, id); return true;
+            case LOAD_BALANCER: testLBs.put(label, id); return true;
+            case NETWORK_FIREWALL: testNetworkFirewalls.put(label, id); return true;
+            case ROUTING_TABLE: testRouteTables.put(label, id); return true;
+            case STATIC_IP4: testIps4Free.put(label, id); return true;
+            case STATIC_IP6: testIps6Free.put(label, id); return true;
+            case SUBNET: testSubnets.put(label, id); return true;
+            case VLAN: testVLANs.put(label, id); return true;
+            case VLAN_FIREWALL: testVLANFirewalls.put(label, id); return true;
+            case VLAN_IP4: testIps4VLAN.put(label, id); return true;
+            case VLAN_IP6: testIps6VLAN.put(label, id); return true;
+            case VPN: testVpns.put(label, id); return true;
+            default: return false;
+        }
+    }
+
+    /**
+     * Adds the lookup of every stateless network fixture to the specified prefetcher.
+     * @param prefetcher the prefetcher to which the lookups are added
+     */
+    public void addPrefetch(@Nonnull Prefetcher prefetcher) {
+        prefetcher.add(ResourceKind.VLAN, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessVLAN();
+            }
+        });
+        prefetcher.add(ResourceKind.FIREWALL, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessFirewall(false);
+            }
+        });
+        prefetcher.add(ResourceKind.VLAN_FIREWALL, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessFirewall(true);
+            }
+        });
+        prefetcher.add(ResourceKind.NETWORK_FIREWALL, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessNetworkFirewall();
+            }
+        });
+        prefetcher.add(ResourceKind.LOAD_BALANCER, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessLoadBalancer();
+            }
+        });
+        prefetcher.add(ResourceKind.SSL_CERTIFICATE, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessSSLCertificate();
+            }
+        });
+        prefetcher.add(ResourceKind.DNS_ZONE, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessDNSZone();
+            }
+        });
+        for( final IPVersion version : IPVersion.values() ) {
+            for( final boolean inVlan : new boolean[] { false, true } ) {
+                ResourceKind kind;
+
+                if( inVlan ) {
+                    kind = ( version.equals(IPVersion.IPV4) ? ResourceKind.VLAN_IP4 : ResourceKind.VLAN_IP6 );
+                }
+                else {
+                    kind = ( version.equals(IPVersion.IPV4) ? ResourceKind.STATIC_IP4 : ResourceKind.STATIC_IP6 );
+                }
+                prefetcher.add(kind, new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return findStatelessIP(version, inVlan);
+                    }
+                });
+            }
+        }
+    }
+
+    public int close() {
+        TeardownGraph graph = new TeardownGraph();
+
+        addTeardown(graph);
+        return graph.execute();
+    }
+
+    private @Nonnull StateWaiter.Fetcher<LoadBalancer> getLoadBalancerFetcher(@Nonnull final LoadBalancerSupport support, @Nonnull String lbId) {
+        synchronized( this ) {
+            if( lbPoller == null ) {
+                lbPoller = new PollCoordinator<LoadBalancer>(ResourceKind.LOAD_BALANCER, new PollCoordinator.Source<LoadBalancer>() {
+                    @Override
+                    public @Nullable LoadBalancer get(@Nonnull String id) throws CloudException, InternalException {
+                        return support.getLoadBalancer(id);
+                    }
+
+                    @Override
+                    public @Nullable String getId(@Nonnull LoadBalancer resource) {
+                        return resource.getProviderLoadBalancerId();
+                    }
+
+                    @Override
+                    public @Nonnull Iterable<LoadBalancer> list() throws CloudException, InternalException {
+                        return support.listLoadBalancers();
+                    }
+                });
+            }
+        }
+        return lbPoller.getFetcher(lbId);
+    }
+
+    private void waitForSubnet(@Nonnull final VLANSupport support, @Nonnull final String subnetId) {
+        StateWaiter.waitFor("Subnet created > described", StateWaiter.WaitPolicy.getInstance(60 * 1000L).withFastPoll(10000L, 500L), new StateWaiter.Fetcher<Subnet>() {
+            @Override
+            public @Nullable Subnet fetch() throws CloudException, InternalException {
+                return support.getSubnet(subnetId);
+            }
+        }, new StateWaiter.Condition<Subnet>() {
+            @Override
+            public boolean isSatisfied(@Nullable Subnet resource) {
+                return ( resource != null );
+            }
+        });
+    }
+
+    private void waitForVlan(@Nonnull final VLANSupport support, @Nonnull final String vlanId) {
+        StateWaiter.waitFor("VLAN * > AVAILABLE", StateWaiter.WaitPolicy.getInstance(5 * 60 * 1000L), new StateWaiter.Fetcher<VLAN>() {
+            @Override
+            public @Nullable VLAN fetch() throws CloudException, InternalException {
+                return support.getVlan(vlanId);
+            }
+        }, new StateWaiter.Condition<VLAN>() {
+            @Override
+            public boolean isSatisfied(@Nullable VLAN resource) {
+                return ( resource == null || VLANState.AVAILABLE.equals(resource.getCurrentState()) );
+            }
+        });
     }
 
     private @Nullable String findStatelessDNSZone() {
@@ -1043,8 +1098,8 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestFirewallId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId) {
-        Map<String, String> map = ( vlanId == null ? testGeneralFirewalls : testVLANFirewalls );
+    public @Nullable String getTestFirewallId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String vlanId) {
+        ResourceRegistry<String> map = ( vlanId == null ? testGeneralFirewalls : testVLANFirewalls );
         if( label.equalsIgnoreCase(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : map.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -1070,7 +1125,12 @@ public class NetworkResources {
 
                 if( support != null ) {
                     try {
-                        return provisionFirewall(label, vlanId);
+                        return map.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionFirewall(label, vlanId);
+                            }
+                        });
                     } catch( Throwable ignore ) {
                         // ignore
                     }
@@ -1101,7 +1161,7 @@ public class NetworkResources {
         return testTcpHealthCheckOptions;
     }
 
-    public @Nullable String getTestLoadBalancerId(@Nonnull String label, @Nonnull String lbNamePrefix, boolean provisionIfNull, boolean withHealthCheck) {
+    public @Nullable String getTestLoadBalancerId(@Nonnull final String label, @Nonnull final String lbNamePrefix, boolean provisionIfNull, final boolean withHealthCheck) {
         if( label.equalsIgnoreCase(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testLBs.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -1127,7 +1187,12 @@ public class NetworkResources {
 
             if( services != null ) {
                 try {
-                    return provisionLoadBalancer(label, lbNamePrefix, false, false, withHealthCheck);
+                    return testLBs.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                        @Override
+                        public @Nullable String provision() throws CloudException, InternalException {
+                            return provisionLoadBalancer(label, lbNamePrefix, false, false, withHealthCheck);
+                        }
+                    });
                 } catch( Throwable ignore ) {
                     // ignore
                 }
@@ -1136,7 +1201,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestSSLCertificateName(@Nonnull String label, boolean provisionIfNull) {
+    public @Nullable String getTestSSLCertificateName(@Nonnull final String label, boolean provisionIfNull) {
         if( label.equalsIgnoreCase(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testSSLCertificates.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -1159,7 +1224,12 @@ public class NetworkResources {
 
             if( services != null ) {
                 try {
-                    return provisionSSLCertificate(label, null);
+                    return testSSLCertificates.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                        @Override
+                        public @Nullable String provision() throws CloudException, InternalException {
+                            return provisionSSLCertificate(label, null);
+                        }
+                    });
                 } catch( Throwable ignore ) {
                     // ignore
                 }
@@ -1168,7 +1238,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestNetworkFirewallId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId) {
+    public @Nullable String getTestNetworkFirewallId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String vlanId) {
         if( label.equalsIgnoreCase(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testNetworkFirewalls.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -1191,7 +1261,12 @@ public class NetworkResources {
 
             if( services != null ) {
                 try {
-                    return provisionNetworkFirewall(label, vlanId);
+                    return testNetworkFirewalls.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                        @Override
+                        public @Nullable String provision() throws CloudException, InternalException {
+                            return provisionNetworkFirewall(label, vlanId);
+                        }
+                    });
                 } catch( Throwable ignore ) {
                     // ignore
                 }
@@ -1200,7 +1275,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestStaticIpId(@Nonnull String label, boolean provisionIfNull, @Nullable IPVersion version, boolean inVlan, @Nullable String vlanId) {
+    public @Nullable String getTestStaticIpId(@Nonnull final String label, boolean provisionIfNull, @Nullable final IPVersion version, final boolean inVlan, @Nullable final String vlanId) {
         if( version == null ) {
             NetworkServices services = provider.getNetworkServices();
             IpAddressSupport support = ( services == null ? null : services.getIpAddressSupport() );
@@ -1221,7 +1296,7 @@ public class NetworkResources {
                 return null;
             }
         }
-        Map<String, String> map;
+        final ResourceRegistry<String> map;
 
         if( inVlan ) {
             map = ( version.equals(IPVersion.IPV4) ? testIps4VLAN : testIps6VLAN );
@@ -1230,7 +1305,7 @@ public class NetworkResources {
         }
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : map.entrySet() ) {
-                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
+                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) && !entry.getKey().startsWith(WarmPool.WARM) ) {
                     String id = entry.getValue();
 
                     if( id != null ) {
@@ -1265,18 +1340,28 @@ public class NetworkResources {
             NetworkServices services = provider.getNetworkServices();
 
             if( services != null ) {
-                IpAddressSupport support = services.getIpAddressSupport();
+                final IpAddressSupport support = services.getIpAddressSupport();
 
                 if( support != null ) {
                     try {
-                        if( inVlan ) {
-                            if( vlanId == null ) {
-                                vlanId = getTestVLANId(DaseinTestManager.STATEFUL, true, null);
+                        return map.reserve(label, id, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                if( inVlan ) {
+                                    return provisionAddress(support, label, version, ( vlanId == null ? getTestVLANId(DaseinTestManager.STATEFUL, true, null) : vlanId ));
+                                }
+                                WarmPool pool = ipPool;
+
+                                if( pool != null && version.equals(ipPoolVersion) && !label.startsWith(WarmPool.WARM) ) {
+                                    String leased = pool.lease(label);
+
+                                    if( leased != null ) {
+                                        return leased;
+                                    }
+                                }
+                                return provisionAddress(support, label, version, null);
                             }
-                            return provisionAddress(support, label, version, vlanId);
-                        } else {
-                            return provisionAddress(support, label, version, null);
-                        }
+                        });
                     } catch( Throwable t ) {
                         try {
                             if( support.isSubscribed() ) {
@@ -1295,7 +1380,7 @@ public class NetworkResources {
     	return getTestSubnetId(label, "dsnlb", provisionIfNull, vlanId, preferredDataCenterId);
     }
     
-    public @Nullable String getTestSubnetId(@Nonnull String label, @Nonnull String lbName, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
+    public @Nullable String getTestSubnetId(@Nonnull final String label, @Nonnull String lbName, boolean provisionIfNull, @Nullable String vlanId, @Nullable final String preferredDataCenterId) {
         String id;
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testSubnets.entrySet() ) {
@@ -1318,7 +1403,7 @@ public class NetworkResources {
             NetworkServices services = provider.getNetworkServices();
 
             if( services != null ) {
-                VLANSupport support = services.getVlanSupport();
+                final VLANSupport support = services.getVlanSupport();
 
                 if( support != null ) {
                     try {
@@ -1333,13 +1418,29 @@ public class NetworkResources {
                                         }
                                     }
                                 }
-                                id = provisionSubnet(support, label, vlanId, "dsnsub", preferredDataCenterId);
-                                // wait for subnet to be ready for describe
-                                try {
-                                    Thread.sleep(1000L);
-                                } catch( InterruptedException ignore ) {
-                                }
-                                return id;
+                                final String subnetVlanId = vlanId;
+                                final String fingerprint = vlanId + "|" + preferredDataCenterId;
+
+                                return testSubnets.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                                    @Override
+                                    public @Nullable String provision() throws CloudException, InternalException {
+                                        if( label.equals(DaseinTestManager.STATEFUL) ) {
+                                            String reused = reuseSubnet(support, label, subnetVlanId, fingerprint);
+
+                                            if( reused != null ) {
+                                                return reused;
+                                            }
+                                        }
+                                        String subnetId = provisionSubnet(support, label, subnetVlanId, "dsnsub", preferredDataCenterId);
+
+                                        // wait for subnet to be ready for describe
+                                        waitForSubnet(support, subnetId);
+                                        if( label.equals(DaseinTestManager.STATEFUL) ) {
+                                            leases.keep(ResourceKind.SUBNET, label, subnetId, fingerprint);
+                                        }
+                                        return subnetId;
+                                    }
+                                });
                             } catch( Throwable t ) {
                                 logger.warn("Failed to provision test subnet for " + vlanId + ": " + t.getMessage());
                             }
@@ -1354,7 +1455,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestInternetGatewayId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
+    public @Nullable String getTestInternetGatewayId(@Nonnull final String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testInternetGateways.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -1375,7 +1476,7 @@ public class NetworkResources {
             NetworkServices services = provider.getNetworkServices();
 
             if( services != null ) {
-                VLANSupport support = services.getVlanSupport();
+                final VLANSupport support = services.getVlanSupport();
 
                 if( support != null ) {
                     try {
@@ -1395,7 +1496,14 @@ public class NetworkResources {
                                         return internetGatewayId;
                                     }
                                 }
-                                return provisionInternetGateway(support, label, vlanId);
+                                final String gatewayVlanId = vlanId;
+
+                                return testInternetGateways.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                                    @Override
+                                    public @Nullable String provision() throws CloudException, InternalException {
+                                        return provisionInternetGateway(support, label, gatewayVlanId);
+                                    }
+                                });
                             } catch( Throwable t ) {
                                 logger.warn("Failed to provision test internet gateway for " + vlanId + ": " + t.getMessage());
                             }
@@ -1410,7 +1518,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestVLANId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
+    public @Nullable String getTestVLANId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String preferredDataCenterId) {
         String id = null;
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testVLANs.entrySet() ) {
@@ -1434,13 +1542,29 @@ public class NetworkResources {
             NetworkServices services = provider.getNetworkServices();
 
             if( services != null ) {
-                VLANSupport support = services.getVlanSupport();
+                final VLANSupport support = services.getVlanSupport();
 
                 if( support != null ) {
                     try {
                         if (support.getCapabilities().allowsNewVlanCreation()) {
                             try {
-                                return provisionVLAN(support, label, "dsnnet", preferredDataCenterId);
+                                return testVLANs.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                                    @Override
+                                    public @Nullable String provision() throws CloudException, InternalException {
+                                        // only the shared stateful VLAN is left alone by tests and so may outlive the run
+                                        if( label.equals(DaseinTestManager.STATEFUL) ) {
+                                            String fingerprint = TEST_VLAN_CIDR + "|" + preferredDataCenterId;
+                                            String vlanId = reuseVLAN(support, label, fingerprint);
+
+                                            if( vlanId == null ) {
+                                                vlanId = provisionVLAN(support, label, "dsnnet", preferredDataCenterId);
+                                                leases.keep(ResourceKind.VLAN, label, vlanId, fingerprint);
+                                            }
+                                            return vlanId;
+                                        }
+                                        return provisionVLAN(support, label, "dsnnet", preferredDataCenterId);
+                                    }
+                                });
                             } catch( Throwable ignore ) {
                                 return null;
                             }
@@ -1455,11 +1579,43 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestRoutingTableId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
+    private @Nullable String reuseVLAN(@Nonnull final VLANSupport support, @Nonnull String label, @Nonnull String fingerprint) {
+        String id = leases.reuse(ResourceKind.VLAN, label, fingerprint, new LeaseStore.HealthCheck() {
+            @Override
+            public boolean isHealthy(@Nonnull String id) throws CloudException, InternalException {
+                VLAN vlan = support.getVlan(id);
+
+                return ( vlan != null && VLANState.AVAILABLE.equals(vlan.getCurrentState()) );
+            }
+        });
+
+        if( id != null ) {
+            testVLANs.put(label, id);
+        }
+        return id;
+    }
+
+    private @Nullable String reuseSubnet(@Nonnull final VLANSupport support, @Nonnull String label, @Nonnull final String vlanId, @Nonnull String fingerprint) {
+        String id = leases.reuse(ResourceKind.SUBNET, label, fingerprint, new LeaseStore.HealthCheck() {
+            @Override
+            public boolean isHealthy(@Nonnull String id) throws CloudException, InternalException {
+                Subnet subnet = support.getSubnet(id);
+
+                return ( subnet != null && SubnetState.AVAILABLE.equals(subnet.getCurrentState()) && vlanId.equals(subnet.getProviderVlanId()) );
+            }
+        });
+
+        if( id != null ) {
+            testSubnets.put(label, id);
+        }
+        return id;
+    }
+
+    public @Nullable String getTestRoutingTableId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String vlanId, @Nullable final String preferredDataCenterId) {
         NetworkServices services = provider.getNetworkServices();
         String id;
         if( services != null ) {
-            VLANSupport support = services.getVlanSupport();
+            final VLANSupport support = services.getVlanSupport();
             if( support != null ) {
                 if( label.equals(DaseinTestManager.STATELESS) ) {
                     for( Map.Entry<String, String> entry : testRouteTables.entrySet() ) {
@@ -1499,18 +1655,21 @@ public class NetworkResources {
                 }
                 if( provisionIfNull ) {
                     try {
-                        if( vlanId == null ) {
-                            String vId = getTestVLANId(label, true, preferredDataCenterId);
-                            try {
-                                Thread.sleep(15000L);
-                            } catch( InterruptedException ignore ) {
-                            }
-                            if( vId != null ) {
-                                return provisionRoutingTable(support, vId, label, "dsnrtb");
+                        return testRouteTables.reserve(label, id, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                if( vlanId == null ) {
+                                    String vId = getTestVLANId(label, true, preferredDataCenterId);
+
+                                    if( vId == null ) {
+                                        return null;
+                                    }
+                                    waitForVlan(support, vId);
+                                    return provisionRoutingTable(support, vId, label, "dsnrtb");
+                                }
+                                return provisionRoutingTable(support, vlanId, label, "dsnrtb");
                             }
-                        } else {
-                            return provisionRoutingTable(support, vlanId, label, "dsnrtb");
-                        }
+                        });
                     } catch( Throwable ignore ) {
                         return null;
                     }
@@ -1520,7 +1679,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestZoneId(@Nonnull String label, boolean provisionIfNull) {
+    public @Nullable String getTestZoneId(@Nonnull final String label, boolean provisionIfNull) {
         if( label.equalsIgnoreCase(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String, String> entry : testZones.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -1542,11 +1701,16 @@ public class NetworkResources {
             NetworkServices services = provider.getNetworkServices();
 
             if( services != null ) {
-                DNSSupport support = services.getDnsSupport();
+                final DNSSupport support = services.getDnsSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionDNSZone(support, label, "dasein", "org");
+                        return testZones.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionDNSZone(support, label, "dasein", "org");
+                            }
+                        });
                     } catch( Throwable ignore ) {
                         // ignore
                     }
@@ -1556,7 +1720,7 @@ public class NetworkResources {
         return null;
     }
 
-    public @Nullable String getTestVpnId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
+    public @Nullable String getTestVpnId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String preferredDataCenterId) {
         NetworkServices services = provider.getNetworkServices();
         String id;
         if( services != null ) {
@@ -1590,7 +1754,12 @@ public class NetworkResources {
                 }
                 if( provisionIfNull ) {
                     try {
-                        return provisionVpn(label, "dsnvpn", preferredDataCenterId);
+                        return testVpns.reserve(label, id, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionVpn(label, "dsnvpn", preferredDataCenterId);
+                            }
+                        });
                     } catch( Throwable ignore ) {
                         // ignore
                     }
@@ -1600,6 +1769,45 @@ public class NetworkResources {
         return null;
     }
 
+    /**
+     * Starts provisioning the warm pool of static IP addresses configured with {@link WarmPool#WARM_IPS}. Stateful
+     * tests asking for an address outside of any VLAN then lease from this pool before requesting one of their own.
+     */
+    public void startWarmPools() {
+        NetworkServices services = provider.getNetworkServices();
+        final IpAddressSupport support = ( services == null ? null : services.getIpAddressSupport() );
+        int size = WarmPool.getSize(WarmPool.WARM_IPS);
+
+        if( support == null || size < 1 ) {
+            return;
+        }
+        IPVersion version = null;
+
+        try {
+            for( IPVersion v : support.getCapabilities().listSupportedIPVersions() ) {
+                if( support.getCapabilities().isRequestable(v) ) {
+                    version = v;
+                    break;
+                }
+            }
+        } catch( Throwable t ) {
+            logger.warn("Unable to start the warm static IP pool: " + t.getMessage());
+            return;
+        }
+        if( version == null ) {
+            return;
+        }
+        final IPVersion poolVersion = version;
+
+        ipPoolVersion = poolVersion;
+        ipPool = WarmPool.start(poolVersion.equals(IPVersion.IPV4) ? testIps4Free : testIps6Free, size, new WarmPool.Provisioner() {
+            @Override
+            public @Nonnull String provision(@Nonnull String label) throws CloudException, InternalException {
+                return provisionAddress(support, label, poolVersion, null);
+            }
+        });
+    }
+
     public @Nonnull String provisionAddress(@Nonnull IpAddressSupport support, @Nonnull String label, @Nullable IPVersion version, @Nullable String vlanId) throws CloudException, InternalException {
         if( version == null ) {
             for( IPVersion v : support.getCapabilities().listSupportedIPVersions() ) {
@@ -1612,7 +1820,7 @@ public class NetworkResources {
         if( version == null ) {
             throw new CloudException("No IP version is requestable");
         }
-        Map<String, String> map;
+        ResourceRegistry<String> map;
 
         if( vlanId == null ) {
             map = ( version.equals(IPVersion.IPV4) ? testIps4Free : testIps6Free );
@@ -1631,13 +1839,7 @@ public class NetworkResources {
                 id = support.requestForVLAN(version, vlanId);
             }
         }
-        //noinspection SynchronizationOnLocalVariableOrMethodParameter
-        synchronized ( map ) {
-            while( map.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            map.put(label, id);
-        }
+        map.register(label, id);
         return id;
     }
 
@@ -1694,19 +1896,9 @@ public class NetworkResources {
         String id = options.build(provider, false);
 
         if( vlanId == null ) {
-            synchronized ( testGeneralFirewalls ) {
-                while( testGeneralFirewalls.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testGeneralFirewalls.put(label, id);
-            }
+            testGeneralFirewalls.register(label, id);
         } else {
-            synchronized ( testVLANFirewalls ) {
-                while( testVLANFirewalls.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testVLANFirewalls.put(label, id);
-            }
+            testVLANFirewalls.register(label, id);
         }
         return id;
     }
@@ -1728,17 +1920,19 @@ public class NetworkResources {
             throw new CloudException("This cloud does not support load balancers");
         }
 
+        LoadBalancerCapabilities capabilities = CapabilitySnapshot.getInstance(provider).memoize(support.getCapabilities(), LoadBalancerCapabilities.class);
+
         String name = ( namePrefix == null ? "dsnlb" + random.nextInt(10000) : namePrefix + random.nextInt(10000) );
         String description = "Dasein Cloud LB Test";
         LoadBalancerCreateOptions options;
         String vlanId = null;
 
         // override healthcheck settings if cloud requires it
-        if( support.getCapabilities().identifyHealthCheckOnCreateRequirement().equals(Requirement.REQUIRED) ) {
+        if( capabilities.identifyHealthCheckOnCreateRequirement().equals(Requirement.REQUIRED) ) {
             withHealthCheck = true;
         }
 
-        if( !support.getCapabilities().isAddressAssignedByProvider() && support.getCapabilities().getAddressType().equals(LoadBalancerAddressType.IP) ) {
+        if( !capabilities.isAddressAssignedByProvider() && capabilities.getAddressType().equals(LoadBalancerAddressType.IP) ) {
             IpAddressSupport ipSupport = services.getIpAddressSupport();
 
             if( ipSupport == null ) {
@@ -1788,7 +1982,7 @@ public class NetworkResources {
             options.havingListeners(LbListener.getInstance(LbAlgorithm.LEAST_CONN, "cookie" , LbProtocol.HTTPS, x, x));
         }
 */
-        if( support.getCapabilities().identifyListenersOnCreateRequirement().equals(Requirement.REQUIRED) ) {
+        if( capabilities.identifyListenersOnCreateRequirement().equals(Requirement.REQUIRED) ) {
             final int publicPort = 1024 + random.nextInt(10000);
             // make the listener port match that of healthcheck, this is not always important but with OS it is
             // TODO: we might have to put a capability to declare whether the HC needs its own port and then it won't be
@@ -1810,8 +2004,8 @@ public class NetworkResources {
         String[] dcIds = new String[2];
         String testSubnetId = null;
 
-        if( support.getCapabilities().identifyEndpointsOnCreateRequirement().equals(Requirement.REQUIRED) ) {
-            Iterable<LbEndpointType> types = support.getCapabilities().listSupportedEndpointTypes();
+        if( capabilities.identifyEndpointsOnCreateRequirement().equals(Requirement.REQUIRED) ) {
+            Iterable<LbEndpointType> types = capabilities.listSupportedEndpointTypes();
             boolean vmBased = false;
 
             for( LbEndpointType t : types ) {
@@ -1896,7 +2090,7 @@ public class NetworkResources {
                 options.withIpAddresses("207.32.82.72");
             }
         }
-        if( support.getCapabilities().isDataCenterLimited() ) {
+        if( capabilities.isDataCenterLimited() ) {
             if( dcIds[0] != null && dcIds[1] != null ) {
                 options.limitedTo(dcIds);
             } else if( dcIds[0] != null ) {
@@ -1919,7 +2113,7 @@ public class NetworkResources {
             options.withHealthCheckOptions(getTestHttpHealthCheckOptions(support));
         }
 
-        if( support.getCapabilities().identifyVlanOnCreateRequirement().equals(Requirement.REQUIRED) ) {
+        if( capabilities.identifyVlanOnCreateRequirement().equals(Requirement.REQUIRED) ) {
             if( vlanId == null ) {
                 vlanId = getTestVLANId(DaseinTestManager.STATEFUL, true, null);
             }
@@ -1927,12 +2121,7 @@ public class NetworkResources {
         }
         String id = options.build(provider);
 
-        synchronized ( testLBs ) {
-            while( testLBs.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testLBs.put(label, id);
-        }
+        testLBs.register(label, id);
         return id;
     }
 
@@ -2005,12 +2194,7 @@ public class NetworkResources {
         final SSLCertificate sslCertificate = support.createSSLCertificate(options);
         final String certificateName = sslCertificate.getCertificateName();
 
-        synchronized ( testSSLCertificates ) {
-            while( testSSLCertificates.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testSSLCertificates.put(label, certificateName);
-        }
+        testSSLCertificates.register(label, certificateName);
         return certificateName;
     }
 
@@ -2041,12 +2225,7 @@ public class NetworkResources {
 
         String id = support.createFirewall(options);
 
-        synchronized ( testNetworkFirewalls ) {
-            while( testNetworkFirewalls.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testNetworkFirewalls.put(label, id);
-        }
+        testNetworkFirewalls.register(label, id);
         return id;
     }
 
@@ -2093,12 +2272,7 @@ public class NetworkResources {
             }
             throw e;
         }
-        synchronized ( testSubnets ) {
-            while( testSubnets.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testSubnets.put(label, id);
-        }
+        testSubnets.register(label, id);
         return id;
     }
 
@@ -2110,12 +2284,7 @@ public class NetworkResources {
             }
         }
         String id = support.createInternetGateway(vlanId);
-        synchronized ( testInternetGateways ) {
-            while( testInternetGateways.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testInternetGateways.put(label, id);
-        }
+        testInternetGateways.register(label, id);
         return id;
     }
 
@@ -2125,16 +2294,11 @@ public class NetworkResources {
         //if( support.isVlanDataCenterConstrained() && preferredDataCenterId == null ) {
         //preferredDataCenterId = DaseinTestManager.getDefaultDataCenterId(true);
         //}
-        id = support.createVlan("192.168.1.0/24", namePrefix + ( System.currentTimeMillis() % 10000 ), "Test VLAN for the Dasein Cloud Integration tests", "example.com", new String[]{"192.168.1.1"}, new String[]{"192.168.1.1"}).getProviderVlanId();
+        id = support.createVlan(TEST_VLAN_CIDR, namePrefix + ( System.currentTimeMillis() % 10000 ), "Test VLAN for the Dasein Cloud Integration tests", "example.com", new String[]{"192.168.1.1"}, new String[]{"192.168.1.1"}).getProviderVlanId();
         if( id == null ) {
             throw new CloudException("No VLAN was created");
         }
-        synchronized ( testVLANs ) {
-            while( testVLANs.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testVLANs.put(label, id);
-        }
+        testVLANs.register(label, id);
         return id;
     }
 
@@ -2143,12 +2307,7 @@ public class NetworkResources {
         if( id == null ) {
             throw new CloudException("No Routing Table was created");
         }
-        synchronized ( testRouteTables ) {
-            while( testRouteTables.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testRouteTables.put(label, id);
-        }
+        testRouteTables.register(label, id);
         return id;
     }
 
@@ -2156,12 +2315,7 @@ public class NetworkResources {
         String name = domainPrefix + ( System.currentTimeMillis() % 10000 ) + "." + tld;
         String id = support.createDnsZone(name, name, "Dasein Cloud Test Zone");
 
-        synchronized ( testZones ) {
-            while( testZones.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testZones.put(label, id);
-        }
+        testZones.register(label, id);
         return id;
     }
 
@@ -2177,12 +2331,7 @@ public class NetworkResources {
         String name = namePrefix + ( System.currentTimeMillis() % 10000 );
         VpnProtocol protocol = vpnSupport.getCapabilities().listSupportedVpnProtocols().iterator().next();
         Vpn vpn = vpnSupport.createVpn(VpnCreateOptions.getInstance(name, name, protocol));
-        synchronized ( testVpns ) {
-            while( testVpns.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testVpns.put(label, vpn.getProviderVpnId());
-        }
+        testVpns.register(label, vpn.getProviderVpnId());
         return vpn.getProviderVpnId();
     }
 }
@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test.network;
 
+import org.dasein.cloud.test.DaseinSuite;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.dasein.cloud.test.ci.StatefulCITests;
 import org.junit.AfterClass;
@@ -33,7 +34,7 @@ import org.junit.runners.Suite;
  * @version 2013.04 initial version
  * @since 2013.04
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({
         StatefulLoadBalancerTests.class,
         StatefulVLANTests.class,
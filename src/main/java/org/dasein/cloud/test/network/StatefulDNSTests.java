@@ -84,7 +84,7 @@ public class StatefulDNSTests {
         else if( name.getMethodName().equals("addRecord") ) {
             testZoneId = tm.getTestZoneId(DaseinTestManager.STATEFUL, true);
             if( testZoneId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     DNSSupport support = services.getDnsSupport();
@@ -108,7 +108,7 @@ public class StatefulDNSTests {
             testZoneId = tm.getTestZoneId(DaseinTestManager.STATEFUL, true);
 
             if( testZoneId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services == null ) {
                     tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -142,7 +142,7 @@ public class StatefulDNSTests {
 
     @Test
     public void createZone() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -170,7 +170,7 @@ public class StatefulDNSTests {
 
     @Test
     public void removeZone() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -206,7 +206,7 @@ public class StatefulDNSTests {
 
     @Test
     public void addRecord() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -236,7 +236,7 @@ public class StatefulDNSTests {
 
     @Test
     public void removeRecord() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
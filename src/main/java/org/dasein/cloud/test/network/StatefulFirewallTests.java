@@ -100,7 +100,7 @@ public class StatefulFirewallTests {
         }
         else if( name.getMethodName().equals("launchVM") || name.getMethodName().equals("verifyDuplicateRejection") ||
                 name.getMethodName().equals("createVLANFirewallAndAddAndRemoveIcmpRule") ) {
-            ComputeServices services = tm.getProvider().getComputeServices();
+            ComputeServices services = tm.getComputeServices();
             VirtualMachineSupport support;
 
             try {
@@ -113,7 +113,7 @@ public class StatefulFirewallTests {
                         testVLANId = tm.getTestVLANId(DaseinTestManager.STATELESS, false, null);
                     }
                 }
-                NetworkServices networkServices = tm.getProvider().getNetworkServices();
+                NetworkServices networkServices = tm.getNetworkServices();
                 FirewallSupport firewallSupport;
                 firewallSupport = (networkServices == null ? null : networkServices.getFirewallSupport());
                 boolean vlanForFirewall = (firewallSupport != null && !firewallSupport.getCapabilities().requiresVLAN().equals(Requirement.NONE));
@@ -147,7 +147,7 @@ public class StatefulFirewallTests {
                 testFirewallId = tm.getTestVLANFirewallId(DaseinTestManager.STATEFUL, true, null);
             }
             if( testFirewallId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     FirewallSupport support = services.getFirewallSupport();
@@ -230,7 +230,7 @@ public class StatefulFirewallTests {
     }
 
     private void checkAddRule(Direction direction, Permission permission, boolean vlanTest, RuleTargetType type) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -315,7 +315,7 @@ public class StatefulFirewallTests {
     }
 
     private void checkRemoveRule(Direction direction, Permission permission, boolean vlanTest, boolean oldStyle) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -410,7 +410,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void createGeneralFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -447,7 +447,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void createGeneralFirewallWithRule() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -512,7 +512,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void createVLANFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -555,7 +555,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void createVLANFirewallWithRule() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -788,7 +788,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void removeFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -840,7 +840,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void launchVM() throws CloudException, InternalException {
-        ComputeServices services = tm.getProvider().getComputeServices();
+        ComputeServices services = tm.getComputeServices();
         if( services == null ) {
             tm.ok("No compute services in " + tm.getProvider().getCloudName());
             return;
@@ -852,7 +852,7 @@ public class StatefulFirewallTests {
             return;
         }
 
-        NetworkServices networkServices = tm.getProvider().getNetworkServices();
+        NetworkServices networkServices = tm.getNetworkServices();
         if( networkServices == null ) {
             tm.ok("No network services in " + tm.getProvider().getCloudName());
             return;
@@ -887,12 +887,12 @@ public class StatefulFirewallTests {
         if( testFirewallId != null ) {
             options.behindFirewalls(testFirewallId);
             if( testSubnetId != null ) {
-                @SuppressWarnings("ConstantConditions") Subnet subnet = tm.getProvider().getNetworkServices().getVlanSupport().getSubnet(testSubnetId);
+                @SuppressWarnings("ConstantConditions") Subnet subnet = tm.getNetworkServices().getVlanSupport().getSubnet(testSubnetId);
                 assertNotNull("Subnet went away before test could be executed", subnet);
                 String dataCenterId = subnet.getProviderDataCenterId();
 
                 if( dataCenterId == null ) {
-                    for( DataCenter dc : tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
+                    for( DataCenter dc : tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
                         dataCenterId = dc.getProviderDataCenterId();
                     }
                 }
@@ -901,13 +901,13 @@ public class StatefulFirewallTests {
                 options.inSubnet(null, dataCenterId, testVLANId, testSubnetId);
             }
             else if( testVLANId != null ) {
-                @SuppressWarnings("ConstantConditions") VLAN vlan = tm.getProvider().getNetworkServices().getVlanSupport().getVlan(testVLANId);
+                @SuppressWarnings("ConstantConditions") VLAN vlan = tm.getNetworkServices().getVlanSupport().getVlan(testVLANId);
 
                 assertNotNull("VLAN went away before test could be executed", vlan);
                 String dataCenterId = vlan.getProviderDataCenterId();
 
                 if( dataCenterId == null ) {
-                    for( DataCenter dc : tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
+                    for( DataCenter dc : tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
                         dataCenterId = dc.getProviderDataCenterId();
                     }
                 }
@@ -917,7 +917,7 @@ public class StatefulFirewallTests {
             }
         }
         else {
-            NetworkServices net = tm.getProvider().getNetworkServices();
+            NetworkServices net = tm.getNetworkServices();
             FirewallSupport fw = (net == null ? null : net.getFirewallSupport());
 
             if( fw != null && fw.isSubscribed()  ) {
@@ -950,7 +950,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void createVLANFirewallAndAddAndRemoveIcmpRule() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services == null ) {
             tm.ok("Networking is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -989,7 +989,7 @@ public class StatefulFirewallTests {
 
     @Test
     public void verifyDuplicateRejection() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Networking is not supported in "  + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -101,7 +101,7 @@ public class StatefulLoadBalancerTests {
         }
         else if( name.getMethodName().equals("removeIP") ) {
             testLoadBalancerId = tm.getTestLoadBalancerId(DaseinTestManager.STATEFUL, tm.getUserName() + "-dsnlb", true);
-            NetworkServices services = tm.getProvider().getNetworkServices();
+            NetworkServices services = tm.getNetworkServices();
 
             if( services != null ) {
                 LoadBalancerSupport support = services.getLoadBalancerSupport();
@@ -120,7 +120,7 @@ public class StatefulLoadBalancerTests {
             testLoadBalancerId = tm.getTestLoadBalancerId(DaseinTestManager.STATEFUL, tm.getUserName() + "-dsnlb", true, true);
             LoadBalancer lb = null;
 
-            NetworkServices net = tm.getProvider().getNetworkServices();
+            NetworkServices net = tm.getNetworkServices();
 
             try {
                 if( net != null ) {
@@ -152,7 +152,7 @@ public class StatefulLoadBalancerTests {
         else if( name.getMethodName().equals("addDataCenter") ) {
             testLoadBalancerId = tm.getTestLoadBalancerId(DaseinTestManager.STATEFUL, tm.getUserName() + "-dsnlb", true);
             if( testLoadBalancerId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     LoadBalancerSupport support = services.getLoadBalancerSupport();
@@ -165,7 +165,7 @@ public class StatefulLoadBalancerTests {
                                 if( lb != null ) {
                                     List<DataCenter> regionDataCenters = new ArrayList<DataCenter>();
                                     String[] dcs = lb.getProviderDataCenterIds();
-                                    for( DataCenter dc : tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
+                                    for( DataCenter dc : tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
                                         regionDataCenters.add(dc);
                                     }
 
@@ -203,7 +203,7 @@ public class StatefulLoadBalancerTests {
         else if( name.getMethodName().equals("removeDataCenter") ) {
             testLoadBalancerId = tm.getTestLoadBalancerId(DaseinTestManager.STATEFUL, tm.getUserName() + "-dsnlb", true);
             if( testLoadBalancerId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     LoadBalancerSupport support = services.getLoadBalancerSupport();
@@ -214,7 +214,7 @@ public class StatefulLoadBalancerTests {
                                 LoadBalancer lb = support.getLoadBalancer(testLoadBalancerId);
 
                                 if( lb != null ) {
-                                    Iterator<DataCenter> it = tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()).iterator();
+                                    Iterator<DataCenter> it = tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()).iterator();
                                     String[] dcs = lb.getProviderDataCenterIds();
 
                                     if( dcs.length >= 2 ) {
@@ -232,7 +232,7 @@ public class StatefulLoadBalancerTests {
                                 }
                             }
                             else {
-                                testDataCenterId = tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()).iterator().next().getProviderDataCenterId();
+                                testDataCenterId = tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()).iterator().next().getProviderDataCenterId();
                             }
                         }
                         catch( Throwable ignore ) {
@@ -245,7 +245,7 @@ public class StatefulLoadBalancerTests {
         }
         else if( name.getMethodName().equals("removeServer") ) {
             testLoadBalancerId = tm.getTestLoadBalancerId(DaseinTestManager.STATEFUL, tm.getUserName() + "-dsnlb", true, true);
-            NetworkServices net = tm.getProvider().getNetworkServices();
+            NetworkServices net = tm.getNetworkServices();
 
             try {
                 if( net != null ) {
@@ -304,7 +304,7 @@ public class StatefulLoadBalancerTests {
     }
 
     private void createLoadBalancer(boolean withHttpsListener) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -339,7 +339,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void addRemoveListeners() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -402,7 +402,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void createLoadBalancerWithHealthCheck() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -447,7 +447,7 @@ public class StatefulLoadBalancerTests {
      */
     @Test
     public void modifyHealthCheck() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -555,7 +555,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void createInternalLoadBalancer() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -584,7 +584,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void addDataCenter() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -644,7 +644,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void addIP() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         String testIpAddress = "196.91.70.2"; // "162.222.179.154;" // for GCE
         if( services == null ) {
@@ -707,7 +707,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void addServer() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -776,7 +776,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void removeDataCenter() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -835,7 +835,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void removeIP() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -899,7 +899,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void removeServer() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -963,7 +963,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void removeLoadBalancer() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -1021,7 +1021,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void createLoadBalancerHealthCheck() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -1063,7 +1063,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void createSSLCertificate() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -1098,7 +1098,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void removeSSLCertificate() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -1136,7 +1136,7 @@ public class StatefulLoadBalancerTests {
 
     @Test
     public void listLoadBalancers() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -101,7 +101,7 @@ public class StatefulNetworkFirewallTests {
         else if( name.getMethodName().startsWith("revoke") ) {
             testFirewallId = tm.getTestNetworkFirewallId(DaseinTestManager.STATEFUL, true, null);
             if( testFirewallId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     NetworkFirewallSupport support = services.getNetworkFirewallSupport();
@@ -151,7 +151,7 @@ public class StatefulNetworkFirewallTests {
         else if( name.getMethodName().equals("associateWithSubnet") ) {
             testFirewallId = tm.getTestNetworkFirewallId(DaseinTestManager.STATEFUL, true, null);
             if( testFirewallId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     NetworkFirewallSupport support = services.getNetworkFirewallSupport();
@@ -189,7 +189,7 @@ public class StatefulNetworkFirewallTests {
     }
 
     private void checkAddRule(Direction direction, Permission permission) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getProvider().getCloudName());
@@ -239,7 +239,7 @@ public class StatefulNetworkFirewallTests {
     }
 
     private void checkRemoveRule() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getProvider().getCloudName());
@@ -268,7 +268,7 @@ public class StatefulNetworkFirewallTests {
 
     @Test
     public void createFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -354,7 +354,7 @@ public class StatefulNetworkFirewallTests {
 
     @Test
     public void removeFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -395,7 +395,7 @@ public class StatefulNetworkFirewallTests {
 
     @Test
     public void associateWithSubnet() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
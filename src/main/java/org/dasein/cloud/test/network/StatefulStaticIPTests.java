@@ -100,7 +100,7 @@ public class StatefulStaticIPTests {
         testVlanId = tm.getTestVLANId(DaseinTestManager.STATEFUL, true, null);
 
         if( testVlanId != null ) {
-            NetworkServices services = tm.getProvider().getNetworkServices();
+            NetworkServices services = tm.getNetworkServices();
 
             if( services != null ) {
                 VLANSupport support = services.getVlanSupport();
@@ -135,7 +135,7 @@ public class StatefulStaticIPTests {
             }
             testVMId = tm.getTestVMId(DaseinTestManager.STATEFUL, VmState.RUNNING, true, null);
             if( testIpAddressId != null && testVMId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     IpAddressSupport support = services.getIpAddressSupport();
@@ -160,7 +160,7 @@ public class StatefulStaticIPTests {
             }
             testVMId = tm.getTestVMId(DaseinTestManager.STATEFUL, VmState.RUNNING, true, null);
             if( testVMId != null ) {
-                NetworkServices services = tm.getProvider().getNetworkServices();
+                NetworkServices services = tm.getNetworkServices();
 
                 if( services != null ) {
                     IpAddressSupport support = services.getIpAddressSupport();
@@ -189,7 +189,7 @@ public class StatefulStaticIPTests {
 
                     try {
                         //noinspection ConstantConditions
-                        vm = tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
+                        vm = tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -214,7 +214,7 @@ public class StatefulStaticIPTests {
 
                     if( subnetId == null ) {
                         try {
-                            @SuppressWarnings("ConstantConditions") VLAN vlan = tm.getProvider().getNetworkServices().getVlanSupport().getVlan(testVlanId);
+                            @SuppressWarnings("ConstantConditions") VLAN vlan = tm.getNetworkServices().getVlanSupport().getVlan(testVlanId);
 
                             if( vlan != null ) {
                                 dataCenterId = vlan.getProviderDataCenterId();
@@ -226,7 +226,7 @@ public class StatefulStaticIPTests {
                     }
                     else {
                         try {
-                            @SuppressWarnings("ConstantConditions") Subnet subnet = tm.getProvider().getNetworkServices().getVlanSupport().getSubnet(subnetId);
+                            @SuppressWarnings("ConstantConditions") Subnet subnet = tm.getNetworkServices().getVlanSupport().getSubnet(subnetId);
 
                             if( subnet != null ) {
                                 dataCenterId = subnet.getProviderDataCenterId();
@@ -238,7 +238,7 @@ public class StatefulStaticIPTests {
                     }
                     if( dataCenterId == null ) {
                         try {
-                            for( DataCenter dc : tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
+                            for( DataCenter dc : tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
                                 if( dc.isActive() && dc.isAvailable() ) {
                                     dataCenterId = dc.getProviderDataCenterId();
                                     break;
@@ -258,7 +258,7 @@ public class StatefulStaticIPTests {
                     if( compute != null ) {
                         try {
                             //noinspection ConstantConditions
-                            testVMId = compute.provisionVM(tm.getProvider().getComputeServices().getVirtualMachineSupport(), DaseinTestManager.STATEFUL + "vlan", options, dataCenterId);
+                            testVMId = compute.provisionVM(tm.getComputeServices().getVirtualMachineSupport(), DaseinTestManager.STATEFUL + "vlan", options, dataCenterId);
                         }
                         catch( Throwable t ) {
                             tm.warn("Unable to provision test VM with VLAN=" + testVlanId + ", subnet=" + subnetId + " in " + dataCenterId);
@@ -267,7 +267,7 @@ public class StatefulStaticIPTests {
                 }
                 if( testVMId != null ) {
                     try {
-                        VirtualMachine vm = tm.getProvider().getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
+                        VirtualMachine vm = tm.getComputeServices().getVirtualMachineSupport().getVirtualMachine(testVMId);
 
                         testVlanId = vm.getProviderVlanId();
                         if (testVlanId != null) {
@@ -289,7 +289,7 @@ public class StatefulStaticIPTests {
             testVlanId = null;
             testVMId = null;
 
-            NetworkServices services = tm.getProvider().getNetworkServices();
+            NetworkServices services = tm.getNetworkServices();
 
             if( services != null ) {
                 IpAddressSupport support = services.getIpAddressSupport();
@@ -322,7 +322,7 @@ public class StatefulStaticIPTests {
     }
 
     private void request(@Nonnull IPVersion version, boolean forVLAN) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -401,7 +401,7 @@ public class StatefulStaticIPTests {
     }
 
     private void assignPostLaunch(@Nonnull IPVersion version) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -437,7 +437,7 @@ public class StatefulStaticIPTests {
             fail("Unable to get a test VM for running the test " + name.getMethodName());
         }
         if( support.getCapabilities().isAssignablePostLaunch(version) ) {
-            @SuppressWarnings("ConstantConditions") VirtualMachineSupport vmSupport = tm.getProvider().getComputeServices().getVirtualMachineSupport();
+            @SuppressWarnings("ConstantConditions") VirtualMachineSupport vmSupport = tm.getComputeServices().getVirtualMachineSupport();
             IpAddress address = support.getIpAddress(testIpAddressId);
 
             assertNotNull("The test IP address has gone away", address);
@@ -525,7 +525,7 @@ public class StatefulStaticIPTests {
 
     @Test
     public void releaseFromPool() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -558,7 +558,7 @@ public class StatefulStaticIPTests {
 
     @Test
     public void releaseFromVirtualMachine() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -585,7 +585,7 @@ public class StatefulStaticIPTests {
             assertNotNull("Test IP addresss " + address + " does not exist", address);
 
             if( address.getServerId() != null ) {
-                @SuppressWarnings("ConstantConditions") VirtualMachineSupport vmSupport = tm.getProvider().getComputeServices().getVirtualMachineSupport();
+                @SuppressWarnings("ConstantConditions") VirtualMachineSupport vmSupport = tm.getComputeServices().getVirtualMachineSupport();
 
                 assertNotNull("No virtual machine support", vmSupport);
 
@@ -630,7 +630,7 @@ public class StatefulStaticIPTests {
     }
 
     private void forward(@Nonnull IPVersion version) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -693,7 +693,7 @@ public class StatefulStaticIPTests {
     }
 
     private void stopForward(IPVersion version) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -28,6 +28,7 @@ import org.dasein.cloud.dc.DataCenter;
 import org.dasein.cloud.dc.DataCenterServices;
 import org.dasein.cloud.network.*;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.LeaseStore;
 import org.dasein.cloud.test.compute.ComputeResources;
 import org.dasein.util.CalendarWrapper;
 import org.junit.*;
@@ -85,7 +86,7 @@ public class StatefulVLANTests {
         NetworkServices services = null;
         VLANSupport support = null;
         try {
-            services = tm.getProvider().getNetworkServices();
+            services = tm.getNetworkServices();
             if( services != null ) {
                 support = services.getVlanSupport();
             }
@@ -159,10 +160,13 @@ public class StatefulVLANTests {
                 Thread.sleep(5000L);
             } catch( InterruptedException ignore ) {
             }
+            // never fall back to a subnet kept for later runs
+            LeaseStore leases = LeaseStore.getInstance(tm.getProvider());
+
             if( testSubnetId == null ) {
                 testSubnetId = tm.getTestSubnetId(DaseinTestManager.STATELESS, false, testVLANId, null);
             }
-            if( testSubnetId == null ) {
+            if( testSubnetId == null || leases.isKept(testSubnetId) ) {
                 testSubnetId = tm.getTestSubnetId(DaseinTestManager.STATEFUL, false, testVLANId, null);
             }
             if( testSubnetId == null ) {
@@ -173,6 +177,9 @@ public class StatefulVLANTests {
                 } catch( InterruptedException ignore ) {
                 }
             }
+            if( leases.isKept(testSubnetId) ) {
+                testSubnetId = null;
+            }
             if( testVLANId != null ) {
                 try {
                     if( support != null && support.isConnectedViaInternetGateway(testVLANId) ) {
@@ -226,7 +233,7 @@ public class StatefulVLANTests {
                         if( testVLANVMId != null ) {
                             try {
                                 Integer count = 0;
-                                ComputeServices cs = tm.getProvider().getComputeServices();
+                                ComputeServices cs = tm.getComputeServices();
                                 VirtualMachineSupport vs = cs.getVirtualMachineSupport();
                                 while( count < 20 ) {
                                     VirtualMachine vm = vs.getVirtualMachine(testVLANVMId);
@@ -316,7 +323,7 @@ public class StatefulVLANTests {
 
     @Test
     public void provisionSubnet() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -370,7 +377,7 @@ public class StatefulVLANTests {
 
     @Test
     public void provisionVLAN() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -409,7 +416,7 @@ public class StatefulVLANTests {
 
     @Test
     public void provisionRoutingTable() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -463,7 +470,7 @@ public class StatefulVLANTests {
 
     @Test
     public void removeVLAN() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -516,7 +523,7 @@ public class StatefulVLANTests {
 
 //    @Test DISABLED as specific to GCE edge case
     public void removeVLANwithFirewallRule() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -559,7 +566,7 @@ public class StatefulVLANTests {
 
     @Test
     public void removeRoutingTable() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -601,7 +608,7 @@ public class StatefulVLANTests {
 
     @Test
     public void removeSubnet() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -641,7 +648,7 @@ public class StatefulVLANTests {
 
     @Test
     public void launchVM() throws CloudException, InternalException {
-        NetworkServices networkServices = tm.getProvider().getNetworkServices();
+        NetworkServices networkServices = tm.getNetworkServices();
         if( networkServices == null ) {
             tm.ok("No network services in " + tm.getProvider().getCloudName());
             return;
@@ -652,7 +659,7 @@ public class StatefulVLANTests {
             return;
         }
 
-        ComputeServices computeServices = tm.getProvider().getComputeServices();
+        ComputeServices computeServices = tm.getComputeServices();
         if( computeServices == null ) {
             tm.ok("No compute services in " + tm.getProvider().getCloudName());
             return;
@@ -663,7 +670,7 @@ public class StatefulVLANTests {
             tm.ok("No virtual machine support in " + tm.getProvider().getCloudName());
             return;
         }
-        DataCenterServices dcServices = tm.getProvider().getDataCenterServices();
+        DataCenterServices dcServices = tm.getDataCenterServices();
 
         ComputeResources compute = DaseinTestManager.getComputeResources();
         assertNotNull("No compute resources for the tests, something is very wrong", compute);
@@ -678,14 +685,14 @@ public class StatefulVLANTests {
 
         if( testSubnetId != null ) {
             tm.out("Subnet Id", testSubnetId);
-            @SuppressWarnings( "ConstantConditions" ) Subnet subnet = tm.getProvider().getNetworkServices().getVlanSupport().getSubnet(testSubnetId);
+            @SuppressWarnings( "ConstantConditions" ) Subnet subnet = tm.getNetworkServices().getVlanSupport().getSubnet(testSubnetId);
             assertNotNull("Subnet went away before test could be executed", subnet);
             String dataCenterId = subnet.getProviderDataCenterId();
             if (testDataCenterId != null)
                 dataCenterId = testDataCenterId;
             else
             if( dataCenterId == null ) {
-                for( DataCenter dc : tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
+                for( DataCenter dc : tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
                     dataCenterId = dc.getProviderDataCenterId();
                 }
             }
@@ -694,7 +701,7 @@ public class StatefulVLANTests {
             options.inSubnet(null, dataCenterId, testVLANId, testSubnetId);
         }
         else if( testVLANId != null ) {
-            @SuppressWarnings("ConstantConditions") VLAN vlan = tm.getProvider().getNetworkServices().getVlanSupport().getVlan(testVLANId);
+            @SuppressWarnings("ConstantConditions") VLAN vlan = tm.getNetworkServices().getVlanSupport().getVlan(testVLANId);
 
             assertNotNull("VLAN went away before test could be executed", vlan);
             String dataCenterId = vlan.getProviderDataCenterId();
@@ -702,7 +709,7 @@ public class StatefulVLANTests {
                 dataCenterId = testDataCenterId;
             else
             if( dataCenterId == null ) {
-                for( DataCenter dc : tm.getProvider().getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
+                for( DataCenter dc : tm.getDataCenterServices().listDataCenters(tm.getContext().getRegionId()) ) {
                     dataCenterId = dc.getProviderDataCenterId();
                 }
             }
@@ -711,7 +718,7 @@ public class StatefulVLANTests {
             options.inVlan(null, dataCenterId, testVLANId);
         }
         else {
-            if (!tm.getProvider().getNetworkServices().getVlanSupport().getCapabilities().allowsNewVlanCreation()) {
+            if (!tm.getNetworkServices().getVlanSupport().getCapabilities().allowsNewVlanCreation()) {
                 tm.ok("No test VLAN was identified due to a lack of support for creating VLANs");
             }
             else if( !vmSupport.getCapabilities().identifyVlanRequirement().equals(Requirement.NONE) ) {
@@ -774,7 +781,7 @@ public class StatefulVLANTests {
 
     @Test
     public void connectInternetGateway() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -825,7 +832,7 @@ public class StatefulVLANTests {
 
     @Test
     public void removeInternetGateway() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
             if( support != null ) {
@@ -888,10 +895,10 @@ public class StatefulVLANTests {
 
     @Test
     public void addRouteToVM() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
-            ComputeServices computeServices = tm.getProvider().getComputeServices();
+            ComputeServices computeServices = tm.getComputeServices();
 
             if( computeServices != null ) {
                 VLANSupport support = services.getVlanSupport();
@@ -975,10 +982,10 @@ public class StatefulVLANTests {
 
     @Test
     public void addRouteToNetworkInterface() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
-            ComputeServices computeServices = tm.getProvider().getComputeServices();
+            ComputeServices computeServices = tm.getComputeServices();
 
             if( computeServices != null ) {
                 VLANSupport support = services.getVlanSupport();
@@ -1062,7 +1069,7 @@ public class StatefulVLANTests {
 
     @Test
     public void addRouteToGateway() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
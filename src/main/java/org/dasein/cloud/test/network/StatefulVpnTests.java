@@ -69,7 +69,7 @@ public class StatefulVpnTests {
         assumeTrue(!tm.isTestSkipped());
 
         // initialise interface classes
-        networkServices = tm.getProvider().getNetworkServices();
+        networkServices = tm.getNetworkServices();
         if( networkServices == null ) {
             return; // no network services, no point continuing
         }
@@ -265,7 +265,7 @@ public class StatefulVpnTests {
         Iterable<Region> regions;
         boolean regionFound = false;
         try {
-            regions = tm.getProvider().getDataCenterServices().listRegions();
+            regions = tm.getDataCenterServices().listRegions();
             for (Region region : regions) {
                 if (region.getName().equals(vpnGateway.getProviderRegionId())) {
                     regionFound = true;
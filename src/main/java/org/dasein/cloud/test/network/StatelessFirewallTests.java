@@ -94,7 +94,7 @@ public class StatelessFirewallTests {
     }
 
     private void assertFirewall(@Nonnull Firewall firewall, boolean vlan) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         FirewallSupport support = null;
         if( services != null ) {
             support = services.getFirewallSupport();
@@ -152,7 +152,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -304,7 +304,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void getBogusFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -326,7 +326,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void getGeneralFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -358,7 +358,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void vlanFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -390,7 +390,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void generalFirewallContent() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -423,7 +423,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void firewallConstraints() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -459,7 +459,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void vlanFirewallContent() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -491,7 +491,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void listFirewalls() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -526,7 +526,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void listFirewallStatus() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -556,7 +556,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void compareFirewallListAndStatus() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -605,7 +605,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void listRulesForGeneralFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -649,7 +649,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void listRulesForVLANFirewall() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
@@ -693,7 +693,7 @@ public class StatelessFirewallTests {
 
     @Test
     public void ruleContent() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             FirewallSupport support = services.getFirewallSupport();
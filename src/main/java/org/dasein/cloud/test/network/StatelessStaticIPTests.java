@@ -153,7 +153,7 @@ public class StatelessStaticIPTests {
     }
 
     private void list(IPVersion version, boolean unassignedOnly) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         IpAddressSupport support = (services == null ? null : services.getIpAddressSupport());
         boolean supported = false;
 
@@ -189,7 +189,7 @@ public class StatelessStaticIPTests {
     }
 
     private void listStatus(IPVersion version) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
         IpAddressSupport support = (services == null ? null : services.getIpAddressSupport());
         boolean supported = false;
 
@@ -222,7 +222,7 @@ public class StatelessStaticIPTests {
     }
 
     private void compareStatus(IPVersion version) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             IpAddressSupport support = services.getIpAddressSupport();
@@ -270,7 +270,7 @@ public class StatelessStaticIPTests {
     }
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -303,7 +303,7 @@ public class StatelessStaticIPTests {
 
     @Test
     public void getBogusAddress() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -323,7 +323,7 @@ public class StatelessStaticIPTests {
 
     @Test
     public void getAddress() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -343,7 +343,7 @@ public class StatelessStaticIPTests {
 
     @Test
     public void IPv4Content() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -388,7 +388,7 @@ public class StatelessStaticIPTests {
 
     @Test
     public void IPv6Content() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -472,7 +472,7 @@ public class StatelessStaticIPTests {
     }
 
     private void listRules(@Nonnull IPVersion version) throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services == null ) {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
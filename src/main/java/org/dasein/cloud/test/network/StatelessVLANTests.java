@@ -176,7 +176,7 @@ public class StatelessVLANTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -223,7 +223,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getBogusVLAN() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -245,7 +245,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getVLAN() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -277,7 +277,7 @@ public class StatelessVLANTests {
 
     @Test
     public void vlanContent() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -335,7 +335,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listVLANs() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -374,7 +374,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listRoutingTablesForVlan() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -424,7 +424,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listRoutingTablesForSubnet() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -477,7 +477,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listVLANStatus() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -511,7 +511,7 @@ public class StatelessVLANTests {
 
     @Test
     public void compareVLANListAndStatus() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -560,7 +560,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getBogusSubnet() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -582,7 +582,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getSubnet() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -617,7 +617,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getBogusRouteTable() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -639,7 +639,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getRouteTable() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -674,7 +674,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getBogusInternetGateway() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -696,7 +696,7 @@ public class StatelessVLANTests {
 
     @Test
     public void getInternetGateway() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -730,7 +730,7 @@ public class StatelessVLANTests {
 
     @Test
     public void subnetContent() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -788,7 +788,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listSubnets() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -837,7 +837,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listInternetGateways() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -886,7 +886,7 @@ public class StatelessVLANTests {
 
     @Test
     public void listResources() throws CloudException, InternalException {
-        NetworkServices services = tm.getProvider().getNetworkServices();
+        NetworkServices services = tm.getNetworkServices();
 
         if( services != null ) {
             VLANSupport support = services.getVlanSupport();
@@ -929,7 +929,7 @@ public class StatelessVLANTests {
 
     @Test
     public void assignRouteTableToSubnet() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
@@ -979,7 +979,7 @@ public class StatelessVLANTests {
 
     @Test
     public void disassociateRouteTableFromSubnet() throws CloudException, InternalException {
-      NetworkServices services = tm.getProvider().getNetworkServices();
+      NetworkServices services = tm.getNetworkServices();
 
       if( services != null ) {
         VLANSupport support = services.getVlanSupport();
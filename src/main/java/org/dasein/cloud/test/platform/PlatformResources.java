@@ -27,20 +27,24 @@ import org.dasein.cloud.InternalException;
 import org.dasein.cloud.platform.*;
 import org.dasein.cloud.storage.Blob;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.Prefetcher;
+import org.dasein.cloud.test.ProductIndex;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.cloud.test.ResourceRegistry;
+import org.dasein.cloud.test.StateWaiter;
+import org.dasein.cloud.test.TeardownGraph;
 import org.dasein.cloud.test.storage.StorageResources;
 import org.dasein.util.CalendarWrapper;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages all identity resources for automated provisioning and de-provisioning during integration tests.
@@ -48,6 +52,7 @@ import java.util.concurrent.Future;
  * @author George Reese
  * @version 2013.04 initial version
  * @version 2013.07 updated for message queue services support (issue #6)
+ * @version 2015.10 database products are chosen from a {@link ProductIndex}
  * @since 2013.04
  */
 public class PlatformResources {
@@ -55,10 +60,41 @@ public class PlatformResources {
 
     static private final Random random = new Random();
 
-    private final HashMap<String,String> testCDNs   = new HashMap<String, String>();
-    private final HashMap<String,String> testQueues = new HashMap<String, String>();
-    private final HashMap<String,String> testRDBMS  = new HashMap<String, String>();
-    private final HashMap<String,String> testTopics = new HashMap<String, String>();
+    // cheapest first; the rest only separate products with the same rate, so that none of them is dropped
+    static private final Comparator<DatabaseProduct> PRODUCT_ORDER = new Comparator<DatabaseProduct>() {
+        @Override
+        public int compare(DatabaseProduct a, DatabaseProduct b) {
+            int c = Float.compare(a.getStandardHourlyRate(), b.getStandardHourlyRate());
+
+            if( c == 0 ) {
+                c = compareStrings(a.getProductSize(), b.getProductSize());
+            }
+            if( c == 0 ) {
+                c = compareStrings(a.getName(), b.getName());
+            }
+            if( c == 0 ) {
+                // e.g. the highly available variant of a product at the same price
+                c = Boolean.compare(a.isHighAvailability(), b.isHighAvailability());
+            }
+            if( c == 0 ) {
+                DatabaseLicenseModel x = a.getLicenseModel(), y = b.getLicenseModel();
+
+                c = (x == null ? (y == null ? 0 : -1) : (y == null ? 1 : x.compareTo(y)));
+            }
+            return c;
+        }
+
+        private int compareStrings(@Nullable String x, @Nullable String y) {
+            return (x == null ? (y == null ? 0 : -1) : (y == null ? 1 : x.compareTo(y)));
+        }
+    };
+
+    private final ConcurrentHashMap<DatabaseEngine,ProductIndex<DatabaseProduct>> productIndexes = new ConcurrentHashMap<DatabaseEngine, ProductIndex<DatabaseProduct>>();
+
+    private final ResourceRegistry<String> testCDNs   = new ResourceRegistry<String>(ResourceKind.CDN_DISTRIBUTION);
+    private final ResourceRegistry<String> testQueues = new ResourceRegistry<String>(ResourceKind.MESSAGE_QUEUE);
+    private final ResourceRegistry<String> testRDBMS  = new ResourceRegistry<String>(ResourceKind.RDBMS);
+    private final ResourceRegistry<String> testTopics = new ResourceRegistry<String>(ResourceKind.NOTIFICATION_TOPIC);
 
     private CloudProvider   provider;
 
@@ -76,150 +112,170 @@ public class PlatformResources {
         }
     }
 
-    public int close() {
-        int count = 0;
-
-        try {
-            PlatformServices services = provider.getPlatformServices();
+    /**
+     * Adds the removal of every platform resource provisioned for testing to the specified teardown graph.
+     * @param graph the graph to which teardown tasks are added
+     */
+    public void addTeardown(@Nonnull TeardownGraph graph) {
+        PlatformServices services = provider.getPlatformServices();
 
-            if( services != null ) {
-                // start CDN termination first, wait later
-                ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        if( services == null ) {
+            return;
+        }
+        final CDNSupport cdnSupport = services.getCDNSupport();
 
-                CDNSupport cdnSupport = services.getCDNSupport();
+        if( cdnSupport != null ) {
+            for( Map.Entry<String,String> entry : testCDNs.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String distributionId = entry.getValue();
 
-                if( cdnSupport != null ) {
-                    for( Map.Entry<String,String> entry : testCDNs.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                Distribution d = cdnSupport.getDistribution(entry.getValue());
+                    graph.add(ResourceKind.CDN_DISTRIBUTION, distributionId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Distribution d = cdnSupport.getDistribution(distributionId);
 
-                                if( d != null ) {
-                                    results.add(cleanCDN(cdnSupport, entry.getValue()));
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test CDN " + entry.getValue() + ": " + t.getMessage());
+                            if( d != null ) {
+                                cdnSupport.delete(distributionId);
                             }
+                            return true;
                         }
-                    }
+                    });
                 }
+            }
+        }
 
-                MQSupport mqSupport = services.getMessageQueueSupport();
+        final MQSupport mqSupport = services.getMessageQueueSupport();
 
-                if( mqSupport != null ) {
-                    for( Map.Entry<String,String> entry : testQueues.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                MessageQueue mq = mqSupport.getMessageQueue(entry.getValue());
-
-                                if( mq != null ) {
-                                    mqSupport.removeMessageQueue(mq.getProviderMessageQueueId(), "Dasein Cloud test clean-up");
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test message queue " + entry.getValue() + ": " + t.getMessage());
+        if( mqSupport != null ) {
+            for( Map.Entry<String,String> entry : testQueues.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String queueId = entry.getValue();
+
+                    graph.add(ResourceKind.MESSAGE_QUEUE, queueId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            MessageQueue mq = mqSupport.getMessageQueue(queueId);
+
+                            if( mq != null ) {
+                                mqSupport.removeMessageQueue(mq.getProviderMessageQueueId(), "Dasein Cloud test clean-up");
                             }
+                            return true;
                         }
-                    }
+                    });
                 }
+            }
+        }
 
-                PushNotificationSupport pushSupport = services.getPushNotificationSupport();
+        final PushNotificationSupport pushSupport = services.getPushNotificationSupport();
 
-                if( pushSupport != null ) {
-                    for( Map.Entry<String,String> entry : testTopics.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                Topic topic = pushSupport.getTopic(entry.getValue());
+        if( pushSupport != null ) {
+            for( Map.Entry<String,String> entry : testTopics.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String topicId = entry.getValue();
 
-                                if( topic != null ) {
-                                    pushSupport.removeTopic(entry.getValue());
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test notification topic " + entry.getValue() + ": " + t.getMessage());
+                    graph.add(ResourceKind.NOTIFICATION_TOPIC, topicId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Topic topic = pushSupport.getTopic(topicId);
+
+                            if( topic != null ) {
+                                pushSupport.removeTopic(topicId);
                             }
+                            return true;
                         }
-                    }
+                    });
                 }
+            }
+        }
 
-                RelationalDatabaseSupport rdbmsSupport = services.getRelationalDatabaseSupport();
+        final RelationalDatabaseSupport rdbmsSupport = services.getRelationalDatabaseSupport();
 
-                if( rdbmsSupport != null ) {
-                    for( Map.Entry<String,String> entry : testRDBMS.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                long timeout = System.currentTimeMillis() + (CalendarWrapper.MINUTE*20L);
-                                Database db = rdbmsSupport.getDatabase(entry.getValue());
-
-                                while( timeout > System.currentTimeMillis() ) {
-                                    if( canRemove(db) ) {
-                                        break;
-                                    }
-                                    try { Thread.sleep(15000L); }
-                                    catch( InterruptedException ignore ) { }
-                                    try { db = rdbmsSupport.getDatabase(db.getProviderDatabaseId()); }
-                                    catch( Throwable ignore ) { }
-                                }
-                                if( db != null && !db.getCurrentState().equals(DatabaseState.DELETED) && !db.getCurrentState().equals(DatabaseState.DELETING) ) {
-                                    rdbmsSupport.removeDatabase(entry.getValue());
-                                    count++;
+        if( rdbmsSupport != null ) {
+            for( Map.Entry<String,String> entry : testRDBMS.entrySet() ) {
+                if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                    final String databaseId = entry.getValue();
+
+                    graph.add(ResourceKind.RDBMS, databaseId, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            Database db = rdbmsSupport.getDatabase(databaseId);
+
+                            db = StateWaiter.waitFor("Database * > removable", StateWaiter.WaitPolicy.getInstance(CalendarWrapper.MINUTE*20L), db, new StateWaiter.Fetcher<Database>() {
+                                @Override
+                                public @Nullable Database fetch() throws CloudException, InternalException {
+                                    return rdbmsSupport.getDatabase(databaseId);
                                 }
-                                else {
-                                    count++;
+                            }, new StateWaiter.Condition<Database>() {
+                                @Override
+                                public boolean isSatisfied(@Nullable Database resource) {
+                                    return canRemove(resource);
                                 }
+                            });
+                            if( db != null && !db.getCurrentState().equals(DatabaseState.DELETED) && !db.getCurrentState().equals(DatabaseState.DELETING) ) {
+                                rdbmsSupport.removeDatabase(databaseId);
                             }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to de-provision test relational database " + entry.getValue() + ": " + t.getMessage());
-                            }
+                            return true;
                         }
-                    }
+                    });
                 }
-
-                // no wait for CDN stuff
-                boolean done;
-
-                do {
-                    done = true;
-                    try { Thread.sleep(15000L); }
-                    catch( InterruptedException ignore ) { }
-                    for( Future<Boolean> result : results ) {
-                        if( !result.isDone() ) {
-                            done = false;
-                            break;
-                        }
-                    }
-                } while( !done );
             }
         }
-        catch( Throwable ignore ) {
-            // ignore
-        }
-        return count;
     }
 
-    ExecutorService service = Executors.newCachedThreadPool();
+    /**
+     * Takes over a platform resource this framework did not provision in this run, such as one leaked by an earlier
+     * run, so that it is removed with the other test resources.
+     * @param kind the kind of resource
+     * @param label the label under which the resource is registered
+     * @param id the ID of the resource
+     * @return true if the resource was adopted, false if platform resources do not track that kind of resource
+     */
+    public boolean adopt(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull String id) {
+        switch( kind ) {
+            case CDN_DISTRIBUTION: testCDNs.put(label, id); return true;
+            case MESSAGE_QUEUE: testQueues.put(label, id); return true;
+            case NOTIFICATION_TOPIC: testTopics.put(label, id); return true;
+            case RDBMS: testRDBMS.put(label, id); return true;
+            default: return false;
+        }
+    }
 
-    private Future<Boolean> cleanCDN(final @Nonnull CDNSupport support, final @Nonnull String distributionId) {
-        return service.submit(new Callable<Boolean>() {
+    /**
+     * Adds the lookup of every stateless platform fixture to the specified prefetcher.
+     * @param prefetcher the prefetcher to which the lookups are added
+     */
+    public void addPrefetch(@Nonnull Prefetcher prefetcher) {
+        prefetcher.add(ResourceKind.CDN_DISTRIBUTION, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessDistribution();
+            }
+        });
+        prefetcher.add(ResourceKind.MESSAGE_QUEUE, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessMQ();
+            }
+        });
+        prefetcher.add(ResourceKind.RDBMS, new Callable<Object>() {
             @Override
-            public Boolean call() throws Exception {
-                support.delete(distributionId);
-                return true;
+            public Object call() {
+                return findStatelessRDBMS();
             }
         });
+        prefetcher.add(ResourceKind.NOTIFICATION_TOPIC, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessTopic();
+            }
+        });
+    }
+
+    public int close() {
+        TeardownGraph graph = new TeardownGraph();
+
+        addTeardown(graph);
+        return graph.execute();
     }
 
     public int report() {
@@ -231,7 +287,7 @@ public class PlatformResources {
             logger.info("Provisioned Platform Resources:");
             header = true;
             count += testRDBMS.size();
-            DaseinTestManager.out(logger, null, "---> RDBMS Instances", testRDBMS.size() + " " + testRDBMS);
+            DaseinTestManager.out(logger, null, "---> " + testRDBMS.getKind(), testRDBMS.size() + " " + testRDBMS);
         }
         testCDNs.remove(DaseinTestManager.STATELESS);
         if( !testCDNs.isEmpty() ) {
@@ -240,7 +296,7 @@ public class PlatformResources {
                 header = true;
             }
             count += testCDNs.size();
-            DaseinTestManager.out(logger, null, "---> CDN Distributions", testCDNs.size() + " " + testCDNs);
+            DaseinTestManager.out(logger, null, "---> " + testCDNs.getKind(), testCDNs.size() + " " + testCDNs);
         }
         testQueues.remove(DaseinTestManager.STATELESS);
         if( !testQueues.isEmpty() ) {
@@ -249,7 +305,7 @@ public class PlatformResources {
                 header = true;
             }
             count += testQueues.size();
-            DaseinTestManager.out(logger, null, "---> Message Queues", testQueues.size() + " " + testQueues);
+            DaseinTestManager.out(logger, null, "---> " + testQueues.getKind(), testQueues.size() + " " + testQueues);
         }
         testTopics.remove(DaseinTestManager.STATELESS);
         if( !testTopics.isEmpty() ) {
@@ -257,12 +313,12 @@ public class PlatformResources {
                 logger.info("Provisioned Platform Resources:");
             }
             count += testTopics.size();
-            DaseinTestManager.out(logger, null, "---> Notification Topics", testTopics.size() + " " + testTopics);
+            DaseinTestManager.out(logger, null, "---> " + testTopics.getKind(), testTopics.size() + " " + testTopics);
         }
         return count;
     }
 
-    public @Nullable String getTestDistributionId(@Nonnull String label, boolean provisionIfNull, @Nullable String origin) {
+    public @Nullable String getTestDistributionId(@Nonnull final String label, boolean provisionIfNull, @Nullable final String origin) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testCDNs.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -284,11 +340,16 @@ public class PlatformResources {
             PlatformServices services = provider.getPlatformServices();
 
             if( services != null ) {
-                CDNSupport support = services.getCDNSupport();
+                final CDNSupport support = services.getCDNSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionDistribution(support, label, "Dasein CDN", origin);
+                        return testCDNs.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionDistribution(support, label, "Dasein CDN", origin);
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -300,7 +361,7 @@ public class PlatformResources {
     }
 
 
-    public @Nullable String getTestQueueId(@Nonnull String label, boolean provisionIfNull) {
+    public @Nullable String getTestQueueId(@Nonnull final String label, boolean provisionIfNull) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testQueues.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -322,11 +383,16 @@ public class PlatformResources {
             PlatformServices services = provider.getPlatformServices();
 
             if( services != null ) {
-                MQSupport mqSupport = services.getMessageQueueSupport();
+                final MQSupport mqSupport = services.getMessageQueueSupport();
 
                 if( mqSupport != null ) {
                     try {
-                        return provisionMQ(mqSupport, label, "dsnmq");
+                        return testQueues.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionMQ(mqSupport, label, "dsnmq");
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -337,7 +403,7 @@ public class PlatformResources {
         return null;
     }
 
-    public @Nullable String getTestRDBMSId(@Nonnull String label, boolean provisionIfNull, @Nullable DatabaseEngine engine) {
+    public @Nullable String getTestRDBMSId(@Nonnull final String label, boolean provisionIfNull, @Nullable final DatabaseEngine engine) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testRDBMS.entrySet() ) {
                 if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
@@ -359,11 +425,16 @@ public class PlatformResources {
             PlatformServices services = provider.getPlatformServices();
 
             if( services != null ) {
-                RelationalDatabaseSupport rdbmsSupport = services.getRelationalDatabaseSupport();
+                final RelationalDatabaseSupport rdbmsSupport = services.getRelationalDatabaseSupport();
 
                 if( rdbmsSupport != null ) {
                     try {
-                        return provisionRDBMS(rdbmsSupport, label, "dsnrdbms", engine);
+                        return testRDBMS.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionRDBMS(rdbmsSupport, label, "dsnrdbms", engine);
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -374,7 +445,7 @@ public class PlatformResources {
         return null;
     }
 
-    public @Nullable String getTestTopicId(@Nonnull String label, boolean provisionIfNull) {
+    public @Nullable String getTestTopicId(@Nonnull final String label, boolean provisionIfNull) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : testTopics.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -396,11 +467,16 @@ public class PlatformResources {
             PlatformServices services = provider.getPlatformServices();
 
             if( services != null ) {
-                PushNotificationSupport support = services.getPushNotificationSupport();
+                final PushNotificationSupport support = services.getPushNotificationSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionTopic(support, label, "dsntopic");
+                        return testTopics.reserve(label, null, new ResourceRegistry.Provisioner<String>() {
+                            @Override
+                            public @Nullable String provision() throws CloudException, InternalException {
+                                return provisionTopic(support, label, "dsntopic");
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -528,24 +604,14 @@ public class PlatformResources {
         }
         String id = support.create(origin, namePrefix + random.nextInt(10000),  true, "dsncdn" + random.nextInt(10000) + ".dasein.org");
 
-        synchronized( testCDNs ) {
-            while( testCDNs.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testCDNs.put(label, id);
-        }
+        testCDNs.register(label, id);
         return id;
     }
 
     public @Nonnull String provisionMQ(@Nonnull MQSupport support, @Nonnull String label, @Nonnull String namePrefix) throws CloudException, InternalException {
         MQCreateOptions options = MQCreateOptions.getInstance(namePrefix + (System.currentTimeMillis()%10000), "Test MQ auto-provisioned by Dasein Cloud integration tests");
         String id = support.createMessageQueue(options);
-        synchronized( testQueues ) {
-            while( testQueues.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testQueues.put(label, id);
-        }
+        testQueues.register(label, id);
         return id;
     }
 
@@ -559,6 +625,10 @@ public class PlatformResources {
     }
 
     public static @Nonnull DatabaseProduct getCheapestProduct(@Nonnull RelationalDatabaseSupport support, @Nullable DatabaseEngine engine, @Nullable DatabaseProduct afterThis) throws CloudException, InternalException {
+        return getCheapestProduct(listProducts(support, getEngine(support, engine)), afterThis);
+    }
+
+    private static @Nonnull DatabaseEngine getEngine(@Nonnull RelationalDatabaseSupport support, @Nullable DatabaseEngine engine) throws CloudException, InternalException {
         if( engine == null ) {
             for( DatabaseEngine e : support.getDatabaseEngines() ) {
                 if( DatabaseEngine.MYSQL.equals(e) ) {
@@ -570,9 +640,23 @@ public class PlatformResources {
         if( engine == null ) {
             throw new InternalException("No engine was specified, and the cloud doesn't seem to support MySQL. Getting outta here.");
         }
+        return engine;
+    }
 
-        DatabaseProduct product = getNextCheapestProduct(support.listDatabaseProducts(engine), afterThis );
+    private static @Nonnull DatabaseProduct getCheapestProduct(@Nonnull ProductIndex<DatabaseProduct> index, @Nullable DatabaseProduct afterThis) throws CloudException {
+        DatabaseProduct product;
 
+        if( afterThis == null ) {
+            product = index.first();
+        }
+        else {
+            // the next product strictly more expensive than the one that could not be provisioned: the probe
+            // sorts ahead of every product at the next representable rate
+            DatabaseProduct probe = new DatabaseProduct(null, null);
+
+            probe.setStandardHourlyRate(Math.nextUp(afterThis.getStandardHourlyRate()));
+            product = index.ceiling(probe);
+        }
         if( product == null ) {
             throw new CloudException("No database product could be identified");
         }
@@ -580,47 +664,62 @@ public class PlatformResources {
         return product;
     }
 
-    private static @Nonnull DatabaseProduct getNextCheapestProduct(@Nonnull Iterable<DatabaseProduct> fromList, @Nullable DatabaseProduct afterThis) {
-        DatabaseProduct minimal = null;
-        for( DatabaseProduct product : fromList ) {
+    /**
+     * Provides the index of the database products usable for testing, listing them the first time the engine is
+     * asked for. The index lasts as long as these resources, which is for the test run.
+     * @param support the relational database support listing the products
+     * @param engine the database engine
+     * @return the product index
+     * @throws CloudException an error occurred with the cloud provider listing the products
+     * @throws InternalException an error occurred within Dasein Cloud listing the products
+     */
+    private @Nonnull ProductIndex<DatabaseProduct> getProductIndex(@Nonnull RelationalDatabaseSupport support, @Nonnull DatabaseEngine engine) throws CloudException, InternalException {
+        ProductIndex<DatabaseProduct> index = productIndexes.get(engine);
+
+        if( index == null ) {
+            ProductIndex<DatabaseProduct> created = listProducts(support, engine);
+
+            index = productIndexes.putIfAbsent(engine, created);
+            if( index == null ) {
+                index = created;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the database products usable for testing (not bring-your-own-license), cheapest first.
+     * @param support the relational database support listing the products
+     * @param engine the database engine
+     * @return a new product index
+     * @throws CloudException an error occurred with the cloud provider listing the products
+     * @throws InternalException an error occurred within Dasein Cloud listing the products
+     */
+    private static @Nonnull ProductIndex<DatabaseProduct> listProducts(@Nonnull RelationalDatabaseSupport support, @Nonnull DatabaseEngine engine) throws CloudException, InternalException {
+        ArrayList<DatabaseProduct> usable = new ArrayList<DatabaseProduct>();
+
+        for( DatabaseProduct product : support.listDatabaseProducts(engine) ) {
             if( product.getLicenseModel() == DatabaseLicenseModel.BRING_YOUR_OWN_LICENSE) {
                 // can't use in tests
                 continue;
             }
-            if( minimal == null ) {
-                if( afterThis == null ) {
-                    minimal = product;
-                }
-                else if( product.getStandardHourlyRate() > afterThis.getStandardHourlyRate() ) {
-                    minimal = product;
-                }
-            }
-            else {
-                if( afterThis == null ) {
-                    if( product.getStandardHourlyRate() < minimal.getStandardHourlyRate() ) {
-                        minimal = product;
-                    }
-                }
-                else if( product.getStandardHourlyRate() > afterThis.getStandardHourlyRate()
-                        && product.getStandardHourlyRate() < minimal.getStandardHourlyRate() ) {
-                    minimal = product;
-                }
-            }
+            usable.add(product);
         }
-        return minimal;
+        return new ProductIndex<DatabaseProduct>(usable, PRODUCT_ORDER);
     }
 
     public @Nonnull String provisionRDBMS(@Nonnull RelationalDatabaseSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable DatabaseEngine engine) throws CloudException, InternalException {
         String version = support.getDefaultVersion(engine);
 
         String id = null;
-        DatabaseProduct databaseProduct = getCheapestProduct(support, engine, null);
+        ProductIndex<DatabaseProduct> index = getProductIndex(support, getEngine(support, engine));
+        DatabaseProduct databaseProduct = getCheapestProduct(index, null);
         do {
             try {
                 id = support.createFromScratch(namePrefix + ( System.currentTimeMillis() % 10000 ), databaseProduct, version, "dasein", randomPassword(), 3000);
             } catch (CloudException e) {
                 if( CloudErrorType.CAPACITY.equals(e.getErrorType()) ) {
-                    databaseProduct = getCheapestProduct(support, engine, databaseProduct);
+                    databaseProduct = getCheapestProduct(index, databaseProduct);
                 }
                 else {
                     throw e;
@@ -632,24 +731,14 @@ public class PlatformResources {
             throw new CloudException("No database was generated");
         }
 
-        synchronized( testRDBMS ) {
-            while( testRDBMS.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testRDBMS.put(label, id);
-        }
+        testRDBMS.register(label, id);
         return id;
     }
 
     public @Nonnull String provisionTopic(@Nonnull PushNotificationSupport support, @Nonnull String label, @Nonnull String namePrefix) throws CloudException, InternalException {
         String id = support.createTopic(namePrefix + random.nextInt(10000)).getProviderTopicId();
 
-        synchronized( testTopics ) {
-            while( testTopics.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testTopics.put(label, id);
-        }
+        testTopics.register(label, id);
         return id;
     }
 
@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test.platform;
 
+import org.dasein.cloud.test.DaseinSuite;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -30,7 +31,7 @@ import org.junit.runners.Suite;
  * @version 2013.07 added MQ support (issue #6)
  * @since 2013.02
  */
-@RunWith(Suite.class)
+@RunWith(DaseinSuite.class)
 @Suite.SuiteClasses({
         StatefulPushNotificationTests.class,
         StatefulMonitoringTests.class,
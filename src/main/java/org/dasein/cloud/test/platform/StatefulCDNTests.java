@@ -106,7 +106,7 @@ public class StatefulCDNTests {
 
     @Test
     public void createDistribution() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -143,7 +143,7 @@ public class StatefulCDNTests {
 
     @Test
     public void changeName() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -197,7 +197,7 @@ public class StatefulCDNTests {
 
     @Test
     public void changeAliases() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -256,7 +256,7 @@ public class StatefulCDNTests {
 
     @Test
     public void deactivate() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -325,7 +325,7 @@ public class StatefulCDNTests {
 
     @Test
     public void removeDistribution() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
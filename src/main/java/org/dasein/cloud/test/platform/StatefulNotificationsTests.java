@@ -96,7 +96,7 @@ public class StatefulNotificationsTests {
 
     @Test
     public void createTopic() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -130,7 +130,7 @@ public class StatefulNotificationsTests {
 
     @Test
     public void publish() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -158,7 +158,7 @@ public class StatefulNotificationsTests {
 
     @Test
     public void subscribe() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -186,7 +186,7 @@ public class StatefulNotificationsTests {
 
     @Test
     public void removeTopic() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
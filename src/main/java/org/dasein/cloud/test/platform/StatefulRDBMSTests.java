@@ -112,7 +112,7 @@ public class StatefulRDBMSTests {
 
     @Test 
     public void getDefaultVersions() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -150,7 +150,7 @@ public class StatefulRDBMSTests {
      */
     @Test 
     public void deleteBackup() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -183,7 +183,7 @@ public class StatefulRDBMSTests {
      */
     @Test 
     public void createBackup() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -205,7 +205,7 @@ public class StatefulRDBMSTests {
 
     @Test
     public void createDatabase() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -232,7 +232,7 @@ public class StatefulRDBMSTests {
     }
 
     private @Nullable Database waitForDatabaseState(@Nonnull String dbId, int waitMinutes, @Nonnull DatabaseState state) throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
         if( services == null ) {
             return null;
         }
@@ -261,7 +261,7 @@ public class StatefulRDBMSTests {
      */
     @Test
     public void checkAccess() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -353,7 +353,7 @@ public class StatefulRDBMSTests {
      */
     @Test
     public void listAccess() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -379,12 +379,12 @@ public class StatefulRDBMSTests {
         List<String> testRanges = new ArrayList<String>();
 
         // First check if we can find any subnets, so we can authorize against their CIDRs
-        NetworkServices networkServices = tm.getProvider().getNetworkServices();
+        NetworkServices networkServices = tm.getNetworkServices();
         if( networkServices != null && networkServices.hasVlanSupport() &&
                 !Requirement.NONE.equals(
                         networkServices.getVlanSupport().getCapabilities().getSubnetSupport())) {
-            for( VLAN vlan : tm.getProvider().getNetworkServices().getVlanSupport().listVlans() ) {
-                for( Subnet subnet : tm.getProvider().getNetworkServices().getVlanSupport().listSubnets(vlan.getProviderVlanId()) ) {
+            for( VLAN vlan : tm.getNetworkServices().getVlanSupport().listVlans() ) {
+                for( Subnet subnet : tm.getNetworkServices().getVlanSupport().listSubnets(vlan.getProviderVlanId()) ) {
                     testRanges.add(subnet.getCidr());
                 }
             }
@@ -431,7 +431,7 @@ public class StatefulRDBMSTests {
      */
     @Test
     public void alterDatabase() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -519,7 +519,7 @@ public class StatefulRDBMSTests {
      */
 //    @Test DISABLED
     public void createDatabaseMultiple() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -561,7 +561,7 @@ public class StatefulRDBMSTests {
      */
     @Test
     public void createOracleDatabase() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
@@ -597,7 +597,7 @@ public class StatefulRDBMSTests {
     @Test
     public void removeDatabase() throws CloudException, InternalException {
         String id = null;
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -625,7 +625,7 @@ public class StatefulRDBMSTests {
     }
 
     private void removeDatabase( String id ) throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -94,7 +94,7 @@ public class StatelessCDNTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -112,7 +112,7 @@ public class StatelessCDNTests {
 
     @Test
     public void getBogusDistribution() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -132,7 +132,7 @@ public class StatelessCDNTests {
 
     @Test
     public void getDistribution() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -162,7 +162,7 @@ public class StatelessCDNTests {
 
     @Test
     public void distributionContent() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -203,7 +203,7 @@ public class StatelessCDNTests {
 
     @Test
     public void listDistributions() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -242,7 +242,7 @@ public class StatelessCDNTests {
 
     @Test
     public void listDistributionStatus() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -278,7 +278,7 @@ public class StatelessCDNTests {
 
     @Test
     public void compareDistributionListAndStatus() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -99,7 +99,7 @@ public class StatelessMQTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -117,7 +117,7 @@ public class StatelessMQTests {
 
     @Test
     public void getBogusQueue() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -137,7 +137,7 @@ public class StatelessMQTests {
 
     @Test
     public void getQueue() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -167,7 +167,7 @@ public class StatelessMQTests {
 
     @Test
     public void queueContent() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -217,7 +217,7 @@ public class StatelessMQTests {
 
     @Test
     public void listQueues() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -256,7 +256,7 @@ public class StatelessMQTests {
 
     @Test
     public void listQueueStatus() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -292,7 +292,7 @@ public class StatelessMQTests {
 
     @Test
     public void compareQueueListAndStatus() throws CloudException, InternalException {
-        PlatformServices services = tm.getProvider().getPlatformServices();
+        PlatformServices services = tm.getPlatformServices();
 
         if( services == null ) {
             tm.ok("Platform services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.compute.SnapshotSupport;
+import org.dasein.cloud.compute.VirtualMachineSupport;
+import org.dasein.cloud.compute.VolumeSupport;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures how listing virtual machines, volumes and snapshots scales with the size of an account by running the
+ * listings against {@link SimulatedCloud} accounts populated with each configured number of resources. For every
+ * listing and size it reports the latency, the bytes allocated per element and the peak heap growth, and compares
+ * each status-only listing with the corresponding full listing. No cloud account is needed, and the class is not
+ * part of any suite; run it on its own with the sizes to test:
+ * <pre>
+ *     -Dtest=ListingScaleTests -Ddasein.scale.sizes=1000,10000,100000
+ * </pre>
+ * Each listing is run once before it is measured so that the measurement excludes class loading and compilation.
+ * Allocation is measured only on JVMs that support per-thread allocation counters.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class ListingScaleTests {
+    static private final Logger logger = Logger.getLogger(ListingScaleTests.class);
+
+    static public final String SCALE_SIZES = "dasein.scale.sizes";
+
+    static private final String DEFAULT_SIZES = "1000,10000,100000";
+
+    static private final HashSet<Integer> populated = new HashSet<Integer>();
+
+    /**
+     * Lists resources through one of the listing calls.
+     */
+    private interface Listing {
+        public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException;
+    }
+
+    static private class Measurement {
+        private long allocatedBytes = -1L;
+        private int  count;
+        private long nanos;
+        private long peakHeapGrowth;
+    }
+
+    @AfterClass
+    static public void cleanUp() {
+        synchronized( populated ) {
+            for( int size : populated ) {
+                SimulatedCloud.discard(getAccount(size));
+            }
+            populated.clear();
+        }
+    }
+
+    static private @Nonnull String getAccount(int size) {
+        return "scale-" + size;
+    }
+
+    static private @Nonnull List<Integer> getSizes() {
+        String prop = DaseinTestManager.getSystemProperty(SCALE_SIZES);
+        ArrayList<Integer> sizes = new ArrayList<Integer>();
+
+        for( String size : (prop == null ? DEFAULT_SIZES : prop).split(",") ) {
+            try {
+                sizes.add(Integer.parseInt(size.trim()));
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return sizes;
+    }
+
+    public ListingScaleTests() { }
+
+    private @Nonnull ComputeServices getServices(int size) {
+        // not preloaded, so that each account holds exactly the resources populated for its size
+        SimulatedCloud cloud = SimulatedCloud.getInstance(getAccount(size), null, false);
+
+        synchronized( populated ) {
+            if( populated.add(size) ) {
+                cloud.populate(size, size, size);
+            }
+        }
+        return cloud.getService(ComputeServices.class);
+    }
+
+    private @Nonnull Measurement measure(@Nonnull ComputeServices services, @Nonnull Listing listing) throws CloudException, InternalException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = (threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean)threads : null);
+        long threadId = Thread.currentThread().getId();
+        Measurement m = new Measurement();
+
+        // warm up
+        for( Object ignore : listing.list(services) ) {
+            m.count++;
+        }
+        m.count = 0;
+        System.gc();
+        long baseline = getHeapUsed();
+
+        resetPeaks();
+        long allocated = (allocation == null ? -1L : allocation.getThreadAllocatedBytes(threadId));
+        long start = System.nanoTime();
+        Iterable<?> result = listing.list(services);
+
+        for( Object ignore : result ) {
+            m.count++;
+        }
+        m.nanos = System.nanoTime() - start;
+        if( allocated >= 0L ) {
+            m.allocatedBytes = allocation.getThreadAllocatedBytes(threadId) - allocated;
+        }
+        m.peakHeapGrowth = Math.max(0L, getHeapPeak() - baseline);
+        return m;
+    }
+
+    static private long getHeapUsed() {
+        long used = 0L;
+
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( MemoryType.HEAP.equals(pool.getType()) ) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    static private long getHeapPeak() {
+        long peak = 0L;
+
+        // the sum of per-pool peaks overstates a simultaneous peak, so this is an upper bound
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( MemoryType.HEAP.equals(pool.getType()) ) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    static private void resetPeaks() {
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( MemoryType.HEAP.equals(pool.getType()) ) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private void out(@Nonnull String key, @Nonnull String value) {
+        DaseinTestManager.out(logger, null, key, value);
+    }
+
+    private void compare(@Nonnull String resource, @Nonnull Listing full, @Nonnull Listing status) throws CloudException, InternalException {
+        for( int size : getSizes() ) {
+            ComputeServices services = getServices(size);
+            Measurement f = measure(services, full);
+            Measurement s = measure(services, status);
+
+            assertEquals("The full listing of " + resource + " did not return every " + resource, size, f.count);
+            assertEquals("The status listing of " + resource + " did not return every " + resource, size, s.count);
+            out(resource + " " + size + " Full", describe(f));
+            out(resource + " " + size + " Status", describe(s));
+            out(resource + " " + size + " Status/Full Time", String.valueOf(((float)s.nanos)/Math.max(1L, f.nanos)));
+            if( f.allocatedBytes > 0L && s.allocatedBytes >= 0L ) {
+                out(resource + " " + size + " Status/Full Allocation", String.valueOf(((float)s.allocatedBytes)/f.allocatedBytes));
+            }
+        }
+    }
+
+    static private @Nonnull String describe(@Nonnull Measurement m) {
+        String allocation = (m.allocatedBytes < 0L ? "-" : String.valueOf(m.allocatedBytes/Math.max(1, m.count)));
+
+        return (((float)(m.nanos/1000L))/1000f) + "ms, " + allocation + " bytes/element, peak heap growth " + (m.peakHeapGrowth/1024L) + "KB";
+    }
+
+    @Test
+    public void listVirtualMachines() throws CloudException, InternalException {
+        compare("VMs", new Listing() {
+            @SuppressWarnings("ConstantConditions")
+            @Override
+            public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException {
+                VirtualMachineSupport support = services.getVirtualMachineSupport();
+
+                return support.listVirtualMachines();
+            }
+        }, new Listing() {
+            @SuppressWarnings("ConstantConditions")
+            @Override
+            public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException {
+                VirtualMachineSupport support = services.getVirtualMachineSupport();
+
+                return support.listVirtualMachineStatus();
+            }
+        });
+    }
+
+    @Test
+    public void listVolumes() throws CloudException, InternalException {
+        compare("Volumes", new Listing() {
+            @SuppressWarnings("ConstantConditions")
+            @Override
+            public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException {
+                VolumeSupport support = services.getVolumeSupport();
+
+                return support.listVolumes();
+            }
+        }, new Listing() {
+            @SuppressWarnings("ConstantConditions")
+            @Override
+            public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException {
+                VolumeSupport support = services.getVolumeSupport();
+
+                return support.listVolumeStatus();
+            }
+        });
+    }
+
+    @Test
+    public void listSnapshots() throws CloudException, InternalException {
+        compare("Snapshots", new Listing() {
+            @SuppressWarnings("ConstantConditions")
+            @Override
+            public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException {
+                SnapshotSupport support = services.getSnapshotSupport();
+
+                return support.listSnapshots();
+            }
+        }, new Listing() {
+            @SuppressWarnings("ConstantConditions")
+            @Override
+            public @Nonnull Iterable<?> list(@Nonnull ComputeServices services) throws CloudException, InternalException {
+                SnapshotSupport support = services.getSnapshotSupport();
+
+                return support.listSnapshotStatus();
+            }
+        });
+    }
+}
@@ -0,0 +1,1572 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.OperationNotSupportedException;
+import org.dasein.cloud.Requirement;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.ImageFilterOptions;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageType;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.cloud.compute.Snapshot;
+import org.dasein.cloud.compute.SnapshotCreateOptions;
+import org.dasein.cloud.compute.SnapshotFilterOptions;
+import org.dasein.cloud.compute.SnapshotState;
+import org.dasein.cloud.compute.VMFilterOptions;
+import org.dasein.cloud.compute.VMLaunchOptions;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VirtualMachineProduct;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.compute.Volume;
+import org.dasein.cloud.compute.VolumeCreateOptions;
+import org.dasein.cloud.compute.VolumeFormat;
+import org.dasein.cloud.compute.VolumeProduct;
+import org.dasein.cloud.compute.VolumeState;
+import org.dasein.cloud.compute.VolumeType;
+import org.dasein.cloud.dc.DataCenter;
+import org.dasein.cloud.dc.Region;
+import org.dasein.cloud.identity.SSHKeypair;
+import org.dasein.cloud.network.AddressType;
+import org.dasein.cloud.network.Firewall;
+import org.dasein.cloud.network.FirewallCreateOptions;
+import org.dasein.cloud.network.IPVersion;
+import org.dasein.cloud.network.IpAddress;
+import org.dasein.cloud.network.Subnet;
+import org.dasein.cloud.network.SubnetCreateOptions;
+import org.dasein.cloud.network.SubnetState;
+import org.dasein.cloud.network.VLAN;
+import org.dasein.cloud.network.VLANState;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.util.uom.storage.Gigabyte;
+import org.dasein.util.uom.storage.Megabyte;
+import org.dasein.util.uom.storage.Storage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The in-memory state of a simulated cloud account and the behavior of its services. Data centers, virtual
+ * machines, volumes, snapshots, machine images and products are simulated with state machines that follow real
+ * clouds: virtual machines go from PENDING to RUNNING, through STOPPING to STOPPED and through REBOOTING back to
+ * RUNNING, volumes and snapshots from PENDING to AVAILABLE, and volumes may only be attached to one running or
+ * stopped virtual machine at a time. VLANs and subnets go from PENDING to AVAILABLE and a VLAN cannot be removed
+ * while subnets or firewalls remain in it. Firewalls (without rules), IPv4 static IPs that may be assigned to one
+ * virtual machine at a time, root buckets with the objects uploaded to them (sizes only, no contents), and SSH
+ * keypairs are simulated as well. Nested buckets, root objects and the other network services are not supported,
+ * and the platform and CI services exist but are not subscribed, so the tests for them skip. Every call other than
+ * a capability lookup may be delayed, throttled or failed as configured with the
+ * {@link System} properties:
+ * <pre>
+ *     -Ddasein.sim.latency=50 -Ddasein.sim.latency.distribution=exponential
+ *     -Ddasein.sim.faults=0.01 -Ddasein.sim.throttle=100 -Ddasein.sim.transition=2000
+ *     -Ddasein.sim.seed=42 -Ddasein.sim.vms=1000 -Ddasein.sim.volumes=1000 -Ddasein.sim.snapshots=1000
+ * </pre>
+ * Latency is the mean in milliseconds (0 by default) of a fixed, uniform or exponential (the default) distribution.
+ * Faults are the fraction of calls that fail, throttling the number of calls per second above which calls fail and
+ * transitions the milliseconds each state change takes (2000 by default). The seed makes latencies and faults
+ * repeatable, and the numbers of virtual machines, volumes and snapshots are preloaded into the first data center.
+ * @version 2015.10 initial version
+ * @version 2015.10 snapshots and populating clouds for listing scale tests
+ * @version 2015.10 VLANs, subnets, firewalls, static IPs, buckets and keypairs
+ * @since 2015.10
+ */
+public class SimulatedCloud {
+    static private final Logger logger = Logger.getLogger(SimulatedCloud.class);
+
+    static public final String FAULT_RATE           = "dasein.sim.faults";
+    static public final String LATENCY              = "dasein.sim.latency";
+    static public final String LATENCY_DISTRIBUTION = "dasein.sim.latency.distribution";
+    static public final String PRELOAD_VMS          = "dasein.sim.vms";
+    static public final String PRELOAD_SNAPSHOTS    = "dasein.sim.snapshots";
+    static public final String PRELOAD_VOLUMES      = "dasein.sim.volumes";
+    static public final String SEED                 = "dasein.sim.seed";
+    static public final String THROTTLE             = "dasein.sim.throttle";
+    static public final String TRANSITION           = "dasein.sim.transition";
+
+    static private final String IMAGE_ID = "sim-img-ubuntu";
+
+    static private final List<String> LIFECYCLE = Arrays.asList("canPause", "canReboot", "canResume", "canStart", "canStop", "canSuspend", "canTerminate", "canUnpause");
+
+    static private final List<String> CAPABLE = Arrays.asList("allowsNewSubnetCreation", "allowsNewVlanCreation", "isRequestable", "supportsFirewallCreation");
+
+    static private final List<String> SUPPORTED = Arrays.asList(
+            "ComputeServices.hasImageSupport", "ComputeServices.hasSnapshotSupport", "ComputeServices.hasVirtualMachineSupport", "ComputeServices.hasVolumeSupport",
+            "IdentityServices.hasShellKeySupport",
+            "NetworkServices.hasFirewallSupport", "NetworkServices.hasIpAddressSupport", "NetworkServices.hasVlanSupport",
+            "StorageServices.hasBlobStoreSupport", "StorageServices.hasOnlineStorageSupport"
+    );
+
+    static private final ConcurrentHashMap<String,SimulatedCloud> clouds = new ConcurrentHashMap<String, SimulatedCloud>();
+
+    static private final ScheduledExecutorService transitions = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@Nonnull Runnable r) {
+            Thread t = new Thread(r, "dasein-sim-transitions");
+
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static private class SimVm {
+        private final long                created = System.currentTimeMillis();
+        private       String              dataCenterId;
+        private       String              description;
+        private       String              id;
+        private       String              imageId;
+        private       String              name;
+        private       String              productId;
+        private       VmState             state;
+        private final Map<String,String>  tags    = new TreeMap<String, String>();
+    }
+
+    static private class SimSnapshot {
+        private final long          created = System.currentTimeMillis();
+        private       String        description;
+        private       String        id;
+        private       String        name;
+        private       int           sizeInGb;
+        private       SnapshotState state;
+        private       String        volumeId;
+    }
+
+    static private class SimVlan {
+        private       String    cidr;
+        private       String    description;
+        private       String    id;
+        private       String    name;
+        private       VLANState state;
+    }
+
+    static private class SimSubnet {
+        private       String      cidr;
+        private       String      dataCenterId;
+        private       String      description;
+        private       String      id;
+        private       String      name;
+        private       SubnetState state;
+        private       String      vlanId;
+    }
+
+    static private class SimFirewall {
+        private       String description;
+        private       String id;
+        private       String name;
+        private       String vlanId;
+    }
+
+    static private class SimAddress {
+        private       String address;
+        private       String id;
+        private       String vmId;
+    }
+
+    static private class SimBlob {
+        private final long   created = System.currentTimeMillis();
+        private       String bucket;
+        private       String object;
+        private       long   size;
+    }
+
+    static private class SimKeypair {
+        private       String id;
+        private       String name;
+        private       String publicKey;
+    }
+
+    static private class SimVolume {
+        private final long    created = System.currentTimeMillis();
+        private       String  dataCenterId;
+        private       String  description;
+        private       String  deviceId;
+        private       VolumeFormat format;
+        private       String  id;
+        private       String  name;
+        private       String  productId;
+        private       int     sizeInGb;
+        private       VolumeState state;
+        private       String  vmId;
+    }
+
+    /**
+     * Provides the simulated cloud for an account and region, creating it on first use.
+     * @param accountNumber the account number of the context, if any
+     * @param regionId the region of the context, if any
+     * @return the simulated cloud
+     */
+    static @Nonnull SimulatedCloud getInstance(@Nullable String accountNumber, @Nullable String regionId) {
+        return getInstance(accountNumber, regionId, true);
+    }
+
+    /**
+     * Provides the simulated cloud for an account and region, creating it on first use.
+     * @param accountNumber the account number of the context, if any
+     * @param regionId the region of the context, if any
+     * @param preload true if a cloud created by this call is preloaded with the configured numbers of resources
+     * @return the simulated cloud
+     */
+    static @Nonnull SimulatedCloud getInstance(@Nullable String accountNumber, @Nullable String regionId, boolean preload) {
+        String key = (accountNumber == null ? "" : accountNumber);
+        SimulatedCloud cloud = clouds.get(key);
+
+        if( cloud == null ) {
+            SimulatedCloud created = new SimulatedCloud(key, regionId == null ? "sim-1" : regionId);
+
+            cloud = clouds.putIfAbsent(key, created);
+            if( cloud == null ) {
+                cloud = created;
+                if( preload ) {
+                    cloud.preload();
+                }
+            }
+        }
+        return cloud;
+    }
+
+    /**
+     * Discards the simulated cloud for an account along with everything in it.
+     * @param accountNumber the account number of the cloud
+     */
+    static void discard(@Nullable String accountNumber) {
+        clouds.remove(accountNumber == null ? "" : accountNumber);
+    }
+
+    /**
+     * Logs the number of calls each simulated cloud served and the resources it holds.
+     * @param logger the logger to which the report is written
+     */
+    static public void report(@Nonnull Logger logger) {
+        for( SimulatedCloud cloud : clouds.values() ) {
+            DaseinTestManager.out(logger, null, "Simulated Cloud", cloud.getCalls() + " calls, " + cloud.vms.size() + " VMs, " + cloud.volumes.size() + " volumes, " + cloud.snapshots.size() + " snapshots");
+        }
+    }
+
+    static private double getDouble(@Nonnull String property, double defaultValue) {
+        String prop = DaseinTestManager.getSystemProperty(property);
+
+        if( prop != null ) {
+            try {
+                return Double.parseDouble(prop.trim());
+            }
+            catch( NumberFormatException ignore ) {
+                // ignore
+            }
+        }
+        return defaultValue;
+    }
+
+    private final String  accountNumber;
+    private final AtomicInteger calls     = new AtomicInteger(0);
+    private final double  faultRate;
+    private final double  latency;
+    private final String  distribution;
+    private final AtomicInteger nextId    = new AtomicInteger(0);
+    private final Random  random;
+    private final String  regionId;
+    private final double  throttle;
+    private final long    transition;
+    private       long    window;
+    private       int     windowCalls;
+
+    private final ConcurrentHashMap<String,SimVm>       vms       = new ConcurrentHashMap<String, SimVm>();
+    private final ConcurrentHashMap<String,SimSnapshot> snapshots = new ConcurrentHashMap<String, SimSnapshot>();
+    private final ConcurrentHashMap<String,SimVolume>   volumes   = new ConcurrentHashMap<String, SimVolume>();
+    private final ConcurrentHashMap<String,SimVlan>     vlans     = new ConcurrentHashMap<String, SimVlan>();
+    private final ConcurrentHashMap<String,SimSubnet>   subnets   = new ConcurrentHashMap<String, SimSubnet>();
+    private final ConcurrentHashMap<String,SimFirewall> firewalls = new ConcurrentHashMap<String, SimFirewall>();
+    private final ConcurrentHashMap<String,SimAddress>  addresses = new ConcurrentHashMap<String, SimAddress>();
+    private final ConcurrentHashMap<String,SimBlob>     buckets   = new ConcurrentHashMap<String, SimBlob>();
+    private final ConcurrentHashMap<String,SimBlob>     objects   = new ConcurrentHashMap<String, SimBlob>();
+    private final ConcurrentHashMap<String,SimKeypair>  keypairs  = new ConcurrentHashMap<String, SimKeypair>();
+    private final ConcurrentHashMap<Class<?>,Object>    services  = new ConcurrentHashMap<Class<?>, Object>();
+
+    private SimulatedCloud(@Nonnull String accountNumber, @Nonnull String regionId) {
+        String seed = DaseinTestManager.getSystemProperty(SEED);
+        String dist = DaseinTestManager.getSystemProperty(LATENCY_DISTRIBUTION);
+
+        this.accountNumber = accountNumber;
+        this.regionId = regionId;
+        this.faultRate = getDouble(FAULT_RATE, 0.0);
+        this.latency = getDouble(LATENCY, 0.0);
+        this.distribution = (dist == null ? "exponential" : dist.trim().toLowerCase(Locale.ENGLISH));
+        this.throttle = getDouble(THROTTLE, 0.0);
+        this.transition = (long)getDouble(TRANSITION, 2000.0);
+        this.random = (seed == null ? new Random() : new Random(Long.parseLong(seed.trim())));
+    }
+
+    private void preload() {
+        int vmCount = (int)getDouble(PRELOAD_VMS, 0.0);
+        int volumeCount = (int)getDouble(PRELOAD_VOLUMES, 0.0);
+        int snapshotCount = (int)getDouble(PRELOAD_SNAPSHOTS, 0.0);
+
+        if( vmCount > 0 || volumeCount > 0 || snapshotCount > 0 ) {
+            populate(vmCount, volumeCount, snapshotCount);
+            DaseinTestManager.out(logger, null, "Simulated Cloud", vmCount + " VMs, " + volumeCount + " volumes, " + snapshotCount + " snapshots preloaded");
+        }
+    }
+
+    /**
+     * Adds running virtual machines, available volumes and available snapshots to the first data center.
+     * @param vmCount the number of virtual machines to add
+     * @param volumeCount the number of volumes to add
+     * @param snapshotCount the number of snapshots to add
+     */
+    void populate(int vmCount, int volumeCount, int snapshotCount) {
+        for( int i=0; i<vmCount; i++ ) {
+            SimVm vm = new SimVm();
+
+            vm.id = "i-" + nextId.incrementAndGet();
+            vm.name = "simvm-" + i;
+            vm.description = vm.name;
+            vm.dataCenterId = getDataCenterIds().get(0);
+            vm.imageId = IMAGE_ID;
+            vm.productId = "sim.small";
+            vm.state = VmState.RUNNING;
+            vms.put(vm.id, vm);
+        }
+        for( int i=0; i<volumeCount; i++ ) {
+            SimVolume volume = new SimVolume();
+
+            volume.id = "vol-" + nextId.incrementAndGet();
+            volume.name = "simvol-" + i;
+            volume.description = volume.name;
+            volume.dataCenterId = getDataCenterIds().get(0);
+            volume.format = VolumeFormat.BLOCK;
+            volume.productId = "sim.hdd";
+            volume.sizeInGb = 1;
+            volume.state = VolumeState.AVAILABLE;
+            volumes.put(volume.id, volume);
+        }
+        for( int i=0; i<snapshotCount; i++ ) {
+            SimSnapshot snapshot = new SimSnapshot();
+
+            snapshot.id = "snap-" + nextId.incrementAndGet();
+            snapshot.name = "simsnap-" + i;
+            snapshot.description = snapshot.name;
+            snapshot.sizeInGb = 1;
+            snapshot.state = SnapshotState.AVAILABLE;
+            snapshots.put(snapshot.id, snapshot);
+        }
+    }
+
+    /**
+     * @return the number of calls made to this cloud, excluding capability lookups
+     */
+    public int getCalls() {
+        return calls.get();
+    }
+
+    private @Nonnull List<String> getDataCenterIds() {
+        return Arrays.asList(regionId + "a", regionId + "b");
+    }
+
+    /**
+     * Provides a simulated implementation of a service, support or capability interface.
+     * @param type the interface
+     * @param <T> the type of the interface
+     * @return the simulated implementation
+     */
+    @Nonnull <T> T getService(@Nonnull Class<T> type) {
+        Object service = services.get(type);
+
+        if( service == null ) {
+            Object created = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Service(type));
+
+            service = services.putIfAbsent(type, created);
+            if( service == null ) {
+                service = created;
+            }
+        }
+        return type.cast(service);
+    }
+
+    /**
+     * Delays, throttles or fails a call as configured.
+     * @param api the call being made
+     * @throws CloudException the call was throttled or failed
+     */
+    private void enter(@Nonnull String api) throws CloudException {
+        double delay, roll;
+
+        calls.incrementAndGet();
+        synchronized( this ) {
+            if( throttle > 0.0 ) {
+                long now = System.currentTimeMillis();
+
+                if( now - window >= 1000L ) {
+                    window = now;
+                    windowCalls = 0;
+                }
+                if( ++windowCalls > throttle ) {
+                    throw new CloudException("Request limit exceeded calling " + api);
+                }
+            }
+            if( latency <= 0.0 ) {
+                delay = 0.0;
+            }
+            else if( distribution.equals("fixed") ) {
+                delay = latency;
+            }
+            else if( distribution.equals("uniform") ) {
+                delay = random.nextDouble() * latency * 2.0;
+            }
+            else {
+                delay = -latency * Math.log(1.0 - random.nextDouble());
+            }
+            roll = random.nextDouble();
+        }
+        if( delay > 0.0 ) {
+            try {
+                Thread.sleep((long)delay);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if( roll < faultRate ) {
+            throw new CloudException("Simulated fault calling " + api);
+        }
+    }
+
+    private void schedule(@Nonnull final Object resource, @Nonnull final Runnable change) {
+        transitions.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized( resource ) {
+                    change.run();
+                }
+            }
+        }, transition, TimeUnit.MILLISECONDS);
+    }
+
+    private void transition(@Nonnull final SimVm vm, @Nonnull final VmState from, @Nonnull final VmState to) {
+        vm.state = from;
+        schedule(vm, new Runnable() {
+            @Override
+            public void run() {
+                if( from.equals(vm.state) ) {
+                    vm.state = to;
+                    if( VmState.TERMINATED.equals(to) ) {
+                        for( SimVolume volume : volumes.values() ) {
+                            synchronized( volume ) {
+                                if( vm.id.equals(volume.vmId) ) {
+                                    volume.vmId = null;
+                                    volume.deviceId = null;
+                                }
+                            }
+                        }
+                        for( SimAddress address : addresses.values() ) {
+                            synchronized( address ) {
+                                if( vm.id.equals(address.vmId) ) {
+                                    address.vmId = null;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void transition(@Nonnull final SimVolume volume, @Nonnull final VolumeState from, @Nonnull final VolumeState to) {
+        volume.state = from;
+        schedule(volume, new Runnable() {
+            @Override
+            public void run() {
+                if( from.equals(volume.state) ) {
+                    volume.state = to;
+                }
+            }
+        });
+    }
+
+    private @Nonnull SimVm requireVm(@Nullable Object id) throws CloudException {
+        SimVm vm = (id == null ? null : vms.get(id.toString()));
+
+        if( vm == null ) {
+            throw new CloudException("No such virtual machine: " + id);
+        }
+        return vm;
+    }
+
+    private @Nonnull SimVolume requireVolume(@Nullable Object id) throws CloudException {
+        SimVolume volume = (id == null ? null : volumes.get(id.toString()));
+
+        if( volume == null ) {
+            throw new CloudException("No such volume: " + id);
+        }
+        return volume;
+    }
+
+    private @Nonnull VirtualMachine toVirtualMachine(@Nonnull SimVm s) {
+        VirtualMachine vm = new VirtualMachine();
+
+        synchronized( s ) {
+            vm.setProviderVirtualMachineId(s.id);
+            vm.setName(s.name);
+            vm.setDescription(s.description);
+            vm.setCurrentState(s.state);
+            vm.setProviderOwnerId(accountNumber);
+            vm.setProviderRegionId(regionId);
+            vm.setProviderDataCenterId(s.dataCenterId);
+            vm.setProviderMachineImageId(s.imageId);
+            vm.setProductId(s.productId);
+            vm.setArchitecture(Architecture.I64);
+            vm.setPlatform(Platform.UBUNTU);
+            vm.setCreationTimestamp(s.created);
+            vm.setPersistent(true);
+            vm.setRebootable(true);
+            for( Map.Entry<String,String> tag : s.tags.entrySet() ) {
+                vm.setTag(tag.getKey(), tag.getValue());
+            }
+        }
+        return vm;
+    }
+
+    private @Nonnull Volume toVolume(@Nonnull SimVolume s) {
+        Volume volume = new Volume();
+
+        synchronized( s ) {
+            volume.setProviderVolumeId(s.id);
+            volume.setName(s.name);
+            volume.setDescription(s.description);
+            volume.setCurrentState(s.state);
+            volume.setProviderRegionId(regionId);
+            volume.setProviderDataCenterId(s.dataCenterId);
+            volume.setProviderProductId(s.productId);
+            volume.setProviderVirtualMachineId(s.vmId);
+            volume.setDeviceId(s.deviceId);
+            volume.setFormat(s.format);
+            volume.setType(VolumeType.HDD);
+            volume.setSize(new Storage<Gigabyte>(s.sizeInGb, Storage.GIGABYTE));
+            volume.setCreationTimestamp(s.created);
+        }
+        return volume;
+    }
+
+    private @Nonnull Snapshot toSnapshot(@Nonnull SimSnapshot s) {
+        Snapshot snapshot = new Snapshot();
+
+        synchronized( s ) {
+            snapshot.setProviderSnapshotId(s.id);
+            snapshot.setName(s.name);
+            snapshot.setDescription(s.description);
+            snapshot.setCurrentState(s.state);
+            snapshot.setOwner(accountNumber);
+            snapshot.setRegionId(regionId);
+            snapshot.setVolumeId(s.volumeId);
+            snapshot.setSizeInGb(s.sizeInGb);
+            snapshot.setSnapshotTimestamp(s.created);
+        }
+        return snapshot;
+    }
+
+    private @Nonnull String createSnapshot(@Nonnull SnapshotCreateOptions options) throws CloudException {
+        SimVolume volume = requireVolume(options.getVolumeId());
+        SimSnapshot snapshot = new SimSnapshot();
+
+        snapshot.id = "snap-" + nextId.incrementAndGet();
+        snapshot.name = options.getName();
+        snapshot.description = options.getDescription();
+        snapshot.volumeId = volume.id;
+        snapshot.sizeInGb = volume.sizeInGb;
+        synchronized( snapshot ) {
+            snapshots.put(snapshot.id, snapshot);
+            transition(snapshot, SnapshotState.PENDING);
+        }
+        return snapshot.id;
+    }
+
+    private void transition(@Nonnull final SimSnapshot snapshot, @Nonnull SnapshotState from) {
+        snapshot.state = from;
+        schedule(snapshot, new Runnable() {
+            @Override
+            public void run() {
+                if( SnapshotState.PENDING.equals(snapshot.state) ) {
+                    snapshot.state = SnapshotState.AVAILABLE;
+                }
+            }
+        });
+    }
+
+    private @Nonnull DataCenter toDataCenter(@Nonnull String id) {
+        DataCenter dc = new DataCenter();
+
+        dc.setProviderDataCenterId(id);
+        dc.setName(id);
+        dc.setRegionId(regionId);
+        dc.setActive(true);
+        dc.setAvailable(true);
+        return dc;
+    }
+
+    private @Nonnull Region toRegion() {
+        Region region = new Region();
+
+        region.setProviderRegionId(regionId);
+        region.setName(regionId);
+        region.setJurisdiction("US");
+        region.setActive(true);
+        region.setAvailable(true);
+        return region;
+    }
+
+    private @Nonnull MachineImage toImage() {
+        return MachineImage.getInstance(accountNumber, regionId, IMAGE_ID, ImageClass.MACHINE, MachineImageState.ACTIVE, "Simulated Ubuntu", "Simulated Ubuntu image", Architecture.I64, Platform.UBUNTU);
+    }
+
+    private @Nonnull List<VirtualMachineProduct> toProducts() {
+        ArrayList<VirtualMachineProduct> products = new ArrayList<VirtualMachineProduct>();
+        String[] names = { "small", "medium", "large" };
+
+        for( int i=0; i<names.length; i++ ) {
+            VirtualMachineProduct product = new VirtualMachineProduct();
+
+            product.setProviderProductId("sim." + names[i]);
+            product.setName("Simulated " + names[i]);
+            product.setDescription("Simulated " + names[i]);
+            product.setCpuCount(1 << i);
+            product.setRamSize(new Storage<Megabyte>(1024 << i, Storage.MEGABYTE));
+            product.setRootVolumeSize(new Storage<Gigabyte>(10 << i, Storage.GIGABYTE));
+            products.add(product);
+        }
+        return products;
+    }
+
+    private @Nonnull String launch(@Nonnull VMLaunchOptions options) throws CloudException {
+        SimVm vm = new SimVm();
+
+        vm.id = "i-" + nextId.incrementAndGet();
+        vm.name = options.getFriendlyName();
+        vm.description = options.getDescription();
+        vm.dataCenterId = (options.getDataCenterId() == null ? getDataCenterIds().get(0) : options.getDataCenterId());
+        vm.imageId = options.getMachineImageId();
+        vm.productId = options.getStandardProductId();
+        if( !getDataCenterIds().contains(vm.dataCenterId) ) {
+            throw new CloudException("No such data center: " + vm.dataCenterId);
+        }
+        if( !IMAGE_ID.equals(vm.imageId) ) {
+            throw new CloudException("No such machine image: " + vm.imageId);
+        }
+        if( options.getMetaData() != null ) {
+            for( Map.Entry<String,Object> entry : options.getMetaData().entrySet() ) {
+                vm.tags.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        synchronized( vm ) {
+            vms.put(vm.id, vm);
+            transition(vm, VmState.PENDING, VmState.RUNNING);
+        }
+        return vm.id;
+    }
+
+    private void change(@Nonnull SimVm vm, @Nonnull VmState required, @Nonnull VmState during, @Nonnull VmState to) throws CloudException {
+        synchronized( vm ) {
+            if( !required.equals(vm.state) ) {
+                throw new CloudException("Virtual machine " + vm.id + " is " + vm.state + ", not " + required);
+            }
+            transition(vm, during, to);
+        }
+    }
+
+    private @Nonnull String createVolume(@Nonnull VolumeCreateOptions options) throws CloudException {
+        SimVolume volume = new SimVolume();
+        Storage<Gigabyte> size = options.getVolumeSize();
+
+        volume.id = "vol-" + nextId.incrementAndGet();
+        volume.name = options.getName();
+        volume.description = options.getDescription();
+        volume.dataCenterId = (options.getDataCenterId() == null ? getDataCenterIds().get(0) : options.getDataCenterId());
+        volume.format = (options.getFormat() == null ? VolumeFormat.BLOCK : options.getFormat());
+        volume.productId = (options.getVolumeProductId() == null ? "sim.hdd" : options.getVolumeProductId());
+        volume.sizeInGb = (size == null ? 1 : Math.max(1, size.intValue()));
+        if( !getDataCenterIds().contains(volume.dataCenterId) ) {
+            throw new CloudException("No such data center: " + volume.dataCenterId);
+        }
+        synchronized( volume ) {
+            volumes.put(volume.id, volume);
+            transition(volume, VolumeState.PENDING, VolumeState.AVAILABLE);
+        }
+        return volume.id;
+    }
+
+    private void attach(@Nonnull SimVolume volume, @Nonnull SimVm vm, @Nullable String deviceId) throws CloudException {
+        VmState vmState;
+
+        // read apart from the volume lock, which terminations take while holding the virtual machine lock
+        synchronized( vm ) {
+            vmState = vm.state;
+        }
+        synchronized( volume ) {
+            if( !VolumeState.AVAILABLE.equals(volume.state) || volume.vmId != null ) {
+                throw new CloudException("Volume " + volume.id + " is not available for attachment");
+            }
+            if( !volume.dataCenterId.equals(vm.dataCenterId) ) {
+                throw new CloudException("Volume " + volume.id + " and virtual machine " + vm.id + " are in different data centers");
+            }
+            if( !VmState.RUNNING.equals(vmState) && !VmState.STOPPED.equals(vmState) ) {
+                throw new CloudException("Virtual machine " + vm.id + " is " + vmState);
+            }
+            volume.vmId = vm.id;
+            volume.deviceId = (deviceId == null ? "/dev/sdf" : deviceId);
+        }
+    }
+
+    private void detach(@Nonnull SimVolume volume) throws CloudException {
+        synchronized( volume ) {
+            if( volume.vmId == null ) {
+                throw new CloudException("Volume " + volume.id + " is not attached");
+            }
+            volume.vmId = null;
+            volume.deviceId = null;
+        }
+    }
+
+    private void remove(@Nonnull SimVolume volume) throws CloudException {
+        synchronized( volume ) {
+            if( volume.vmId != null ) {
+                throw new CloudException("Volume " + volume.id + " is attached to " + volume.vmId);
+            }
+            volume.state = VolumeState.DELETED;
+            volumes.remove(volume.id);
+        }
+    }
+
+    private @Nonnull SimVlan requireVlan(@Nullable Object id) throws CloudException {
+        SimVlan vlan = (id == null ? null : vlans.get(id.toString()));
+
+        if( vlan == null ) {
+            throw new CloudException("No such VLAN: " + id);
+        }
+        return vlan;
+    }
+
+    private @Nonnull SimAddress requireAddress(@Nullable Object id) throws CloudException {
+        SimAddress address = (id == null ? null : addresses.get(id.toString()));
+
+        if( address == null ) {
+            throw new CloudException("No such IP address: " + id);
+        }
+        return address;
+    }
+
+    private @Nonnull VLAN toVlan(@Nonnull SimVlan s) {
+        VLAN vlan = new VLAN();
+
+        synchronized( s ) {
+            vlan.setProviderVlanId(s.id);
+            vlan.setName(s.name);
+            vlan.setDescription(s.description);
+            vlan.setCidr(s.cidr);
+            vlan.setCurrentState(s.state);
+            vlan.setProviderOwnerId(accountNumber);
+            vlan.setProviderRegionId(regionId);
+        }
+        return vlan;
+    }
+
+    private @Nonnull Subnet toSubnet(@Nonnull SimSubnet s) {
+        synchronized( s ) {
+            return Subnet.getInstance(accountNumber, regionId, s.vlanId, s.id, s.state, s.name, s.description, s.cidr).constrainedToDataCenter(s.dataCenterId);
+        }
+    }
+
+    private @Nonnull Firewall toFirewall(@Nonnull SimFirewall s) {
+        Firewall firewall = new Firewall();
+
+        firewall.setProviderFirewallId(s.id);
+        firewall.setName(s.name);
+        firewall.setDescription(s.description);
+        firewall.setProviderVlanId(s.vlanId);
+        firewall.setRegionId(regionId);
+        firewall.setActive(true);
+        firewall.setAvailable(true);
+        return firewall;
+    }
+
+    private @Nonnull IpAddress toAddress(@Nonnull SimAddress s) {
+        IpAddress address = new IpAddress();
+
+        synchronized( s ) {
+            address.setIpAddressId(s.id);
+            address.setAddress(s.address);
+            address.setAddressType(AddressType.PUBLIC);
+            address.setVersion(IPVersion.IPV4);
+            address.setRegionId(regionId);
+            address.setServerId(s.vmId);
+        }
+        return address;
+    }
+
+    private @Nonnull Blob toBlob(@Nonnull SimBlob s) {
+        String location = "sim://" + regionId + "/" + s.bucket;
+
+        if( s.object == null ) {
+            return Blob.getInstance(regionId, location, s.bucket, s.created);
+        }
+        return Blob.getInstance(regionId, location + "/" + s.object, s.bucket, s.object, s.created, new Storage<org.dasein.util.uom.storage.Byte>(s.size, Storage.BYTE));
+    }
+
+    private @Nonnull SSHKeypair toKeypair(@Nonnull SimKeypair s) {
+        SSHKeypair keypair = new SSHKeypair();
+
+        keypair.setProviderKeypairId(s.id);
+        keypair.setName(s.name);
+        keypair.setProviderOwnerId(accountNumber);
+        keypair.setProviderRegionId(regionId);
+        keypair.setFingerprint(toFingerprint(s));
+        keypair.setPublicKey(s.publicKey);
+        return keypair;
+    }
+
+    private @Nonnull String toFingerprint(@Nonnull SimKeypair s) {
+        return String.format("%08x", s.publicKey.hashCode());
+    }
+
+    private @Nonnull VLAN createVlan(@Nonnull String cidr, @Nonnull String name, @Nonnull String description) {
+        final SimVlan vlan = new SimVlan();
+
+        vlan.id = "vlan-" + nextId.incrementAndGet();
+        vlan.cidr = cidr;
+        vlan.name = name;
+        vlan.description = description;
+        synchronized( vlan ) {
+            vlan.state = VLANState.PENDING;
+            vlans.put(vlan.id, vlan);
+            schedule(vlan, new Runnable() {
+                @Override
+                public void run() {
+                    if( VLANState.PENDING.equals(vlan.state) ) {
+                        vlan.state = VLANState.AVAILABLE;
+                    }
+                }
+            });
+            return toVlan(vlan);
+        }
+    }
+
+    private void removeVlan(@Nonnull SimVlan vlan) throws CloudException {
+        // like real clouds, a VLAN goes only once everything inside it has gone
+        for( SimSubnet subnet : subnets.values() ) {
+            if( vlan.id.equals(subnet.vlanId) ) {
+                throw new CloudException("VLAN " + vlan.id + " still has subnet " + subnet.id);
+            }
+        }
+        for( SimFirewall firewall : firewalls.values() ) {
+            if( vlan.id.equals(firewall.vlanId) ) {
+                throw new CloudException("VLAN " + vlan.id + " still has firewall " + firewall.id);
+            }
+        }
+        vlans.remove(vlan.id);
+    }
+
+    private @Nonnull Subnet createSubnet(@Nonnull SubnetCreateOptions options) throws CloudException {
+        final SimSubnet subnet = new SimSubnet();
+
+        subnet.id = "subnet-" + nextId.incrementAndGet();
+        subnet.vlanId = requireVlan(options.getProviderVlanId()).id;
+        subnet.dataCenterId = (options.getProviderDataCenterId() == null ? getDataCenterIds().get(0) : options.getProviderDataCenterId());
+        subnet.cidr = options.getCidr();
+        subnet.name = options.getName();
+        subnet.description = options.getDescription();
+        if( !getDataCenterIds().contains(subnet.dataCenterId) ) {
+            throw new CloudException("No such data center: " + subnet.dataCenterId);
+        }
+        synchronized( subnet ) {
+            subnet.state = SubnetState.PENDING;
+            subnets.put(subnet.id, subnet);
+            schedule(subnet, new Runnable() {
+                @Override
+                public void run() {
+                    if( SubnetState.PENDING.equals(subnet.state) ) {
+                        subnet.state = SubnetState.AVAILABLE;
+                    }
+                }
+            });
+            return toSubnet(subnet);
+        }
+    }
+
+    private @Nonnull String createFirewall(@Nonnull FirewallCreateOptions options) throws CloudException {
+        SimFirewall firewall = new SimFirewall();
+
+        firewall.id = "sg-" + nextId.incrementAndGet();
+        firewall.name = options.getName();
+        firewall.description = options.getDescription();
+        firewall.vlanId = (options.getProviderVlanId() == null ? null : requireVlan(options.getProviderVlanId()).id);
+        firewalls.put(firewall.id, firewall);
+        return firewall.id;
+    }
+
+    private @Nonnull String request(@Nullable IPVersion version) throws CloudException {
+        if( version != null && !IPVersion.IPV4.equals(version) ) {
+            throw new OperationNotSupportedException("The simulated cloud only supports IPv4 addresses");
+        }
+        SimAddress address = new SimAddress();
+        int n = nextId.incrementAndGet();
+
+        address.id = "ip-" + n;
+        // TEST-NET-3, reserved for documentation
+        address.address = "203.0.113." + (1 + n % 254);
+        addresses.put(address.id, address);
+        return address.id;
+    }
+
+    private void assign(@Nonnull SimAddress address, @Nonnull SimVm vm) throws CloudException {
+        VmState vmState;
+
+        synchronized( vm ) {
+            vmState = vm.state;
+        }
+        synchronized( address ) {
+            if( address.vmId != null ) {
+                throw new CloudException("IP address " + address.id + " is assigned to " + address.vmId);
+            }
+            if( !VmState.RUNNING.equals(vmState) && !VmState.STOPPED.equals(vmState) ) {
+                throw new CloudException("Virtual machine " + vm.id + " is " + vmState);
+            }
+            address.vmId = vm.id;
+        }
+    }
+
+    private void release(@Nonnull SimAddress address) throws CloudException {
+        synchronized( address ) {
+            if( address.vmId != null ) {
+                throw new CloudException("IP address " + address.id + " is assigned to " + address.vmId);
+            }
+            addresses.remove(address.id);
+        }
+    }
+
+    private @Nonnull Blob createBucket(@Nonnull String name, boolean findFreeName) throws CloudException {
+        if( name.contains("/") ) {
+            throw new OperationNotSupportedException("The simulated cloud does not support nested buckets");
+        }
+        SimBlob bucket = new SimBlob();
+
+        bucket.bucket = name;
+        for( int i=1; buckets.putIfAbsent(bucket.bucket, bucket) != null; i++ ) {
+            if( !findFreeName ) {
+                throw new CloudException("Bucket " + name + " already exists");
+            }
+            bucket.bucket = name + "-" + i;
+        }
+        return toBlob(bucket);
+    }
+
+    private @Nonnull List<Blob> listBlobs(@Nullable String bucket) throws CloudException {
+        ArrayList<Blob> list = new ArrayList<Blob>();
+
+        if( bucket == null ) {
+            for( SimBlob b : buckets.values() ) {
+                list.add(toBlob(b));
+            }
+            return list;
+        }
+        if( !buckets.containsKey(bucket) ) {
+            throw new CloudException("No such bucket: " + bucket);
+        }
+        for( SimBlob object : objects.values() ) {
+            if( bucket.equals(object.bucket) ) {
+                list.add(toBlob(object));
+            }
+        }
+        return list;
+    }
+
+    private void removeBucket(@Nonnull String bucket) throws CloudException {
+        for( SimBlob object : objects.values() ) {
+            if( bucket.equals(object.bucket) ) {
+                throw new CloudException("Bucket " + bucket + " is not empty");
+            }
+        }
+        if( buckets.remove(bucket) == null ) {
+            throw new CloudException("No such bucket: " + bucket);
+        }
+    }
+
+    private @Nonnull Blob upload(@Nonnull File file, @Nullable String bucket, @Nonnull String name) throws CloudException {
+        if( bucket == null ) {
+            throw new OperationNotSupportedException("The simulated cloud does not support root objects");
+        }
+        if( !buckets.containsKey(bucket) ) {
+            throw new CloudException("No such bucket: " + bucket);
+        }
+        SimBlob object = new SimBlob();
+
+        object.bucket = bucket;
+        object.object = name;
+        object.size = file.length();
+        objects.put(bucket + "/" + name, object);
+        return toBlob(object);
+    }
+
+    private @Nonnull SSHKeypair createKeypair(@Nonnull String name, @Nullable String publicKey) throws CloudException {
+        SimKeypair keypair = new SimKeypair();
+
+        // keypairs are identified by their names, as in most clouds
+        keypair.id = name;
+        keypair.name = name;
+        keypair.publicKey = (publicKey == null ? "ssh-rsa SIMULATED" + nextId.incrementAndGet() + " " + name : publicKey);
+        if( keypairs.putIfAbsent(keypair.id, keypair) != null ) {
+            throw new CloudException("Keypair " + name + " already exists");
+        }
+        return toKeypair(keypair);
+    }
+
+    private class Service implements InvocationHandler {
+        private final Class<?> type;
+
+        private Service(@Nonnull Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Class<?> returnType = method.getReturnType();
+
+            if( method.getDeclaringClass().equals(Object.class) ) {
+                if( name.equals("equals") ) {
+                    return ( proxy == args[0] );
+                }
+                if( name.equals("hashCode") ) {
+                    return System.identityHashCode(proxy);
+                }
+                return "Simulated " + type.getSimpleName();
+            }
+            if( isNavigation(returnType) ) {
+                return getService(returnType);
+            }
+            if( type.getSimpleName().endsWith("Capabilities") ) {
+                return answer(method, args);
+            }
+            if( name.startsWith("has") && returnType.equals(boolean.class) ) {
+                return SUPPORTED.contains(type.getSimpleName() + "." + name);
+            }
+            String api = type.getSimpleName() + "." + name;
+
+            enter(api);
+            return dispatch(api, method, (args == null ? new Object[0] : args));
+        }
+    }
+
+    static private boolean isNavigation(@Nonnull Class<?> type) {
+        String name = type.getSimpleName();
+
+        return ( type.isInterface() && type.getName().startsWith("org.dasein.cloud.") && (name.endsWith("Services") || name.endsWith("Support") || name.endsWith("Capabilities")) );
+    }
+
+    private @Nullable Object dispatch(@Nonnull String api, @Nonnull Method method, @Nonnull Object[] args) throws CloudException, InternalException {
+        switch( api ) {
+            case "DataCenterServices.getDataCenter":
+                return ( getDataCenterIds().contains(String.valueOf(args[0])) ? toDataCenter(String.valueOf(args[0])) : null );
+            case "DataCenterServices.listDataCenters": {
+                ArrayList<DataCenter> list = new ArrayList<DataCenter>();
+
+                if( regionId.equals(args[0]) ) {
+                    for( String id : getDataCenterIds() ) {
+                        list.add(toDataCenter(id));
+                    }
+                }
+                return list;
+            }
+            case "DataCenterServices.getRegion":
+                return ( regionId.equals(args[0]) ? toRegion() : null );
+            case "DataCenterServices.listRegions":
+                return Collections.singletonList(toRegion());
+
+            case "VirtualMachineSupport.isSubscribed":
+            case "VolumeSupport.isSubscribed":
+            case "SnapshotSupport.isSubscribed":
+            case "MachineImageSupport.isSubscribed":
+                return true;
+            case "VirtualMachineSupport.launch":
+                return launch((VMLaunchOptions)args[0]);
+            case "VirtualMachineSupport.launchMany": {
+                ArrayList<String> ids = new ArrayList<String>();
+
+                for( int i=0; i<(Integer)args[1]; i++ ) {
+                    ids.add(launch((VMLaunchOptions)args[0]));
+                }
+                return ids;
+            }
+            case "VirtualMachineSupport.getVirtualMachine": {
+                SimVm vm = vms.get(String.valueOf(args[0]));
+
+                return ( vm == null ? null : toVirtualMachine(vm) );
+            }
+            case "VirtualMachineSupport.listVirtualMachines": {
+                ArrayList<VirtualMachine> list = new ArrayList<VirtualMachine>();
+
+                for( SimVm s : vms.values() ) {
+                    VirtualMachine vm = toVirtualMachine(s);
+
+                    if( args.length == 0 || !(args[0] instanceof VMFilterOptions) || ((VMFilterOptions)args[0]).matches(vm) ) {
+                        list.add(vm);
+                    }
+                }
+                return list;
+            }
+            case "VirtualMachineSupport.listVirtualMachineStatus": {
+                ArrayList<ResourceStatus> list = new ArrayList<ResourceStatus>();
+
+                for( SimVm vm : vms.values() ) {
+                    synchronized( vm ) {
+                        list.add(new ResourceStatus(vm.id, vm.state));
+                    }
+                }
+                return list;
+            }
+            case "VirtualMachineSupport.start":
+                change(requireVm(args[0]), VmState.STOPPED, VmState.PENDING, VmState.RUNNING);
+                return null;
+            case "VirtualMachineSupport.stop":
+                change(requireVm(args[0]), VmState.RUNNING, VmState.STOPPING, VmState.STOPPED);
+                return null;
+            case "VirtualMachineSupport.reboot":
+                change(requireVm(args[0]), VmState.RUNNING, VmState.REBOOTING, VmState.RUNNING);
+                return null;
+            case "VirtualMachineSupport.pause":
+                change(requireVm(args[0]), VmState.RUNNING, VmState.PAUSING, VmState.PAUSED);
+                return null;
+            case "VirtualMachineSupport.unpause":
+                change(requireVm(args[0]), VmState.PAUSED, VmState.PENDING, VmState.RUNNING);
+                return null;
+            case "VirtualMachineSupport.suspend":
+                change(requireVm(args[0]), VmState.RUNNING, VmState.SUSPENDING, VmState.SUSPENDED);
+                return null;
+            case "VirtualMachineSupport.resume":
+                change(requireVm(args[0]), VmState.SUSPENDED, VmState.PENDING, VmState.RUNNING);
+                return null;
+            case "VirtualMachineSupport.terminate": {
+                SimVm vm = requireVm(args[0]);
+
+                synchronized( vm ) {
+                    if( !VmState.TERMINATED.equals(vm.state) ) {
+                        transition(vm, VmState.STOPPING, VmState.TERMINATED);
+                    }
+                }
+                return null;
+            }
+            case "VirtualMachineSupport.getProduct":
+                for( VirtualMachineProduct product : toProducts() ) {
+                    if( product.getProviderProductId().equals(args[0]) ) {
+                        return product;
+                    }
+                }
+                return null;
+            case "VirtualMachineSupport.listProducts":
+            case "VirtualMachineSupport.listAllProducts":
+                return toProducts();
+
+            case "VolumeSupport.createVolume":
+                return createVolume((VolumeCreateOptions)args[0]);
+            case "VolumeSupport.getVolume": {
+                SimVolume volume = volumes.get(String.valueOf(args[0]));
+
+                return ( volume == null ? null : toVolume(volume) );
+            }
+            case "VolumeSupport.listVolumes": {
+                ArrayList<Volume> list = new ArrayList<Volume>();
+
+                for( SimVolume volume : volumes.values() ) {
+                    list.add(toVolume(volume));
+                }
+                return list;
+            }
+            case "VolumeSupport.listVolumeStatus": {
+                ArrayList<ResourceStatus> list = new ArrayList<ResourceStatus>();
+
+                for( SimVolume volume : volumes.values() ) {
+                    synchronized( volume ) {
+                        list.add(new ResourceStatus(volume.id, volume.state));
+                    }
+                }
+                return list;
+            }
+            case "VolumeSupport.attach":
+                attach(requireVolume(args[0]), requireVm(args[1]), (String)args[2]);
+                return null;
+            case "VolumeSupport.detach":
+                detach(requireVolume(args[0]));
+                return null;
+            case "VolumeSupport.remove":
+                remove(requireVolume(args[0]));
+                return null;
+            case "VolumeSupport.listVolumeProducts":
+                return Collections.singletonList(VolumeProduct.getInstance("sim.hdd", "Simulated HDD", "Simulated HDD", VolumeType.HDD));
+            case "VolumeSupport.getVolumeProduct":
+                return ( "sim.hdd".equals(args[0]) ? VolumeProduct.getInstance("sim.hdd", "Simulated HDD", "Simulated HDD", VolumeType.HDD) : null );
+
+            case "SnapshotSupport.createSnapshot":
+                return createSnapshot((SnapshotCreateOptions)args[0]);
+            case "SnapshotSupport.getSnapshot": {
+                SimSnapshot snapshot = snapshots.get(String.valueOf(args[0]));
+
+                return ( snapshot == null ? null : toSnapshot(snapshot) );
+            }
+            case "SnapshotSupport.listSnapshots": {
+                ArrayList<Snapshot> list = new ArrayList<Snapshot>();
+
+                for( SimSnapshot s : snapshots.values() ) {
+                    Snapshot snapshot = toSnapshot(s);
+
+                    if( args.length == 0 || !(args[0] instanceof SnapshotFilterOptions) || ((SnapshotFilterOptions)args[0]).matches(snapshot, accountNumber) ) {
+                        list.add(snapshot);
+                    }
+                }
+                return list;
+            }
+            case "SnapshotSupport.listSnapshotStatus": {
+                ArrayList<ResourceStatus> list = new ArrayList<ResourceStatus>();
+
+                for( SimSnapshot snapshot : snapshots.values() ) {
+                    synchronized( snapshot ) {
+                        list.add(new ResourceStatus(snapshot.id, snapshot.state));
+                    }
+                }
+                return list;
+            }
+            case "SnapshotSupport.remove":
+                if( snapshots.remove(String.valueOf(args[0])) == null ) {
+                    throw new CloudException("No such snapshot: " + args[0]);
+                }
+                return null;
+
+            case "MachineImageSupport.getImage":
+            case "MachineImageSupport.getMachineImage":
+                return ( IMAGE_ID.equals(args[0]) ? toImage() : null );
+            case "MachineImageSupport.listImages":
+            case "MachineImageSupport.searchImages":
+            case "MachineImageSupport.searchPublicImages": {
+                MachineImage image = toImage();
+
+                for( Object arg : args ) {
+                    if( arg instanceof ImageFilterOptions && !((ImageFilterOptions)arg).matches(image) ) {
+                        return Collections.emptyList();
+                    }
+                }
+                return Collections.singletonList(image);
+            }
+            case "MachineImageSupport.isImageSharedWithPublic":
+                return true;
+
+            case "VLANSupport.isSubscribed":
+            case "FirewallSupport.isSubscribed":
+            case "IpAddressSupport.isSubscribed":
+            case "BlobStoreSupport.isSubscribed":
+            case "ShellKeySupport.isSubscribed":
+                return true;
+
+            case "VLANSupport.createVlan":
+                if( args.length != 6 ) {
+                    throw new OperationNotSupportedException("The simulated cloud only creates VLANs from a CIDR, name and description");
+                }
+                return createVlan((String)args[0], (String)args[1], (String)args[2]);
+            case "VLANSupport.getVlan": {
+                SimVlan vlan = vlans.get(String.valueOf(args[0]));
+
+                return ( vlan == null ? null : toVlan(vlan) );
+            }
+            case "VLANSupport.listVlans": {
+                ArrayList<VLAN> list = new ArrayList<VLAN>();
+
+                for( SimVlan vlan : vlans.values() ) {
+                    list.add(toVlan(vlan));
+                }
+                return list;
+            }
+            case "VLANSupport.listVlanStatus": {
+                ArrayList<ResourceStatus> list = new ArrayList<ResourceStatus>();
+
+                for( SimVlan vlan : vlans.values() ) {
+                    synchronized( vlan ) {
+                        list.add(new ResourceStatus(vlan.id, vlan.state));
+                    }
+                }
+                return list;
+            }
+            case "VLANSupport.removeVlan":
+                removeVlan(requireVlan(args[0]));
+                return null;
+            case "VLANSupport.createSubnet":
+                return createSubnet((SubnetCreateOptions)args[0]);
+            case "VLANSupport.getSubnet": {
+                SimSubnet subnet = subnets.get(String.valueOf(args[0]));
+
+                return ( subnet == null ? null : toSubnet(subnet) );
+            }
+            case "VLANSupport.listSubnets": {
+                ArrayList<Subnet> list = new ArrayList<Subnet>();
+
+                for( SimSubnet subnet : subnets.values() ) {
+                    if( subnet.vlanId.equals(args[0]) ) {
+                        list.add(toSubnet(subnet));
+                    }
+                }
+                return list;
+            }
+            case "VLANSupport.removeSubnet":
+                if( subnets.remove(String.valueOf(args[0])) == null ) {
+                    throw new CloudException("No such subnet: " + args[0]);
+                }
+                return null;
+
+            case "FirewallSupport.create":
+                return createFirewall((FirewallCreateOptions)args[0]);
+            case "FirewallSupport.getFirewall": {
+                SimFirewall firewall = firewalls.get(String.valueOf(args[0]));
+
+                return ( firewall == null ? null : toFirewall(firewall) );
+            }
+            case "FirewallSupport.list": {
+                ArrayList<Firewall> list = new ArrayList<Firewall>();
+
+                for( SimFirewall firewall : firewalls.values() ) {
+                    list.add(toFirewall(firewall));
+                }
+                return list;
+            }
+            case "FirewallSupport.listFirewallStatus": {
+                ArrayList<ResourceStatus> list = new ArrayList<ResourceStatus>();
+
+                for( SimFirewall firewall : firewalls.values() ) {
+                    list.add(new ResourceStatus(firewall.id, true));
+                }
+                return list;
+            }
+            case "FirewallSupport.delete":
+                if( firewalls.remove(String.valueOf(args[0])) == null ) {
+                    throw new CloudException("No such firewall: " + args[0]);
+                }
+                return null;
+
+            case "IpAddressSupport.request":
+                return request((IPVersion)args[0]);
+            case "IpAddressSupport.getIpAddress": {
+                SimAddress address = addresses.get(String.valueOf(args[0]));
+
+                return ( address == null ? null : toAddress(address) );
+            }
+            case "IpAddressSupport.listIpPool": {
+                ArrayList<IpAddress> list = new ArrayList<IpAddress>();
+
+                if( IPVersion.IPV4.equals(args[0]) ) {
+                    for( SimAddress s : addresses.values() ) {
+                        IpAddress address = toAddress(s);
+
+                        if( !Boolean.TRUE.equals(args[1]) || !address.isAssigned() ) {
+                            list.add(address);
+                        }
+                    }
+                }
+                return list;
+            }
+            case "IpAddressSupport.listIpPoolStatus": {
+                ArrayList<ResourceStatus> list = new ArrayList<ResourceStatus>();
+
+                if( IPVersion.IPV4.equals(args[0]) ) {
+                    for( SimAddress address : addresses.values() ) {
+                        synchronized( address ) {
+                            list.add(new ResourceStatus(address.id, address.vmId == null));
+                        }
+                    }
+                }
+                return list;
+            }
+            case "IpAddressSupport.assign":
+                assign(requireAddress(args[0]), requireVm(args[1]));
+                return null;
+            case "IpAddressSupport.releaseFromServer": {
+                SimAddress address = requireAddress(args[0]);
+
+                synchronized( address ) {
+                    address.vmId = null;
+                }
+                return null;
+            }
+            case "IpAddressSupport.releaseFromPool":
+                release(requireAddress(args[0]));
+                return null;
+
+            case "BlobStoreSupport.createBucket":
+                return createBucket((String)args[0], (Boolean)args[1]);
+            case "BlobStoreSupport.exists":
+                return buckets.containsKey(String.valueOf(args[0]));
+            case "BlobStoreSupport.getBucket": {
+                SimBlob bucket = buckets.get(String.valueOf(args[0]));
+
+                return ( bucket == null ? null : toBlob(bucket) );
+            }
+            case "BlobStoreSupport.list":
+                return listBlobs((String)args[0]);
+            case "BlobStoreSupport.removeBucket":
+                removeBucket(String.valueOf(args[0]));
+                return null;
+            case "BlobStoreSupport.upload":
+                return upload((File)args[0], (String)args[1], (String)args[2]);
+            case "BlobStoreSupport.getObject": {
+                SimBlob object = objects.get(args[0] + "/" + args[1]);
+
+                return ( object == null ? null : toBlob(object) );
+            }
+            case "BlobStoreSupport.getObjectSize": {
+                SimBlob object = objects.get(args[0] + "/" + args[1]);
+
+                return ( object == null ? null : new Storage<org.dasein.util.uom.storage.Byte>(object.size, Storage.BYTE) );
+            }
+            case "BlobStoreSupport.removeObject":
+                if( objects.remove(args[0] + "/" + args[1]) == null ) {
+                    throw new CloudException("No such object: " + args[0] + "/" + args[1]);
+                }
+                return null;
+
+            case "ShellKeySupport.createKeypair":
+                return createKeypair((String)args[0], null);
+            case "ShellKeySupport.importKeypair":
+                return createKeypair((String)args[0], (String)args[1]);
+            case "ShellKeySupport.getKeypair": {
+                SimKeypair keypair = keypairs.get(String.valueOf(args[0]));
+
+                return ( keypair == null ? null : toKeypair(keypair) );
+            }
+            case "ShellKeySupport.getFingerprint": {
+                SimKeypair keypair = keypairs.get(String.valueOf(args[0]));
+
+                return ( keypair == null ? null : toFingerprint(keypair) );
+            }
+            case "ShellKeySupport.list": {
+                ArrayList<SSHKeypair> list = new ArrayList<SSHKeypair>();
+
+                for( SimKeypair keypair : keypairs.values() ) {
+                    list.add(toKeypair(keypair));
+                }
+                return list;
+            }
+            case "ShellKeySupport.deleteKeypair":
+                if( keypairs.remove(String.valueOf(args[0])) == null ) {
+                    throw new CloudException("No such keypair: " + args[0]);
+                }
+                return null;
+        }
+        if( api.endsWith(".isSubscribed") ) {
+            return false;
+        }
+        return getDefault(api, method);
+    }
+
+    private @Nullable Object getDefault(@Nonnull String api, @Nonnull Method method) throws CloudException {
+        Class<?> returnType = method.getReturnType();
+
+        if( returnType.equals(void.class) ) {
+            throw new OperationNotSupportedException("The simulated cloud does not support " + api);
+        }
+        if( returnType.equals(boolean.class) ) {
+            return false;
+        }
+        if( returnType.equals(int.class) ) {
+            return 0;
+        }
+        if( returnType.equals(long.class) ) {
+            return 0L;
+        }
+        if( returnType.equals(float.class) ) {
+            return 0f;
+        }
+        if( returnType.equals(double.class) ) {
+            return 0.0;
+        }
+        if( returnType.isAssignableFrom(ArrayList.class) ) {
+            return new ArrayList<Object>();
+        }
+        return null;
+    }
+
+    private @Nullable Object answer(@Nonnull Method method, @Nullable Object[] args) {
+        String name = method.getName();
+        Class<?> returnType = method.getReturnType();
+
+        switch( name ) {
+            case "listSupportedArchitectures": return Collections.singletonList(Architecture.I64);
+            case "listSupportedFormats": return Collections.singletonList(VolumeFormat.BLOCK);
+            case "listSupportedImageClasses": return Collections.singletonList(ImageClass.MACHINE);
+            case "listSupportedImageTypes": return Collections.singletonList(MachineImageType.STORAGE);
+            case "listPossibleDeviceIds": return Arrays.asList("/dev/sdf", "/dev/sdg", "/dev/sdh", "/dev/sdi", "/dev/sdj");
+            case "listSupportedIPVersions": return Collections.singletonList(IPVersion.IPV4);
+            case "getSubnetSupport": return Requirement.OPTIONAL;
+        }
+        if( returnType.equals(boolean.class) ) {
+            // every VM lifecycle operation is simulated; dispatch rejects those the current state does not allow
+            return ( LIFECYCLE.contains(name) || CAPABLE.contains(name) );
+        }
+        if( returnType.equals(int.class) ) {
+            // unlimited, see Capabilities.LIMIT_UNLIMITED
+            return ( name.startsWith("getMaximum") ? -2 : 0 );
+        }
+        if( returnType.equals(Requirement.class) ) {
+            return Requirement.NONE;
+        }
+        if( returnType.equals(Storage.class) ) {
+            return new Storage<Gigabyte>(name.contains("Maximum") ? 1024 : 1, Storage.GIGABYTE);
+        }
+        if( returnType.equals(String.class) ) {
+            return ( name.startsWith("getProviderTermFor") ? name.substring("getProviderTermFor".length()).toLowerCase(Locale.ENGLISH) : null );
+        }
+        if( returnType.isEnum() ) {
+            return returnType.getEnumConstants()[0];
+        }
+        if( returnType.isAssignableFrom(ArrayList.class) ) {
+            return new ArrayList<Object>();
+        }
+        return null;
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return "Simulated cloud " + accountNumber + "/" + regionId + " (" + vms.size() + " VMs, " + volumes.size() + " volumes, " + vlans.size() + " VLANs, " + buckets.size() + " buckets)";
+    }
+}
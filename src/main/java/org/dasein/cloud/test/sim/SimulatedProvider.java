@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.ContextRequirements;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.ci.CIServices;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.dc.DataCenterServices;
+import org.dasein.cloud.identity.IdentityServices;
+import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.platform.PlatformServices;
+import org.dasein.cloud.storage.StorageServices;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An in-memory cloud for running the suite, and measuring the overhead of the harness itself, without credentials.
+ * Select it with:
+ * <pre>
+ *     -DproviderClass=org.dasein.cloud.test.sim.SimulatedProvider -DaccountNumber=sim -DcloudName=Simulated
+ *     -DproviderName=Dasein -Dendpoint=sim://localhost -DregionId=sim-1
+ * </pre>
+ * All providers connected with the same account number share one {@link SimulatedCloud}, so resources created by
+ * one test manager are visible to the others. See {@link SimulatedCloud} for what is simulated and how latency,
+ * faults and throttling are configured.
+ * @version 2015.10 initial version
+ * @since 2015.10
+ */
+public class SimulatedProvider extends CloudProvider {
+    public SimulatedProvider() { }
+
+    private @Nonnull SimulatedCloud getCloud() {
+        ProviderContext ctx = getContext();
+
+        return SimulatedCloud.getInstance(ctx == null ? null : ctx.getAccountNumber(), ctx == null ? null : ctx.getRegionId());
+    }
+
+    @Override
+    public @Nullable CIServices getCIServices() {
+        return getCloud().getService(CIServices.class);
+    }
+
+    @Override
+    public @Nonnull String getCloudName() {
+        return "Simulated";
+    }
+
+    @Override
+    public @Nullable ComputeServices getComputeServices() {
+        return getCloud().getService(ComputeServices.class);
+    }
+
+    @Override
+    public @Nonnull ContextRequirements getContextRequirements() {
+        return new ContextRequirements();
+    }
+
+    @Override
+    public @Nonnull DataCenterServices getDataCenterServices() {
+        return getCloud().getService(DataCenterServices.class);
+    }
+
+    @Override
+    public @Nullable IdentityServices getIdentityServices() {
+        return getCloud().getService(IdentityServices.class);
+    }
+
+    @Override
+    public @Nullable NetworkServices getNetworkServices() {
+        return getCloud().getService(NetworkServices.class);
+    }
+
+    @Override
+    public @Nullable PlatformServices getPlatformServices() {
+        return getCloud().getService(PlatformServices.class);
+    }
+
+    @Override
+    public @Nonnull String getProviderName() {
+        return "Dasein";
+    }
+
+    @Override
+    public @Nullable StorageServices getStorageServices() {
+        return getCloud().getService(StorageServices.class);
+    }
+
+    @Override
+    public boolean hasCIServices() {
+        return true;
+    }
+
+    @Override
+    public boolean hasComputeServices() {
+        return true;
+    }
+
+    @Override
+    public boolean hasIdentityServices() {
+        return true;
+    }
+
+    @Override
+    public boolean hasNetworkServices() {
+        return true;
+    }
+
+    @Override
+    public boolean hasPlatformServices() {
+        return true;
+    }
+
+    @Override
+    public boolean hasStorageServices() {
+        return true;
+    }
+
+    @Override
+    public @Nullable String testContext() {
+        ProviderContext ctx = getContext();
+
+        return (ctx == null ? null : ctx.getAccountNumber());
+    }
+}
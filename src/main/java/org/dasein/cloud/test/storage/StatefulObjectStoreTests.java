@@ -90,7 +90,7 @@ public class StatefulObjectStoreTests {
             StorageResources resources = DaseinTestManager.getStorageResources();
 
             if( resources != null ) {
-                StorageServices services = tm.getProvider().getStorageServices();
+                StorageServices services = tm.getStorageServices();
 
                 if( services != null ) {
                     BlobStoreSupport support = services.getBlobStoreSupport();
@@ -112,7 +112,7 @@ public class StatefulObjectStoreTests {
                 StorageResources resources = DaseinTestManager.getStorageResources();
 
                 if( resources != null ) {
-                    StorageServices services = tm.getProvider().getStorageServices();
+                    StorageServices services = tm.getStorageServices();
 
                     if( services != null ) {
                         BlobStoreSupport support = services.getBlobStoreSupport();
@@ -144,7 +144,7 @@ public class StatefulObjectStoreTests {
             StorageResources resources = DaseinTestManager.getStorageResources();
 
             if( resources != null ) {
-                StorageServices services = tm.getProvider().getStorageServices();
+                StorageServices services = tm.getStorageServices();
 
                 if( services != null ) {
                     BlobStoreSupport support = services.getBlobStoreSupport();
@@ -193,7 +193,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void createRootBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -218,7 +218,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void createChildBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -264,7 +264,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void removeRootBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -317,7 +317,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void removeChildBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -373,7 +373,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void uploadRoot() throws CloudException, InternalException, IOException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -417,7 +417,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void uploadChild() throws CloudException, InternalException, IOException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -455,7 +455,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void downloadRoot() throws CloudException, InternalException, IOException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -509,7 +509,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void downloadChild() throws CloudException, InternalException, IOException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -560,7 +560,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void removeRootObject() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -616,7 +616,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void removeChildObject() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -669,7 +669,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void clear() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -722,7 +722,7 @@ public class StatefulObjectStoreTests {
 
     @Test
     public void objectSize() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -193,7 +193,7 @@ public class StatefulOfflineStoreTests {
     }
 
     private OfflineStoreSupport getSupportOrBail() {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
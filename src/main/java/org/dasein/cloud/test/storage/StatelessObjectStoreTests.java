@@ -86,7 +86,7 @@ public class StatelessObjectStoreTests {
         testRootObject = tm.getTestObject(DaseinTestManager.STATELESS, true, false);
         testChildObject = tm.getTestObject(DaseinTestManager.STATELESS, false, false);
         if( testChildObject != null && name.getMethodName().equals("childObjectContent") ) {
-            StorageServices services = tm.getProvider().getStorageServices();
+            StorageServices services = tm.getStorageServices();
 
             if( services != null ) {
                 BlobStoreSupport support = services.getOnlineStorageSupport();
@@ -111,7 +111,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void checkMetaData() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -189,7 +189,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void listItemsUnderRoot() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -228,7 +228,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getBogusRootBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -249,7 +249,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getRootBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -280,7 +280,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void rootBucketContent() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -313,7 +313,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void existsBogusBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -344,7 +344,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void existsBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -375,7 +375,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void listItemsUnderRootBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -424,7 +424,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getBogusRootObject() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -449,7 +449,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getRootObject() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -483,7 +483,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void rootObjectContent() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -519,7 +519,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getBogusChildBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -550,7 +550,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getChildBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -584,7 +584,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void childBucketContent() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -620,7 +620,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void listItemsUnderChildBucket() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -672,7 +672,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getBogusChildObject() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -693,7 +693,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void getChildObject() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -724,7 +724,7 @@ public class StatelessObjectStoreTests {
 
     @Test
     public void childObjectContent() throws CloudException, InternalException {
-        StorageServices services = tm.getProvider().getStorageServices();
+        StorageServices services = tm.getStorageServices();
 
         if( services == null ) {
             tm.ok("No storage services are supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -27,6 +27,10 @@ import org.dasein.cloud.storage.Blob;
 import org.dasein.cloud.storage.BlobStoreSupport;
 import org.dasein.cloud.storage.StorageServices;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.Prefetcher;
+import org.dasein.cloud.test.ResourceKind;
+import org.dasein.cloud.test.ResourceRegistry;
+import org.dasein.cloud.test.TeardownGraph;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -35,9 +39,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 /**
  * [Class Documentation]
@@ -50,10 +54,10 @@ public class StorageResources {
 
     static private final Random random = new Random();
 
-    private final HashMap<String,Blob> testChildBuckets = new HashMap<String, Blob>();
-    private final HashMap<String,Blob> testChildObjects = new HashMap<String, Blob>();
-    private final HashMap<String,Blob> testRootBuckets = new HashMap<String, Blob>();
-    private final HashMap<String,Blob> testRootObjects = new HashMap<String, Blob>();
+    private final ResourceRegistry<Blob> testChildBuckets = new ResourceRegistry<Blob>(ResourceKind.CHILD_BUCKET);
+    private final ResourceRegistry<Blob> testChildObjects = new ResourceRegistry<Blob>(ResourceKind.CHILD_OBJECT);
+    private final ResourceRegistry<Blob> testRootBuckets = new ResourceRegistry<Blob>(ResourceKind.ROOT_BUCKET);
+    private final ResourceRegistry<Blob> testRootObjects = new ResourceRegistry<Blob>(ResourceKind.ROOT_OBJECT);
 
     private CloudProvider provider;
 
@@ -61,118 +65,149 @@ public class StorageResources {
         this.provider = provider;
     }
 
-    public int close() {
-        int count = 0;
-
-        try {
-            StorageServices services = provider.getStorageServices();
-
-            if( services != null ) {
-                BlobStoreSupport support = services.getBlobStoreSupport();
+    /**
+     * Adds the removal of every storage resource provisioned for testing to the specified teardown graph.
+     * @param graph the graph to which teardown tasks are added
+     */
+    public void addTeardown(@Nonnull TeardownGraph graph) {
+        StorageServices services = provider.getStorageServices();
 
-                if( support != null ) {
-                    for( Map.Entry<String,Blob> entry : testRootObjects.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                String bucket = entry.getValue().getBucketName();
-                                String object = entry.getValue().getObjectName();
-
-                                if( object == null ) {
-                                    continue; // not possible
-                                }
-                                Blob blob = support.getObject(bucket, object);
+        if( services == null ) {
+            return;
+        }
+        final BlobStoreSupport support = services.getBlobStoreSupport();
 
-                                if( blob != null ) {
-                                    support.removeObject(bucket, object);
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test root object " + entry.getValue() + ": " + t.getMessage());
+        if( support == null ) {
+            return;
+        }
+        addObjectTeardown(graph, support, testRootObjects);
+        addObjectTeardown(graph, support, testChildObjects);
+        for( Map.Entry<String,Blob> entry : testChildBuckets.entrySet() ) {
+            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                final Blob childBucket = entry.getValue();
+
+                graph.add(ResourceKind.CHILD_BUCKET, childBucket.toString(), new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        String bucket = childBucket.getBucketName();
+
+                        if( bucket == null ) {
+                            bucket = childBucket.getObjectName();
+                            if( bucket == null ) {
+                                return false; // not possible
                             }
                         }
-                    }
-
-                    for( Map.Entry<String,Blob> entry : testChildObjects.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                String bucket = entry.getValue().getBucketName();
-                                String object = entry.getValue().getObjectName();
-
-                                if( object == null ) {
-                                    continue; // not possible
-                                }
-                                Blob blob = support.getObject(bucket, object);
+                        else {
+                            bucket = bucket + "/" + childBucket.getObjectName();
+                        }
+                        Blob blob = support.getBucket(bucket);
 
-                                if( blob != null ) {
-                                    support.removeObject(bucket, object);
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test child object " + entry.getValue() + ": " + t.getMessage());
-                            }
+                        if( blob != null ) {
+                            support.removeBucket(bucket);
                         }
+                        return true;
                     }
-                    for( Map.Entry<String,Blob> entry : testChildBuckets.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                String bucket = entry.getValue().getBucketName();
-
-                                if( bucket == null ) {
-                                    bucket = entry.getValue().getObjectName();
-                                    if( bucket == null ) {
-                                        continue; // not possible
-                                    }
-                                }
-                                else {
-                                    bucket = bucket + "/" + entry.getValue().getObjectName();
-                                }
-                                Blob blob = support.getBucket(bucket);
+                });
+            }
+        }
+        for( Map.Entry<String,Blob> entry : testRootBuckets.entrySet() ) {
+            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                final String bucket = entry.getValue().getBucketName();
 
-                                if( blob != null ) {
-                                    support.removeBucket(bucket);
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test child bucket " + entry.getValue() + ": " + t.getMessage());
-                            }
+                graph.add(ResourceKind.ROOT_BUCKET, String.valueOf(bucket), new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        Blob blob = support.getBucket(bucket);
+
+                        if( blob != null ) {
+                            support.removeBucket(bucket);
                         }
+                        return true;
                     }
-                    for( Map.Entry<String,Blob> entry : testRootBuckets.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                Blob blob = support.getBucket(entry.getValue().getBucketName());
-
-                                if( blob != null ) {
-                                    support.removeBucket(entry.getValue().getBucketName());
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test root bucket " + entry.getValue() + ": " + t.getMessage());
-                            }
+                });
+            }
+        }
+    }
+
+    private void addObjectTeardown(@Nonnull TeardownGraph graph, final @Nonnull BlobStoreSupport support, @Nonnull ResourceRegistry<Blob> registry) {
+        for( Map.Entry<String,Blob> entry : registry.entrySet() ) {
+            if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
+                final String bucket = entry.getValue().getBucketName();
+                final String object = entry.getValue().getObjectName();
+
+                if( object == null ) {
+                    continue; // not possible
+                }
+                graph.add(registry.getKind(), entry.getValue().toString(), new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        Blob blob = support.getObject(bucket, object);
+
+                        if( blob != null ) {
+                            support.removeObject(bucket, object);
                         }
+                        return true;
                     }
-                }
+                });
             }
         }
-        catch( Throwable ignore ) {
-            // ignore
+    }
+
+    /**
+     * Takes over a storage resource this framework did not provision in this run, such as one leaked by an earlier
+     * run, so that it is removed with the other test resources.
+     * @param kind the kind of resource
+     * @param label the label under which the resource is registered
+     * @param blob the bucket or object as listed by the cloud
+     * @return true if the resource was adopted, false if storage resources do not track that kind of resource
+     */
+    public boolean adopt(@Nonnull ResourceKind kind, @Nonnull String label, @Nonnull Blob blob) {
+        switch( kind ) {
+            case CHILD_BUCKET: testChildBuckets.put(label, blob); return true;
+            case CHILD_OBJECT: testChildObjects.put(label, blob); return true;
+            case ROOT_BUCKET: testRootBuckets.put(label, blob); return true;
+            case ROOT_OBJECT: testRootObjects.put(label, blob); return true;
+            default: return false;
         }
+    }
+
+    /**
+     * Adds the lookup of every stateless storage fixture to the specified prefetcher.
+     * @param prefetcher the prefetcher to which the lookups are added
+     */
+    public void addPrefetch(@Nonnull Prefetcher prefetcher) {
+        prefetcher.add(ResourceKind.ROOT_BUCKET, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessRootBucket();
+            }
+        });
+        prefetcher.add(ResourceKind.CHILD_BUCKET, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessChildBucket();
+            }
+        });
+        prefetcher.add(ResourceKind.ROOT_OBJECT, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessRootObject();
+            }
+        });
+        prefetcher.add(ResourceKind.CHILD_OBJECT, new Callable<Object>() {
+            @Override
+            public Object call() {
+                return findStatelessChildObject();
+            }
+        });
+    }
+
+    public int close() {
+        TeardownGraph graph = new TeardownGraph();
+
+        addTeardown(graph);
+        int count = graph.execute();
+
         provider.close();
         return count;
     }
@@ -186,7 +221,7 @@ public class StorageResources {
             logger.info("Provisioned Storage Resources:");
             header = true;
             count += testRootBuckets.size();
-            DaseinTestManager.out(logger, null, "---> Root Buckets", testRootBuckets.size() + " " + testRootBuckets);
+            DaseinTestManager.out(logger, null, "---> " + testRootBuckets.getKind(), testRootBuckets.size() + " " + testRootBuckets);
         }
         testRootObjects.remove(DaseinTestManager.STATELESS);
         if( !testRootObjects.isEmpty() ) {
@@ -195,7 +230,7 @@ public class StorageResources {
                 header = true;
             }
             count += testRootObjects.size();
-            DaseinTestManager.out(logger, null, "---> Root Objects", testRootObjects.size() + " " + testRootObjects);
+            DaseinTestManager.out(logger, null, "---> " + testRootObjects.getKind(), testRootObjects.size() + " " + testRootObjects);
         }
         testChildBuckets.remove(DaseinTestManager.STATELESS);
         if( !testChildBuckets.isEmpty() ) {
@@ -204,7 +239,7 @@ public class StorageResources {
                 header = true;
             }
             count += testChildBuckets.size();
-            DaseinTestManager.out(logger, null, "---> Child Buckets", testChildBuckets.size() + " " + testChildBuckets);
+            DaseinTestManager.out(logger, null, "---> " + testChildBuckets.getKind(), testChildBuckets.size() + " " + testChildBuckets);
         }
         testChildObjects.remove(DaseinTestManager.STATELESS);
         if( !testChildObjects.isEmpty() ) {
@@ -212,12 +247,12 @@ public class StorageResources {
                 logger.info("Provisioned Storage Resources:");
             }
             count += testChildObjects.size();
-            DaseinTestManager.out(logger, null, "---> Child Objects", testChildObjects.size() + " " + testChildObjects);
+            DaseinTestManager.out(logger, null, "---> " + testChildObjects.getKind(), testChildObjects.size() + " " + testChildObjects);
         }
         return count;
     }
 
-    public @Nullable Blob getTestRootBucket(@Nonnull String label, boolean provisionIfNull, @Nullable String namePrefix) {
+    public @Nullable Blob getTestRootBucket(@Nonnull final String label, boolean provisionIfNull, @Nullable final String namePrefix) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,Blob> entry : testRootBuckets.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -239,11 +274,16 @@ public class StorageResources {
             StorageServices services = provider.getStorageServices();
 
             if( services != null ) {
-                BlobStoreSupport support = services.getBlobStoreSupport();
+                final BlobStoreSupport support = services.getBlobStoreSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionRootBucket(support, label, namePrefix == null ? "dsnbkt" : namePrefix, false, true);
+                        return testRootBuckets.reserve(label, null, new ResourceRegistry.Provisioner<Blob>() {
+                            @Override
+                            public @Nullable Blob provision() throws CloudException, InternalException {
+                                return provisionRootBucket(support, label, namePrefix == null ? "dsnbkt" : namePrefix, false, true);
+                            }
+                        });
                     }
                     catch( Throwable t ) {
                         logger.warn("Unable to provision root test bucket: " + t.getMessage());
@@ -254,7 +294,7 @@ public class StorageResources {
         return null;
     }
 
-    public @Nullable Blob getTestChildBucket(@Nonnull String label, boolean provisionIfNull, @Nullable String parentBucket, @Nullable String namePrefix) {
+    public @Nullable Blob getTestChildBucket(@Nonnull final String label, boolean provisionIfNull, @Nullable String parentBucket, @Nullable final String namePrefix) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,Blob> entry : testChildBuckets.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -276,7 +316,7 @@ public class StorageResources {
             StorageServices services = provider.getStorageServices();
 
             if( services != null ) {
-                BlobStoreSupport support = services.getBlobStoreSupport();
+                final BlobStoreSupport support = services.getBlobStoreSupport();
 
                 if( support != null ) {
                     try {
@@ -291,7 +331,14 @@ public class StorageResources {
                                 return null;
                             }
                         }
-                        return provisionChildBucket(support, label, parentBucket, namePrefix == null ? "dsnbkt" : namePrefix, false, true);
+                        final String parentName = parentBucket;
+
+                        return testChildBuckets.reserve(label, null, new ResourceRegistry.Provisioner<Blob>() {
+                            @Override
+                            public @Nullable Blob provision() throws CloudException, InternalException {
+                                return provisionChildBucket(support, label, parentName, namePrefix == null ? "dsnbkt" : namePrefix, false, true);
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -302,7 +349,7 @@ public class StorageResources {
         return null;
     }
 
-    public @Nullable Blob getTestRootObject(@Nonnull String label, boolean provisionIfNull, @Nullable String namePrefix) {
+    public @Nullable Blob getTestRootObject(@Nonnull final String label, boolean provisionIfNull, @Nullable final String namePrefix) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,Blob> entry : testRootObjects.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -324,11 +371,16 @@ public class StorageResources {
             StorageServices services = provider.getStorageServices();
 
             if( services != null ) {
-                BlobStoreSupport support = services.getBlobStoreSupport();
+                final BlobStoreSupport support = services.getBlobStoreSupport();
 
                 if( support != null ) {
                     try {
-                        return provisionRootObject(support, label, namePrefix == null ? "dsnobj" : namePrefix);
+                        return testRootObjects.reserve(label, null, new ResourceRegistry.Provisioner<Blob>() {
+                            @Override
+                            public @Nullable Blob provision() throws CloudException, InternalException {
+                                return provisionRootObject(support, label, namePrefix == null ? "dsnobj" : namePrefix);
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -339,7 +391,7 @@ public class StorageResources {
         return null;
     }
 
-    public @Nullable Blob getTestChildObject(@Nonnull String label, boolean provisionIfNull, @Nullable String parentBucket, @Nullable String namePrefix) {
+    public @Nullable Blob getTestChildObject(@Nonnull final String label, boolean provisionIfNull, @Nullable String parentBucket, @Nullable final String namePrefix) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,Blob> entry : testChildObjects.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
@@ -361,7 +413,7 @@ public class StorageResources {
             StorageServices services = provider.getStorageServices();
 
             if( services != null ) {
-                BlobStoreSupport support = services.getOnlineStorageSupport();
+                final BlobStoreSupport support = services.getOnlineStorageSupport();
 
                 if( support != null ) {
                     try {
@@ -376,7 +428,14 @@ public class StorageResources {
                                 return null;
                             }
                         }
-                        return provisionChildObject(support, label, parentBucket, namePrefix == null ? "dsnobj" : namePrefix);
+                        final String parentName = parentBucket;
+
+                        return testChildObjects.reserve(label, null, new ResourceRegistry.Provisioner<Blob>() {
+                            @Override
+                            public @Nullable Blob provision() throws CloudException, InternalException {
+                                return provisionChildObject(support, label, parentName, namePrefix == null ? "dsnobj" : namePrefix);
+                            }
+                        });
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -515,12 +574,7 @@ public class StorageResources {
         String name = (useName ? namePrefix : (namePrefix + random.nextInt(10000)));
         Blob blob = support.createBucket(name, findFreeName);
 
-        synchronized( testRootBuckets ) {
-            while( testRootBuckets.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testRootBuckets.put(label, blob);
-        }
+        testRootBuckets.register(label, blob);
         return blob;
     }
 
@@ -529,12 +583,7 @@ public class StorageResources {
 
         Blob blob = support.createBucket(parentBucket + "/" + name, findFreeName);
 
-        synchronized( testChildBuckets ) {
-            while( testChildBuckets.containsKey(label) ) {
-                label = label + random.nextInt(9);
-            }
-            testChildBuckets.put(label, blob);
-        }
+        testChildBuckets.register(label, blob);
         return blob;
     }
 
@@ -559,12 +608,7 @@ public class StorageResources {
 
             Blob blob = support.upload(file, null, namePrefix + random.nextInt(10000) + ".txt");
 
-            synchronized( testChildObjects ) {
-                while( testChildObjects.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testChildObjects.put(label, blob);
-            }
+            testChildObjects.register(label, blob);
             return blob;
         }
         catch( IOException e ) {
@@ -593,12 +637,7 @@ public class StorageResources {
 
             Blob blob = support.upload(file, parentBucket, namePrefix + random.nextInt(10000) + ".txt");
 
-            synchronized( testChildObjects ) {
-                while( testChildObjects.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testChildObjects.put(label, blob);
-            }
+            testChildObjects.register(label, blob);
             return blob;
         }
         catch( IOException e ) {